@@ -0,0 +1,69 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.view;
+
+import br.com.caelum.vraptor.cache.CacheStoreFactory;
+
+/**
+ * Rough benchmark for {@link DefaultAcceptHeaderToFormat} on cache misses, using Accept headers sent by
+ * real browsers, crawlers and HTTP clients. Headers mentioning html are answered before reaching the
+ * parser, so only the ones that don't are used. Run it with {@code mvn -Pbenchmark process-test-classes}.
+ */
+public class AcceptHeaderToFormatBenchmark {
+
+	private static final String[] HEADERS = {
+		// browsers loading images and scripts
+		"image/avif,image/webp,image/apng,image/svg+xml,image/*,*/*;q=0.8",
+		"image/avif,image/webp,*/*",
+		"image/gif, image/jpeg, image/pjpeg, application/x-ms-application, application/xaml+xml, "
+				+ "application/x-ms-xbap, */*",
+		// browser XHR and fetch
+		"application/json, text/javascript, */*; q=0.01",
+		"application/json, text/plain, */*",
+		// feed readers and crawlers
+		"application/rss+xml, application/rdf+xml;q=0.8, application/atom+xml;q=0.6, application/xml;q=0.4, "
+				+ "text/xml;q=0.4",
+		"text/xml, application/xml;q=0.9, */*;q=0.1",
+		// API clients
+		"application/vnd.github+json",
+		"application/json;q=0.9, application/xml;q=0.8, */*;q=0.1",
+		"*/*",
+	};
+
+	private static final int ITERATIONS = 2000000;
+
+	public static void main(String[] args) {
+		for (int round = 0; round < 5; round++) {
+			run();
+		}
+	}
+
+	private static void run() {
+		// a cache without capacity forces every lookup through the parser
+		DefaultAcceptHeaderToFormat conneg = new DefaultAcceptHeaderToFormat(
+				new CacheStoreFactory().<String, String>createCacheWrapper(0));
+
+		long start = System.nanoTime();
+		int hash = 0;
+		for (int i = 0; i < ITERATIONS; i++) {
+			hash += conneg.getFormat(HEADERS[i % HEADERS.length]).hashCode();
+		}
+		long elapsed = System.nanoTime() - start;
+
+		System.out.printf("%d lookups in %d ms (%.1f ns/op) [%d]%n", ITERATIONS, elapsed / 1000000,
+				(double) elapsed / ITERATIONS, hash);
+	}
+}
@@ -44,6 +44,9 @@ import br.com.caelum.vraptor.core.StaticContentHandler;
 import br.com.caelum.vraptor.events.RequestStarted;
 import br.com.caelum.vraptor.events.VRaptorInitialized;
 import br.com.caelum.vraptor.http.EncodingHandler;
+import br.com.caelum.vraptor.http.cache.ResponseCache;
+import br.com.caelum.vraptor.http.compression.CompressingResponse;
+import br.com.caelum.vraptor.http.compression.CompressionHandler;
 import br.com.caelum.vraptor.interceptor.ApplicationLogicException;
 import br.com.caelum.vraptor.ioc.RequestStartedFactory;
 import br.com.caelum.vraptor.ioc.cdi.CDIRequestFactories;
@@ -58,7 +61,7 @@ import br.com.caelum.vraptor.ioc.cdi.CDIRequestFactories;
 @WebFilter(filterName="vraptor", urlPatterns="/*", dispatcherTypes={DispatcherType.FORWARD, DispatcherType.REQUEST}, asyncSupported=true)
 public class VRaptor implements Filter {
 
-	public static final String VERSION = "4.2.0-RC4-SNAPSHOT";
+	public static final String VERSION = "4.2.0-RC6-SNAPSHOT";
 
 	private final Logger logger = getLogger(VRaptor.class);
 
@@ -71,6 +74,12 @@ public class VRaptor implements Filter {
 	@Inject
 	private EncodingHandler encodingHandler;
 
+	@Inject
+	private CompressionHandler compressionHandler;
+
+	@Inject
+	private ResponseCache responseCache;
+
 	@Inject
 	private Event<VRaptorInitialized> initializedEvent;
 
@@ -115,16 +124,35 @@ public class VRaptor implements Filter {
 		} else {
 			logger.trace("VRaptor received a new request {}", req);
 
+			encodingHandler.setEncoding(baseRequest, baseResponse);
+			if (responseCache.serve(baseRequest, baseResponse)) {
+				logger.debug("VRaptor served the request from the response cache");
+				return;
+			}
+
+			HttpServletResponse capturing = responseCache.capture(baseRequest, baseResponse);
+			HttpServletResponse response = compressionHandler.wrap(baseRequest, capturing);
 			try {
-				encodingHandler.setEncoding(baseRequest, baseResponse);
-				RequestStarted requestStarted = requestStartedFactory.createEvent(baseRequest, baseResponse, chain);
+				RequestStarted requestStarted = requestStartedFactory.createEvent(baseRequest, response, chain);
 
 				cdiRequestFactories.setRequest(requestStarted);
 				requestStartedEvent.fire(requestStarted);
+
+				if (!baseRequest.isAsyncStarted()) {
+					CompressingResponse.complete(response);
+					responseCache.complete(baseRequest, capturing);
+				}
 			} catch (ApplicationLogicException e) {
 				// it is a business logic exception, we dont need to show
 				// all interceptors stack trace
 				throw new ServletException(e.getMessage(), e.getCause());
+			} finally {
+				if (baseRequest.isAsyncStarted()) {
+					responseCache.detach(capturing);
+				} else {
+					CompressingResponse.release(response);
+					responseCache.release(capturing);
+				}
 			}
 
 			logger.debug("VRaptor ended the request");
@@ -0,0 +1,58 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.cache;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * Keeps the caches produced with a {@link LRU#name()}, so they can be observed and cleared.
+ *
+ * @since 4.2.0
+ */
+@ApplicationScoped
+public class CacheRegistry {
+
+	private final ConcurrentMap<String, CacheStore<?, ?>> caches = new ConcurrentHashMap<>();
+
+	public void register(String name, CacheStore<?, ?> cache) {
+		caches.put(name, cache);
+	}
+
+	/**
+	 * Returns the registered caches by name.
+	 */
+	public Map<String, CacheStore<?, ?>> getCaches() {
+		return Collections.unmodifiableMap(caches);
+	}
+
+	/**
+	 * Returns the statistics of every registered cache, sorted by name.
+	 */
+	public Map<String, CacheStatistics> getStatistics() {
+		Map<String, CacheStatistics> statistics = new TreeMap<>();
+		for (Entry<String, CacheStore<?, ?>> cache : caches.entrySet()) {
+			statistics.put(cache.getKey(), cache.getValue().getStatistics());
+		}
+		return statistics;
+	}
+}
@@ -0,0 +1,90 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.cache;
+
+import static com.google.common.base.Objects.toStringHelper;
+
+import javax.enterprise.inject.Vetoed;
+
+/**
+ * A snapshot of the statistics of a {@link CacheStore}.
+ *
+ * @since 4.2.0
+ */
+@Vetoed
+public class CacheStatistics {
+
+	private final long hitCount;
+	private final long missCount;
+	private final long loadCount;
+	private final long evictionCount;
+	private final long totalLoadTime;
+	private final long size;
+
+	public CacheStatistics(long hitCount, long missCount, long loadCount, long evictionCount, long totalLoadTime,
+			long size) {
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.loadCount = loadCount;
+		this.evictionCount = evictionCount;
+		this.totalLoadTime = totalLoadTime;
+		this.size = size;
+	}
+
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	public long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * Returns how many values were computed, including refreshes.
+	 */
+	public long getLoadCount() {
+		return loadCount;
+	}
+
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * Returns the time spent computing values, in nanoseconds.
+	 */
+	public long getTotalLoadTime() {
+		return totalLoadTime;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the ratio of lookups that found a value, or 1 if there were no lookups.
+	 */
+	public double getHitRate() {
+		long requests = hitCount + missCount;
+		return requests == 0 ? 1.0 : (double) hitCount / requests;
+	}
+
+	@Override
+	public String toString() {
+		return toStringHelper(this).add("hits", hitCount).add("misses", missCount).add("loads", loadCount)
+				.add("evictions", evictionCount).add("totalLoadTime", totalLoadTime).add("size", size).toString();
+	}
+}
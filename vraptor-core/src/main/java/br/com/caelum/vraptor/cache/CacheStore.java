@@ -47,6 +47,8 @@ public interface CacheStore<K,V> {
 	/**
 	 * Fetches the value under the key. If no value is set, valueProvider is used to
 	 * compute a value for the key. Once the value is computed, it is stored on the cache.
+	 * Concurrent calls for the same missing key compute the value only once; the others
+	 * wait for it.
 	 *
 	 * @param key
 	 * @param valueProvider
@@ -54,4 +56,24 @@ public interface CacheStore<K,V> {
 	 */
 	public V fetch(K key, Supplier<V> valueProvider);
 
+	/**
+	 * Removes the value under the key, if any.
+	 *
+	 * @since 4.2.0
+	 */
+	public void invalidate(K key);
+
+	/**
+	 * Removes all values.
+	 *
+	 * @since 4.2.0
+	 */
+	public void invalidateAll();
+
+	/**
+	 * Returns a snapshot of the cache statistics.
+	 *
+	 * @since 4.2.0
+	 */
+	public CacheStatistics getStatistics();
 }
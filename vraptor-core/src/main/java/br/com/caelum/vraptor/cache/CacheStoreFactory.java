@@ -15,19 +15,28 @@
  */
 package br.com.caelum.vraptor.cache;
 
+import static com.google.common.base.Strings.isNullOrEmpty;
 import static com.google.common.base.Throwables.propagateIfPossible;
 
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import javax.enterprise.context.Dependent;
 import javax.enterprise.inject.Default;
 import javax.enterprise.inject.Produces;
 import javax.enterprise.inject.spi.InjectionPoint;
 
+import br.com.caelum.vraptor.environment.Environment;
+
 import com.google.common.base.Supplier;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 
 /**
@@ -39,6 +48,8 @@ import com.google.common.cache.CacheBuilder;
 @Dependent
 public class CacheStoreFactory {
 
+	public static final String ENVIRONMENT_PREFIX = "br.com.caelum.vraptor.cache.";
+
 	@Produces
 	@Default
 	public <K, V> CacheStore<K, V> buildDefaultCache() {
@@ -47,14 +58,102 @@ public class CacheStoreFactory {
 
 	@Produces
 	@LRU
-	public <K, V> CacheStore<K, V> buildLRUCache(InjectionPoint ip) {
-		int capacity = ip.getAnnotated().getAnnotation(LRU.class).capacity();
-		return createCacheWrapper(capacity);
+	public <K, V> CacheStore<K, V> buildLRUCache(InjectionPoint ip, Environment environment, CacheRegistry registry) {
+		LRU lru = ip.getAnnotated().getAnnotation(LRU.class);
+		CacheStore<K, V> cache = new GuavaCacheWrapper<>(this.<K, V>newBuilder(lru, environment).<K, V>build(
+				new CacheLoader<K, V>() {
+					@Override
+					public V load(K key) {
+						throw new UnsupportedOperationException("Values are only computed through CacheStore.fetch");
+					}
+				}));
+
+		if (!lru.name().isEmpty()) {
+			registry.register(lru.name(), cache);
+		}
+		return cache;
+	}
+
+	@Produces
+	@OffHeap
+	public <K, V> CacheStore<K, V> buildOffHeapCache(InjectionPoint ip, Environment environment, CacheRegistry registry) {
+		OffHeap offHeap = ip.getAnnotated().getAnnotation(OffHeap.class);
+		long capacityMb = offHeap.capacityMb();
+		if (!offHeap.name().isEmpty() && environment != null) {
+			capacityMb = valueOf(environment, ENVIRONMENT_PREFIX + offHeap.name() + ".capacity-mb", capacityMb);
+		}
+
+		CacheStore<K, V> cache = new OffHeapCacheStore<>(this.<V>newCodec(offHeap.codec()), capacityMb * 1024 * 1024,
+				offHeap.slabSizeKb() * 1024);
+		if (!offHeap.name().isEmpty()) {
+			registry.register(offHeap.name(), cache);
+		}
+		return cache;
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private <V> ValueCodec<V> newCodec(Class<? extends ValueCodec> type) {
+		try {
+			return type.newInstance();
+		} catch (InstantiationException | IllegalAccessException e) {
+			throw new CacheException("Unable to create codec " + type.getName(), e);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private <K, V> CacheBuilder<Object, Object> newBuilder(LRU lru, Environment environment) {
+		String prefix = ENVIRONMENT_PREFIX + lru.name() + ".";
+		boolean configurable = !lru.name().isEmpty() && environment != null;
+		TimeUnit unit = lru.timeUnit();
+
+		CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().recordStats();
+		if (lru.maximumWeight() > 0) {
+			builder.maximumWeight(lru.maximumWeight()).weigher(newWeigher(lru.weigher()));
+		} else {
+			builder.maximumSize(configurable ? valueOf(environment, prefix + "capacity", lru.capacity()) : lru.capacity());
+		}
+
+		long expireAfterWrite = configurable ? valueOf(environment, prefix + "expire-after-write",
+				lru.expireAfterWrite()) : lru.expireAfterWrite();
+		if (expireAfterWrite > 0) {
+			builder.expireAfterWrite(expireAfterWrite, unit);
+		}
+
+		long expireAfterAccess = configurable ? valueOf(environment, prefix + "expire-after-access",
+				lru.expireAfterAccess()) : lru.expireAfterAccess();
+		if (expireAfterAccess > 0) {
+			builder.expireAfterAccess(expireAfterAccess, unit);
+		}
+
+		if (lru.refreshAfterWrite() > 0) {
+			builder.refreshAfterWrite(lru.refreshAfterWrite(), unit);
+		}
+		return builder;
+	}
+
+	private static long valueOf(Environment environment, String key, long defaultValue) {
+		String value = environment.get(key, null);
+		return isNullOrEmpty(value) ? defaultValue : Long.parseLong(value.trim());
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static Weigher<Object, Object> newWeigher(Class<? extends Weigher> type) {
+		if (type == Weigher.class) {
+			throw new IllegalArgumentException("A weigher must be given along with maximumWeight");
+		}
+		try {
+			@SuppressWarnings("unchecked")
+			Weigher<Object, Object> weigher = type.newInstance();
+			return weigher;
+		} catch (InstantiationException | IllegalAccessException e) {
+			throw new CacheException("Unable to create weigher " + type.getName(), e);
+		}
 	}
 
 	public <V, K> CacheStore<K, V> createCacheWrapper(int capacity) {
 		Cache<K, V> guavaCache = CacheBuilder.newBuilder()
 			.maximumSize(capacity)
+			.recordStats()
 			.build();
 		return new GuavaCacheWrapper<>(guavaCache);
 	}
@@ -89,9 +188,29 @@ public class CacheStoreFactory {
 						return userSuplier.get();
 					}
 				});
+			} catch (UncheckedExecutionException | ExecutionError e) {
+				propagateIfPossible(e.getCause());
+				throw e;
 			} catch (ExecutionException e) {
 				throw new CacheException("Error while trying to fetch key: " + key, e);
 			}
 		}
+
+		@Override
+		public void invalidate(K key) {
+			guavaCache.invalidate(key);
+		}
+
+		@Override
+		public void invalidateAll() {
+			guavaCache.invalidateAll();
+		}
+
+		@Override
+		public CacheStatistics getStatistics() {
+			CacheStats stats = guavaCache.stats();
+			return new CacheStatistics(stats.hitCount(), stats.missCount(), stats.loadCount(), stats.evictionCount(),
+					stats.totalLoadTime(), guavaCache.size());
+		}
 	}
 }
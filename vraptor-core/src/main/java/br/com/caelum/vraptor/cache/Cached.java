@@ -0,0 +1,67 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.cache;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the value returned by a controller method, so later requests with the same key skip its
+ * invocation. The cached value is outjected and handled by the view as if the method had returned it.
+ * <p>
+ * Only the returned value is cached, so this should be used on idempotent methods that return their
+ * model instead of writing to {@code Result}. Null values are never cached.
+ * <p>
+ * The same instance is handed to every request that hits the cache, possibly at the same time, and is
+ * neither copied nor serialized. It must not be changed afterwards, by the view or anyone else, so return
+ * immutable values or copies made for the cache.
+ *
+ * <pre>
+ * &#064;Cached(ttl = 3600, key = "music.id")
+ * public Music show(Music music) { ... }
+ * </pre>
+ *
+ * @see ControllerResultCache
+ * @since 4.2.0
+ */
+@Target(ElementType.METHOD)
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Cached {
+
+	/**
+	 * How long the value is kept, or zero to keep it until it is evicted or invalidated.
+	 */
+	long ttl() default 0;
+
+	TimeUnit timeUnit() default TimeUnit.SECONDS;
+
+	/**
+	 * Expressions over the method parameters, such as {@code music.id}, whose values make up the key.
+	 * Defaults to the values of all parameters, which is only allowed when their types override
+	 * {@code equals}.
+	 */
+	String[] key() default {};
+
+	/**
+	 * Prefix of the keys, defaults to {@code ControllerSimpleName.method}.
+	 */
+	String name() default "";
+}
@@ -0,0 +1,269 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.cache;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import br.com.caelum.vraptor.cache.CacheStoreFactory.GuavaCacheWrapper;
+import br.com.caelum.vraptor.controller.ControllerMethod;
+import br.com.caelum.vraptor.environment.Environment;
+import br.com.caelum.vraptor.http.ValuedParameter;
+import br.com.caelum.vraptor.http.route.Evaluator;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+
+/**
+ * Keeps the values returned by {@link Cached} controller methods. Keys are lists made of the method
+ * {@link Cached#name()} followed by the key values, as in {@code [MusicController.show, 42]}, and are compared
+ * by {@code equals}, so related values can be invalidated by name and leading values.
+ * <p>
+ * Without {@link Cached#key()}, all parameters make up the key, so their types must have a value-based
+ * {@code equals}; otherwise an {@link IllegalStateException} asks for an explicit key.
+ * <p>
+ * The cache is registered in {@link CacheRegistry} as {@value #NAME}, and holds up to 1000 values unless
+ * {@code br.com.caelum.vraptor.cache.vraptor.controller-results.capacity} says otherwise.
+ *
+ * @since 4.2.0
+ */
+@ApplicationScoped
+public class ControllerResultCache {
+
+	public static final String NAME = "vraptor.controller-results";
+
+	private final Environment environment;
+	private final CacheRegistry registry;
+	private final Evaluator evaluator;
+
+	private final ConcurrentNavigableMap<String, Set<List<Object>>> keys = new ConcurrentSkipListMap<>();
+	private final ConcurrentMap<Method, Boolean> checkedMethods = new ConcurrentHashMap<>();
+	private CacheStore<List<Object>, CachedValue> results;
+
+	/**
+	 * @deprecated CDI eyes only
+	 */
+	protected ControllerResultCache() {
+		this(null, null, null);
+	}
+
+	@Inject
+	public ControllerResultCache(Environment environment, CacheRegistry registry, Evaluator evaluator) {
+		this.environment = environment;
+		this.registry = registry;
+		this.evaluator = evaluator;
+	}
+
+	@PostConstruct
+	public void init() {
+		String capacity = environment.get(CacheStoreFactory.ENVIRONMENT_PREFIX + NAME + ".capacity", "1000");
+		results = new GuavaCacheWrapper<>(CacheBuilder.newBuilder()
+				.maximumSize(Long.parseLong(capacity))
+				.recordStats()
+				.removalListener(new RemovalListener<List<Object>, CachedValue>() {
+					@Override
+					public void onRemoval(RemovalNotification<List<Object>, CachedValue> notification) {
+						if (notification.getCause() != RemovalCause.REPLACED) {
+							List<Object> key = notification.getKey();
+							Set<List<Object>> named = keys.get(key.get(0));
+							if (named != null) {
+								named.remove(key);
+							}
+						}
+					}
+				})
+				.<List<Object>, CachedValue>build());
+		registry.register(NAME, results);
+	}
+
+	/**
+	 * Returns the key of the value returned by the method for these parameters, or null if the method
+	 * isn't {@link Cached}.
+	 */
+	public List<Object> keyFor(ControllerMethod method, ValuedParameter[] parameters) {
+		Cached cached = method.getMethod().getAnnotation(Cached.class);
+		if (cached == null) {
+			return null;
+		}
+
+		String name = cached.name().isEmpty()
+				? method.getController().getType().getSimpleName() + "." + method.getMethod().getName()
+				: cached.name();
+		Object[] key = new Object[cached.key().length == 0 ? parameters.length + 1 : cached.key().length + 1];
+		key[0] = name;
+		if (cached.key().length == 0) {
+			checkParameterTypes(method.getMethod());
+			valuesOf(parameters, key);
+		} else {
+			evaluate(cached.key(), parameters, key);
+		}
+		return Collections.unmodifiableList(Arrays.asList(key));
+	}
+
+	/**
+	 * Returns the value cached under the key, or null if there is none or it has expired.
+	 */
+	public Object fetch(List<Object> key) {
+		CachedValue entry = results.fetch(key);
+		if (entry == null) {
+			return null;
+		}
+		if (entry.isExpired()) {
+			results.invalidate(key);
+			return null;
+		}
+		return entry.value;
+	}
+
+	/**
+	 * Caches the value returned by the method under the key, for as long as its {@link Cached#ttl()}.
+	 */
+	public void write(List<Object> key, ControllerMethod method, Object value) {
+		if (value == null) {
+			return;
+		}
+		Cached cached = method.getMethod().getAnnotation(Cached.class);
+		long expiresAt = cached.ttl() > 0 ? System.nanoTime() + cached.timeUnit().toNanos(cached.ttl()) : 0;
+		String name = (String) key.get(0);
+		Set<List<Object>> named = keys.get(name);
+		if (named == null) {
+			Set<List<Object>> created = Collections.newSetFromMap(new ConcurrentHashMap<List<Object>, Boolean>());
+			named = keys.putIfAbsent(name, created);
+			if (named == null) {
+				named = created;
+			}
+		}
+		named.add(key);
+		results.write(key, new CachedValue(value, expiresAt));
+	}
+
+	/**
+	 * Removes every value whose name starts with the prefix, such as {@code MusicController.} or
+	 * {@code MusicController.show}.
+	 */
+	public void invalidate(String prefix) {
+		for (Map.Entry<String, Set<List<Object>>> named : keys.tailMap(prefix).entrySet()) {
+			if (!named.getKey().startsWith(prefix)) {
+				break;
+			}
+			for (List<Object> key : named.getValue()) {
+				results.invalidate(key);
+			}
+		}
+	}
+
+	/**
+	 * Removes every value cached under the name whose key starts with the given values, such as
+	 * {@code invalidate("MusicController.show", 42L)}.
+	 */
+	public void invalidate(String name, Object... values) {
+		Set<List<Object>> named = keys.get(name);
+		if (named == null) {
+			return;
+		}
+		List<Object> leading = Arrays.asList(values);
+		for (List<Object> key : named) {
+			if (key.size() > values.length && key.subList(1, values.length + 1).equals(leading)) {
+				results.invalidate(key);
+			}
+		}
+	}
+
+	public void invalidateAll() {
+		results.invalidateAll();
+	}
+
+	public CacheStatistics getStatistics() {
+		return results.getStatistics();
+	}
+
+	private void checkParameterTypes(Method method) {
+		if (checkedMethods.containsKey(method)) {
+			return;
+		}
+		for (Class<?> type : method.getParameterTypes()) {
+			if (!hasValueEquals(type)) {
+				throw new IllegalStateException("Parameters of type " + type.getName() + " can't make up the key of "
+						+ method + ", since they don't override equals. Set @Cached(key = ...) instead");
+			}
+		}
+		checkedMethods.put(method, Boolean.TRUE);
+	}
+
+	private boolean hasValueEquals(Class<?> type) {
+		if (type.isPrimitive() || type.isEnum()) {
+			return true;
+		}
+		try {
+			return type.getMethod("equals", Object.class).getDeclaringClass() != Object.class;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	private void valuesOf(ValuedParameter[] parameters, Object[] key) {
+		for (int i = 0; i < parameters.length; i++) {
+			key[i + 1] = parameters[i].getValue();
+		}
+	}
+
+	private void evaluate(String[] expressions, ValuedParameter[] parameters, Object[] key) {
+		for (int i = 0; i < expressions.length; i++) {
+			String expression = expressions[i];
+			int dot = expression.indexOf('.');
+			String name = dot == -1 ? expression : expression.substring(0, dot);
+			Object root = valueOf(name, parameters);
+			key[i + 1] = dot == -1 ? root : evaluator.get(root, expression);
+		}
+	}
+
+	private Object valueOf(String name, ValuedParameter[] parameters) {
+		for (ValuedParameter parameter : parameters) {
+			if (parameter.getName().equals(name)) {
+				return parameter.getValue();
+			}
+		}
+		throw new IllegalArgumentException("There is no parameter named " + name + " to build the cache key");
+	}
+
+	private static class CachedValue {
+		final Object value;
+		final long expiresAt;
+
+		CachedValue(Object value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+
+		boolean isExpired() {
+			return expiresAt != 0 && System.nanoTime() - expiresAt > 0;
+		}
+	}
+}
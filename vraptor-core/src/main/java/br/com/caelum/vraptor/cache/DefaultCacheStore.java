@@ -15,48 +15,35 @@
  */
 package br.com.caelum.vraptor.cache;
 
-import static com.google.common.base.Throwables.propagateIfPossible;
-
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-
 import javax.enterprise.inject.Vetoed;
 
-import com.google.common.base.Supplier;
+import br.com.caelum.vraptor.cache.CacheStoreFactory.GuavaCacheWrapper;
+
+import com.google.common.cache.CacheBuilder;
 
 /**
- * A default implementation for {@link CacheStore}. This class is produced by {@link CacheStoreFactory}.
+ * A default implementation for {@link CacheStore}, bounded to {@link #DEFAULT_CAPACITY} values unless told
+ * otherwise. This class is produced by {@link CacheStoreFactory}.
  * 
  * @author Lucas Cavalcanti
  * @author Alberto Souza
  */
 @Vetoed
-public class DefaultCacheStore<K,V> implements CacheStore<K,V> {
+public class DefaultCacheStore<K,V> extends GuavaCacheWrapper<K,V> {
 
-	private final ConcurrentMap<K,V> cache = new ConcurrentHashMap<>();
-
-	@Override
-	public V fetch(K key, Supplier<V> valueProvider) {
-		if (!cache.containsKey(key)){
-			try {
-				V value = valueProvider.get();
-				cache.put(key, value);
-				return value;
-			} catch (Exception e) {
-				propagateIfPossible(e);
-				throw new CacheException("Error computing the value", e);
-			}
-		}
-		return cache.get(key);
-	}
+	/**
+	 * @since 4.2.0
+	 */
+	public static final int DEFAULT_CAPACITY = 10000;
 
-	@Override
-	public V write(K key, V value) {
-		return cache.put(key, value);
+	public DefaultCacheStore() {
+		this(DEFAULT_CAPACITY);
 	}
 
-	@Override
-	public V fetch(K key) {
-		return cache.get(key);
+	/**
+	 * @since 4.2.0
+	 */
+	public DefaultCacheStore(long capacity) {
+		super(CacheBuilder.newBuilder().maximumSize(capacity).recordStats().<K, V>build());
 	}
 }
@@ -20,12 +20,21 @@ import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
 
 import javax.enterprise.util.Nonbinding;
 import javax.inject.Qualifier;
 
+import com.google.common.cache.Weigher;
+
 /**
  * Used to mark an cache implementation as LRUCache.
+ * <p>
+ * Besides its capacity, the cache can expire values some time after they were written or last read,
+ * recompute values some time after they were written and be bounded by weight instead of number of values.
+ * Durations not greater than zero are disabled. Caches with a {@link #name()} are registered in
+ * {@link CacheRegistry}, and their {@code capacity}, {@code expire-after-write} and {@code expire-after-access}
+ * can be overridden through the {@code br.com.caelum.vraptor.cache.<name>.*} environment properties.
  * 
  * @author Alberto Souza
  */
@@ -38,4 +47,63 @@ public @interface LRU {
 	@Nonbinding
 	int capacity() default 100;
 
+	/**
+	 * Name used to register the cache and to look up its environment properties.
+	 *
+	 * @since 4.2.0
+	 */
+	@Nonbinding
+	String name() default "";
+
+	/**
+	 * Values are removed this long after they were written.
+	 *
+	 * @since 4.2.0
+	 */
+	@Nonbinding
+	long expireAfterWrite() default 0;
+
+	/**
+	 * Values are removed this long after they were last read or written.
+	 *
+	 * @since 4.2.0
+	 */
+	@Nonbinding
+	long expireAfterAccess() default 0;
+
+	/**
+	 * Values read this long after they were written are computed again by the reading thread, while
+	 * other threads keep getting the current value.
+	 *
+	 * @since 4.2.0
+	 */
+	@Nonbinding
+	long refreshAfterWrite() default 0;
+
+	/**
+	 * Unit of the durations above.
+	 *
+	 * @since 4.2.0
+	 */
+	@Nonbinding
+	TimeUnit timeUnit() default TimeUnit.SECONDS;
+
+	/**
+	 * Bounds the cache by the total weight of its values, as given by {@link #weigher()}, instead of
+	 * {@link #capacity()}.
+	 *
+	 * @since 4.2.0
+	 */
+	@Nonbinding
+	long maximumWeight() default 0;
+
+	/**
+	 * Computes the weight of values when {@link #maximumWeight()} is set. Must have a public no-arg constructor.
+	 *
+	 * @since 4.2.0
+	 */
+	@Nonbinding
+	@SuppressWarnings("rawtypes")
+	Class<? extends Weigher> weigher() default Weigher.class;
+
 }
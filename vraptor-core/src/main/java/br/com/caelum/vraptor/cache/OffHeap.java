@@ -0,0 +1,64 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.cache;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import javax.enterprise.util.Nonbinding;
+import javax.inject.Qualifier;
+
+/**
+ * Used to mark a cache implementation as {@link OffHeapCacheStore}, which keeps its values encoded
+ * outside of the heap, bounded by {@link #capacityMb()} megabytes.
+ * <p>
+ * Caches with a {@link #name()} are registered in {@link CacheRegistry}, and their capacity can be
+ * overridden through the {@code br.com.caelum.vraptor.cache.<name>.capacity-mb} environment property.
+ *
+ * @since 4.2.0
+ */
+@Qualifier
+@Target(value={ElementType.TYPE,ElementType.FIELD,ElementType.PARAMETER,ElementType.METHOD})
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+public @interface OffHeap {
+
+	@Nonbinding
+	int capacityMb() default 64;
+
+	/**
+	 * Size of each memory slab. Values larger than a slab are not cached.
+	 */
+	@Nonbinding
+	int slabSizeKb() default 1024;
+
+	/**
+	 * Converts the values to bytes and back. Defaults to {@link StringCodec}, so other value types need their
+	 * own codec; {@link SerializableCodec} works for any serializable value, but is slow and verbose.
+	 */
+	@Nonbinding
+	@SuppressWarnings("rawtypes")
+	Class<? extends ValueCodec> codec() default StringCodec.class;
+
+	/**
+	 * Name used to register the cache and to look up its environment properties.
+	 */
+	@Nonbinding
+	String name() default "";
+}
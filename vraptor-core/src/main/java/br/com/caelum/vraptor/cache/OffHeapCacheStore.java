@@ -0,0 +1,261 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Throwables.propagateIfPossible;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import javax.enterprise.inject.Vetoed;
+
+import com.google.common.base.Supplier;
+
+/**
+ * A {@link CacheStore} that keeps its values encoded by a {@link ValueCodec} in direct memory slabs,
+ * leaving only the keys and their locations on the heap. This keeps large caches, such as rendered
+ * fragments or serialized payloads, out of the way of the garbage collector.
+ * <p>
+ * Values are appended to the current slab. When it is full, a slab is chosen with the CLOCK algorithm:
+ * slabs read since the clock hand last passed are spared once, and the first one that wasn't is
+ * cleared, evicting its values, and reused. Slabs are only allocated when first needed. Values
+ * larger than a slab are not cached.
+ *
+ * @since 4.2.0
+ * @param <K> type of the cache key
+ * @param <V> type of the cache value
+ */
+@Vetoed
+public class OffHeapCacheStore<K, V> implements CacheStore<K, V> {
+
+	private final ValueCodec<V> codec;
+	private final int slabSize;
+	private final List<Slab> slabs;
+	private final Map<K, Location> index = new HashMap<>();
+	private final ConcurrentMap<K, FutureTask<V>> loading = new ConcurrentHashMap<>();
+
+	private int current;
+	private int hand;
+
+	private long hitCount;
+	private long missCount;
+	private long loadCount;
+	private long evictionCount;
+	private long totalLoadTime;
+
+	/**
+	 * @param capacity maximum number of bytes kept by this cache
+	 * @param slabSize size of each memory slab, in bytes
+	 */
+	public OffHeapCacheStore(ValueCodec<V> codec, long capacity, int slabSize) {
+		checkArgument(slabSize > 0, "slab size must be positive");
+		checkArgument(capacity >= slabSize, "capacity must hold at least one slab");
+		this.codec = codec;
+		this.slabSize = slabSize;
+		this.slabs = new ArrayList<>();
+		for (long i = capacity / slabSize; i > 0; i--) {
+			slabs.add(new Slab());
+		}
+	}
+
+	@Override
+	public V write(K key, V value) {
+		byte[] bytes = codec.encode(value);
+		synchronized (this) {
+			index.remove(key);
+			if (bytes.length <= slabSize) {
+				index.put(key, append(key, bytes));
+			}
+		}
+		return value;
+	}
+
+	@Override
+	public V fetch(K key) {
+		byte[] bytes;
+		synchronized (this) {
+			Location location = index.get(key);
+			if (location == null) {
+				missCount++;
+				return null;
+			}
+			hitCount++;
+			bytes = location.slab.read(location.offset, location.length);
+		}
+		return codec.decode(bytes);
+	}
+
+	@Override
+	public V fetch(K key, final Supplier<V> valueProvider) {
+		V value = fetch(key);
+		if (value != null) {
+			return value;
+		}
+
+		FutureTask<V> task = new FutureTask<>(new Callable<V>() {
+			@Override
+			public V call() {
+				return valueProvider.get();
+			}
+		});
+		FutureTask<V> running = loading.putIfAbsent(key, task);
+		if (running == null) {
+			running = task;
+			long start = System.nanoTime();
+			try {
+				task.run();
+				V loaded = task.get();
+				if (loaded != null) {
+					write(key, loaded);
+				}
+			} catch (InterruptedException | ExecutionException e) {
+				// reported below
+			} finally {
+				loading.remove(key);
+				synchronized (this) {
+					loadCount++;
+					totalLoadTime += System.nanoTime() - start;
+				}
+			}
+		}
+
+		try {
+			return running.get();
+		} catch (ExecutionException e) {
+			propagateIfPossible(e.getCause());
+			throw new CacheException("Error while trying to fetch key: " + key, e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CacheException("Interrupted while waiting for key: " + key, e);
+		}
+	}
+
+	@Override
+	public synchronized void invalidate(K key) {
+		index.remove(key);
+	}
+
+	@Override
+	public synchronized void invalidateAll() {
+		index.clear();
+		for (Slab slab : slabs) {
+			slab.clear();
+		}
+		current = 0;
+		hand = 0;
+	}
+
+	@Override
+	public synchronized CacheStatistics getStatistics() {
+		return new CacheStatistics(hitCount, missCount, loadCount, evictionCount, totalLoadTime, index.size());
+	}
+
+	private Location append(K key, byte[] bytes) {
+		if (!slabs.get(current).fits(bytes.length)) {
+			current = nextVictim();
+			evict(slabs.get(current));
+		}
+		Slab slab = slabs.get(current);
+		return new Location(slab, slab.append(key, bytes, slabSize), bytes.length);
+	}
+
+	private int nextVictim() {
+		if (slabs.size() == 1) {
+			return current;
+		}
+		while (true) {
+			hand = (hand + 1) % slabs.size();
+			if (hand == current) {
+				continue;
+			}
+			Slab candidate = slabs.get(hand);
+			if (candidate.referenced) {
+				candidate.referenced = false;
+			} else {
+				return hand;
+			}
+		}
+	}
+
+	private void evict(Slab slab) {
+		for (K key : slab.keys) {
+			Location location = index.get(key);
+			if (location != null && location.slab == slab) {
+				index.remove(key);
+				evictionCount++;
+			}
+		}
+		slab.clear();
+	}
+
+	private final class Slab {
+		private ByteBuffer buffer;
+		private final List<K> keys = new ArrayList<>();
+		private boolean referenced;
+
+		boolean fits(int length) {
+			return buffer == null || buffer.remaining() >= length;
+		}
+
+		int append(K key, byte[] bytes, int slabSize) {
+			if (buffer == null) {
+				buffer = ByteBuffer.allocateDirect(slabSize);
+			}
+			int offset = buffer.position();
+			buffer.put(bytes);
+			keys.add(key);
+			return offset;
+		}
+
+		byte[] read(int offset, int length) {
+			referenced = true;
+			byte[] bytes = new byte[length];
+			ByteBuffer view = buffer.duplicate();
+			view.position(offset);
+			view.get(bytes);
+			return bytes;
+		}
+
+		void clear() {
+			if (buffer != null) {
+				buffer.clear();
+			}
+			keys.clear();
+			referenced = false;
+		}
+	}
+
+	private final class Location {
+		final Slab slab;
+		final int offset;
+		final int length;
+
+		Location(Slab slab, int offset, int length) {
+			this.slab = slab;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+}
@@ -0,0 +1,54 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+import javax.enterprise.inject.Vetoed;
+
+/**
+ * Encodes values with Java serialization. This is the default codec of {@link OffHeap} caches.
+ *
+ * @since 4.2.0
+ */
+@Vetoed
+public class SerializableCodec implements ValueCodec<Serializable> {
+
+	@Override
+	public byte[] encode(Serializable value) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+			output.writeObject(value);
+		} catch (IOException e) {
+			throw new CacheException("Unable to serialize " + value.getClass().getName(), e);
+		}
+		return bytes.toByteArray();
+	}
+
+	@Override
+	public Serializable decode(byte[] bytes) {
+		try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			return (Serializable) input.readObject();
+		} catch (IOException | ClassNotFoundException e) {
+			throw new CacheException("Unable to deserialize cached value", e);
+		}
+	}
+}
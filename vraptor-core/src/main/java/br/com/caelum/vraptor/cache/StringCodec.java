@@ -0,0 +1,40 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.cache;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import javax.enterprise.inject.Vetoed;
+
+/**
+ * Encodes strings as UTF-8, which is cheaper than Java serialization for rendered fragments and
+ * serialized payloads.
+ *
+ * @since 4.2.0
+ */
+@Vetoed
+public class StringCodec implements ValueCodec<String> {
+
+	@Override
+	public byte[] encode(String value) {
+		return value.getBytes(UTF_8);
+	}
+
+	@Override
+	public String decode(byte[] bytes) {
+		return new String(bytes, UTF_8);
+	}
+}
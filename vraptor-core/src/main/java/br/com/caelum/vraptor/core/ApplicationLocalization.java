@@ -0,0 +1,159 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.core;
+
+import static com.google.common.base.Objects.firstNonNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.servlet.ServletContext;
+import javax.servlet.jsp.jstl.core.Config;
+import javax.servlet.jsp.jstl.fmt.LocalizationContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import br.com.caelum.vraptor.cache.CacheStore;
+import br.com.caelum.vraptor.cache.LRU;
+import br.com.caelum.vraptor.util.EmptyBundle;
+import br.com.caelum.vraptor.util.SafeResourceBundle;
+
+import com.google.common.base.Supplier;
+
+/**
+ * Application wide part of {@link JstlLocalization}. The locale and bundle configured in the servlet context,
+ * either as attributes or init parameters, are read once, and bundles are kept per base name and locale, so
+ * requests without overrides in the request or session scopes don't look them up again. Since locales
+ * may come from the client, at most 500 bundles are kept. Changes to the
+ * servlet context configuration after the first request aren't noticed.
+ *
+ * @since 4.2.0
+ */
+@ApplicationScoped
+public class ApplicationLocalization {
+
+	private static final Logger logger = LoggerFactory.getLogger(ApplicationLocalization.class);
+
+	static final String DEFAULT_BUNDLE_NAME = "messages";
+
+	private final ServletContext context;
+	private final CacheStore<List<Object>, ResourceBundle> bundles;
+	private volatile Configuration configuration;
+
+	/**
+	 * @deprecated CDI eyes only
+	 */
+	protected ApplicationLocalization() {
+		this(null, null);
+	}
+
+	@Inject
+	public ApplicationLocalization(ServletContext context, @LRU(name = "vraptor.bundles", capacity = 500) CacheStore<List<Object>, ResourceBundle> bundles) {
+		this.context = context;
+		this.bundles = bundles;
+	}
+
+	/**
+	 * Returns the locale configured for the application, or null if there is none.
+	 */
+	public Locale getLocale() {
+		return configuration().locale;
+	}
+
+	/**
+	 * Returns the bundle configured for the application in the given locale.
+	 */
+	public ResourceBundle getBundle(Locale locale) {
+		return getBundle(configuration().bundle, locale);
+	}
+
+	/**
+	 * Returns the bundle for a {@link Config#FMT_LOCALIZATION_CONTEXT} value, which can be a base name, a
+	 * {@link LocalizationContext} or null for the default base name.
+	 */
+	public ResourceBundle getBundle(Object bundle, Locale locale) {
+		if (bundle instanceof String || bundle == null) {
+			return getBundle(firstNonNull((String) bundle, DEFAULT_BUNDLE_NAME), locale);
+		}
+
+		if (bundle instanceof LocalizationContext) {
+			return new SafeResourceBundle(((LocalizationContext) bundle).getResourceBundle());
+		}
+
+		logger.warn("Can't handle bundle '{}'. Please report this bug. Using an empty bundle", bundle);
+		return new SafeResourceBundle(new EmptyBundle());
+	}
+
+	private ResourceBundle getBundle(final String baseName, final Locale locale) {
+		return bundles.fetch(Arrays.<Object>asList(baseName, locale), new Supplier<ResourceBundle>() {
+			@Override
+			public ResourceBundle get() {
+				try {
+					return new SafeResourceBundle(ResourceBundle.getBundle(baseName, locale));
+				} catch (MissingResourceException e) {
+					logger.warn("Couldn't find message bundle for base name '{}' and locale '{}', creating an empty one",
+							baseName, locale);
+					return new SafeResourceBundle(new EmptyBundle());
+				}
+			}
+		});
+	}
+
+	private Configuration configuration() {
+		Configuration current = configuration;
+		if (current == null) {
+			current = new Configuration(parseLocale(findByKey(Config.FMT_LOCALE)),
+					findByKey(Config.FMT_LOCALIZATION_CONTEXT));
+			configuration = current;
+		}
+		return current;
+	}
+
+	private Object findByKey(String key) {
+		Object value = Config.get(context, key);
+		return value != null ? value : context.getInitParameter(key);
+	}
+
+	/**
+	 * Converts a {@link Config#FMT_LOCALE} value, which can be a {@link Locale} or a string such as
+	 * {@code pt_BR}, returning null for anything else.
+	 */
+	static Locale parseLocale(Object value) {
+		if (value instanceof String) {
+			String languageTag = value.toString().replace("_", "-");
+			return Locale.forLanguageTag(languageTag);
+		} else if (value instanceof Locale) {
+			return (Locale) value;
+		}
+		return null;
+	}
+
+	private static class Configuration {
+		private final Locale locale;
+		private final Object bundle;
+
+		Configuration(Locale locale, Object bundle) {
+			this.locale = locale;
+			this.bundle = bundle;
+		}
+	}
+}
@@ -63,7 +63,7 @@ public class DefaultConverters implements Converters {
 	}
 
 	@Inject
-	public DefaultConverters(Container container, @LRU CacheStore<Class<?>, Class<? extends Converter<?>>> cache) {
+	public DefaultConverters(Container container, @LRU(name = "vraptor.converters") CacheStore<Class<?>, Class<? extends Converter<?>>> cache) {
 		this.container = container;
 		this.cache = cache;
 		logger.info("Registering bundled converters");
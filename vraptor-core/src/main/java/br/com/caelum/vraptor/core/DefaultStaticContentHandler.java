@@ -19,7 +19,10 @@ package br.com.caelum.vraptor.core;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.file.Paths;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.servlet.FilterChain;
@@ -27,14 +30,27 @@ import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import br.com.caelum.vraptor.cache.CacheStore;
+import br.com.caelum.vraptor.cache.CacheStoreFactory;
+import br.com.caelum.vraptor.environment.Environment;
 import br.com.caelum.vraptor.http.VRaptorRequest;
+import br.com.caelum.vraptor.http.compression.CompressionHandler;
+import br.com.caelum.vraptor.util.DirectoryWatcher;
 
 /**
- * Handles default content if the request corresponds to static content.
+ * Handles default content if the request corresponds to static content. When compression is enabled and
+ * the client accepts gzip, a precompressed {@code .gz} sibling of the resource is served if present.
+ * <p>
+ * Lookups are kept in a bounded cache, both for resources that exist and for those that don't, so
+ * requests to controllers don't probe the file system every time. The cache never changes in production;
+ * in development it is cleared whenever a file under the web application directory changes.
+ * <p>
+ * Files under the prefixes configured for {@link StaticFileServer} are served by VRaptor itself.
  *
  * @author guilherme silveira
  * @author unknown - based on vraptor2
@@ -44,24 +60,100 @@ public class DefaultStaticContentHandler implements StaticContentHandler {
 
 	private static final Logger logger = LoggerFactory.getLogger(DefaultStaticContentHandler.class);
 
+	private static final int CACHE_CAPACITY = 1000;
+
 	private final ServletContext context;
+	private final CompressionHandler compressionHandler;
+	private final StaticFileServer fileServer;
+	private final CacheStoreFactory cacheFactory;
+	private final Environment environment;
+	private CacheStore<String, Boolean> lookups;
+	private boolean caching;
+	private DirectoryWatcher watcher;
 
 	/** 
 	 * @deprecated CDI eyes only
 	 */
 	protected DefaultStaticContentHandler() {
-		this(null);
+		this(null, null, null, null, null);
 	}
 	
-	@Inject
+	/**
+	 * @deprecated use the constructor that receives the collaborators, otherwise lookups aren't cached and
+	 * neither static files nor precompressed resources are served
+	 */
+	@Deprecated
 	public DefaultStaticContentHandler(ServletContext context) {
+		this(context, null, null, null, null);
+	}
+
+	@Inject
+	public DefaultStaticContentHandler(ServletContext context, CompressionHandler compressionHandler,
+			StaticFileServer fileServer, CacheStoreFactory cacheFactory, Environment environment) {
 		this.context = context;
+		this.compressionHandler = compressionHandler;
+		this.fileServer = fileServer;
+		this.cacheFactory = cacheFactory;
+		this.environment = environment;
+	}
+
+	@PostConstruct
+	public void init() {
+		if (cacheFactory == null || environment == null) {
+			return;
+		}
+		lookups = cacheFactory.createCacheWrapper(CACHE_CAPACITY);
+		caching = !environment.isDevelopment() || watchWebappDirectory();
+	}
+
+	private boolean watchWebappDirectory() {
+		String root = context.getRealPath("/");
+		if (root == null) {
+			logger.debug("Web application isn't exploded, static resource lookups won't be cached");
+			return false;
+		}
+
+		try {
+			watcher = DirectoryWatcher.watchTree(Paths.get(root), "vraptor-static-watcher", new Runnable() {
+				@Override
+				public void run() {
+					lookups.invalidateAll();
+				}
+			});
+			return true;
+		} catch (IOException e) {
+			logger.warn("Unable to watch {}, static resource lookups won't be cached", root, e);
+			return false;
+		}
+	}
+
+	@PreDestroy
+	public void destroy() {
+		if (watcher != null) {
+			try {
+				watcher.close();
+			} catch (IOException e) {
+				logger.warn("Unable to stop watching static resources", e);
+			}
+		}
 	}
 	
 	@Override
 	public boolean requestingStaticFile(HttpServletRequest request) throws MalformedURLException {
-		URL resourceUrl = context.getResource(uriRelativeToContextRoot(request));
-		return resourceUrl != null && isAFile(resourceUrl);
+		return isAFile(uriRelativeToContextRoot(request));
+	}
+
+	private boolean isAFile(String path) throws MalformedURLException {
+		if (!caching) {
+			return isAFile(context.getResource(path));
+		}
+
+		Boolean cached = lookups.fetch(path);
+		if (cached == null) {
+			cached = isAFile(context.getResource(path));
+			lookups.write(path, cached);
+		}
+		return cached;
 	}
 
 	private String uriRelativeToContextRoot(HttpServletRequest request) {
@@ -70,21 +162,70 @@ public class DefaultStaticContentHandler implements StaticContentHandler {
 	}
 
 	private static String removeQueryStringAndJSessionId(String uri) {
-		if (uri.contains("?") || uri.contains(";")) {
-			return uri.replaceAll("[\\?;].+", "");
+		for (int i = 0; i < uri.length() - 1; i++) {
+			char c = uri.charAt(i);
+			if (c == '?' || c == ';') {
+				return uri.substring(0, i);
+			}
 		}
 		return uri;
 	}
 
 	private static boolean isAFile(URL resourceUrl) {
-		return !resourceUrl.toString().endsWith("/");
+		return resourceUrl != null && !resourceUrl.toString().endsWith("/");
 	}
 
 	@Override
 	public void deferProcessingToContainer(FilterChain filterChain, HttpServletRequest request,
 			HttpServletResponse response) throws IOException, ServletException {
+		if (fileServer != null && fileServer.isEnabled() && fileServer.serve(request, response, uriRelativeToContextRoot(request))) {
+			return;
+		}
+
+		if (compressionHandler != null && compressionHandler.acceptsGzip(request)) {
+			String uri = uriRelativeToContextRoot(request);
+			if (isAFile(uri + ".gz")) {
+				logger.debug("Forwarding request to precompressed resource: {}.gz", uri);
+				forwardToPrecompressed(uri, request, response);
+				return;
+			}
+		}
+
 		logger.debug("Deferring request to container: {} ", request.getRequestURI());
 		filterChain.doFilter(request, response);
 	}
 
+	private void forwardToPrecompressed(String uri, HttpServletRequest request, HttpServletResponse response)
+			throws IOException, ServletException {
+		String mimeType = context.getMimeType(uri);
+		if (mimeType != null) {
+			response.setContentType(mimeType);
+		}
+		response.setHeader("Content-Encoding", "gzip");
+		response.addHeader("Vary", "Accept-Encoding");
+		request.getRequestDispatcher(uri + ".gz").forward(request, new FixedContentTypeResponse(response));
+	}
+
+	/**
+	 * Keeps the content type of the original resource, since the container would use the one from the
+	 * {@code .gz} file.
+	 */
+	private static class FixedContentTypeResponse extends HttpServletResponseWrapper {
+
+		public FixedContentTypeResponse(HttpServletResponse response) {
+			super(response);
+		}
+
+		@Override
+		public void setContentType(String type) {
+		}
+
+		@Override
+		public void setHeader(String name, String value) {
+			if (!"Content-Type".equalsIgnoreCase(name)) {
+				super.setHeader(name, value);
+			}
+		}
+	}
+
 }
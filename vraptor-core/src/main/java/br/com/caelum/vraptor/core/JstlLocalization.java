@@ -18,26 +18,23 @@ package br.com.caelum.vraptor.core;
 
 import static com.google.common.base.Objects.firstNonNull;
 
+import java.util.List;
 import java.util.Locale;
-import java.util.MissingResourceException;
 import java.util.ResourceBundle;
 
 import javax.enterprise.context.RequestScoped;
 import javax.enterprise.inject.Produces;
 import javax.inject.Inject;
-import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
 import javax.servlet.jsp.jstl.core.Config;
-import javax.servlet.jsp.jstl.fmt.LocalizationContext;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import br.com.caelum.vraptor.util.EmptyBundle;
-import br.com.caelum.vraptor.util.SafeResourceBundle;
+import br.com.caelum.vraptor.cache.DefaultCacheStore;
 
 /**
  * The default implementation of bundle provider uses JSTL's api to access user information on the bundle to be used.
+ * Values set in the request or session scopes override the application wide ones, which are resolved once by
+ * {@link ApplicationLocalization}.
  *
  * @author Guilherme Silveira
  * @author Otávio Scherer Garcia
@@ -45,49 +42,39 @@ import br.com.caelum.vraptor.util.SafeResourceBundle;
 @RequestScoped
 public class JstlLocalization {
 
-	private static final Logger logger = LoggerFactory.getLogger(JstlLocalization.class);
-
-	private static final String DEFAULT_BUNDLE_NAME = "messages";
-
 	private final HttpServletRequest request;
+	private final ApplicationLocalization application;
 
 	/** 
 	 * @deprecated CDI eyes only
 	 */
 	protected JstlLocalization() {
-		this(null);
+		this(null, null);
 	}
 
-	@Inject
+	/**
+	 * @deprecated use the constructor that receives the {@link ApplicationLocalization}, otherwise the
+	 * application wide configuration and bundles are resolved again for every request
+	 */
+	@Deprecated
 	public JstlLocalization(HttpServletRequest request) {
+		this(request, new ApplicationLocalization(request.getServletContext(),
+				new DefaultCacheStore<List<Object>, ResourceBundle>(500)));
+	}
+
+	@Inject
+	public JstlLocalization(HttpServletRequest request, ApplicationLocalization application) {
 		this.request = request;
+		this.application = application;
 	}
 
 	@Produces
 	public ResourceBundle getBundle(Locale locale) {
 		Object bundle = findByKey(Config.FMT_LOCALIZATION_CONTEXT);
-		ResourceBundle unsafe = extractUnsafeBundle(bundle, locale);
-		return new SafeResourceBundle(unsafe);
-	}
-
-	private ResourceBundle extractUnsafeBundle(Object bundle, Locale locale) {
-		if (bundle instanceof String || bundle == null) {
-			String baseName = firstNonNull((String) bundle, DEFAULT_BUNDLE_NAME);
-
-			try {
-				return ResourceBundle.getBundle(baseName, locale);
-			} catch (MissingResourceException e) {
-				logger.warn("Couldn't find message bundle for base name '{}' and locale '{}', creating an empty one", baseName, locale);
-				return new EmptyBundle();
-			}
+		if (bundle == null) {
+			return application.getBundle(locale);
 		}
-
-		if (bundle instanceof LocalizationContext) {
-			return ((LocalizationContext) bundle).getResourceBundle();
-		}
-
-		logger.warn("Can't handle bundle '{}'. Please report this bug. Using an empty bundle", bundle);
-		return new EmptyBundle();
+		return application.getBundle(bundle, locale);
 	}
 
 	@Produces
@@ -97,21 +84,18 @@ public class JstlLocalization {
 	}
 
 	private Locale localeFor(String key) {
-		Object localeValue = findByKey(key);
-
-		if (localeValue instanceof String) {
-			String languageTag = localeValue.toString().replace("_", "-");
-			return Locale.forLanguageTag(languageTag);
-		} else if (localeValue instanceof Locale) {
-			return (Locale) localeValue;
+		Locale locale = ApplicationLocalization.parseLocale(findByKey(key));
+		if (locale != null) {
+			return locale;
 		}
 
-		return request.getLocale();
+		Locale applicationLocale = application.getLocale();
+		return applicationLocale != null ? applicationLocale : request.getLocale();
 	}
 
 	/**
-	 * Looks up a configuration variable in the request, session and application scopes. If none is found, return by
-	 * {@link ServletContext#getInitParameter(String)} method.
+	 * Looks up a configuration variable in the request and session scopes. The session is only looked up if it
+	 * already exists, so it is never created here.
 	 */
 	private Object findByKey(String key) {
 		Object value = Config.get(request, key);
@@ -119,16 +103,7 @@ public class JstlLocalization {
 			return value;
 		}
 
-		value = Config.get(request.getSession(), key);
-		if (value != null) {
-			return value;
-		}
-
-		value = Config.get(request.getServletContext(), key);
-		if (value != null) {
-			return value;
-		}
-
-		return request.getServletContext().getInitParameter(key);
+		HttpSession session = request.getSession(false);
+		return session != null ? Config.get(session, key) : null;
 	}
 }
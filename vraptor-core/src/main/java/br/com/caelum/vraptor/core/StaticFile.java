@@ -0,0 +1,151 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.core;
+
+import static javax.servlet.http.HttpServletResponse.SC_NOT_MODIFIED;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import javax.enterprise.inject.Vetoed;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import br.com.caelum.vraptor.http.cache.EntityTags;
+import br.com.caelum.vraptor.observer.download.PathDownload;
+
+import com.google.common.hash.Hashing;
+
+/**
+ * A file served by {@link StaticFileServer}. Small files are read once into a direct buffer, outside
+ * the heap, and tagged with a hash of their content; bigger ones are tagged with their length and
+ * modification time and sent with {@link PathDownload}, which also answers byte range requests.
+ *
+ * @since 4.2.0
+ */
+@Vetoed
+class StaticFile {
+
+	private final Path path;
+	private final long length;
+	private final long lastModified;
+	private final String etag;
+	private final ByteBuffer content;
+
+	private StaticFile(Path path, long length, long lastModified, String etag, ByteBuffer content) {
+		this.path = path;
+		this.length = length;
+		this.lastModified = lastModified;
+		this.etag = etag;
+		this.content = content;
+	}
+
+	/**
+	 * Reads the file metadata, and its content if it isn't bigger than memoryThreshold.
+	 */
+	static StaticFile load(Path path, int memoryThreshold) throws IOException {
+		BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		long length = attributes.size();
+		long lastModified = attributes.lastModifiedTime().toMillis() / 1000 * 1000;
+
+		if (length > memoryThreshold) {
+			String etag = '"' + Long.toHexString(length) + '-' + Long.toHexString(lastModified) + '"';
+			return new StaticFile(path, length, lastModified, etag, null);
+		}
+
+		byte[] bytes = Files.readAllBytes(path);
+		ByteBuffer content = ByteBuffer.allocateDirect(bytes.length);
+		content.put(bytes).flip();
+		String etag = '"' + Hashing.murmur3_128().hashBytes(bytes).toString() + '"';
+		return new StaticFile(path, bytes.length, lastModified, etag, content.asReadOnlyBuffer());
+	}
+
+	/**
+	 * Whether the file changed on disk since it was loaded.
+	 */
+	boolean isStale() {
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+			return attributes.size() != length
+					|| attributes.lastModifiedTime().toMillis() / 1000 * 1000 != lastModified;
+		} catch (IOException e) {
+			return true;
+		}
+	}
+
+	boolean isInMemory() {
+		return content != null;
+	}
+
+	String getEtag() {
+		return etag;
+	}
+
+	void write(HttpServletRequest request, HttpServletResponse response, String contentType) throws IOException {
+		if (content == null || request.getHeader("Range") != null) {
+			new PathDownload(path, contentType, null) {
+				@Override
+				protected String entityTag(long length, long lastModified) {
+					return etag;
+				}
+			}.write(request, response);
+			return;
+		}
+
+		response.setHeader("Accept-Ranges", "bytes");
+		response.setHeader("ETag", etag);
+		response.setDateHeader("Last-Modified", lastModified);
+
+		if (isNotModified(request)) {
+			response.setStatus(SC_NOT_MODIFIED);
+			return;
+		}
+
+		if (contentType != null) {
+			response.setContentType(contentType);
+		}
+		response.setHeader("Content-Length", Long.toString(length));
+		if (!"HEAD".equals(request.getMethod())) {
+			OutputStream stream = response.getOutputStream();
+			WritableByteChannel out = stream instanceof WritableByteChannel
+					? (WritableByteChannel) stream : Channels.newChannel(stream);
+			ByteBuffer buffer = content.duplicate();
+			while (buffer.hasRemaining()) {
+				out.write(buffer);
+			}
+		}
+	}
+
+	private boolean isNotModified(HttpServletRequest request) {
+		String ifNoneMatch = request.getHeader("If-None-Match");
+		if (ifNoneMatch != null) {
+			return EntityTags.matches(ifNoneMatch, etag);
+		}
+
+		try {
+			long ifModifiedSince = request.getDateHeader("If-Modified-Since");
+			return ifModifiedSince != -1 && lastModified <= ifModifiedSince;
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,204 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.core;
+
+import static com.google.common.base.Strings.emptyToNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import br.com.caelum.vraptor.cache.CacheStore;
+import br.com.caelum.vraptor.cache.CacheStoreFactory;
+import br.com.caelum.vraptor.environment.Environment;
+import br.com.caelum.vraptor.http.compression.CompressionHandler;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Splitter;
+
+/**
+ * Serves static files under configured prefixes straight from VRaptor instead of the container's default
+ * servlet, so assets are served the same way on every container. Small files are kept in memory, outside
+ * the heap; bigger ones are sent with {@link java.nio.channels.FileChannel#transferTo(long, long,
+ * java.nio.channels.WritableByteChannel)}. Responses carry a strong {@code ETag}, computed once per file,
+ * byte range support and, if the client accepts gzip, the precompressed {@code .gz} sibling when present.
+ * In development files are checked for changes on every request. It is configured through these
+ * environment properties:
+ *
+ * <ul>
+ * <li>{@code br.com.caelum.vraptor.static.prefixes}: comma separated URI prefixes, such as
+ * {@code /assets/}, served by VRaptor. Empty by default, which disables it</li>
+ * <li>{@code br.com.caelum.vraptor.static.cache-control}: the {@code Cache-Control} header sent with files.
+ * Not sent by default</li>
+ * <li>{@code br.com.caelum.vraptor.static.memory-threshold}: files up to this size, in bytes, are kept in
+ * memory. Defaults to 65536</li>
+ * </ul>
+ *
+ * Files are only served from an exploded web application; otherwise requests are left to the container.
+ *
+ * @since 4.2.0
+ */
+@ApplicationScoped
+public class StaticFileServer {
+
+	public static final String PREFIXES_KEY = "br.com.caelum.vraptor.static.prefixes";
+	public static final String CACHE_CONTROL_KEY = "br.com.caelum.vraptor.static.cache-control";
+	public static final String MEMORY_THRESHOLD_KEY = "br.com.caelum.vraptor.static.memory-threshold";
+
+	private static final int CACHE_CAPACITY = 1000;
+
+	private final ServletContext context;
+	private final Environment environment;
+	private final CompressionHandler compressionHandler;
+	private final CacheStoreFactory cacheFactory;
+	private List<String> prefixes;
+	private String cacheControl;
+	private int memoryThreshold;
+	private boolean development;
+	private CacheStore<String, Optional<StaticFile>> files;
+
+	/**
+	 * @deprecated CDI eyes only
+	 */
+	protected StaticFileServer() {
+		this(null, null, null, null);
+	}
+
+	@Inject
+	public StaticFileServer(ServletContext context, Environment environment, CompressionHandler compressionHandler,
+			CacheStoreFactory cacheFactory) {
+		this.context = context;
+		this.environment = environment;
+		this.compressionHandler = compressionHandler;
+		this.cacheFactory = cacheFactory;
+	}
+
+	@PostConstruct
+	public void init() {
+		prefixes = Splitter.on(',').trimResults().omitEmptyStrings().splitToList(environment.get(PREFIXES_KEY, ""));
+		cacheControl = emptyToNull(environment.get(CACHE_CONTROL_KEY, ""));
+		memoryThreshold = Integer.parseInt(environment.get(MEMORY_THRESHOLD_KEY, "65536"));
+		development = environment.isDevelopment();
+		files = cacheFactory.createCacheWrapper(CACHE_CAPACITY);
+	}
+
+	public boolean isEnabled() {
+		return !prefixes.isEmpty();
+	}
+
+	/**
+	 * Serves the file at the given URI, relative to the context root, if it is under one of the configured
+	 * prefixes and exists in the web application directory.
+	 *
+	 * @return false if the request must be left to the container.
+	 */
+	public boolean serve(HttpServletRequest request, HttpServletResponse response, String requestedUri)
+			throws IOException {
+		String method = request.getMethod();
+		if (!isEnabled() || !("GET".equals(method) || "HEAD".equals(method))) {
+			return false;
+		}
+
+		String uri = normalize(requestedUri);
+		if (uri == null || !isServable(uri)) {
+			return false;
+		}
+
+		StaticFile file = lookup(uri);
+		if (file == null) {
+			return false;
+		}
+
+		StaticFile compressed = lookup(uri + ".gz");
+		if (compressed != null) {
+			response.addHeader("Vary", "Accept-Encoding");
+			if (compressionHandler.acceptsGzip(request)) {
+				response.setHeader("Content-Encoding", "gzip");
+				file = compressed;
+			}
+		}
+
+		if (cacheControl != null) {
+			response.setHeader("Cache-Control", cacheControl);
+		}
+		file.write(request, response, context.getMimeType(uri));
+		return true;
+	}
+
+	/**
+	 * Collapses repeated slashes and {@code .} segments, the same way the container does when resolving the
+	 * real path, so the checks below see the file that would actually be served.
+	 *
+	 * @return null if the URI has {@code ..} segments or backslashes.
+	 */
+	static String normalize(String uri) {
+		if (uri.indexOf('\\') >= 0) {
+			return null;
+		}
+
+		StringBuilder normalized = new StringBuilder(uri.length());
+		for (String segment : Splitter.on('/').omitEmptyStrings().split(uri)) {
+			if ("..".equals(segment)) {
+				return null;
+			}
+			if (!".".equals(segment)) {
+				normalized.append('/').append(segment);
+			}
+		}
+		if (normalized.length() == 0 || uri.endsWith("/")) {
+			normalized.append('/');
+		}
+		return normalized.toString();
+	}
+
+	private boolean isServable(String uri) {
+		String upper = uri.toUpperCase(Locale.ENGLISH);
+		if (upper.startsWith("/WEB-INF") || upper.startsWith("/META-INF")) {
+			return false;
+		}
+
+		for (String prefix : prefixes) {
+			if (uri.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private StaticFile lookup(String uri) throws IOException {
+		Optional<StaticFile> cached = files.fetch(uri);
+		if (cached != null && (!development || (cached.isPresent() && !cached.get().isStale()))) {
+			return cached.orNull();
+		}
+
+		String realPath = context.getRealPath(uri);
+		Path path = realPath == null ? null : Paths.get(realPath);
+		Optional<StaticFile> loaded = path != null && Files.isRegularFile(path)
+				? Optional.of(StaticFile.load(path, memoryThreshold)) : Optional.<StaticFile>absent();
+		files.write(uri, loaded);
+		return loaded.orNull();
+	}
+}
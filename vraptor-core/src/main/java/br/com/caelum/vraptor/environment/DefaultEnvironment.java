@@ -23,13 +23,23 @@ import static java.security.AccessController.doPrivileged;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.security.PrivilegedAction;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Event;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.servlet.ServletContext;
@@ -37,9 +47,21 @@ import javax.servlet.ServletContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import br.com.caelum.vraptor.events.EnvironmentChanged;
+import br.com.caelum.vraptor.util.DirectoryWatcher;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
 /**
  * A default {@link Environment} implementation which loads the environment file based on {@code VRAPTOR_ENV} system 
  * property or {@code br.com.caelum.vraptor.environment} property in the context init parameter.
+ * <p>
+ * Properties are kept in an immutable snapshot, with system properties already applied, so lookups don't
+ * lock. {@link #reload()} builds a new snapshot and fires {@link EnvironmentChanged} if anything changed.
+ * If {@code br.com.caelum.vraptor.environment.reload} is true and the environment files are in a directory,
+ * they are watched and reloaded whenever they change.
  *
  * @author Alexandre Atoji
  * @author Andrew Kurauchi
@@ -54,21 +76,30 @@ public class DefaultEnvironment implements Environment {
 	private static final Logger LOG = LoggerFactory.getLogger(DefaultEnvironment.class);
 	public static final String ENVIRONMENT_PROPERTY = "br.com.caelum.vraptor.environment";
 	public static final String BASE_ENVIRONMENT_FILE = "environment";
+	public static final String RELOAD_KEY = "br.com.caelum.vraptor.environment.reload";
 
 	private final ServletContext context;
-	private Properties properties;
+	private final Event<EnvironmentChanged> changedEvent;
+	private final Map<String, String> overrides = new HashMap<>();
+	private volatile Map<String, String> properties = ImmutableMap.of();
 	private EnvironmentType environmentType;
+	private DirectoryWatcher watcher;
 
 	/**
 	 * @deprecated CDI eyes only
 	 */
 	protected DefaultEnvironment() {
-		this((ServletContext) null);
+		this(null, null);
 	}
 
-	@Inject
 	public DefaultEnvironment(ServletContext context) {
+		this(context, null);
+	}
+
+	@Inject
+	public DefaultEnvironment(ServletContext context, Event<EnvironmentChanged> changedEvent) {
 		this.context = context;
+		this.changedEvent = changedEvent;
 	}
 
 	public DefaultEnvironment(EnvironmentType environmentType) {
@@ -80,13 +111,83 @@ public class DefaultEnvironment implements Environment {
 	@PostConstruct
 	protected void setup() {
 		loadProperties();
+		if (supports(RELOAD_KEY)) {
+			watchEnvironmentFiles();
+		}
+	}
+
+	@PreDestroy
+	protected void destroy() {
+		if (watcher != null) {
+			try {
+				watcher.close();
+			} catch (IOException e) {
+				LOG.warn("Unable to stop watching environment files", e);
+			}
+		}
+	}
+
+	/**
+	 * Reads the environment files and system properties again, replacing the current snapshot. Values set
+	 * through {@link #set(String, String)} are kept. Fires {@link EnvironmentChanged} if any property changed.
+	 */
+	public synchronized void reload() {
+		Map<String, String> previous = properties;
+		Map<String, String> current = loadProperties();
+
+		Set<String> changed = new HashSet<>();
+		for (String key : Sets.union(previous.keySet(), current.keySet())) {
+			if (!Objects.equals(previous.get(key), current.get(key))) {
+				changed.add(key);
+			}
+		}
+
+		if (!changed.isEmpty()) {
+			LOG.info("Environment reloaded, changed properties: {}", changed);
+			if (changedEvent != null) {
+				changedEvent.fire(new EnvironmentChanged(this, ImmutableSet.copyOf(changed)));
+			}
+		}
 	}
 
-	private void loadProperties() {
-		properties = new Properties();
-		loadAndPut(BASE_ENVIRONMENT_FILE);
-		loadAndPut(getEnvironmentType().getName());
+	private synchronized Map<String, String> loadProperties() {
+		Properties loaded = new Properties();
+		loadAndPut(loaded, BASE_ENVIRONMENT_FILE);
+		loadAndPut(loaded, getEnvironmentType().getName());
+
+		Map<String, String> snapshot = new HashMap<>();
+		for (String key : loaded.stringPropertyNames()) {
+			String systemProperty = System.getProperty(key);
+			snapshot.put(key, isNullOrEmpty(systemProperty) ? loaded.getProperty(key) : systemProperty);
+		}
+		snapshot.putAll(overrides);
+
+		properties = ImmutableMap.copyOf(snapshot);
 		LOG.debug("Environment is up with properties {}", properties);
+		return properties;
+	}
+
+	private void watchEnvironmentFiles() {
+		URL base = getClass().getResource("/" + BASE_ENVIRONMENT_FILE + ".properties");
+		if (base == null || !"file".equals(base.getProtocol())) {
+			LOG.warn("{} is set, but environment files aren't in a directory and won't be watched", RELOAD_KEY);
+			return;
+		}
+
+		try {
+			Path directory = Paths.get(base.toURI()).getParent();
+			Set<String> fileNames = ImmutableSet.of(BASE_ENVIRONMENT_FILE + ".properties",
+					getEnvironmentType().getName() + ".properties");
+			watcher = DirectoryWatcher.watchFiles(directory, fileNames, "vraptor-environment-watcher", new Runnable() {
+				@Override
+				public void run() {
+					reload();
+				}
+			});
+			LOG.debug("Watching environment files in {}", directory);
+		} catch (IOException | URISyntaxException e) {
+			LOG.warn("Unable to watch environment files, they won't be reloaded", e);
+		}
 	}
 	
 	private EnvironmentType getEnvironmentType() {
@@ -96,7 +197,7 @@ public class DefaultEnvironment implements Environment {
 		return environmentType;
 	}
 
-	private void loadAndPut(String environment) {
+	private void loadAndPut(Properties properties, String environment) {
 		try (InputStream resource = getClass().getResourceAsStream("/" + environment + ".properties")) {
 			properties.load(resource);
 			LOG.debug("File {}.properties loaded", environment);
@@ -158,10 +259,8 @@ public class DefaultEnvironment implements Environment {
 
 	@Override
 	public boolean supports(String feature) {
-		if (has(feature)) {
-			return Boolean.parseBoolean(get(feature).trim());
-		}
-		return false;
+		String value = properties.get(feature);
+		return value != null && Boolean.parseBoolean(value.trim());
 	}
 
 	@Override
@@ -171,34 +270,30 @@ public class DefaultEnvironment implements Environment {
 
 	@Override
 	public String get(String key) {
-		if (!has(key)) {
+		String value = properties.get(key);
+		if (value == null) {
 			throw new NoSuchElementException(String.format("Key %s not found in environment %s", key, getName()));
 		}
-
-		String systemProperty = System.getProperty(key);
-		if (!isNullOrEmpty(systemProperty)) {
-			return systemProperty;
-		} else {
-			return properties.getProperty(key);
-		}
+		return value;
 	}
 
 	@Override
 	public String get(String key, String defaultValue) {
-		if (has(key)) {
-			return get(key);
-		}
-		return defaultValue;
+		String value = properties.get(key);
+		return value != null ? value : defaultValue;
 	}
 
 	@Override
-	public void set(String key, String value) {
-		properties.setProperty(key, value);
+	public synchronized void set(String key, String value) {
+		overrides.put(key, value);
+		Map<String, String> copy = new HashMap<>(properties);
+		copy.put(key, value);
+		properties = ImmutableMap.copyOf(copy);
 	}
 
 	@Override
 	public Iterable<String> getKeys() {
-		return properties.stringPropertyNames();
+		return properties.keySet();
 	}
 
 	@Override
@@ -0,0 +1,48 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.events;
+
+import java.util.Set;
+
+import javax.enterprise.inject.Vetoed;
+
+import br.com.caelum.vraptor.environment.Environment;
+
+/**
+ * Fired when the {@link Environment} is reloaded and some of its properties were added, removed or
+ * changed.
+ *
+ * @since 4.2.0
+ */
+@Vetoed
+public class EnvironmentChanged {
+
+	private final Environment environment;
+	private final Set<String> changedKeys;
+
+	public EnvironmentChanged(Environment environment, Set<String> changedKeys) {
+		this.environment = environment;
+		this.changedKeys = changedKeys;
+	}
+
+	public Environment getEnvironment() {
+		return environment;
+	}
+
+	public Set<String> getChangedKeys() {
+		return changedKeys;
+	}
+}
@@ -0,0 +1,218 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.enterprise.inject.Vetoed;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * A {@link Writer} that encodes chars as UTF-8 straight into a pooled byte buffer, pushing them to the
+ * response {@link OutputStream} only when the buffer is full or when the writer is closed. If the whole
+ * payload fits in the buffer, the {@code Content-Length} header is set on close and the body is written
+ * with a single call.
+ *
+ * Use {@link #writerFor(HttpServletResponse)} to get a writer: responses that aren't encoded as UTF-8 keep
+ * using the container {@link HttpServletResponse#getWriter()}. The buffer is taken from the pool on the
+ * first write and given back on {@link #close()} or {@link #discard()}, so callers must invoke one of them
+ * even when writing fails.
+ *
+ * @since 4.2.0
+ */
+@Vetoed
+public class Utf8ResponseWriter extends Writer {
+
+	public static final int BUFFER_SIZE = 32 * 1024;
+	private static final int POOL_SIZE = 64;
+	private static final BlockingQueue<byte[]> POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+
+	private final HttpServletResponse response;
+	private OutputStream output;
+	private byte[] buffer;
+	private int position;
+	private char pendingHighSurrogate;
+	private boolean closed;
+
+	public Utf8ResponseWriter(HttpServletResponse response) {
+		this.response = response;
+	}
+
+	/**
+	 * Returns an {@link Utf8ResponseWriter} if the response is encoded as UTF-8, or the container writer
+	 * otherwise.
+	 */
+	public static Writer writerFor(HttpServletResponse response) throws IOException {
+		if ("UTF-8".equalsIgnoreCase(response.getCharacterEncoding())) {
+			return new Utf8ResponseWriter(response);
+		}
+		return response.getWriter();
+	}
+
+	/**
+	 * Closes the writer if it was created by {@link #writerFor(HttpServletResponse)}, sending the buffered
+	 * bytes. Container writers are left untouched.
+	 */
+	public static void complete(Writer writer) throws IOException {
+		if (writer instanceof Utf8ResponseWriter) {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Discards the writer if it was created by {@link #writerFor(HttpServletResponse)}, giving its buffer
+	 * back to the pool. Does nothing if the writer was already closed.
+	 */
+	public static void discard(Writer writer) {
+		if (writer instanceof Utf8ResponseWriter) {
+			((Utf8ResponseWriter) writer).discard();
+		}
+	}
+
+	@Override
+	public void write(int c) throws IOException {
+		ensureOpen();
+		encode((char) c);
+	}
+
+	@Override
+	public void write(char[] chars, int offset, int length) throws IOException {
+		ensureOpen();
+		for (int i = offset, end = offset + length; i < end; i++) {
+			encode(chars[i]);
+		}
+	}
+
+	@Override
+	public void write(String str, int offset, int length) throws IOException {
+		ensureOpen();
+		for (int i = offset, end = offset + length; i < end; i++) {
+			encode(str.charAt(i));
+		}
+	}
+
+	private void encode(char c) throws IOException {
+		if (buffer == null) {
+			buffer = acquire();
+		}
+		if (position + 4 > buffer.length) {
+			drain();
+		}
+
+		if (pendingHighSurrogate != 0) {
+			char high = pendingHighSurrogate;
+			pendingHighSurrogate = 0;
+			if (Character.isLowSurrogate(c)) {
+				int codePoint = Character.toCodePoint(high, c);
+				buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+				buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+				buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+				buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+				return;
+			}
+			buffer[position++] = '?';
+		}
+
+		if (c < 0x80) {
+			buffer[position++] = (byte) c;
+		} else if (c < 0x800) {
+			buffer[position++] = (byte) (0xC0 | (c >> 6));
+			buffer[position++] = (byte) (0x80 | (c & 0x3F));
+		} else if (Character.isHighSurrogate(c)) {
+			pendingHighSurrogate = c;
+		} else if (Character.isLowSurrogate(c)) {
+			buffer[position++] = '?';
+		} else {
+			buffer[position++] = (byte) (0xE0 | (c >> 12));
+			buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+			buffer[position++] = (byte) (0x80 | (c & 0x3F));
+		}
+	}
+
+	private void drain() throws IOException {
+		if (output == null) {
+			output = response.getOutputStream();
+		}
+		if (buffer != null) {
+			output.write(buffer, 0, position);
+		}
+		position = 0;
+	}
+
+	/**
+	 * Bytes are kept in the buffer until it gets full, so the {@code Content-Length} can still be computed
+	 * when the writer is closed. Once the payload has overflowed the buffer, flushing pushes the buffered
+	 * bytes to the response.
+	 */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		if (output != null) {
+			drain();
+			output.flush();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		try {
+			if (pendingHighSurrogate != 0) {
+				pendingHighSurrogate = 0;
+				buffer[position++] = '?';
+			}
+			if (output == null) {
+				response.setContentLength(position);
+			}
+			drain();
+			output.flush();
+		} finally {
+			discard();
+		}
+	}
+
+	/**
+	 * Closes the writer without sending the buffered bytes, giving the buffer back to the pool.
+	 */
+	public void discard() {
+		closed = true;
+		if (buffer != null) {
+			release(buffer);
+			buffer = null;
+		}
+	}
+
+	private void ensureOpen() throws IOException {
+		if (closed) {
+			throw new IOException("Writer already closed");
+		}
+	}
+
+	private static byte[] acquire() {
+		byte[] pooled = POOL.poll();
+		return pooled != null ? pooled : new byte[BUFFER_SIZE];
+	}
+
+	private static void release(byte[] buffer) {
+		POOL.offer(buffer);
+	}
+}
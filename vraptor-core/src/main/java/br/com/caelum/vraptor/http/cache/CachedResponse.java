@@ -0,0 +1,75 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.http.cache;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.enterprise.inject.Vetoed;
+
+import com.google.common.collect.ListMultimap;
+
+/**
+ * A response stored by {@link ResponseCache}.
+ *
+ * @since 4.2.0
+ */
+@Vetoed
+class CachedResponse {
+
+	private final String contentType;
+	private final ListMultimap<String, String> headers;
+	private final byte[] body;
+	private final String etag;
+	private final long storedAt;
+	private final long expiresAt;
+
+	CachedResponse(String contentType, ListMultimap<String, String> headers, byte[] body, String etag,
+			long storedAt, long maxAge) {
+		this.contentType = contentType;
+		this.headers = headers;
+		this.body = body;
+		this.etag = etag;
+		this.storedAt = storedAt;
+		this.expiresAt = storedAt + TimeUnit.SECONDS.toMillis(maxAge);
+	}
+
+	String getContentType() {
+		return contentType;
+	}
+
+	ListMultimap<String, String> getHeaders() {
+		return headers;
+	}
+
+	byte[] getBody() {
+		return body;
+	}
+
+	String getEtag() {
+		return etag;
+	}
+
+	/**
+	 * Returns for how many seconds this response has been stored.
+	 */
+	long getAge(long now) {
+		return TimeUnit.MILLISECONDS.toSeconds(now - storedAt);
+	}
+
+	boolean isExpired(long now) {
+		return now >= expiresAt;
+	}
+}
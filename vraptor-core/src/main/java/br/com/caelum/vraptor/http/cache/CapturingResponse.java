@@ -0,0 +1,235 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.http.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.concurrent.CountDownLatch;
+
+import javax.enterprise.inject.Vetoed;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Holds the body of a response back so {@link ResponseCache} can store it and add an {@code ETag} before
+ * sending it. Bodies larger than the maximum size, or responses that are released before completion,
+ * are sent as they are and not cached. Non-blocking writes release the response and go straight to the
+ * container's stream.
+ *
+ * @since 4.2.0
+ */
+@Vetoed
+class CapturingResponse extends HttpServletResponseWrapper {
+
+	private final String key;
+	private final CountDownLatch latch;
+	private final int maxSize;
+	private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+	private final CapturingOutputStream stream = new CapturingOutputStream();
+	private PrintWriter writer;
+	private ServletOutputStream raw;
+	private boolean passthrough;
+	private boolean cacheable = true;
+
+	CapturingResponse(HttpServletResponse response, String key, CountDownLatch latch, int maxSize) {
+		super(response);
+		this.key = key;
+		this.latch = latch;
+		this.maxSize = maxSize;
+	}
+
+	String getKey() {
+		return key;
+	}
+
+	/**
+	 * Returns what other requests to the same resource are waiting for, or null if this response was
+	 * captured while another one was.
+	 */
+	CountDownLatch getLatch() {
+		return latch;
+	}
+
+	@Override
+	public ServletOutputStream getOutputStream() throws IOException {
+		if (writer != null) {
+			throw new IllegalStateException("getWriter() has already been called for this response");
+		}
+		return stream;
+	}
+
+	@Override
+	public PrintWriter getWriter() throws IOException {
+		if (writer == null) {
+			writer = new PrintWriter(new OutputStreamWriter(stream, getCharacterEncoding()));
+		}
+		return writer;
+	}
+
+	@Override
+	public void flushBuffer() throws IOException {
+		if (writer != null) {
+			writer.flush();
+		}
+		synchronized (this) {
+			if (!cacheable) {
+				release();
+			}
+			if (passthrough) {
+				super.flushBuffer();
+			}
+		}
+	}
+
+	@Override
+	public synchronized void resetBuffer() {
+		super.resetBuffer();
+		buffer.reset();
+	}
+
+	@Override
+	public synchronized void reset() {
+		super.reset();
+		buffer.reset();
+	}
+
+	@Override
+	public void sendError(int sc) throws IOException {
+		release();
+		super.sendError(sc);
+	}
+
+	@Override
+	public void sendError(int sc, String msg) throws IOException {
+		release();
+		super.sendError(sc, msg);
+	}
+
+	@Override
+	public void sendRedirect(String location) throws IOException {
+		release();
+		super.sendRedirect(location);
+	}
+
+	/**
+	 * Returns the captured body, or null if it was already sent.
+	 */
+	synchronized byte[] captured() throws IOException {
+		if (writer != null) {
+			writer.flush();
+		}
+		return passthrough || !cacheable ? null : buffer.toByteArray();
+	}
+
+	/**
+	 * Sends whatever was captured and lets the rest of the body through, without caching it.
+	 */
+	synchronized void release() throws IOException {
+		cacheable = false;
+		if (!passthrough) {
+			if (writer != null) {
+				writer.flush();
+			}
+			passthrough = true;
+			if (buffer.size() > 0) {
+				raw().write(buffer.toByteArray());
+				buffer.reset();
+			}
+		}
+	}
+
+	/**
+	 * Gives up caching without touching the output, which may still be written by another thread. What was
+	 * captured is sent along with the next write or flush.
+	 */
+	synchronized void detach() {
+		cacheable = false;
+	}
+
+	/**
+	 * Sends the captured body, which was cached, to the client.
+	 */
+	synchronized void send(byte[] body) throws IOException {
+		passthrough = true;
+		cacheable = false;
+		buffer.reset();
+		if (body != null) {
+			raw().write(body);
+		}
+	}
+
+	private ServletOutputStream raw() throws IOException {
+		if (raw == null) {
+			raw = super.getOutputStream();
+		}
+		return raw;
+	}
+
+	private class CapturingOutputStream extends ServletOutputStream {
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException {
+			synchronized (CapturingResponse.this) {
+				if (!passthrough && (!cacheable || buffer.size() + length > maxSize)) {
+					release();
+				}
+				if (passthrough) {
+					raw().write(bytes, offset, length);
+				} else {
+					buffer.write(bytes, offset, length);
+				}
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			synchronized (CapturingResponse.this) {
+				if (!cacheable) {
+					release();
+				}
+				if (passthrough) {
+					raw().flush();
+				}
+			}
+		}
+
+		@Override
+		public boolean isReady() {
+			synchronized (CapturingResponse.this) {
+				return !passthrough || raw == null || raw.isReady();
+			}
+		}
+
+		@Override
+		public void setWriteListener(WriteListener writeListener) {
+			try {
+				release();
+				raw().setWriteListener(writeListener);
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,65 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.http.cache;
+
+/**
+ * Helpers to compare entity tags, as sent in {@code ETag} and {@code If-None-Match} headers.
+ *
+ * @since 4.2.0
+ */
+public final class EntityTags {
+
+	private EntityTags() {
+	}
+
+	/**
+	 * Returns the value as a strong entity tag, quoting it if needed.
+	 *
+	 * @throws IllegalArgumentException if the value is a weak entity tag
+	 */
+	public static String strong(String value) {
+		if (value.startsWith("W/")) {
+			throw new IllegalArgumentException("Expected a strong entity tag, but got the weak " + value);
+		}
+		return value.startsWith("\"") ? value : '"' + value + '"';
+	}
+
+	/**
+	 * Returns the entity tag as a weak one, such as the tag of a representation that was encoded on the fly
+	 * from the one the tag was computed for.
+	 */
+	public static String weak(String etag) {
+		return etag.startsWith("W/") ? etag : "W/" + strong(etag);
+	}
+
+	/**
+	 * Returns true if the {@code If-None-Match} header value matches the entity tag, using the weak
+	 * comparison required for that header.
+	 */
+	public static boolean matches(String ifNoneMatch, String etag) {
+		if (ifNoneMatch == null || etag == null) {
+			return false;
+		}
+		String opaque = etag.startsWith("W/") ? etag.substring(2) : etag;
+		for (String tag : ifNoneMatch.split(",")) {
+			tag = tag.trim();
+			if (tag.equals("*") || tag.equals(opaque) || tag.equals("W/" + opaque)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
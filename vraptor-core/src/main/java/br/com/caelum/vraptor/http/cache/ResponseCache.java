@@ -0,0 +1,407 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.http.cache;
+
+import static com.google.common.base.Strings.nullToEmpty;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.servlet.ServletResponse;
+import javax.servlet.ServletResponseWrapper;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+
+import br.com.caelum.vraptor.cache.CacheStore;
+import br.com.caelum.vraptor.cache.LRU;
+import br.com.caelum.vraptor.environment.Environment;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.hash.Hashing;
+
+/**
+ * A shared cache of whole {@code GET} responses, served by the VRaptor filter before the request reaches
+ * the controllers. It is disabled by default, and only stores responses that opt in to shared caches
+ * through a {@code Cache-Control} header with {@code public} and {@code max-age}, or with {@code s-maxage},
+ * such as {@code public, max-age=60}. Responses with a status other than 200, {@code private},
+ * {@code no-store} or {@code no-cache} directives, cookies or {@code Vary: *} are never stored, and neither
+ * are responses to requests with an {@code Authorization} header, which are never served from the cache.
+ * <p>
+ * Requests served from the cache don't reach VRaptor at all: no interceptor runs for them, so responses
+ * that depend on authentication or on any other interceptor must not be marked as cacheable.
+ * <p>
+ * Responses are stored by host name, path and query string, plus the values of the request headers named
+ * by their {@code Vary} header, so virtual hosts never share responses. They get a strong {@code ETag}
+ * computed from the body, unless the application sets one, and requests whose {@code If-None-Match} matches
+ * it are answered with 304. Concurrent misses for the same host, path and query wait for the first one to
+ * complete instead of executing the controller again.
+ * <p>
+ * It can be configured through these environment properties:
+ *
+ * <ul>
+ * <li>{@code br.com.caelum.vraptor.response-cache.enabled}: enables the cache, defaults to false</li>
+ * <li>{@code br.com.caelum.vraptor.response-cache.max-size}: bodies larger than it, in bytes, are not
+ * stored. Defaults to 1048576</li>
+ * <li>{@code br.com.caelum.vraptor.response-cache.lock-timeout}: how long, in milliseconds, concurrent
+ * misses wait for the first one. Defaults to 10000</li>
+ * </ul>
+ *
+ * The number of stored responses can be set through {@code br.com.caelum.vraptor.cache.vraptor.responses.capacity}.
+ *
+ * @since 4.2.0
+ */
+@ApplicationScoped
+public class ResponseCache {
+
+	public static final String ENABLED_KEY = "br.com.caelum.vraptor.response-cache.enabled";
+	public static final String MAX_SIZE_KEY = "br.com.caelum.vraptor.response-cache.max-size";
+	public static final String LOCK_TIMEOUT_KEY = "br.com.caelum.vraptor.response-cache.lock-timeout";
+
+	private static final Logger logger = getLogger(ResponseCache.class);
+	private static final Splitter COMMA = Splitter.on(',').trimResults().omitEmptyStrings();
+
+	private final Environment environment;
+	private final CacheStore<String, CachedResponse> responses;
+	private final CacheStore<String, List<String>> variations;
+	private final CacheStore<String, Boolean> uncacheable;
+	private final ConcurrentMap<String, CountDownLatch> loading = new ConcurrentHashMap<>();
+
+	private boolean enabled;
+	private int maxSize;
+	private long lockTimeout;
+
+	/**
+	 * @deprecated CDI eyes only
+	 */
+	protected ResponseCache() {
+		this(null, null, null, null);
+	}
+
+	@Inject
+	public ResponseCache(Environment environment,
+			@LRU(name = "vraptor.responses", capacity = 1000) CacheStore<String, CachedResponse> responses,
+			@LRU(capacity = 1000) CacheStore<String, List<String>> variations,
+			@LRU(capacity = 1000, expireAfterWrite = 60) CacheStore<String, Boolean> uncacheable) {
+		this.environment = environment;
+		this.responses = responses;
+		this.variations = variations;
+		this.uncacheable = uncacheable;
+	}
+
+	@PostConstruct
+	public void init() {
+		enabled = environment.supports(ENABLED_KEY);
+		maxSize = Integer.parseInt(environment.get(MAX_SIZE_KEY, "1048576"));
+		lockTimeout = Long.parseLong(environment.get(LOCK_TIMEOUT_KEY, "10000"));
+	}
+
+	/**
+	 * Answers the request from the cache, waiting for a concurrent request to the same resource if there
+	 * is one. Returns false if the request must be handled by the application.
+	 */
+	public boolean serve(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		if (!enabled || !isLookup(request) || isAuthorized(request)) {
+			return false;
+		}
+
+		String key = keyOf(request);
+		if (uncacheable.fetch(key) != null) {
+			return false;
+		}
+
+		CachedResponse cached = lookup(key, request);
+		if (cached == null) {
+			CountDownLatch latch = loading.get(key);
+			if (latch == null || !await(latch)) {
+				return false;
+			}
+			cached = lookup(key, request);
+			if (cached == null) {
+				return false;
+			}
+		}
+
+		logger.debug("Serving {} from the response cache", key);
+		write(cached, request, response);
+		return true;
+	}
+
+	/**
+	 * Wraps the response so its body can be stored once the request is {@link #complete(HttpServletRequest,
+	 * ServletResponse) completed}. Other requests to the same resource wait for it meanwhile, unless it
+	 * recently produced a response that couldn't be stored.
+	 */
+	public HttpServletResponse capture(HttpServletRequest request, HttpServletResponse response) {
+		if (!enabled || !"GET".equals(request.getMethod()) || hasDirective(request, "no-store")
+				|| isAuthorized(request)) {
+			return response;
+		}
+		String key = keyOf(request);
+		if (uncacheable.fetch(key) != null) {
+			return response;
+		}
+		CountDownLatch latch = new CountDownLatch(1);
+		if (loading.putIfAbsent(key, latch) != null) {
+			latch = null;
+		}
+		return new CapturingResponse(response, key, latch, maxSize);
+	}
+
+	/**
+	 * Stores the captured response if it is cacheable, and sends it.
+	 */
+	public void complete(HttpServletRequest request, ServletResponse response) throws IOException {
+		CapturingResponse capturing = find(response);
+		if (capturing == null) {
+			return;
+		}
+
+		try {
+			byte[] body = capturing.captured();
+			long maxAge = body == null ? 0 : maxAgeOf(capturing);
+			if (maxAge <= 0) {
+				uncacheable.write(capturing.getKey(), Boolean.TRUE);
+				capturing.release();
+				return;
+			}
+
+			if (!capturing.containsHeader("ETag")) {
+				capturing.setHeader("ETag", '"' + Hashing.murmur3_128().hashBytes(body).toString() + '"');
+			}
+			CachedResponse cached = store(capturing, request, body, maxAge);
+
+			if (isNotModified(request, cached.getEtag())) {
+				capturing.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+				capturing.send(null);
+			} else {
+				capturing.setContentLength(body.length);
+				capturing.send(body);
+			}
+		} finally {
+			done(capturing);
+		}
+	}
+
+	/**
+	 * Sends what was captured without storing it, for requests that won't be completed, such as failed ones.
+	 * Asynchronous requests must be {@link #detach(ServletResponse) detached} instead.
+	 */
+	public void release(ServletResponse response) throws IOException {
+		CapturingResponse capturing = find(response);
+		if (capturing != null) {
+			try {
+				capturing.release();
+			} finally {
+				done(capturing);
+			}
+		}
+	}
+
+	/**
+	 * Gives up storing a response whose request went asynchronous, without touching its output, which
+	 * may still be written by another thread. Other requests to the same resource stop waiting for it.
+	 */
+	public void detach(ServletResponse response) {
+		CapturingResponse capturing = find(response);
+		if (capturing != null) {
+			capturing.detach();
+			done(capturing);
+		}
+	}
+
+	public void invalidateAll() {
+		responses.invalidateAll();
+		variations.invalidateAll();
+		uncacheable.invalidateAll();
+	}
+
+	private CachedResponse store(CapturingResponse capturing, HttpServletRequest request, byte[] body,
+			long maxAge) {
+		ListMultimap<String, String> headers = ArrayListMultimap.create();
+		for (String name : capturing.getHeaderNames()) {
+			if (!"Content-Type".equalsIgnoreCase(name) && !"Content-Length".equalsIgnoreCase(name)) {
+				headers.putAll(name, capturing.getHeaders(name));
+			}
+		}
+
+		CachedResponse cached = new CachedResponse(capturing.getContentType(), ImmutableListMultimap.copyOf(headers),
+				body, capturing.getHeader("ETag"), System.currentTimeMillis(), maxAge);
+		List<String> vary = varyOf(capturing);
+		variations.write(capturing.getKey(), vary);
+		responses.write(variantKey(capturing.getKey(), vary, request), cached);
+		return cached;
+	}
+
+	private void done(CapturingResponse capturing) {
+		CountDownLatch latch = capturing.getLatch();
+		if (latch != null) {
+			loading.remove(capturing.getKey(), latch);
+			latch.countDown();
+		}
+	}
+
+	private CachedResponse lookup(String key, HttpServletRequest request) {
+		List<String> vary = variations.fetch(key);
+		String variant = variantKey(key, vary == null ? Collections.<String>emptyList() : vary, request);
+		CachedResponse cached = responses.fetch(variant);
+		if (cached != null && cached.isExpired(System.currentTimeMillis())) {
+			responses.invalidate(variant);
+			return null;
+		}
+		return cached;
+	}
+
+	private boolean await(CountDownLatch latch) {
+		try {
+			return latch.await(lockTimeout, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private void write(CachedResponse cached, HttpServletRequest request, HttpServletResponse response)
+			throws IOException {
+		long now = System.currentTimeMillis();
+		if (isNotModified(request, cached.getEtag())) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			for (String name : new String[] { "ETag", "Cache-Control", "Vary", "Expires" }) {
+				for (String value : cached.getHeaders().get(name)) {
+					response.addHeader(name, value);
+				}
+			}
+			response.setHeader("Age", Long.toString(cached.getAge(now)));
+			return;
+		}
+
+		response.setStatus(HttpServletResponse.SC_OK);
+		if (cached.getContentType() != null) {
+			response.setContentType(cached.getContentType());
+		}
+		for (Entry<String, String> header : cached.getHeaders().entries()) {
+			response.addHeader(header.getKey(), header.getValue());
+		}
+		response.setHeader("Age", Long.toString(cached.getAge(now)));
+		response.setContentLength(cached.getBody().length);
+		if (!"HEAD".equals(request.getMethod())) {
+			response.getOutputStream().write(cached.getBody());
+		}
+	}
+
+	private static CapturingResponse find(ServletResponse response) {
+		while (response instanceof ServletResponseWrapper) {
+			if (response instanceof CapturingResponse) {
+				return (CapturingResponse) response;
+			}
+			response = ((ServletResponseWrapper) response).getResponse();
+		}
+		return null;
+	}
+
+	private static boolean isLookup(HttpServletRequest request) {
+		String method = request.getMethod();
+		return ("GET".equals(method) || "HEAD".equals(method)) && !hasDirective(request, "no-cache")
+				&& !hasDirective(request, "no-store") && !"no-cache".equals(request.getHeader("Pragma"));
+	}
+
+	private static boolean isAuthorized(HttpServletRequest request) {
+		return request.getHeader("Authorization") != null;
+	}
+
+	private static boolean hasDirective(HttpServletRequest request, String directive) {
+		return nullToEmpty(request.getHeader("Cache-Control")).toLowerCase().contains(directive);
+	}
+
+	/**
+	 * Returns for how many seconds the response may be stored, or zero if it must not.
+	 */
+	private static long maxAgeOf(HttpServletResponse response) {
+		if (response.getStatus() != HttpServletResponse.SC_OK || response.containsHeader("Set-Cookie")
+				|| varyOf(response).contains("*")) {
+			return 0;
+		}
+
+		long maxAge = 0;
+		long sharedMaxAge = -1;
+		boolean shared = false;
+		for (String directive : COMMA.split(Joiner.on(',').join(response.getHeaders("Cache-Control")))) {
+			String name = directive.toLowerCase();
+			if (name.equals("private") || name.equals("no-store") || name.equals("no-cache")) {
+				return 0;
+			}
+			if (name.equals("public")) {
+				shared = true;
+			}
+			try {
+				if (name.startsWith("max-age=")) {
+					maxAge = Long.parseLong(name.substring("max-age=".length()));
+				} else if (name.startsWith("s-maxage=")) {
+					sharedMaxAge = Long.parseLong(name.substring("s-maxage=".length()));
+				}
+			} catch (NumberFormatException e) {
+				return 0;
+			}
+		}
+		if (sharedMaxAge >= 0) {
+			return sharedMaxAge;
+		}
+		return shared ? maxAge : 0;
+	}
+
+	private static List<String> varyOf(HttpServletResponse response) {
+		List<String> vary = new ArrayList<>();
+		for (String name : COMMA.split(Joiner.on(',').join(response.getHeaders("Vary")))) {
+			vary.add(name.toLowerCase());
+		}
+		Collections.sort(vary);
+		return vary;
+	}
+
+	private static String keyOf(HttpServletRequest request) {
+		String query = request.getQueryString();
+		String key = nullToEmpty(request.getServerName()) + request.getRequestURI();
+		return query == null ? key : key + '?' + query;
+	}
+
+	private static String variantKey(String key, List<String> vary, HttpServletRequest request) {
+		StringBuilder variant = new StringBuilder(key);
+		for (String name : vary) {
+			variant.append('\n').append(name).append(':').append(nullToEmpty(request.getHeader(name)));
+		}
+		return variant.toString();
+	}
+
+	private static boolean isNotModified(HttpServletRequest request, String etag) {
+		return EntityTags.matches(request.getHeader("If-None-Match"), etag);
+	}
+}
@@ -0,0 +1,87 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.http.cache;
+
+import java.util.Date;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import br.com.caelum.vraptor.cache.CacheStore;
+import br.com.caelum.vraptor.cache.LRU;
+
+import com.google.common.base.Supplier;
+
+/**
+ * Keeps the validators computed for conditional requests under keys given by the application, so they
+ * don't have to be computed on every request. The key must tell apart every representation whose
+ * validators differ, such as the ones for different users or media types, and the application must
+ * {@link #invalidate(String) invalidate} it whenever the resource changes. Validators are kept for
+ * 10 seconds unless {@code br.com.caelum.vraptor.cache.vraptor.validators.expire-after-write} says otherwise.
+ *
+ * @see br.com.caelum.vraptor.view.HttpResult#ifNoneMatch(String, Supplier)
+ * @see br.com.caelum.vraptor.view.HttpResult#ifModifiedSince(String, Supplier)
+ * @since 4.2.0
+ */
+@ApplicationScoped
+public class ValidatorCache {
+
+	private final CacheStore<String, Object> validators;
+
+	/**
+	 * @deprecated CDI eyes only
+	 */
+	protected ValidatorCache() {
+		this(null);
+	}
+
+	@Inject
+	public ValidatorCache(
+			@LRU(name = "vraptor.validators", capacity = 1000, expireAfterWrite = 10) CacheStore<String, Object> validators) {
+		this.validators = validators;
+	}
+
+	public String etag(String key, final Supplier<String> supplier) {
+		return (String) validators.fetch("etag:" + key, new Supplier<Object>() {
+			@Override
+			public Object get() {
+				return EntityTags.strong(supplier.get());
+			}
+		});
+	}
+
+	public Date lastModified(String key, final Supplier<Date> supplier) {
+		Long time = (Long) validators.fetch("last-modified:" + key, new Supplier<Object>() {
+			@Override
+			public Object get() {
+				return supplier.get().getTime();
+			}
+		});
+		return new Date(time);
+	}
+
+	/**
+	 * Forgets the validators kept under the key, such as {@code musics:2}.
+	 */
+	public void invalidate(String key) {
+		validators.invalidate("etag:" + key);
+		validators.invalidate("last-modified:" + key);
+	}
+
+	public void invalidateAll() {
+		validators.invalidateAll();
+	}
+}
@@ -0,0 +1,222 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.http.compression;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import javax.enterprise.inject.Vetoed;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+import org.slf4j.Logger;
+
+/**
+ * Buffers the first bytes of a response until it is possible to decide whether it will be compressed: bodies
+ * smaller than the threshold, or with a content type that isn't compressible, are sent as they are.
+ *
+ * @since 4.2.0
+ */
+@Vetoed
+public class CompressingOutputStream extends ServletOutputStream {
+
+	private static final Logger logger = getLogger(CompressingOutputStream.class);
+
+	private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+	private enum State { BUFFERING, COMPRESSING, PASSTHROUGH, FINISHED }
+
+	private final CompressingResponse response;
+	private final ContentEncoding encoding;
+	private final DeflaterPool pool;
+	private final byte[] buffer;
+	private int count;
+	private State state = State.BUFFERING;
+
+	private ServletOutputStream raw;
+	private OutputStream target;
+	private Deflater deflater;
+	private CRC32 crc;
+	private long uncompressedSize;
+
+	public CompressingOutputStream(CompressingResponse response, ContentEncoding encoding, DeflaterPool pool,
+			int threshold) {
+		this.response = response;
+		this.encoding = encoding;
+		this.pool = pool;
+		this.buffer = new byte[threshold];
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] bytes, int offset, int length) throws IOException {
+		if (state == State.FINISHED) {
+			throw new IOException("Stream already finished");
+		}
+
+		if (state == State.BUFFERING) {
+			if (count + length <= buffer.length) {
+				System.arraycopy(bytes, offset, buffer, count, length);
+				count += length;
+				return;
+			}
+			start(response.shouldCompress());
+		}
+
+		writeToTarget(bytes, offset, length);
+	}
+
+	private void start(boolean compress) throws IOException {
+		raw = response.getRawOutputStream();
+		if (compress) {
+			response.startCompression(encoding);
+			deflater = pool.acquire(encoding.isNowrap());
+			if (encoding == ContentEncoding.GZIP) {
+				crc = new CRC32();
+				raw.write(GZIP_HEADER);
+			}
+			target = new DeflaterOutputStream(raw, deflater, 8192);
+			state = State.COMPRESSING;
+		} else {
+			response.startPassthrough(-1);
+			target = raw;
+			state = State.PASSTHROUGH;
+		}
+		writeToTarget(buffer, 0, count);
+		count = 0;
+	}
+
+	private void writeToTarget(byte[] bytes, int offset, int length) throws IOException {
+		if (length == 0) {
+			return;
+		}
+		if (crc != null) {
+			crc.update(bytes, offset, length);
+		}
+		uncompressedSize += length;
+		target.write(bytes, offset, length);
+	}
+
+	/**
+	 * While the body is still being buffered flush is ignored, since the decision about compressing it can't
+	 * be made yet.
+	 */
+	@Override
+	public void flush() throws IOException {
+		if (state == State.COMPRESSING || state == State.PASSTHROUGH) {
+			target.flush();
+		}
+	}
+
+	/**
+	 * Sends the body as it is, without compressing it. Does nothing if the decision was already made.
+	 */
+	public void passthrough() throws IOException {
+		if (state == State.BUFFERING) {
+			start(false);
+		}
+	}
+
+	/**
+	 * Discards buffered bytes that weren't sent yet.
+	 */
+	public void resetBuffer() {
+		if (state == State.BUFFERING) {
+			count = 0;
+		}
+	}
+
+	public boolean isBuffering() {
+		return state == State.BUFFERING;
+	}
+
+	/**
+	 * Sends whatever is still buffered and writes the compression trailer, releasing the deflater.
+	 */
+	public void finish() throws IOException {
+		try {
+			if (state == State.BUFFERING) {
+				response.startPassthrough(count);
+				if (count > 0) {
+					raw = response.getRawOutputStream();
+					raw.write(buffer, 0, count);
+				}
+			} else if (state == State.COMPRESSING) {
+				((DeflaterOutputStream) target).finish();
+				if (crc != null) {
+					writeInt(raw, (int) crc.getValue());
+					writeInt(raw, (int) uncompressedSize);
+				}
+			}
+			if (raw != null) {
+				raw.flush();
+			}
+		} finally {
+			if (deflater != null) {
+				pool.release(deflater, encoding.isNowrap());
+				deflater = null;
+			}
+			state = State.FINISHED;
+		}
+	}
+
+	/**
+	 * Drops what is still buffered, or finishes the compressed body if it was already started, releasing the
+	 * deflater. Does nothing if the stream is already finished.
+	 */
+	public void release() {
+		if (state == State.COMPRESSING) {
+			try {
+				finish();
+			} catch (IOException e) {
+				logger.debug("Unable to finish compressed response", e);
+			}
+		} else {
+			count = 0;
+			state = State.FINISHED;
+		}
+	}
+
+	private static void writeInt(OutputStream out, int value) throws IOException {
+		out.write(value & 0xff);
+		out.write((value >> 8) & 0xff);
+		out.write((value >> 16) & 0xff);
+		out.write((value >> 24) & 0xff);
+	}
+
+	@Override
+	public boolean isReady() {
+		return raw == null || raw.isReady();
+	}
+
+	@Override
+	public void setWriteListener(WriteListener writeListener) {
+		try {
+			response.getRawOutputStream().setWriteListener(writeListener);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
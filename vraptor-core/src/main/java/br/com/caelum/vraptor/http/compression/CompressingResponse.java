@@ -0,0 +1,274 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.http.compression;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+import javax.enterprise.inject.Vetoed;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletResponse;
+import javax.servlet.ServletResponseWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import br.com.caelum.vraptor.http.cache.EntityTags;
+
+/**
+ * A response that compresses its body using the {@link ContentEncoding} negotiated by
+ * {@link CompressionHandler}. Content-Length headers set by the application are held back until we know
+ * if the body will be compressed, since they are meaningless for compressed bodies. Entity tags of compressed
+ * bodies are made weak.
+ *
+ * @since 4.2.0
+ */
+@Vetoed
+public class CompressingResponse extends HttpServletResponseWrapper {
+
+	private static final String CONTENT_LENGTH = "Content-Length";
+	private static final String ETAG = "ETag";
+
+	private final ContentEncoding encoding;
+	private final CompressionHandler handler;
+	private CompressingOutputStream stream;
+	private PrintWriter writer;
+	private long contentLength = -1;
+	private boolean compressing;
+
+	public CompressingResponse(HttpServletResponse response, ContentEncoding encoding, CompressionHandler handler) {
+		super(response);
+		this.encoding = encoding;
+		this.handler = handler;
+	}
+
+	/**
+	 * Finishes the {@link CompressingResponse} wrapped by the given response, if any.
+	 */
+	public static void complete(ServletResponse response) throws IOException {
+		while (response instanceof ServletResponseWrapper) {
+			if (response instanceof CompressingResponse) {
+				((CompressingResponse) response).finish();
+				return;
+			}
+			response = ((ServletResponseWrapper) response).getResponse();
+		}
+	}
+
+	/**
+	 * Releases the {@link CompressingResponse} wrapped by the given response, if any, after the request
+	 * failed. Bodies that were still buffered are dropped, so the container can send its error page, and
+	 * bodies already being compressed get their trailer. Does nothing if the response was completed.
+	 */
+	public static void release(ServletResponse response) {
+		while (response instanceof ServletResponseWrapper) {
+			if (response instanceof CompressingResponse) {
+				((CompressingResponse) response).abort();
+				return;
+			}
+			response = ((ServletResponseWrapper) response).getResponse();
+		}
+	}
+
+	/**
+	 * Makes the {@link CompressingResponse} wrapped by the given response, if any, send its body as it is.
+	 * Must be called before any body is written, for instance when the body will be written in
+	 * non-blocking mode, since compression turns each write into several writes to the container.
+	 */
+	public static void skipCompression(ServletResponse response) throws IOException {
+		while (response instanceof ServletResponseWrapper) {
+			if (response instanceof CompressingResponse) {
+				((CompressingResponse) response).stream().passthrough();
+				return;
+			}
+			response = ((ServletResponseWrapper) response).getResponse();
+		}
+	}
+
+	@Override
+	public ServletOutputStream getOutputStream() throws IOException {
+		if (writer != null) {
+			throw new IllegalStateException("getWriter() has already been called for this response");
+		}
+		return stream();
+	}
+
+	@Override
+	public PrintWriter getWriter() throws IOException {
+		if (writer == null) {
+			if (stream != null) {
+				throw new IllegalStateException("getOutputStream() has already been called for this response");
+			}
+			writer = new PrintWriter(new OutputStreamWriter(stream(), getCharacterEncoding()));
+		}
+		return writer;
+	}
+
+	private CompressingOutputStream stream() {
+		if (stream == null) {
+			stream = new CompressingOutputStream(this, encoding, handler.getDeflaterPool(), handler.getThreshold());
+		}
+		return stream;
+	}
+
+	ServletOutputStream getRawOutputStream() throws IOException {
+		return super.getOutputStream();
+	}
+
+	/**
+	 * Partial content is never compressed, since its byte ranges refer to the uncompressed representation.
+	 */
+	boolean shouldCompress() {
+		return handler.isCompressible(getContentType()) && !containsHeader("Content-Encoding")
+				&& getStatus() != SC_PARTIAL_CONTENT && !containsHeader("Content-Range");
+	}
+
+	/**
+	 * The entity tag, computed for the identity representation, becomes weak, since both representations
+	 * must not share a strong validator.
+	 */
+	void startCompression(ContentEncoding encoding) {
+		super.setHeader("Content-Encoding", encoding.getName());
+		compressing = true;
+		addVary();
+		String etag = getHeader(ETAG);
+		if (etag != null) {
+			super.setHeader(ETAG, EntityTags.weak(etag));
+		}
+	}
+
+	/**
+	 * Compressible bodies vary on {@code Accept-Encoding} even when sent as they are, since a larger body of
+	 * the same resource would be compressed.
+	 */
+	void startPassthrough(long length) {
+		if (handler.isCompressible(getContentType())) {
+			addVary();
+		}
+		if (contentLength >= 0) {
+			super.setContentLengthLong(contentLength);
+		} else if (length > 0) {
+			super.setContentLengthLong(length);
+		}
+	}
+
+	private void addVary() {
+		for (String vary : getHeaders("Vary")) {
+			if (vary.toLowerCase().contains("accept-encoding")) {
+				return;
+			}
+		}
+		super.addHeader("Vary", "Accept-Encoding");
+	}
+
+	@Override
+	public void setContentLength(int len) {
+		setContentLengthLong(len);
+	}
+
+	@Override
+	public void setContentLengthLong(long len) {
+		if (isBuffering()) {
+			contentLength = len;
+		} else if (!containsHeader("Content-Encoding")) {
+			super.setContentLengthLong(len);
+		}
+	}
+
+	@Override
+	public void setHeader(String name, String value) {
+		if (CONTENT_LENGTH.equalsIgnoreCase(name)) {
+			setContentLengthLong(Long.parseLong(value));
+		} else if (compressing && ETAG.equalsIgnoreCase(name) && value != null) {
+			super.setHeader(name, EntityTags.weak(value));
+		} else {
+			super.setHeader(name, value);
+		}
+	}
+
+	@Override
+	public void addHeader(String name, String value) {
+		if (CONTENT_LENGTH.equalsIgnoreCase(name)) {
+			setContentLengthLong(Long.parseLong(value));
+		} else if (compressing && ETAG.equalsIgnoreCase(name) && value != null) {
+			super.addHeader(name, EntityTags.weak(value));
+		} else {
+			super.addHeader(name, value);
+		}
+	}
+
+	@Override
+	public void setIntHeader(String name, int value) {
+		if (CONTENT_LENGTH.equalsIgnoreCase(name)) {
+			setContentLengthLong(value);
+		} else {
+			super.setIntHeader(name, value);
+		}
+	}
+
+	private boolean isBuffering() {
+		return stream == null || stream.isBuffering();
+	}
+
+	@Override
+	public void flushBuffer() throws IOException {
+		if (writer != null) {
+			writer.flush();
+		}
+		if (isBuffering()) {
+			return;
+		}
+		stream.flush();
+		super.flushBuffer();
+	}
+
+	@Override
+	public void resetBuffer() {
+		super.resetBuffer();
+		if (stream != null) {
+			stream.resetBuffer();
+		}
+	}
+
+	@Override
+	public void reset() {
+		super.reset();
+		contentLength = -1;
+		if (stream != null) {
+			stream.resetBuffer();
+		}
+	}
+
+	/**
+	 * Sends what is still buffered, compressing it if needed.
+	 */
+	public void finish() throws IOException {
+		if (writer != null) {
+			writer.flush();
+		}
+		if (stream != null) {
+			stream.finish();
+		} else {
+			startPassthrough(-1);
+		}
+	}
+
+	private void abort() {
+		if (stream != null) {
+			stream.release();
+		}
+	}
+}
@@ -0,0 +1,177 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.http.compression;
+
+import static com.google.common.base.Strings.nullToEmpty;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import br.com.caelum.vraptor.environment.Environment;
+
+import com.google.common.base.Splitter;
+
+/**
+ * Negotiates response compression with the client through the {@code Accept-Encoding} header. Compression is
+ * disabled by default, and can be configured through these environment properties:
+ *
+ * <ul>
+ * <li>{@code br.com.caelum.vraptor.compression.enabled}: enables compression, defaults to false</li>
+ * <li>{@code br.com.caelum.vraptor.compression.threshold}: bodies smaller than it, in bytes, are sent
+ * uncompressed. Defaults to 1024</li>
+ * <li>{@code br.com.caelum.vraptor.compression.types}: comma separated compressible content types</li>
+ * <li>{@code br.com.caelum.vraptor.compression.level}: the deflate level, from 1 to 9</li>
+ * </ul>
+ *
+ * @since 4.2.0
+ */
+@ApplicationScoped
+public class CompressionHandler {
+
+	public static final String ENABLED_KEY = "br.com.caelum.vraptor.compression.enabled";
+	public static final String THRESHOLD_KEY = "br.com.caelum.vraptor.compression.threshold";
+	public static final String TYPES_KEY = "br.com.caelum.vraptor.compression.types";
+	public static final String LEVEL_KEY = "br.com.caelum.vraptor.compression.level";
+
+	private static final String DEFAULT_TYPES = "text/html,text/plain,text/css,text/xml,text/javascript,"
+			+ "application/json,application/javascript,application/xml,image/svg+xml";
+
+	private final Environment environment;
+	private boolean enabled;
+	private int threshold;
+	private Set<String> types;
+	private DeflaterPool deflaterPool;
+
+	/**
+	 * @deprecated CDI eyes only
+	 */
+	protected CompressionHandler() {
+		this(null);
+	}
+
+	@Inject
+	public CompressionHandler(Environment environment) {
+		this.environment = environment;
+	}
+
+	@PostConstruct
+	public void init() {
+		enabled = environment.supports(ENABLED_KEY);
+		threshold = Integer.parseInt(environment.get(THRESHOLD_KEY, "1024"));
+		types = new HashSet<>(Splitter.on(',').trimResults().omitEmptyStrings()
+				.splitToList(environment.get(TYPES_KEY, DEFAULT_TYPES)));
+		int level = Integer.parseInt(environment.get(LEVEL_KEY, String.valueOf(Deflater.DEFAULT_COMPRESSION)));
+		deflaterPool = new DeflaterPool(level, Runtime.getRuntime().availableProcessors() * 4);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		deflaterPool.clear();
+	}
+
+	/**
+	 * Wraps the response in a {@link CompressingResponse} if compression is enabled and the client accepts
+	 * any of the supported encodings.
+	 */
+	public HttpServletResponse wrap(HttpServletRequest request, HttpServletResponse response) {
+		if (!enabled) {
+			return response;
+		}
+		ContentEncoding encoding = negotiate(request);
+		return encoding == null ? response : new CompressingResponse(response, encoding, this);
+	}
+
+	/**
+	 * Returns true if the client accepts gzip and compression is enabled, so precompressed resources can be
+	 * served.
+	 */
+	public boolean acceptsGzip(HttpServletRequest request) {
+		return enabled && negotiate(request) == ContentEncoding.GZIP;
+	}
+
+	/**
+	 * Chooses the coding with the highest quality, preferring gzip over deflate when they tie. Codings
+	 * refused with {@code q=0}, or ranked below an explicit {@code identity}, aren't used.
+	 */
+	ContentEncoding negotiate(HttpServletRequest request) {
+		String header = nullToEmpty(request.getHeader("Accept-Encoding"));
+		double gzip = -1, deflate = -1, identity = -1, any = -1;
+		for (String coding : Splitter.on(',').trimResults().omitEmptyStrings().split(header)) {
+			int semicolon = coding.indexOf(';');
+			String name = (semicolon < 0 ? coding : coding.substring(0, semicolon)).trim();
+			double quality = semicolon < 0 ? 1 : qualityOf(coding.substring(semicolon + 1));
+			if ("gzip".equalsIgnoreCase(name) || "x-gzip".equalsIgnoreCase(name)) {
+				gzip = Math.max(gzip, quality);
+			} else if ("deflate".equalsIgnoreCase(name)) {
+				deflate = quality;
+			} else if ("identity".equalsIgnoreCase(name)) {
+				identity = quality;
+			} else if ("*".equals(name)) {
+				any = quality;
+			}
+		}
+		gzip = gzip < 0 ? any : gzip;
+		deflate = deflate < 0 ? any : deflate;
+
+		double best = Math.max(gzip, deflate);
+		if (best <= 0 || best < identity) {
+			return null;
+		}
+		return gzip >= deflate ? ContentEncoding.GZIP : ContentEncoding.DEFLATE;
+	}
+
+	private double qualityOf(String parameters) {
+		for (String parameter : Splitter.on(';').trimResults().split(parameters)) {
+			if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+				try {
+					return Double.parseDouble(parameter.substring(2).trim());
+				} catch (NumberFormatException e) {
+					return 1;
+				}
+			}
+		}
+		return 1;
+	}
+
+	public boolean isCompressible(String contentType) {
+		if (contentType == null) {
+			return false;
+		}
+		int semicolon = contentType.indexOf(';');
+		String mime = (semicolon < 0 ? contentType : contentType.substring(0, semicolon)).trim().toLowerCase();
+		return types.contains(mime) || types.contains(mime.substring(0, mime.indexOf('/') + 1) + "*");
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public int getThreshold() {
+		return threshold;
+	}
+
+	public DeflaterPool getDeflaterPool() {
+		return deflaterPool;
+	}
+}
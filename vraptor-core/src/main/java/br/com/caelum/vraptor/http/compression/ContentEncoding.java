@@ -0,0 +1,48 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.http.compression;
+
+/**
+ * Content codings supported by {@link CompressingResponse}.
+ *
+ * @since 4.2.0
+ */
+public enum ContentEncoding {
+
+	GZIP("gzip", true), DEFLATE("deflate", false);
+
+	private final String name;
+	private final boolean nowrap;
+
+	private ContentEncoding(String name, boolean nowrap) {
+		this.name = name;
+		this.nowrap = nowrap;
+	}
+
+	/**
+	 * The token used in {@code Accept-Encoding} and {@code Content-Encoding} headers.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gzip streams carry raw deflate data with their own header and trailer.
+	 */
+	public boolean isNowrap() {
+		return nowrap;
+	}
+}
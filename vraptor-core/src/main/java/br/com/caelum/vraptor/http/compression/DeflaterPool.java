@@ -0,0 +1,73 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.http.compression;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+import javax.enterprise.inject.Vetoed;
+
+/**
+ * A bounded pool of {@link Deflater}s. Deflaters hold native memory and are expensive to create, so they are
+ * reset and reused between responses instead of being allocated for each one.
+ *
+ * @since 4.2.0
+ */
+@Vetoed
+public class DeflaterPool {
+
+	private final int level;
+	private final BlockingQueue<Deflater> raw;
+	private final BlockingQueue<Deflater> zlib;
+
+	public DeflaterPool(int level, int capacity) {
+		this.level = level;
+		this.raw = new ArrayBlockingQueue<>(capacity);
+		this.zlib = new ArrayBlockingQueue<>(capacity);
+	}
+
+	/**
+	 * @param nowrap true for raw deflate data, as used inside gzip streams, false for zlib wrapped data.
+	 */
+	public Deflater acquire(boolean nowrap) {
+		Deflater deflater = queueFor(nowrap).poll();
+		return deflater != null ? deflater : new Deflater(level, nowrap);
+	}
+
+	public void release(Deflater deflater, boolean nowrap) {
+		deflater.reset();
+		if (!queueFor(nowrap).offer(deflater)) {
+			deflater.end();
+		}
+	}
+
+	public void clear() {
+		end(raw);
+		end(zlib);
+	}
+
+	private void end(BlockingQueue<Deflater> queue) {
+		Deflater deflater;
+		while ((deflater = queue.poll()) != null) {
+			deflater.end();
+		}
+	}
+
+	private BlockingQueue<Deflater> queueFor(boolean nowrap) {
+		return nowrap ? raw : zlib;
+	}
+}
@@ -34,6 +34,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import br.com.caelum.vraptor.cache.CacheStore;
+import br.com.caelum.vraptor.cache.LRU;
 import br.com.caelum.vraptor.controller.ControllerMethod;
 import br.com.caelum.vraptor.controller.HttpMethod;
 import br.com.caelum.vraptor.core.Converters;
@@ -83,7 +84,7 @@ public class DefaultRouter implements Router {
 	@Inject
 	public DefaultRouter(Proxifier proxifier, TypeFinder finder, Converters converters,
 			ParameterNameProvider nameProvider, Evaluator evaluator, EncodingHandler encodingHandler,
-			CacheStore<Invocation, Route> cache) {
+			@LRU(name = "vraptor.routes", capacity = 10000) CacheStore<Invocation, Route> cache) {
 		this.proxifier = proxifier;
 		this.finder = finder;
 		this.converters = converters;
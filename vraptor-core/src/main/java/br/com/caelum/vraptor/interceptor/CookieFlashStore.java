@@ -0,0 +1,439 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.interceptor;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import javax.annotation.PostConstruct;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.enterprise.context.RequestScoped;
+import javax.enterprise.inject.Alternative;
+import javax.inject.Inject;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+
+import org.slf4j.Logger;
+
+import br.com.caelum.vraptor.environment.Environment;
+import br.com.caelum.vraptor.http.MutableResponse;
+import br.com.caelum.vraptor.validator.Message;
+import br.com.caelum.vraptor.validator.MessageList;
+import br.com.caelum.vraptor.validator.Severity;
+import br.com.caelum.vraptor.validator.SimpleMessage;
+
+import com.google.common.io.BaseEncoding;
+
+/**
+ * {@link FlashStore} that keeps the parameters in a cookie, so redirect-after-post flows need no
+ * session and can be served by any node of a cluster. Parameters are written in a small tagged binary
+ * format, together with the time they were stored, deflated and signed with HMAC-SHA256; cookies whose
+ * signature doesn't match or that are older than their max age are ignored, so captured cookies can't be
+ * replayed later.
+ *
+ * Only plain data survives the redirect: strings, characters, booleans, numbers, dates, enums (as their
+ * names), validation {@link Message}s (as {@link SimpleMessage}s with the resolved text), and lists and
+ * maps with string keys of those. Parameters of other types are not kept. No class is ever instantiated
+ * from the cookie. It is configured through these environment properties:
+ *
+ * <ul>
+ * <li>{@code br.com.caelum.vraptor.flash.cookie.secret}: the signing secret, which must be the same
+ * on every node. It is required; the application fails to start without it</li>
+ * <li>{@code br.com.caelum.vraptor.flash.cookie.max-size}: the largest cookie value, in bytes. Bigger
+ * flashes are discarded. Defaults to 4000</li>
+ * <li>{@code br.com.caelum.vraptor.flash.cookie.max-age}: how long, in seconds, a flash is kept until the
+ * redirected request reads it. Defaults to 300</li>
+ * </ul>
+ *
+ * It is disabled by default. To enable it, declare a subclass annotated with {@code @Alternative} and
+ * {@code @Priority(Interceptor.Priority.APPLICATION)}.
+ *
+ * @since 4.2.0
+ */
+@Alternative
+@RequestScoped
+public class CookieFlashStore implements FlashStore {
+
+	public static final String SECRET_KEY = "br.com.caelum.vraptor.flash.cookie.secret";
+	public static final String MAX_SIZE_KEY = "br.com.caelum.vraptor.flash.cookie.max-size";
+	public static final String MAX_AGE_KEY = "br.com.caelum.vraptor.flash.cookie.max-age";
+
+	static final String COOKIE_NAME = "vraptor_flash";
+
+	private static final Logger logger = getLogger(CookieFlashStore.class);
+	private static final String ALGORITHM = "HmacSHA256";
+	private static final BaseEncoding ENCODING = BaseEncoding.base64Url().omitPadding();
+	private static final int VERSION = 2;
+
+	private static final int NULL = 0, STRING = 1, CHARACTER = 2, BOOLEAN = 3, INTEGER = 4, LONG = 5,
+			DOUBLE = 6, FLOAT = 7, BIG_INTEGER = 8, BIG_DECIMAL = 9, DATE = 10, LIST = 11, MAP = 12,
+			MESSAGE = 13, MESSAGE_LIST = 14;
+
+	private final HttpServletRequest request;
+	private final MutableResponse response;
+	private final Environment environment;
+	private byte[] secret;
+	private int maxSize;
+	private int maxAge;
+
+	/**
+	 * @deprecated CDI eyes only
+	 */
+	protected CookieFlashStore() {
+		this(null, null, null);
+	}
+
+	@Inject
+	public CookieFlashStore(HttpServletRequest request, MutableResponse response, Environment environment) {
+		this.request = request;
+		this.response = response;
+		this.environment = environment;
+	}
+
+	@PostConstruct
+	public void init() {
+		secret = secretFrom(environment).getBytes(UTF_8);
+		maxSize = Integer.parseInt(environment.get(MAX_SIZE_KEY, "4000"));
+		maxAge = Integer.parseInt(environment.get(MAX_AGE_KEY, "300"));
+	}
+
+	/**
+	 * Returns the configured signing secret, failing if there is none: a random secret would break flash
+	 * scope across nodes and restarts.
+	 */
+	static String secretFrom(Environment environment) {
+		String secret = environment.get(SECRET_KEY, null);
+		if (secret == null || secret.isEmpty()) {
+			throw new IllegalStateException("CookieFlashStore requires a signing secret in " + SECRET_KEY
+					+ ", shared by every node of the application");
+		}
+		return secret;
+	}
+
+	@Override
+	public Map<String, Object> consume() {
+		Cookie cookie = findCookie();
+		if (cookie == null) {
+			return null;
+		}
+
+		response.addCookie(cookieFor("", 0));
+		try {
+			return decode(cookie.getValue());
+		} catch (IOException | IllegalArgumentException e) {
+			logger.debug("Ignoring malformed flash cookie", e);
+			return null;
+		}
+	}
+
+	@Override
+	public void store(Map<String, Object> parameters) {
+		String value = encode(parameters);
+		if (value.length() > maxSize) {
+			logger.warn("Flash parameters need {} bytes, more than the {} allowed by {}. They won't be kept",
+					value.length(), maxSize, MAX_SIZE_KEY);
+			return;
+		}
+		response.addCookie(cookieFor(value, maxAge));
+	}
+
+	private Cookie findCookie() {
+		Cookie[] cookies = request.getCookies();
+		if (cookies != null) {
+			for (Cookie cookie : cookies) {
+				if (COOKIE_NAME.equals(cookie.getName())) {
+					return cookie;
+				}
+			}
+		}
+		return null;
+	}
+
+	private Cookie cookieFor(String value, int maxAge) {
+		String path = request.getContextPath();
+		Cookie cookie = new Cookie(COOKIE_NAME, value);
+		cookie.setPath(path == null || path.isEmpty() ? "/" : path);
+		cookie.setHttpOnly(true);
+		cookie.setSecure(request.isSecure());
+		cookie.setMaxAge(maxAge);
+		return cookie;
+	}
+
+	String encode(Map<String, Object> parameters) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(
+				new DeflaterOutputStream(bytes, new Deflater(Deflater.BEST_COMPRESSION, true)))) {
+			Map<String, Object> supported = new LinkedHashMap<>();
+			for (Entry<String, Object> parameter : parameters.entrySet()) {
+				if (isSupported(parameter.getValue())) {
+					supported.put(parameter.getKey(), parameter.getValue());
+				} else {
+					logger.warn("Flash parameter {} of type {} can't be kept in a cookie", parameter.getKey(),
+							parameter.getValue().getClass().getName());
+				}
+			}
+			out.writeByte(VERSION);
+			out.writeLong(now());
+			writeValue(supported, out);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+
+		byte[] payload = bytes.toByteArray();
+		return ENCODING.encode(payload) + "." + ENCODING.encode(sign(payload));
+	}
+
+	@SuppressWarnings("unchecked")
+	Map<String, Object> decode(String value) throws IOException {
+		int separator = value.indexOf('.');
+		if (separator < 0) {
+			throw new IllegalArgumentException("Missing signature");
+		}
+
+		byte[] payload = ENCODING.decode(value.substring(0, separator));
+		byte[] signature = ENCODING.decode(value.substring(separator + 1));
+		if (!MessageDigest.isEqual(sign(payload), signature)) {
+			throw new IllegalArgumentException("Invalid signature");
+		}
+
+		try (DataInputStream in = new DataInputStream(new InflaterInputStream(
+				new ByteArrayInputStream(payload), new Inflater(true)))) {
+			if (in.readUnsignedByte() != VERSION) {
+				throw new IllegalArgumentException("Unknown flash cookie version");
+			}
+			if (Math.abs(now() - in.readLong()) > maxAge * 1000L) {
+				throw new IllegalArgumentException("Expired flash cookie");
+			}
+			Object parameters = readValue(in);
+			if (!(parameters instanceof Map)) {
+				throw new IllegalArgumentException("Flash cookie doesn't hold parameters");
+			}
+			return (Map<String, Object>) parameters;
+		}
+	}
+
+	private static boolean isSupported(Object value) {
+		if (value == null || value instanceof String || value instanceof Character || value instanceof Boolean
+				|| value instanceof Number || value instanceof Date || value instanceof Enum
+				|| value instanceof Message) {
+			return !(value instanceof Number) || isSupportedNumber((Number) value);
+		}
+		if (value instanceof Collection) {
+			for (Object item : (Collection<?>) value) {
+				if (!isSupported(item)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		if (value instanceof Map) {
+			for (Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				if (!(entry.getKey() instanceof String) || !isSupported(entry.getValue())) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+
+	private static boolean isSupportedNumber(Number number) {
+		return number instanceof Integer || number instanceof Long || number instanceof Short
+				|| number instanceof Byte || number instanceof Double || number instanceof Float
+				|| number instanceof BigInteger || number instanceof BigDecimal;
+	}
+
+	private static void writeValue(Object value, DataOutputStream out) throws IOException {
+		if (value == null) {
+			out.writeByte(NULL);
+		} else if (value instanceof String) {
+			out.writeByte(STRING);
+			writeString((String) value, out);
+		} else if (value instanceof Character) {
+			out.writeByte(CHARACTER);
+			out.writeChar((Character) value);
+		} else if (value instanceof Boolean) {
+			out.writeByte(BOOLEAN);
+			out.writeBoolean((Boolean) value);
+		} else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+			out.writeByte(INTEGER);
+			out.writeInt(((Number) value).intValue());
+		} else if (value instanceof Long) {
+			out.writeByte(LONG);
+			out.writeLong((Long) value);
+		} else if (value instanceof Double) {
+			out.writeByte(DOUBLE);
+			out.writeDouble((Double) value);
+		} else if (value instanceof Float) {
+			out.writeByte(FLOAT);
+			out.writeFloat((Float) value);
+		} else if (value instanceof BigInteger) {
+			out.writeByte(BIG_INTEGER);
+			writeString(value.toString(), out);
+		} else if (value instanceof BigDecimal) {
+			out.writeByte(BIG_DECIMAL);
+			writeString(value.toString(), out);
+		} else if (value instanceof Date) {
+			out.writeByte(DATE);
+			out.writeLong(((Date) value).getTime());
+		} else if (value instanceof Enum) {
+			out.writeByte(STRING);
+			writeString(((Enum<?>) value).name(), out);
+		} else if (value instanceof Message) {
+			Message message = (Message) value;
+			out.writeByte(MESSAGE);
+			writeString(message.getCategory(), out);
+			writeString(message.getMessage(), out);
+			out.writeByte(message.getSeverity() == null ? -1 : message.getSeverity().ordinal());
+		} else if (value instanceof Collection) {
+			Collection<?> items = (Collection<?>) value;
+			out.writeByte(value instanceof MessageList ? MESSAGE_LIST : LIST);
+			out.writeInt(items.size());
+			for (Object item : items) {
+				writeValue(item, out);
+			}
+		} else {
+			Map<?, ?> map = (Map<?, ?>) value;
+			out.writeByte(MAP);
+			out.writeInt(map.size());
+			for (Entry<?, ?> entry : map.entrySet()) {
+				writeString((String) entry.getKey(), out);
+				writeValue(entry.getValue(), out);
+			}
+		}
+	}
+
+	private static Object readValue(DataInputStream in) throws IOException {
+		int type = in.readUnsignedByte();
+		switch (type) {
+		case NULL:
+			return null;
+		case STRING:
+			return readString(in);
+		case CHARACTER:
+			return in.readChar();
+		case BOOLEAN:
+			return in.readBoolean();
+		case INTEGER:
+			return in.readInt();
+		case LONG:
+			return in.readLong();
+		case DOUBLE:
+			return in.readDouble();
+		case FLOAT:
+			return in.readFloat();
+		case BIG_INTEGER:
+			return new BigInteger(readString(in));
+		case BIG_DECIMAL:
+			return new BigDecimal(readString(in));
+		case DATE:
+			return new Date(in.readLong());
+		case MESSAGE:
+			String category = readString(in);
+			String text = readString(in);
+			byte severity = in.readByte();
+			if (severity >= Severity.values().length) {
+				throw new IllegalArgumentException("Unknown message severity: " + severity);
+			}
+			return new SimpleMessage(category, text, severity < 0 ? null : Severity.values()[severity]);
+		case LIST:
+		case MESSAGE_LIST:
+			int size = in.readInt();
+			List<Object> items = new ArrayList<>();
+			for (int i = 0; i < size; i++) {
+				items.add(readValue(in));
+			}
+			return type == LIST ? items : new MessageList(messages(items));
+		case MAP:
+			int entries = in.readInt();
+			Map<String, Object> map = new HashMap<>();
+			for (int i = 0; i < entries; i++) {
+				map.put(readString(in), readValue(in));
+			}
+			return map;
+		default:
+			throw new IllegalArgumentException("Unknown flash value type: " + type);
+		}
+	}
+
+	private static List<Message> messages(List<Object> items) {
+		List<Message> messages = new ArrayList<>();
+		for (Object item : items) {
+			if (!(item instanceof Message)) {
+				throw new IllegalArgumentException("Message lists can only hold messages");
+			}
+			messages.add((Message) item);
+		}
+		return messages;
+	}
+
+	private static void writeString(String value, DataOutputStream out) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, UTF_8);
+	}
+
+	long now() {
+		return System.currentTimeMillis();
+	}
+
+	private byte[] sign(byte[] payload) {
+		try {
+			Mac mac = Mac.getInstance(ALGORITHM);
+			mac.init(new SecretKeySpec(secret, ALGORITHM));
+			return mac.doFinal(payload);
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,58 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.interceptor;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.inject.Inject;
+
+import br.com.caelum.vraptor.environment.Environment;
+import br.com.caelum.vraptor.events.VRaptorInitialized;
+
+/**
+ * Fails the application startup when {@link CookieFlashStore} is enabled without a signing secret, instead
+ * of failing on the first request that uses flash scope.
+ *
+ * @since 4.2.0
+ */
+@ApplicationScoped
+public class CookieFlashStoreCheck {
+
+	private final BeanManager beanManager;
+	private final Environment environment;
+
+	/**
+	 * @deprecated CDI eyes only
+	 */
+	protected CookieFlashStoreCheck() {
+		this(null, null);
+	}
+
+	@Inject
+	public CookieFlashStoreCheck(BeanManager beanManager, Environment environment) {
+		this.beanManager = beanManager;
+		this.environment = environment;
+	}
+
+	public void check(@Observes VRaptorInitialized event) {
+		Bean<?> store = beanManager.resolve(beanManager.getBeans(FlashStore.class));
+		if (store != null && CookieFlashStore.class.isAssignableFrom(store.getBeanClass())) {
+			CookieFlashStore.secretFrom(environment);
+		}
+	}
+}
@@ -15,7 +15,6 @@
  */
 package br.com.caelum.vraptor.interceptor;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -34,7 +33,8 @@ import br.com.caelum.vraptor.http.MutableResponse;
 import br.com.caelum.vraptor.http.MutableResponse.RedirectListener;
 
 /**
- * Interceptor that handles flash scope.
+ * Interceptor that handles flash scope. Parameters included before a redirect are kept by a
+ * {@link FlashStore}, which defaults to the HTTP session.
  * @author Lucas Cavalcanti
  * @author Adriano Almeida
  * @since 3.0.2
@@ -45,7 +45,7 @@ public class FlashInterceptor implements Interceptor {
 	final static String FLASH_INCLUDED_PARAMETERS = "br.com.caelum.vraptor.flash.parameters";
 	private static final Logger LOGGER = LoggerFactory.getLogger(FlashInterceptor.class);
 
-	private final HttpSession session;
+	private final FlashStore store;
 	private final Result result;
 	private final MutableResponse response;
 
@@ -53,16 +53,25 @@ public class FlashInterceptor implements Interceptor {
 	 * @deprecated CDI eyes only
 	 */
 	protected FlashInterceptor() {
-		this(null, null, null);
+		this((FlashStore) null, null, null);
 	}
 
 	@Inject
-	public FlashInterceptor(HttpSession session, Result result, MutableResponse response) {
-		this.session = session;
+	public FlashInterceptor(FlashStore store, Result result, MutableResponse response) {
+		this.store = store;
 		this.result = result;
 		this.response = response;
 	}
 
+	/**
+	 * @deprecated use {@link #FlashInterceptor(FlashStore, Result, MutableResponse)}, which doesn't create a
+	 * session until parameters are stored
+	 */
+	@Deprecated
+	public FlashInterceptor(HttpSession session, Result result, MutableResponse response) {
+		this(new SessionFlashStore(session), result, response);
+	}
+
 	@Override
 	public boolean accepts(ControllerMethod method) {
 		return true;
@@ -71,12 +80,9 @@ public class FlashInterceptor implements Interceptor {
 	@Override
 	public void intercept(InterceptorStack stack, ControllerMethod method, Object controllerInstance)
 			throws InterceptionException {
-		Map<String, Object> parameters = (Map<String, Object>) session.getAttribute(FLASH_INCLUDED_PARAMETERS);
-		
+		Map<String, Object> parameters = store.consume();
+
 		if (parameters != null) {
-			parameters = new HashMap<>(parameters);
-			
-			session.removeAttribute(FLASH_INCLUDED_PARAMETERS);
 			for (Entry<String, Object> parameter : parameters.entrySet()) {
 				result.include(parameter.getKey(), parameter.getValue());
 			}
@@ -87,9 +93,9 @@ public class FlashInterceptor implements Interceptor {
 				Map<String, Object> included = result.included();
 				if (!included.isEmpty()) {
 					try {
-						session.setAttribute(FLASH_INCLUDED_PARAMETERS, new HashMap<>(included));
+						store.store(included);
 					} catch (IllegalStateException e) {
-						LOGGER.warn("HTTP Session was invalidated. It is not possible to include " +
+						LOGGER.warn("The flash store isn't available anymore. It is not possible to include " +
 								"Result parameters on Flash Scope", e);
 					}
 				}
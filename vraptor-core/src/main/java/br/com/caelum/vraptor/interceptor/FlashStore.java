@@ -0,0 +1,39 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.interceptor;
+
+import java.util.Map;
+
+/**
+ * Holds the parameters included in {@link br.com.caelum.vraptor.Result} before a redirect, so they
+ * can be included again in the next request. The default implementation keeps them in the HTTP
+ * session; {@link CookieFlashStore} keeps them in a signed cookie, without server side state.
+ *
+ * @since 4.2.0
+ */
+public interface FlashStore {
+
+	/**
+	 * Returns the parameters stored by the previous request, removing them from the store, or null if
+	 * there are none.
+	 */
+	Map<String, Object> consume();
+
+	/**
+	 * Stores the parameters to be consumed by the next request.
+	 */
+	void store(Map<String, Object> parameters);
+}
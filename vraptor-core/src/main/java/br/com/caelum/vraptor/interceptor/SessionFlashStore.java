@@ -0,0 +1,89 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.interceptor;
+
+import static br.com.caelum.vraptor.interceptor.FlashInterceptor.FLASH_INCLUDED_PARAMETERS;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+/**
+ * {@link FlashStore} that keeps the parameters in the HTTP session. The session is only created when
+ * parameters are stored.
+ *
+ * @since 4.2.0
+ */
+@RequestScoped
+public class SessionFlashStore implements FlashStore {
+
+	private final HttpServletRequest request;
+	private final HttpSession session;
+
+	/**
+	 * @deprecated CDI eyes only
+	 */
+	protected SessionFlashStore() {
+		this((HttpServletRequest) null);
+	}
+
+	@Inject
+	public SessionFlashStore(HttpServletRequest request) {
+		this.request = request;
+		this.session = null;
+	}
+
+	/**
+	 * Keeps the parameters in the given session, for code that still wires a session by hand.
+	 */
+	SessionFlashStore(HttpSession session) {
+		this.request = null;
+		this.session = session;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Map<String, Object> consume() {
+		HttpSession session = session(false);
+		if (session == null) {
+			return null;
+		}
+
+		Map<String, Object> parameters = (Map<String, Object>) session.getAttribute(FLASH_INCLUDED_PARAMETERS);
+		if (parameters == null) {
+			return null;
+		}
+
+		session.removeAttribute(FLASH_INCLUDED_PARAMETERS);
+		return new HashMap<>(parameters);
+	}
+
+	@Override
+	public void store(Map<String, Object> parameters) {
+		session(true).setAttribute(FLASH_INCLUDED_PARAMETERS, new HashMap<>(parameters));
+	}
+
+	private HttpSession session(boolean create) {
+		if (session != null) {
+			return session;
+		}
+		return create ? request.getSession() : request.getSession(false);
+	}
+}
@@ -38,6 +38,12 @@ public class CDIRequestFactories {
 		this.requestStarted = requestStarted;
 	}
 
+	/**
+	 * Produces the request session, creating it if needed. Since the produced bean is request
+	 * scoped, the session is only created when a method is first called on the injected proxy, so
+	 * components that may run without a session should use
+	 * {@link javax.servlet.http.HttpServletRequest#getSession(boolean)} instead of touching it.
+	 */
 	@Produces
 	@RequestScoped
 	public HttpSession getSession(){
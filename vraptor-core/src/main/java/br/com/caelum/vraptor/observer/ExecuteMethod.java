@@ -17,6 +17,7 @@
 
 package br.com.caelum.vraptor.observer;
 
+import br.com.caelum.vraptor.cache.ControllerResultCache;
 import br.com.caelum.vraptor.controller.ControllerMethod;
 import br.com.caelum.vraptor.core.MethodInfo;
 import br.com.caelum.vraptor.core.ReflectionProvider;
@@ -24,14 +25,17 @@ import br.com.caelum.vraptor.core.Try;
 import br.com.caelum.vraptor.events.InterceptorsExecuted;
 import br.com.caelum.vraptor.events.MethodExecuted;
 import br.com.caelum.vraptor.events.MethodReady;
+import br.com.caelum.vraptor.http.ValuedParameter;
 import br.com.caelum.vraptor.validator.Messages;
 import org.slf4j.Logger;
 
 import javax.enterprise.context.Dependent;
 import javax.enterprise.event.Event;
 import javax.enterprise.event.Observes;
+import javax.enterprise.inject.Vetoed;
 import javax.inject.Inject;
 import java.lang.reflect.Method;
+import java.util.List;
 import java.util.concurrent.Callable;
 
 import static org.slf4j.LoggerFactory.getLogger;
@@ -55,17 +59,32 @@ public class ExecuteMethod {
 	private final Event<MethodExecuted> methodExecutedEvent;
 	private final Event<MethodReady> methodReady;
 	private final ExecuteMethodExceptionHandler executeMethodExceptionHandler;
+	private final ControllerResultCache resultCache;
+
+	/**
+	 * @deprecated use the constructor that receives the {@link ControllerResultCache}, otherwise results of
+	 * {@link br.com.caelum.vraptor.cache.Cached} methods are never cached
+	 */
+	@Deprecated
+	public ExecuteMethod(MethodInfo methodInfo, Messages messages,
+			Event<MethodExecuted> methodExecutedEvent, Event<MethodReady> methodReady,
+			ExecuteMethodExceptionHandler exceptionHandler, ReflectionProvider reflectionProvider) {
+		this(methodInfo, messages, methodExecutedEvent, methodReady, exceptionHandler, reflectionProvider,
+				new NoResultCache());
+	}
 
 	@Inject
 	public ExecuteMethod(MethodInfo methodInfo, Messages messages, 
 			Event<MethodExecuted> methodExecutedEvent, Event<MethodReady> methodReady,
-			ExecuteMethodExceptionHandler exceptionHandler, ReflectionProvider reflectionProvider) {
+			ExecuteMethodExceptionHandler exceptionHandler, ReflectionProvider reflectionProvider,
+			ControllerResultCache resultCache) {
 		this.methodInfo = methodInfo;
 		this.messages = messages;
 		this.methodExecutedEvent = methodExecutedEvent;
 		this.methodReady = methodReady;
 		this.executeMethodExceptionHandler = exceptionHandler;
 		this.reflectionProvider = reflectionProvider;
+		this.resultCache = resultCache;
 	}
 
 	public void execute(@Observes final InterceptorsExecuted event) {
@@ -75,13 +94,24 @@ public class ExecuteMethod {
 				ControllerMethod method = event.getControllerMethod();
 				methodReady.fire(new MethodReady(method));
 				Method reflectionMethod = method.getMethod();
-				Object[] parameters = methodInfo.getParametersValues();
+				List<Object> key = resultCache.keyFor(method, methodInfo.getValuedParameters());
+				Object result = key == null ? null : resultCache.fetch(key);
+
+				if (result == null) {
+					Object[] parameters = methodInfo.getParametersValues();
 
-				log.debug("Invoking {}", reflectionMethod);
-				Object instance = event.getControllerInstance();
-				Object result = reflectionProvider.invoke(instance, reflectionMethod, parameters);
+					log.debug("Invoking {}", reflectionMethod);
+					Object instance = event.getControllerInstance();
+					result = reflectionProvider.invoke(instance, reflectionMethod, parameters);
 
-				messages.assertAbsenceOfErrors();
+					messages.assertAbsenceOfErrors();
+					if (key != null) {
+						resultCache.write(key, method, result);
+					}
+				} else {
+					log.debug("Using cached result of {} for {}", reflectionMethod, key);
+					messages.assertAbsenceOfErrors();
+				}
 
 				methodInfo.setResult(result);
 				methodExecutedEvent.fire(new MethodExecuted(method, methodInfo));
@@ -94,4 +124,19 @@ public class ExecuteMethod {
 		}
 	}
 
+	/**
+	 * A cache that never hits, since it never gives keys to methods.
+	 */
+	@Vetoed
+	private static class NoResultCache extends ControllerResultCache {
+		NoResultCache() {
+			super(null, null, null);
+		}
+
+		@Override
+		public List<Object> keyFor(ControllerMethod method, ValuedParameter[] parameters) {
+			return null;
+		}
+	}
+
 }
\ No newline at end of file
@@ -40,10 +40,17 @@ import br.com.caelum.vraptor.http.MutableResponse;
 import br.com.caelum.vraptor.http.UrlToControllerTranslator;
 import br.com.caelum.vraptor.http.route.ControllerNotFoundException;
 import br.com.caelum.vraptor.http.route.MethodNotAllowedException;
+import br.com.caelum.vraptor.observer.coalesce.Coalesce;
+import br.com.caelum.vraptor.observer.coalesce.CoalescingDispatcher;
+import br.com.caelum.vraptor.observer.offload.NullRequestContextActivator;
+import br.com.caelum.vraptor.observer.offload.Offload;
+import br.com.caelum.vraptor.observer.offload.OffloadDispatcher;
 
 /**
  * Looks up the {@link ControllerMethod} for a specific request and start {@link
- * InterceptorStack} if it was found, otherwise delegates for the 404 component.
+ * InterceptorStack} if it was found, otherwise delegates for the 404 component. Methods annotated with
+ * {@link Offload} have their stack started on the configured executor, and concurrent identical requests
+ * to methods annotated with {@link Coalesce} share a single execution.
  *
  * @author Guilherme Silveira
  * @author Cecilia Fernandes
@@ -61,20 +68,50 @@ public class RequestHandlerObserver {
 	private final InterceptorStack interceptorStack;
 	private final Event<RequestSucceded> endRequestEvent;
 	private final InvalidInputHandler invalidInputHandler;
+	private final OffloadDispatcher offloadDispatcher;
+	private final CoalescingDispatcher coalescingDispatcher;
 
 	/**
 	 * @deprecated CDI eyes only
 	 */
 	protected RequestHandlerObserver() {
-		this(null, null, null, null, null, null, null);
+		this(null, null, null, null, null, null, null, null, null);
 	}
 
-	@Inject
+	/**
+	 * @deprecated use the constructor that receives an {@link OffloadDispatcher}, otherwise methods
+	 * annotated with {@link Offload} run on the container thread
+	 */
+	@Deprecated
 	public RequestHandlerObserver(UrlToControllerTranslator translator,
 			ControllerNotFoundHandler controllerNotFoundHandler, MethodNotAllowedHandler methodNotAllowedHandler,
 			Event<ControllerFound> controllerFoundEvent, Event<RequestSucceded> endRequestEvent,
 			InterceptorStack interceptorStack, InvalidInputHandler invalidInputHandler) {
-		
+		this(translator, controllerNotFoundHandler, methodNotAllowedHandler, controllerFoundEvent, endRequestEvent,
+				interceptorStack, invalidInputHandler, new OffloadDispatcher(null, new NullRequestContextActivator()));
+	}
+
+	/**
+	 * @deprecated use the constructor that receives a {@link CoalescingDispatcher}, otherwise methods
+	 * annotated with {@link Coalesce} are coalesced by a dispatcher of their own
+	 */
+	@Deprecated
+	public RequestHandlerObserver(UrlToControllerTranslator translator,
+			ControllerNotFoundHandler controllerNotFoundHandler, MethodNotAllowedHandler methodNotAllowedHandler,
+			Event<ControllerFound> controllerFoundEvent, Event<RequestSucceded> endRequestEvent,
+			InterceptorStack interceptorStack, InvalidInputHandler invalidInputHandler,
+			OffloadDispatcher offloadDispatcher) {
+		this(translator, controllerNotFoundHandler, methodNotAllowedHandler, controllerFoundEvent, endRequestEvent,
+				interceptorStack, invalidInputHandler, offloadDispatcher, new CoalescingDispatcher());
+	}
+
+	@Inject
+	public RequestHandlerObserver(UrlToControllerTranslator translator,
+			ControllerNotFoundHandler controllerNotFoundHandler, MethodNotAllowedHandler methodNotAllowedHandler,
+			Event<ControllerFound> controllerFoundEvent, Event<RequestSucceded> endRequestEvent,
+			InterceptorStack interceptorStack, InvalidInputHandler invalidInputHandler,
+			OffloadDispatcher offloadDispatcher, CoalescingDispatcher coalescingDispatcher) {
+
 		this.translator = translator;
 		this.methodNotAllowedHandler = methodNotAllowedHandler;
 		this.controllerNotFoundHandler = controllerNotFoundHandler;
@@ -82,16 +119,38 @@ public class RequestHandlerObserver {
 		this.endRequestEvent = endRequestEvent;
 		this.interceptorStack = interceptorStack;
 		this.invalidInputHandler = invalidInputHandler;
+		this.offloadDispatcher = offloadDispatcher;
+		this.coalescingDispatcher = coalescingDispatcher;
 	}
 
 	public void handle(@Observes VRaptorRequestStarted event) {
-		MutableResponse response = event.getResponse();
-		MutableRequest request = event.getRequest();
+		final MutableResponse response = event.getResponse();
+		final MutableRequest request = event.getRequest();
 		try {
 			ControllerMethod method = translator.translate(request);
 			controllerFoundEvent.fire(new ControllerFound(method));
-			interceptorStack.start();
-			endRequestEvent.fire(new RequestSucceded(request, response));
+
+			if (offloadDispatcher.shouldOffload(method, request)) {
+				offloadDispatcher.dispatch(method, request, response, new Runnable() {
+					@Override
+					public void run() {
+						execute(request, response);
+					}
+				});
+				return;
+			}
+
+			if (coalescingDispatcher.shouldCoalesce(method, request)) {
+				coalescingDispatcher.dispatch(method, request, response, new Runnable() {
+					@Override
+					public void run() {
+						execute(request, response);
+					}
+				});
+				return;
+			}
+
+			execute(request, response);
 		} catch (ControllerNotFoundException e) {
 			LOGGER.debug("Could not found controller method", e);
 			controllerNotFoundHandler.couldntFind(event.getChain(), request, response);
@@ -103,4 +162,14 @@ public class RequestHandlerObserver {
 			invalidInputHandler.deny(e);
 		}
 	}
+
+	private void execute(MutableRequest request, MutableResponse response) {
+		try {
+			interceptorStack.start();
+			endRequestEvent.fire(new RequestSucceded(request, response));
+		} catch (InvalidInputException e) {
+			LOGGER.debug("Invalid input", e);
+			invalidInputHandler.deny(e);
+		}
+	}
 }
@@ -0,0 +1,60 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.observer.coalesce;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Collapses concurrent identical {@code GET} requests into a single execution of the method: while one
+ * request runs it, the others wait and get a copy of the response it rendered. Requests are identical when
+ * they have the same path, query string, {@code Accept} and {@code Authorization} headers and session id.
+ * <p>
+ * <strong>Waiting requests skip every interceptor</strong>, including the ones that authenticate or
+ * authorize, since only the first request runs the interceptor stack. Requests that don't share the session
+ * or the {@code Authorization} header are never coalesced, but anything else an interceptor checks, such as
+ * the client address, is not taken into account.
+ *
+ * <pre>
+ * &#064;Get("/musics/list/json")
+ * &#064;Coalesce(timeout = 2000)
+ * public void listJson() { ... }
+ * </pre>
+ *
+ * Nothing is kept after the execution ends, so this only helps requests that arrive while it runs. It must
+ * only be used on methods whose response doesn't depend on the user, since cookies are not copied but the
+ * rest of the response is. Conditional and range requests, such as the ones with {@code If-None-Match} or
+ * {@code Range} headers, are never coalesced, and only {@code 200} responses are shared.
+ * <p>
+ * Methods that are also annotated with {@link br.com.caelum.vraptor.observer.offload.Offload} are offloaded
+ * and never coalesced.
+ *
+ * @since 4.2.0
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Coalesce {
+
+	/** How long, in milliseconds, a request waits before running the method itself */
+	long timeout() default 5000;
+
+	/** Responses larger than this, in bytes, are not copied; waiting requests run the method themselves */
+	int maxSize() default 1024 * 1024;
+}
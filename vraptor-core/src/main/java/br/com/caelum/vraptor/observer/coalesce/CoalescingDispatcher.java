@@ -0,0 +1,203 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.observer.coalesce;
+
+import static com.google.common.base.Strings.nullToEmpty;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.IOException;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.servlet.ServletResponse;
+import javax.servlet.ServletResponseWrapper;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+
+import br.com.caelum.vraptor.VRaptorException;
+import br.com.caelum.vraptor.controller.ControllerMethod;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+
+/**
+ * Runs {@link Coalesce} methods once for all concurrent identical requests. The first request runs the
+ * method, along with its interceptors, while copying its response; the others wait for it and replay the
+ * copy without running any interceptor. Requests are only identical when they also share the session and
+ * {@code Authorization} header, so a request never gets a response rendered for another user, and
+ * conditional or range requests are never coalesced, since their responses depend on what the client has.
+ * Only {@code 200} responses are shared. If the first request fails, each waiting one fails with a {@link VRaptorException} caused by that failure. If it
+ * takes longer than the timeout, or its response can't be copied, they run the method themselves.
+ *
+ * @since 4.2.0
+ */
+@ApplicationScoped
+public class CoalescingDispatcher {
+
+	private static final Logger logger = getLogger(CoalescingDispatcher.class);
+
+	private static final String[] CONDITIONAL_HEADERS = { "If-None-Match", "If-Modified-Since", "If-Match",
+			"If-Unmodified-Since", "Range" };
+
+	private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<>();
+
+	public boolean shouldCoalesce(ControllerMethod method, HttpServletRequest request) {
+		return method.containsAnnotation(Coalesce.class) && "GET".equals(request.getMethod())
+				&& !isConditional(request);
+	}
+
+	private static boolean isConditional(HttpServletRequest request) {
+		for (String name : CONDITIONAL_HEADERS) {
+			if (request.getHeader(name) != null) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Runs the task, or waits for an identical request that is already running it and copies its response.
+	 */
+	public void dispatch(ControllerMethod method, HttpServletRequest request, HttpServletResponse response,
+			Runnable task) {
+		if (!(response instanceof ServletResponseWrapper)) {
+			logger.debug("Unable to copy the response of {}, running without coalescing", method);
+			task.run();
+			return;
+		}
+
+		Coalesce coalesce = method.getMethod().getAnnotation(Coalesce.class);
+		String key = keyOf(request);
+		Flight flight = new Flight();
+		Flight running = flights.putIfAbsent(key, flight);
+
+		if (running == null) {
+			lead(key, flight, (ServletResponseWrapper) response, coalesce.maxSize(), task);
+		} else if (!follow(running, response, coalesce.timeout())) {
+			logger.debug("Unable to coalesce {}, running it again", key);
+			task.run();
+		}
+	}
+
+	private void lead(String key, Flight flight, ServletResponseWrapper wrapper, int maxSize, Runnable task) {
+		ServletResponse original = wrapper.getResponse();
+		CopyingResponse copying = new CopyingResponse((HttpServletResponse) original, maxSize);
+		wrapper.setResponse(copying);
+		try {
+			task.run();
+			flight.succeed(copying);
+		} catch (RuntimeException | Error e) {
+			flight.fail(e);
+			throw e;
+		} finally {
+			wrapper.setResponse(original);
+			flights.remove(key, flight);
+			flight.done.countDown();
+		}
+	}
+
+	private boolean follow(Flight flight, HttpServletResponse response, long timeout) {
+		try {
+			if (!flight.done.await(timeout, TimeUnit.MILLISECONDS)) {
+				return false;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+
+		if (flight.error != null) {
+			throw new VRaptorException("The coalesced request failed", flight.error);
+		}
+		if (flight.body == null) {
+			return false;
+		}
+
+		try {
+			flight.replay(response);
+		} catch (IOException e) {
+			logger.debug("Unable to send coalesced response", e);
+		}
+		return true;
+	}
+
+	private static String keyOf(HttpServletRequest request) {
+		String query = request.getQueryString();
+		return request.getRequestURI() + (query == null ? "" : "?" + query) + '\n'
+				+ nullToEmpty(request.getHeader("Accept")) + '\n'
+				+ nullToEmpty(request.getRequestedSessionId()) + '\n'
+				+ nullToEmpty(request.getHeader("Authorization"));
+	}
+
+	private static class Flight {
+		final CountDownLatch done = new CountDownLatch(1);
+		volatile Throwable error;
+		volatile byte[] body;
+		int status;
+		String contentType;
+		String characterEncoding;
+		final ListMultimap<String, String> headers = ArrayListMultimap.create();
+
+		/**
+		 * Only 200 responses are shared: any other one, such as a 304, may only make sense to the
+		 * request that got it.
+		 */
+		void succeed(CopyingResponse response) {
+			status = response.getStatus();
+			if (status != HttpServletResponse.SC_OK) {
+				return;
+			}
+			contentType = response.getContentType();
+			characterEncoding = response.getCharacterEncoding();
+			for (String name : response.getHeaderNames()) {
+				if (!isPrivate(name)) {
+					headers.putAll(name, response.getHeaders(name));
+				}
+			}
+			body = response.body();
+		}
+
+		void fail(Throwable error) {
+			this.error = error;
+		}
+
+		void replay(HttpServletResponse response) throws IOException {
+			response.setStatus(status);
+			if (characterEncoding != null) {
+				response.setCharacterEncoding(characterEncoding);
+			}
+			if (contentType != null) {
+				response.setContentType(contentType);
+			}
+			for (Entry<String, String> header : headers.entries()) {
+				response.addHeader(header.getKey(), header.getValue());
+			}
+			response.setContentLength(body.length);
+			response.getOutputStream().write(body);
+		}
+
+		private static boolean isPrivate(String name) {
+			return "Set-Cookie".equalsIgnoreCase(name) || "Content-Length".equalsIgnoreCase(name)
+					|| "Content-Type".equalsIgnoreCase(name) || "Content-Encoding".equalsIgnoreCase(name);
+		}
+	}
+}
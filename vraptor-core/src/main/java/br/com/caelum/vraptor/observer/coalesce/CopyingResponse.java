@@ -0,0 +1,163 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.observer.coalesce;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+import javax.enterprise.inject.Vetoed;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Sends the body to the client while keeping a copy of it, so it can be shared with coalesced requests.
+ * Responses that redirect, send errors, outgrow the maximum size or are written without blocking can't
+ * be shared.
+ *
+ * @since 4.2.0
+ */
+@Vetoed
+class CopyingResponse extends HttpServletResponseWrapper {
+
+	private final int maxSize;
+	private final ByteArrayOutputStream copy = new ByteArrayOutputStream();
+	private final CopyingOutputStream stream = new CopyingOutputStream();
+	private ServletOutputStream raw;
+	private PrintWriter writer;
+	private boolean shareable = true;
+
+	CopyingResponse(HttpServletResponse response, int maxSize) {
+		super(response);
+		this.maxSize = maxSize;
+	}
+
+	@Override
+	public ServletOutputStream getOutputStream() throws IOException {
+		if (writer != null) {
+			throw new IllegalStateException("getWriter() has already been called for this response");
+		}
+		return stream;
+	}
+
+	@Override
+	public PrintWriter getWriter() throws IOException {
+		if (writer == null) {
+			writer = new PrintWriter(new OutputStreamWriter(stream, getCharacterEncoding()));
+		}
+		return writer;
+	}
+
+	@Override
+	public void flushBuffer() throws IOException {
+		if (writer != null) {
+			writer.flush();
+		}
+		super.flushBuffer();
+	}
+
+	@Override
+	public void resetBuffer() {
+		super.resetBuffer();
+		copy.reset();
+	}
+
+	@Override
+	public void reset() {
+		super.reset();
+		copy.reset();
+	}
+
+	@Override
+	public void sendError(int sc) throws IOException {
+		shareable = false;
+		super.sendError(sc);
+	}
+
+	@Override
+	public void sendError(int sc, String msg) throws IOException {
+		shareable = false;
+		super.sendError(sc, msg);
+	}
+
+	@Override
+	public void sendRedirect(String location) throws IOException {
+		shareable = false;
+		super.sendRedirect(location);
+	}
+
+	/**
+	 * Returns the body sent so far, or null if this response can't be shared.
+	 */
+	byte[] body() {
+		if (writer != null) {
+			writer.flush();
+		}
+		return shareable ? copy.toByteArray() : null;
+	}
+
+	private class CopyingOutputStream extends ServletOutputStream {
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException {
+			if (shareable) {
+				if (copy.size() + length > maxSize) {
+					shareable = false;
+					copy.reset();
+				} else {
+					copy.write(bytes, offset, length);
+				}
+			}
+			raw().write(bytes, offset, length);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			raw().flush();
+		}
+
+		private ServletOutputStream raw() throws IOException {
+			if (raw == null) {
+				raw = CopyingResponse.super.getOutputStream();
+			}
+			return raw;
+		}
+
+		@Override
+		public boolean isReady() {
+			return raw == null || raw.isReady();
+		}
+
+		@Override
+		public void setWriteListener(WriteListener writeListener) {
+			shareable = false;
+			copy.reset();
+			try {
+				raw().setWriteListener(writeListener);
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package br.com.caelum.vraptor.observer.download;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+
+import javax.enterprise.inject.Vetoed;
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+
+import br.com.caelum.vraptor.http.compression.CompressingResponse;
+
+/**
+ * Copies a channel to the response using a Servlet 3.1 {@link WriteListener}: a chunk is read and
+ * written only while {@link ServletOutputStream#isReady()}, so no container thread waits for slow
+ * clients. The request is completed and the channel closed when the copy ends or fails.
+ *
+ * Each chunk must reach the container as a single write, so the body is never compressed, and the
+ * channel is read in blocking mode.
+ *
+ * @since 4.2.0
+ */
+@Vetoed
+class AsyncChannelWriter implements WriteListener {
+
+	private static final Logger logger = getLogger(AsyncChannelWriter.class);
+
+	static final int CHUNK_SIZE = 64 * 1024;
+
+	private final AsyncContext context;
+	private final ServletOutputStream output;
+	private final ReadableByteChannel source;
+	private final ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+	private long remaining;
+	private boolean done;
+
+	AsyncChannelWriter(AsyncContext context, ServletOutputStream output, ReadableByteChannel source, long count) {
+		this.context = context;
+		this.output = output;
+		this.source = source;
+		this.remaining = count;
+	}
+
+	/**
+	 * Whether the download can be sent asynchronously. Requests already put in async mode, for
+	 * instance by {@code @Offload}, are not running on a container thread and keep the blocking copy.
+	 */
+	static boolean canStart(HttpServletRequest request) {
+		return request.isAsyncSupported() && !request.isAsyncStarted();
+	}
+
+	/**
+	 * Starts async mode and copies {@code count} bytes from source, or everything up to its end if
+	 * count is negative.
+	 */
+	static void start(HttpServletRequest request, HttpServletResponse response, ReadableByteChannel source,
+			long count) throws IOException {
+		if (source instanceof SelectableChannel) {
+			((SelectableChannel) source).configureBlocking(true);
+		}
+		CompressingResponse.skipCompression(response);
+
+		AsyncContext context = request.startAsync(request, response);
+		context.setTimeout(0);
+		ServletOutputStream output = response.getOutputStream();
+		output.setWriteListener(new AsyncChannelWriter(context, output, source, count));
+	}
+
+	@Override
+	public void onWritePossible() throws IOException {
+		while (!done && output.isReady()) {
+			buffer.clear();
+			if (remaining >= 0 && remaining < buffer.capacity()) {
+				buffer.limit((int) remaining);
+			}
+
+			int read = remaining == 0 ? -1 : source.read(buffer);
+			if (read < 0) {
+				finish();
+				return;
+			}
+			if (read == 0) {
+				throw new IOException("Download channel didn't return any data");
+			}
+
+			output.write(buffer.array(), 0, read);
+			if (remaining > 0) {
+				remaining -= read;
+			}
+		}
+	}
+
+	@Override
+	public void onError(Throwable t) {
+		logger.debug("Download aborted", t);
+		if (!done) {
+			done = true;
+			closeSource();
+			context.complete();
+		}
+	}
+
+	private void finish() throws IOException {
+		done = true;
+		closeSource();
+		CompressingResponse.complete(context.getResponse());
+		context.complete();
+	}
+
+	private void closeSource() {
+		try {
+			source.close();
+		} catch (IOException e) {
+			logger.debug("Unable to close download channel", e);
+		}
+	}
+}
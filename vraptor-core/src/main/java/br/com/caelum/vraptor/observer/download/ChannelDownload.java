@@ -0,0 +1,70 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package br.com.caelum.vraptor.observer.download;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+import javax.enterprise.inject.Vetoed;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Implements {@link Download} from a {@link ReadableByteChannel}. When built as async, the channel is
+ * copied with a non-blocking {@link javax.servlet.WriteListener}, releasing the container thread
+ * while the client downloads.
+ *
+ * @since 4.2.0
+ * @see InputStreamDownload
+ */
+@Vetoed
+public class ChannelDownload implements RequestAwareDownload {
+
+	private final ReadableByteChannel channel;
+	private final long size;
+	private final boolean async;
+	private final InputStreamDownload download;
+
+	public ChannelDownload(ReadableByteChannel channel, String contentType, String fileName) {
+		this(channel, contentType, fileName, false, 0, false);
+	}
+
+	public ChannelDownload(ReadableByteChannel channel, String contentType, String fileName, boolean doDownload,
+			long size, boolean async) {
+		this.channel = channel;
+		this.size = size;
+		this.async = async;
+		this.download = new InputStreamDownload(Channels.newInputStream(channel), contentType, fileName, doDownload,
+				size);
+	}
+
+	@Override
+	public void write(HttpServletResponse response) throws IOException {
+		download.write(response);
+	}
+
+	@Override
+	public void write(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		if (async && AsyncChannelWriter.canStart(request)) {
+			download.writeDetails(response);
+			AsyncChannelWriter.start(request, response, channel, size > 0 ? size : -1);
+		} else {
+			write(response);
+		}
+	}
+}
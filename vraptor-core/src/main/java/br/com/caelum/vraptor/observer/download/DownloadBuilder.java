@@ -8,8 +8,11 @@ import static java.util.Objects.requireNonNull;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.Deflater;
 
 import javax.enterprise.inject.Vetoed;
 
@@ -36,6 +39,17 @@ public final class DownloadBuilder {
 		return new FileDownloadBuilder(file);
 	}
 
+	/**
+	 * Creates an instance for build a {@link PathDownload}.<br>
+	 * 
+	 * @param path The input path.
+	 * @throws NullPointerException If the {@code path} argument is {@code null}
+	 * @since 4.2.0
+	 */
+	public static PathDownloadBuilder of(Path path) {
+		return new PathDownloadBuilder(path);
+	}
+
 	/**
 	 * Creates an instance for build a {@link InputStreamDownload}.<br>
 	 * 
@@ -46,6 +60,17 @@ public final class DownloadBuilder {
 		return new InputStreamDownloadBuilder(input);
 	}
 
+	/**
+	 * Creates an instance for build a {@link ChannelDownload}.<br>
+	 * 
+	 * @param channel The input channel.
+	 * @throws NullPointerException If the {@code channel} argument is {@code null}
+	 * @since 4.2.0
+	 */
+	public static ChannelDownloadBuilder of(ReadableByteChannel channel) {
+		return new ChannelDownloadBuilder(channel);
+	}
+
 	/**
 	 * Creates an instance for build a {@link ByteArrayDownload}.<br>
 	 * 
@@ -89,14 +114,73 @@ public final class DownloadBuilder {
 
 	public static class FileDownloadBuilder extends AbstractDownloadBuilder<FileDownloadBuilder> {
 		private final File file;
+		private boolean async;
 
 		FileDownloadBuilder(File file) {
 			this.file = requireNonNull(file, "File can't be null");
 		}
 
+		/**
+		 * Sends the file without blocking a container thread, when the request supports async.
+		 * @since 4.2.0
+		 */
+		public FileDownloadBuilder async() {
+			this.async = true;
+			return this;
+		}
+
 		public FileDownload build() throws FileNotFoundException {
 			fileName = firstNonNull(fileName, file.getName());
-			return new FileDownload(file, contentType, fileName, doDownload);
+			return new FileDownload(file, contentType, fileName, doDownload, async);
+		}
+	}
+
+	public static class PathDownloadBuilder extends AbstractDownloadBuilder<PathDownloadBuilder> {
+		private final Path path;
+		private boolean async;
+
+		PathDownloadBuilder(Path path) {
+			this.path = requireNonNull(path, "Path can't be null");
+		}
+
+		/**
+		 * Sends the file without blocking a container thread, when the request supports async.
+		 */
+		public PathDownloadBuilder async() {
+			this.async = true;
+			return this;
+		}
+
+		public PathDownload build() throws FileNotFoundException {
+			fileName = firstNonNull(fileName, path.getFileName().toString());
+			return new PathDownload(path, contentType, fileName, doDownload, async);
+		}
+	}
+
+	public static class ChannelDownloadBuilder extends AbstractDownloadBuilder<ChannelDownloadBuilder> {
+		private final ReadableByteChannel channel;
+		private long size;
+		private boolean async;
+
+		ChannelDownloadBuilder(ReadableByteChannel channel) {
+			this.channel = requireNonNull(channel, "ReadableByteChannel can't be null");
+		}
+
+		public ChannelDownloadBuilder withSize(long size) {
+			this.size = size;
+			return this;
+		}
+
+		/**
+		 * Sends the channel without blocking a container thread, when the request supports async.
+		 */
+		public ChannelDownloadBuilder async() {
+			this.async = true;
+			return this;
+		}
+
+		public ChannelDownload build() {
+			return new ChannelDownload(channel, contentType, fileName, doDownload, size, async);
 		}
 	}
 
@@ -132,13 +216,35 @@ public final class DownloadBuilder {
 
 	public static class ZipDownloadBuilder extends AbstractDownloadBuilder<ZipDownloadBuilder> {
 		private final List<Path> files;
+		private int level = Deflater.DEFAULT_COMPRESSION;
+		private ExecutorService executor;
 
 		ZipDownloadBuilder(List<Path> files) {
 			this.files = requireNonNull(files, "files can't be null");
 		}
 
+		/**
+		 * Sets the deflate level, from 0 (store every entry) to 9. Already compressed files are
+		 * always stored.
+		 * @since 4.2.0
+		 */
+		public ZipDownloadBuilder withCompressionLevel(int level) {
+			this.level = level;
+			return this;
+		}
+
+		/**
+		 * Sets where the entries are compressed. By default a shared pool sized by the number of
+		 * processors is used.
+		 * @since 4.2.0
+		 */
+		public ZipDownloadBuilder withExecutor(ExecutorService executor) {
+			this.executor = executor;
+			return this;
+		}
+
 		public ZipDownload build() {
-			return new ZipDownload(fileName, files);
+			return new ZipDownload(fileName, files, level, executor);
 		}
 	}
 }
\ No newline at end of file
@@ -22,6 +22,7 @@ import static org.slf4j.LoggerFactory.getLogger;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
@@ -32,7 +33,7 @@ import br.com.caelum.vraptor.Result;
 import br.com.caelum.vraptor.events.MethodExecuted;
 
 /**
- * Observer that return a File or an InputStream when method return type is a download type.
+ * Observer that return a File, a Path or an InputStream when method return type is a download type.
  *
  * @author filipesabella
  * @author Rodrigo Turini
@@ -62,6 +63,9 @@ public class DownloadObserver {
 		if (result instanceof File) {
 			return new FileDownload((File) result, null, null);
 		}
+		if (result instanceof Path) {
+			return new PathDownload((Path) result, null);
+		}
 		if (result instanceof Download) {
 			return (Download) result;
 		}
@@ -20,6 +20,7 @@ import java.io.OutputStream;
 
 import javax.enterprise.context.Dependent;
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import br.com.caelum.vraptor.View;
@@ -32,7 +33,9 @@ import br.com.caelum.vraptor.View;
 @Dependent
 public class DownloadView implements View {
 
+	private HttpServletRequest request;
 	private HttpServletResponse response;
+	private ZipExecutor zipExecutor;
 
 	/**
 	 * @deprecated CDI eyes only
@@ -40,14 +43,40 @@ public class DownloadView implements View {
 	protected DownloadView() {
 	}
 
+	/**
+	 * @deprecated use the constructor that receives the request, otherwise downloads can't answer
+	 * conditional or range requests
+	 */
+	@Deprecated
+	public DownloadView(HttpServletResponse response) {
+		this(null, response);
+	}
+
+	public DownloadView(HttpServletRequest request, HttpServletResponse response){
+		this(request, response, null);
+	}
+
+	/**
+	 * @since 4.2.0
+	 */
 	@Inject
-	public DownloadView(HttpServletResponse response){
+	public DownloadView(HttpServletRequest request, HttpServletResponse response, ZipExecutor zipExecutor) {
+		this.request = request;
 		this.response = response;
+		this.zipExecutor = zipExecutor;
 	}
 
 	public void of(Download download) throws IOException {
 		OutputStream output = response.getOutputStream();
-		download.write(response);
-		output.flush();
+		if (download instanceof ZipDownload && zipExecutor != null) {
+			((ZipDownload) download).write(response, zipExecutor.get());
+		} else if (download instanceof RequestAwareDownload && request != null) {
+			((RequestAwareDownload) download).write(request, response);
+		} else {
+			download.write(response);
+		}
+		if (request == null || !request.isAsyncStarted()) {
+			output.flush();
+		}
 	}
 }
\ No newline at end of file
@@ -18,13 +18,9 @@
 package br.com.caelum.vraptor.observer.download;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.io.InputStream;
 
 import javax.enterprise.inject.Vetoed;
-import javax.servlet.http.HttpServletResponse;
 
 /**
  * Reads bytes from a file into the result.
@@ -32,15 +28,12 @@ import javax.servlet.http.HttpServletResponse;
  * @author filipesabella
  * @author Paulo Silveira
  * 
+ * @see PathDownload
  * @see InputStreamDownload
  * @see ByteArrayDownload
  */
 @Vetoed
-public class FileDownload implements Download {
-	private final File file;
-	private final String contentType;
-	private final String fileName;
-	private final boolean doDownload;
+public class FileDownload extends PathDownload {
 
 	public FileDownload(File file, String contentType, String fileName) throws FileNotFoundException {
 		this(file, contentType, fileName, false);
@@ -51,18 +44,12 @@ public class FileDownload implements Download {
 	}
 
 	public FileDownload(File file, String contentType, String fileName, boolean doDownload) throws FileNotFoundException {
-		this.file = checkFile(file);
-		this.contentType = contentType;
-		this.fileName = fileName;
-		this.doDownload = doDownload;
+		this(file, contentType, fileName, doDownload, false);
 	}
-	
-	@Override
-	public void write(HttpServletResponse response) throws IOException {
-		try (InputStream stream = new FileInputStream(file)) {
-			Download download = new InputStreamDownload(stream, contentType, fileName, doDownload, file.length());
-			download.write(response);
-		}
+
+	public FileDownload(File file, String contentType, String fileName, boolean doDownload, boolean async)
+			throws FileNotFoundException {
+		super(checkFile(file).toPath(), contentType, fileName, doDownload, async);
 	}
 	
 	private static File checkFile(File file) throws FileNotFoundException {
@@ -0,0 +1,338 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package br.com.caelum.vraptor.observer.download;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static javax.servlet.http.HttpServletResponse.SC_NOT_MODIFIED;
+import static javax.servlet.http.HttpServletResponse.SC_PARTIAL_CONTENT;
+import static javax.servlet.http.HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE;
+
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.enterprise.inject.Vetoed;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import br.com.caelum.vraptor.http.cache.EntityTags;
+
+/**
+ * Sends a file to the client straight from a {@link FileChannel}, using
+ * {@link FileChannel#transferTo(long, long, WritableByteChannel)}. When the container's output
+ * stream is itself a {@link WritableByteChannel} the bytes don't go through the heap.
+ *
+ * When the request is available it also answers conditional requests ({@code If-None-Match},
+ * {@code If-Modified-Since}) with 304 and byte range requests ({@code Range}, {@code If-Range}) with
+ * 206, using {@code multipart/byteranges} for more than one range. An async download sends the whole
+ * file or a single range through a non-blocking {@link javax.servlet.WriteListener} instead of
+ * holding the container thread.
+ *
+ * @since 4.2.0
+ * @see FileDownload
+ */
+@Vetoed
+public class PathDownload implements RequestAwareDownload {
+
+	static final String BOUNDARY = "VRAPTOR_BYTERANGES_BOUNDARY";
+	private static final int MAX_RANGES = 16;
+
+	private final Path path;
+	private final String contentType;
+	private final String fileName;
+	private final boolean doDownload;
+	private final boolean async;
+
+	public PathDownload(Path path, String contentType) throws FileNotFoundException {
+		this(path, contentType, path.getFileName().toString(), false);
+	}
+
+	public PathDownload(Path path, String contentType, String fileName) throws FileNotFoundException {
+		this(path, contentType, fileName, false);
+	}
+
+	public PathDownload(Path path, String contentType, String fileName, boolean doDownload) throws FileNotFoundException {
+		this(path, contentType, fileName, doDownload, false);
+	}
+
+	public PathDownload(Path path, String contentType, String fileName, boolean doDownload, boolean async)
+			throws FileNotFoundException {
+		this.path = checkPath(path);
+		this.contentType = contentType;
+		this.fileName = fileName;
+		this.doDownload = doDownload;
+		this.async = async;
+	}
+
+	@Override
+	public void write(HttpServletResponse response) throws IOException {
+		long length = Files.size(path);
+		writeDetails(response, length);
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			transfer(channel, 0, length, channelOf(response.getOutputStream()));
+		}
+	}
+
+	@Override
+	public void write(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		long length = Files.size(path);
+		long lastModified = Files.getLastModifiedTime(path).toMillis() / 1000 * 1000;
+		String etag = entityTag(length, lastModified);
+
+		response.setHeader("Accept-Ranges", "bytes");
+		response.setHeader("ETag", etag);
+		response.setDateHeader("Last-Modified", lastModified);
+
+		if (isNotModified(request, etag, lastModified)) {
+			response.setStatus(SC_NOT_MODIFIED);
+			return;
+		}
+
+		List<ByteRange> ranges = requestedRanges(request, etag, lastModified, length);
+		if (ranges == null) {
+			writeDetails(response, length);
+			if (!"HEAD".equals(request.getMethod())) {
+				send(request, response, 0, length);
+			}
+		} else if (ranges.isEmpty()) {
+			response.setStatus(SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+			response.setHeader("Content-Range", "bytes */" + length);
+			response.setHeader("Content-Length", "0");
+		} else if (ranges.size() == 1) {
+			writeSingleRange(request, response, ranges.get(0), length);
+		} else {
+			writeMultipleRanges(response, ranges, length);
+		}
+	}
+
+	/**
+	 * Returns the strong entity tag sent in the {@code ETag} header, derived from the file length and
+	 * modification time.
+	 */
+	protected String entityTag(long length, long lastModified) {
+		return '"' + Long.toHexString(length) + '-' + Long.toHexString(lastModified) + '"';
+	}
+
+	private void writeSingleRange(HttpServletRequest request, HttpServletResponse response, ByteRange range,
+			long length) throws IOException {
+		response.setStatus(SC_PARTIAL_CONTENT);
+		writeDetails(response, range.length());
+		response.setHeader("Content-Range", range.contentRange(length));
+		send(request, response, range.start, range.length());
+	}
+
+	private void send(HttpServletRequest request, HttpServletResponse response, long position, long count)
+			throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		if (async && AsyncChannelWriter.canStart(request)) {
+			try {
+				channel.position(position);
+				AsyncChannelWriter.start(request, response, channel, count);
+			} catch (IOException | RuntimeException e) {
+				channel.close();
+				throw e;
+			}
+			return;
+		}
+
+		try {
+			transfer(channel, position, count, channelOf(response.getOutputStream()));
+		} finally {
+			channel.close();
+		}
+	}
+
+	private void writeMultipleRanges(HttpServletResponse response, List<ByteRange> ranges, long length)
+			throws IOException {
+		String partType = contentType != null ? contentType : "application/octet-stream";
+		byte[][] partHeaders = new byte[ranges.size()][];
+		byte[] closing = ("\r\n--" + BOUNDARY + "--\r\n").getBytes(ISO_8859_1);
+
+		long contentLength = closing.length;
+		for (int i = 0; i < partHeaders.length; i++) {
+			ByteRange range = ranges.get(i);
+			partHeaders[i] = ("\r\n--" + BOUNDARY + "\r\nContent-Type: " + partType + "\r\nContent-Range: "
+					+ range.contentRange(length) + "\r\n\r\n").getBytes(ISO_8859_1);
+			contentLength += partHeaders[i].length + range.length();
+		}
+
+		response.setStatus(SC_PARTIAL_CONTENT);
+		writeDisposition(response);
+		response.setHeader("Content-type", "multipart/byteranges; boundary=" + BOUNDARY);
+		response.setHeader("Content-Length", Long.toString(contentLength));
+
+		OutputStream out = response.getOutputStream();
+		WritableByteChannel target = channelOf(out);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			for (int i = 0; i < partHeaders.length; i++) {
+				out.write(partHeaders[i]);
+				transfer(channel, ranges.get(i).start, ranges.get(i).length(), target);
+			}
+		}
+		out.write(closing);
+	}
+
+	private void writeDetails(HttpServletResponse response, long length) {
+		if (contentType != null) {
+			writeDisposition(response);
+			response.setHeader("Content-type", contentType);
+		}
+		response.setHeader("Content-Length", Long.toString(length));
+	}
+
+	private void writeDisposition(HttpServletResponse response) {
+		if (fileName == null) {
+			return;
+		}
+		String contentDisposition = String.format("%s; filename=%s", doDownload ? "attachment" : "inline", fileName);
+		response.setHeader("Content-disposition", contentDisposition);
+	}
+
+	private void transfer(FileChannel channel, long position, long count, WritableByteChannel target)
+			throws IOException {
+		while (count > 0) {
+			long written = channel.transferTo(position, count, target);
+			if (written <= 0) {
+				throw new EOFException("File " + path.getFileName() + " was truncated while downloading");
+			}
+			position += written;
+			count -= written;
+		}
+	}
+
+	/**
+	 * The returned channel is never closed, since closing it would also close the response.
+	 */
+	private static WritableByteChannel channelOf(OutputStream out) {
+		return out instanceof WritableByteChannel ? (WritableByteChannel) out : Channels.newChannel(out);
+	}
+
+	private static boolean isNotModified(HttpServletRequest request, String etag, long lastModified) {
+		String method = request.getMethod();
+		if (!"GET".equals(method) && !"HEAD".equals(method)) {
+			return false;
+		}
+
+		String ifNoneMatch = request.getHeader("If-None-Match");
+		if (ifNoneMatch != null) {
+			return EntityTags.matches(ifNoneMatch, etag);
+		}
+
+		long ifModifiedSince = dateHeader(request, "If-Modified-Since");
+		return ifModifiedSince != -1 && lastModified <= ifModifiedSince;
+	}
+
+	/**
+	 * Returns the ranges asked by the client, an empty list if none of them can be satisfied or
+	 * {@code null} if the whole file must be sent.
+	 */
+	private static List<ByteRange> requestedRanges(HttpServletRequest request, String etag, long lastModified,
+			long length) {
+		String header = request.getHeader("Range");
+		if (header == null || !header.startsWith("bytes=") || !"GET".equals(request.getMethod())
+				|| !isCurrent(request, etag, lastModified)) {
+			return null;
+		}
+
+		List<ByteRange> ranges = new ArrayList<>();
+		for (String spec : header.substring("bytes=".length()).split(",")) {
+			spec = spec.trim();
+			int dash = spec.indexOf('-');
+			if (dash < 0) {
+				return null;
+			}
+
+			long start, end;
+			try {
+				if (dash == 0) {
+					long suffix = Long.parseLong(spec.substring(1));
+					start = Math.max(0, length - suffix);
+					end = suffix == 0 ? -1 : length - 1;
+				} else {
+					start = Long.parseLong(spec.substring(0, dash));
+					end = dash == spec.length() - 1 ? length - 1 : Long.parseLong(spec.substring(dash + 1));
+					if (end < start) {
+						return null;
+					}
+				}
+			} catch (NumberFormatException e) {
+				return null;
+			}
+
+			if (start < length && start <= end) {
+				ranges.add(new ByteRange(start, Math.min(end, length - 1)));
+			}
+		}
+
+		return ranges.size() > MAX_RANGES ? null : ranges;
+	}
+
+	private static boolean isCurrent(HttpServletRequest request, String etag, long lastModified) {
+		String ifRange = request.getHeader("If-Range");
+		if (ifRange == null) {
+			return true;
+		}
+		if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+			return ifRange.equals(etag);
+		}
+		return dateHeader(request, "If-Range") == lastModified;
+	}
+
+	private static long dateHeader(HttpServletRequest request, String name) {
+		try {
+			return request.getDateHeader(name);
+		} catch (IllegalArgumentException e) {
+			return -1;
+		}
+	}
+
+	private static Path checkPath(Path path) throws FileNotFoundException {
+		if (!Files.exists(path)) {
+			throw new FileNotFoundException("File " + path.getFileName() + " doesn't exists");
+		}
+
+		return path;
+	}
+
+	private static class ByteRange {
+		private final long start;
+		private final long end;
+
+		ByteRange(long start, long end) {
+			this.start = start;
+			this.end = end;
+		}
+
+		long length() {
+			return end - start + 1;
+		}
+
+		String contentRange(long total) {
+			return "bytes " + start + "-" + end + "/" + total;
+		}
+	}
+}
@@ -0,0 +1,35 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package br.com.caelum.vraptor.observer.download;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * A {@link Download} that also looks at the request, for instance to answer conditional or
+ * partial content requests. {@link DownloadView} calls
+ * {@link #write(HttpServletRequest, HttpServletResponse)} whenever the download implements it.
+ *
+ * @since 4.2.0
+ */
+public interface RequestAwareDownload extends Download {
+
+	void write(HttpServletRequest request, HttpServletResponse response) throws IOException;
+
+}
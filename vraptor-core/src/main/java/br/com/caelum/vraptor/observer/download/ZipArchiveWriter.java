@@ -0,0 +1,402 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package br.com.caelum.vraptor.observer.download;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
+
+import javax.enterprise.inject.Vetoed;
+
+import com.google.common.base.Throwables;
+import com.google.common.io.CountingOutputStream;
+import com.google.common.util.concurrent.Futures;
+
+/**
+ * Writes a zip archive whose entries are prepared in parallel and stitched together in order. Each
+ * worker reads one file and computes its CRC, deflating it into memory when it is small enough, while
+ * this writer sends the finished entries to the output and then writes the central directory. Entries
+ * that are {@link #isPrecompressed(Path) already compressed} or written with level 0 are
+ * {@code STORED}; deflated files bigger than {@link #MAX_BUFFERED_ENTRY} are deflated while written,
+ * followed by a data descriptor. Zip64 records are used only when sizes, offsets or the number of
+ * entries require them.
+ *
+ * @since 4.2.0
+ */
+@Vetoed
+class ZipArchiveWriter {
+
+	static final long MAX_BUFFERED_ENTRY = 8 * 1024 * 1024;
+
+	private static final Set<String> PRECOMPRESSED_EXTENSIONS = new HashSet<>(asList("7z", "aac", "apk",
+			"avi", "avif", "bz2", "docx", "ear", "epub", "flac", "gif", "gz", "heic", "jar", "jpeg", "jpg", "m4a",
+			"m4v", "mkv", "mov", "mp3", "mp4", "odp", "ods", "odt", "oga", "ogg", "ogv", "opus", "png", "pptx",
+			"rar", "tgz", "war", "webm", "webp", "woff", "woff2", "xlsx", "xz", "zip"));
+
+	private static final int STORED = 0;
+	private static final int DEFLATED = 8;
+	private static final int UTF8_FLAG = 0x0800;
+	private static final int DATA_DESCRIPTOR_FLAG = 0x0008;
+	private static final long ZIP32_LIMIT = 0xFFFFFFFFL;
+	private static final long ZIP32_SAFE_SIZE = ZIP32_LIMIT - (ZIP32_LIMIT >>> 10);
+	private static final int CHUNK_SIZE = 64 * 1024;
+
+	private final CountingOutputStream output;
+	private final WritableByteChannel channel;
+	private final int level;
+	private final List<Entry> entries = new ArrayList<>();
+	private final Set<String> names = new HashSet<>();
+
+	ZipArchiveWriter(OutputStream output, int level) {
+		this.output = new CountingOutputStream(output);
+		this.channel = Channels.newChannel(this.output);
+		this.level = level;
+	}
+
+	/**
+	 * Writes all files, keeping at most {@code window} entries being prepared by the executor.
+	 */
+	void write(Iterable<Path> files, ExecutorService executor, int window) throws IOException {
+		Deque<Future<Entry>> pending = new ArrayDeque<>();
+		Iterator<Path> iterator = files.iterator();
+		try {
+			while (iterator.hasNext() || !pending.isEmpty()) {
+				while (iterator.hasNext() && pending.size() < window) {
+					pending.add(prepare(iterator.next(), executor));
+				}
+				writeEntry(await(pending.poll()));
+			}
+		} finally {
+			for (Future<Entry> future : pending) {
+				future.cancel(true);
+			}
+		}
+		finish();
+	}
+
+	static boolean isPrecompressed(Path file) {
+		String name = file.getFileName().toString();
+		int dot = name.lastIndexOf('.');
+		return dot >= 0 && PRECOMPRESSED_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase());
+	}
+
+	private Future<Entry> prepare(Path file, ExecutorService executor) throws IOException {
+		String name = file.getFileName().toString();
+		if (!names.add(name)) {
+			throw new ZipException("duplicate entry: " + name);
+		}
+
+		final Entry entry = new Entry(file, name, Files.size(file), Files.getLastModifiedTime(file).toMillis());
+		if (level == 0 || isPrecompressed(file)) {
+			entry.method = STORED;
+		} else if (entry.size > MAX_BUFFERED_ENTRY) {
+			entry.method = DEFLATED;
+			entry.streamed = true;
+			return Futures.immediateFuture(entry);
+		} else {
+			entry.method = DEFLATED;
+		}
+
+		return executor.submit(new Callable<Entry>() {
+			@Override
+			public Entry call() throws IOException {
+				return entry.method == STORED ? checksum(entry) : deflate(entry);
+			}
+		});
+	}
+
+	private static Entry checksum(Entry entry) throws IOException {
+		CRC32 crc = new CRC32();
+		ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+		long read = 0;
+		try (FileChannel file = FileChannel.open(entry.path, StandardOpenOption.READ)) {
+			for (int n; (n = file.read(buffer)) != -1; buffer.clear()) {
+				crc.update(buffer.array(), 0, n);
+				read += n;
+			}
+		}
+		checkSize(entry, read);
+		entry.crc = crc.getValue();
+		entry.compressedSize = entry.size;
+		return entry;
+	}
+
+	private Entry deflate(Entry entry) throws IOException {
+		ByteArrayOutputStream deflated = new ByteArrayOutputStream((int) entry.size / 2 + 64);
+		CRC32 crc = new CRC32();
+		long read = deflate(entry.path, crc, deflated);
+		checkSize(entry, read);
+		entry.crc = crc.getValue();
+		entry.data = deflated;
+		entry.compressedSize = deflated.size();
+		return entry;
+	}
+
+	/**
+	 * Deflates the file into out, returning how many bytes were read from it.
+	 */
+	private long deflate(Path file, CRC32 crc, OutputStream out) throws IOException {
+		Deflater deflater = new Deflater(level, true);
+		byte[] input = new byte[CHUNK_SIZE];
+		byte[] buffer = new byte[CHUNK_SIZE];
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer wrapped = ByteBuffer.wrap(input);
+			for (int n; (n = channel.read(wrapped)) != -1; wrapped.clear()) {
+				crc.update(input, 0, n);
+				deflater.setInput(input, 0, n);
+				while (!deflater.needsInput()) {
+					out.write(buffer, 0, deflater.deflate(buffer));
+				}
+			}
+			deflater.finish();
+			while (!deflater.finished()) {
+				out.write(buffer, 0, deflater.deflate(buffer));
+			}
+			return deflater.getBytesRead();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private void writeEntry(Entry entry) throws IOException {
+		entry.offset = output.getCount();
+		writeLocalHeader(entry);
+
+		if (entry.data != null) {
+			entry.data.writeTo(output);
+		} else if (entry.method == STORED) {
+			try (FileChannel file = FileChannel.open(entry.path, StandardOpenOption.READ)) {
+				long position = 0;
+				while (position < entry.size) {
+					long sent = file.transferTo(position, entry.size - position, channel);
+					if (sent <= 0) {
+						throw new ZipException("File " + entry.name + " changed while zipping");
+					}
+					position += sent;
+				}
+			}
+		} else {
+			CRC32 crc = new CRC32();
+			long start = output.getCount();
+			checkSize(entry, deflate(entry.path, crc, output));
+			entry.crc = crc.getValue();
+			entry.compressedSize = output.getCount() - start;
+			writeDataDescriptor(entry);
+		}
+		entries.add(entry);
+	}
+
+	private void writeLocalHeader(Entry entry) throws IOException {
+		boolean zip64 = entry.isZip64();
+		byte[] name = entry.name.getBytes(UTF_8);
+		ByteBuffer header = buffer(30 + name.length + (zip64 ? 20 : 0));
+		header.putInt(0x04034b50);
+		header.putShort((short) (zip64 ? 45 : 20));
+		header.putShort((short) (UTF8_FLAG | (entry.streamed ? DATA_DESCRIPTOR_FLAG : 0)));
+		header.putShort((short) entry.method);
+		header.putInt(entry.dosTime());
+		header.putInt(entry.streamed ? 0 : (int) entry.crc);
+		header.putInt(zip64 ? -1 : (int) (entry.streamed ? 0 : entry.compressedSize));
+		header.putInt(zip64 ? -1 : (int) (entry.streamed ? 0 : entry.size));
+		header.putShort((short) name.length);
+		header.putShort((short) (zip64 ? 20 : 0));
+		header.put(name);
+		if (zip64) {
+			header.putShort((short) 0x0001);
+			header.putShort((short) 16);
+			header.putLong(entry.streamed ? 0 : entry.size);
+			header.putLong(entry.streamed ? 0 : entry.compressedSize);
+		}
+		output.write(header.array());
+	}
+
+	private void writeDataDescriptor(Entry entry) throws IOException {
+		boolean zip64 = entry.isZip64();
+		ByteBuffer descriptor = buffer(zip64 ? 24 : 16);
+		descriptor.putInt(0x08074b50);
+		descriptor.putInt((int) entry.crc);
+		if (zip64) {
+			descriptor.putLong(entry.compressedSize);
+			descriptor.putLong(entry.size);
+		} else {
+			descriptor.putInt((int) entry.compressedSize);
+			descriptor.putInt((int) entry.size);
+		}
+		output.write(descriptor.array());
+	}
+
+	private void finish() throws IOException {
+		long directoryOffset = output.getCount();
+		for (Entry entry : entries) {
+			writeCentralHeader(entry);
+		}
+		long directorySize = output.getCount() - directoryOffset;
+
+		boolean zip64 = entries.size() >= 0xFFFF || directoryOffset >= ZIP32_LIMIT || directorySize >= ZIP32_LIMIT;
+		if (zip64) {
+			long recordOffset = output.getCount();
+			ByteBuffer record = buffer(56 + 20);
+			record.putInt(0x06064b50);
+			record.putLong(44);
+			record.putShort((short) 45);
+			record.putShort((short) 45);
+			record.putInt(0);
+			record.putInt(0);
+			record.putLong(entries.size());
+			record.putLong(entries.size());
+			record.putLong(directorySize);
+			record.putLong(directoryOffset);
+			record.putInt(0x07064b50);
+			record.putInt(0);
+			record.putLong(recordOffset);
+			record.putInt(1);
+			output.write(record.array());
+		}
+
+		ByteBuffer end = buffer(22);
+		end.putInt(0x06054b50);
+		end.putShort((short) 0);
+		end.putShort((short) 0);
+		end.putShort((short) (zip64 ? 0xFFFF : entries.size()));
+		end.putShort((short) (zip64 ? 0xFFFF : entries.size()));
+		end.putInt(zip64 ? -1 : (int) directorySize);
+		end.putInt(zip64 ? -1 : (int) directoryOffset);
+		end.putShort((short) 0);
+		output.write(end.array());
+		output.flush();
+	}
+
+	private void writeCentralHeader(Entry entry) throws IOException {
+		boolean zip64 = entry.isZip64() || entry.offset >= ZIP32_LIMIT;
+		byte[] name = entry.name.getBytes(UTF_8);
+		ByteBuffer header = buffer(46 + name.length + (zip64 ? 28 : 0));
+		header.putInt(0x02014b50);
+		header.putShort((short) (zip64 ? 45 : 20));
+		header.putShort((short) (zip64 ? 45 : 20));
+		header.putShort((short) (UTF8_FLAG | (entry.streamed ? DATA_DESCRIPTOR_FLAG : 0)));
+		header.putShort((short) entry.method);
+		header.putInt(entry.dosTime());
+		header.putInt((int) entry.crc);
+		header.putInt(zip64 ? -1 : (int) entry.compressedSize);
+		header.putInt(zip64 ? -1 : (int) entry.size);
+		header.putShort((short) name.length);
+		header.putShort((short) (zip64 ? 28 : 0));
+		header.putShort((short) 0);
+		header.putShort((short) 0);
+		header.putShort((short) 0);
+		header.putInt(0);
+		header.putInt(zip64 ? -1 : (int) entry.offset);
+		header.put(name);
+		if (zip64) {
+			header.putShort((short) 0x0001);
+			header.putShort((short) 24);
+			header.putLong(entry.size);
+			header.putLong(entry.compressedSize);
+			header.putLong(entry.offset);
+		}
+		output.write(header.array());
+	}
+
+	private static void checkSize(Entry entry, long read) throws ZipException {
+		if (read != entry.size) {
+			throw new ZipException("File " + entry.name + " changed while zipping");
+		}
+	}
+
+	private static Entry await(Future<Entry> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while zipping");
+		} catch (ExecutionException e) {
+			Throwables.propagateIfPossible(e.getCause(), IOException.class);
+			throw new ZipException("Unable to zip: " + e.getCause());
+		}
+	}
+
+	private static ByteBuffer buffer(int size) {
+		return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static class Entry {
+		private final Path path;
+		private final String name;
+		private final long size;
+		private final long lastModified;
+		private int method;
+		private boolean streamed;
+		private long crc;
+		private long compressedSize;
+		private long offset;
+		private ByteArrayOutputStream data;
+
+		Entry(Path path, String name, long size, long lastModified) {
+			this.path = path;
+			this.name = name;
+			this.size = size;
+			this.lastModified = lastModified;
+		}
+
+		/**
+		 * Streamed entries don't know their compressed size beforehand, so they switch to zip64 a bit
+		 * earlier to leave room for deflate's worst case expansion.
+		 */
+		boolean isZip64() {
+			return size >= (streamed ? ZIP32_SAFE_SIZE : ZIP32_LIMIT) || compressedSize >= ZIP32_LIMIT;
+		}
+
+		int dosTime() {
+			Calendar calendar = Calendar.getInstance();
+			calendar.setTimeInMillis(lastModified);
+			int year = calendar.get(Calendar.YEAR);
+			if (year < 1980) {
+				return (1 << 21) | (1 << 16);
+			}
+			return (year - 1980) << 25 | (calendar.get(Calendar.MONTH) + 1) << 21
+					| calendar.get(Calendar.DAY_OF_MONTH) << 16 | calendar.get(Calendar.HOUR_OF_DAY) << 11
+					| calendar.get(Calendar.MINUTE) << 5 | calendar.get(Calendar.SECOND) >> 1;
+		}
+	}
+}
@@ -1,50 +1,68 @@
 package br.com.caelum.vraptor.observer.download;
 
-import static java.nio.file.Files.copy;
+import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Arrays.asList;
 
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.zip.CRC32;
-import java.util.zip.CheckedOutputStream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.Deflater;
 
 import javax.servlet.http.HttpServletResponse;
 
+import com.google.common.util.concurrent.MoreExecutors;
+
 /**
- * Supports multiple files download as a zip file.
+ * Supports multiple files download as a zip file. Entries are read and compressed in parallel and
+ * written in the given order. Files that are already compressed, like MP3 or JPEG, are stored
+ * without being deflated again.
  * 
  * @author Otávio Scherer Garcia
  * @since 4.1
  */
 public class ZipDownload implements Download {
 
+	static final int PARALLELISM = Math.max(2, Runtime.getRuntime().availableProcessors());
+
 	private final String filename;
 	private final Iterable<Path> files;
+	private final int level;
+	private final ExecutorService executor;
 
 	public ZipDownload(String filename, Iterable<Path> files) {
-		this.filename = filename;
-		this.files = files;
+		this(filename, files, Deflater.DEFAULT_COMPRESSION, null);
 	}
 
 	public ZipDownload(String filename, Path... files) {
 		this(filename, asList(files));
 	}
 
+	/**
+	 * @param level the deflate level, from 0 (store everything) to 9, or -1 for the default level.
+	 * @param executor where entries are compressed, or null to use the pool managed by {@link ZipExecutor}
+	 * when sent through {@link DownloadView}, or the writing thread otherwise.
+	 * @since 4.2.0
+	 */
+	public ZipDownload(String filename, Iterable<Path> files, int level, ExecutorService executor) {
+		checkArgument(level >= Deflater.DEFAULT_COMPRESSION && level <= Deflater.BEST_COMPRESSION,
+				"Invalid compression level: %s", level);
+		this.filename = filename;
+		this.files = files;
+		this.level = level;
+		this.executor = executor;
+	}
+
 	@Override
 	public void write(HttpServletResponse response)
 		throws IOException {
+		write(response, MoreExecutors.sameThreadExecutor());
+	}
+
+	void write(HttpServletResponse response, ExecutorService shared) throws IOException {
 		response.setHeader("Content-disposition", "attachment; filename=" + filename);
 		response.setHeader("Content-type", "application/zip");
 
-		CheckedOutputStream stream = new CheckedOutputStream(response.getOutputStream(), new CRC32());
-		try (ZipOutputStream zip = new ZipOutputStream(stream)) {
-			for (Path file : files) {
-				zip.putNextEntry(new ZipEntry(file.getFileName().toString()));
-				copy(file, zip);
-				zip.closeEntry();
-			}
-		}
+		ExecutorService workers = executor != null ? executor : shared;
+		new ZipArchiveWriter(response.getOutputStream(), level).write(files, workers, PARALLELISM);
 	}
 }
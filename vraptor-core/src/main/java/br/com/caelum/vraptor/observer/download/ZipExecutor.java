@@ -0,0 +1,53 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.observer.download;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Holds the pool where {@link ZipDownload} entries are read and compressed when no executor was given.
+ * The pool is created on the first use and shut down with the application, so its threads don't outlive a
+ * redeploy.
+ *
+ * @since 4.2.0
+ */
+@ApplicationScoped
+public class ZipExecutor {
+
+	private ExecutorService executor;
+
+	public synchronized ExecutorService get() {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(ZipDownload.PARALLELISM,
+					new ThreadFactoryBuilder().setNameFormat("vraptor-zip-%d").setDaemon(true).build());
+		}
+		return executor;
+	}
+
+	@PreDestroy
+	public synchronized void shutdown() {
+		if (executor != null) {
+			executor.shutdown();
+			executor = null;
+		}
+	}
+}
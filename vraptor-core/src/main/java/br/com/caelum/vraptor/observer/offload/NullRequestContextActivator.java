@@ -0,0 +1,48 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.observer.offload;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Used when the CDI implementation doesn't allow us to propagate the request context. In this case
+ * {@link Offload} methods run in the container thread.
+ *
+ * @since 4.2.0
+ */
+@ApplicationScoped
+public class NullRequestContextActivator implements RequestContextActivator {
+
+	@Override
+	public boolean isSupported() {
+		return false;
+	}
+
+	/**
+	 * Does nothing, since there is no request context to propagate.
+	 */
+	@Override
+	public void activate(HttpServletRequest request) {
+	}
+
+	/**
+	 * Does nothing, since there is no request context to propagate.
+	 */
+	@Override
+	public void deactivate(HttpServletRequest request) {
+	}
+}
@@ -0,0 +1,46 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.observer.offload;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs the interceptor stack and the controller method in a separate executor, releasing the container
+ * thread while the method blocks. Useful for methods that spend most of their time on JDBC or remote calls.
+ *
+ * <pre>
+ * &#064;Get("/reports/{id}")
+ * &#064;Offload(executor = "io")
+ * public void report(Long id) { ... }
+ * </pre>
+ *
+ * The executor can be tuned through the environment using {@code br.com.caelum.vraptor.offload.<name>.threads}
+ * and {@code br.com.caelum.vraptor.offload.<name>.queue}.
+ *
+ * @since 4.2.0
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Offload {
+
+	/** The name of the executor that will run the request */
+	String executor() default OffloadExecutors.DEFAULT_EXECUTOR;
+}
@@ -0,0 +1,128 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.observer.offload;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+
+import br.com.caelum.vraptor.controller.ControllerMethod;
+import br.com.caelum.vraptor.http.compression.CompressingResponse;
+
+/**
+ * Dispatches the execution of {@link Offload} methods to their executors, using an {@link AsyncContext}
+ * so the container thread is released while the method runs.
+ *
+ * @since 4.2.0
+ */
+@ApplicationScoped
+public class OffloadDispatcher {
+
+	private static final Logger logger = getLogger(OffloadDispatcher.class);
+
+	private final OffloadExecutors executors;
+	private final RequestContextActivator activator;
+
+	/**
+	 * @deprecated CDI eyes only
+	 */
+	protected OffloadDispatcher() {
+		this(null, null);
+	}
+
+	@Inject
+	public OffloadDispatcher(OffloadExecutors executors, RequestContextActivator activator) {
+		this.executors = executors;
+		this.activator = activator;
+	}
+
+	public boolean shouldOffload(ControllerMethod method, HttpServletRequest request) {
+		if (!method.containsAnnotation(Offload.class)) {
+			return false;
+		}
+		if (!activator.isSupported() || !request.isAsyncSupported() || request.isAsyncStarted()) {
+			logger.debug("Unable to offload {}, running on container thread", method);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Runs the task on the executor configured by the {@link Offload} annotation of the method. The response
+	 * is completed after the task ends. If the executor is saturated, the task runs on the current thread.
+	 */
+	public void dispatch(ControllerMethod method, final HttpServletRequest request,
+			final HttpServletResponse response, final Runnable task) {
+		String name = method.getMethod().getAnnotation(Offload.class).executor();
+		final AsyncContext async = request.startAsync(request, response);
+		async.setTimeout(0);
+
+		try {
+			executors.get(name).execute(new Runnable() {
+				@Override
+				public void run() {
+					activator.activate(request);
+					try {
+						task.run();
+						CompressingResponse.complete(response);
+						response.flushBuffer();
+					} catch (IOException e) {
+						logger.debug("Unable to complete offloaded response", e);
+					} catch (RuntimeException e) {
+						logger.error("Error while executing offloaded request", e);
+						CompressingResponse.release(response);
+						sendError(response);
+					} finally {
+						CompressingResponse.release(response);
+						activator.deactivate(request);
+						async.complete();
+					}
+				}
+			});
+		} catch (RejectedExecutionException rejected) {
+			logger.warn("Offload executor {} is saturated, running on container thread", name);
+			try {
+				task.run();
+				CompressingResponse.complete(response);
+				response.flushBuffer();
+			} catch (IOException e) {
+				logger.debug("Unable to complete offloaded response", e);
+			} finally {
+				CompressingResponse.release(response);
+				async.complete();
+			}
+		}
+	}
+
+	private void sendError(HttpServletResponse response) {
+		if (!response.isCommitted()) {
+			try {
+				response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+			} catch (IOException e) {
+				logger.debug("Unable to send error", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,129 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.observer.offload;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+
+import br.com.caelum.vraptor.environment.Environment;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Holds the named executors used to run {@link Offload} methods. Executors are created on the first use.
+ * When the JVM supports virtual threads and {@code br.com.caelum.vraptor.offload.virtual} isn't disabled,
+ * a virtual thread per task executor is used. Otherwise a bounded pool is created with the configured
+ * number of threads and queue size.
+ *
+ * @since 4.2.0
+ */
+@ApplicationScoped
+public class OffloadExecutors {
+
+	private static final Logger logger = getLogger(OffloadExecutors.class);
+
+	public static final String DEFAULT_EXECUTOR = "default";
+	public static final String PREFIX = "br.com.caelum.vraptor.offload";
+	public static final String VIRTUAL_THREADS = PREFIX + ".virtual";
+
+	private final ConcurrentMap<String, ExecutorService> executors = new ConcurrentHashMap<>();
+	private final Environment environment;
+
+	/**
+	 * @deprecated CDI eyes only
+	 */
+	protected OffloadExecutors() {
+		this(null);
+	}
+
+	@Inject
+	public OffloadExecutors(Environment environment) {
+		this.environment = environment;
+	}
+
+	public ExecutorService get(String name) {
+		ExecutorService executor = executors.get(name);
+		if (executor == null) {
+			ExecutorService created = create(name);
+			executor = executors.putIfAbsent(name, created);
+			if (executor == null) {
+				executor = created;
+			} else {
+				created.shutdown();
+			}
+		}
+		return executor;
+	}
+
+	protected ExecutorService create(String name) {
+		if (Boolean.parseBoolean(environment.get(VIRTUAL_THREADS, "true"))) {
+			ExecutorService virtual = newVirtualThreadExecutor();
+			if (virtual != null) {
+				logger.debug("Using virtual threads for offload executor {}", name);
+				return virtual;
+			}
+		}
+
+		int threads = Integer.parseInt(environment.get(key(name, "threads"),
+				String.valueOf(Runtime.getRuntime().availableProcessors() * 4)));
+		int queue = Integer.parseInt(environment.get(key(name, "queue"), "1000"));
+		logger.debug("Creating offload executor {} with {} threads and queue size {}", name, threads, queue);
+
+		ThreadFactory factory = new ThreadFactoryBuilder().setNameFormat("vraptor-offload-" + name + "-%d")
+				.setDaemon(true).build();
+		return new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(queue), factory);
+	}
+
+	/**
+	 * Virtual threads are looked up reflectively, since VRaptor is compiled against older JDKs.
+	 */
+	private ExecutorService newVirtualThreadExecutor() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+	private String key(String name, String property) {
+		return PREFIX + "." + name + "." + property;
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		for (ExecutorService executor : executors.values()) {
+			executor.shutdown();
+		}
+		executors.clear();
+	}
+}
@@ -0,0 +1,42 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.observer.offload;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Makes the request scoped beans of a request visible on threads other than the container one, so
+ * {@link Offload} methods can run in another executor.
+ *
+ * @since 4.2.0
+ */
+public interface RequestContextActivator {
+
+	/**
+	 * @return true if the current CDI implementation is able to propagate the request context.
+	 */
+	boolean isSupported();
+
+	/**
+	 * Binds the request context of the given request to the current thread.
+	 */
+	void activate(HttpServletRequest request);
+
+	/**
+	 * Unbinds the request context from the current thread, without destroying its beans.
+	 */
+	void deactivate(HttpServletRequest request);
+}
@@ -0,0 +1,68 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.observer.offload;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+
+import org.jboss.weld.context.http.Http;
+import org.jboss.weld.context.http.HttpRequestContext;
+
+/**
+ * Propagates the request context using Weld's {@link HttpRequestContext}, that stores request scoped beans
+ * inside the request attributes. Associating the same request in another thread exposes the very same
+ * instances created by the container thread.
+ *
+ * @since 4.2.0
+ */
+@ApplicationScoped
+public class WeldRequestContextActivator implements RequestContextActivator {
+
+	private final HttpRequestContext requestContext;
+
+	/**
+	 * @deprecated CDI eyes only
+	 */
+	protected WeldRequestContextActivator() {
+		this(null);
+	}
+
+	@Inject
+	public WeldRequestContextActivator(@Http HttpRequestContext requestContext) {
+		this.requestContext = requestContext;
+	}
+
+	@Override
+	public boolean isSupported() {
+		return true;
+	}
+
+	@Override
+	public void activate(HttpServletRequest request) {
+		requestContext.associate(request);
+		requestContext.activate();
+	}
+
+	@Override
+	public void deactivate(HttpServletRequest request) {
+		try {
+			requestContext.deactivate();
+		} finally {
+			requestContext.dissociate(request);
+		}
+	}
+}
@@ -20,6 +20,10 @@ import static com.google.common.base.Strings.isNullOrEmpty;
 import static org.apache.commons.fileupload.disk.DiskFileItemFactory.DEFAULT_SIZE_THRESHOLD;
 import static org.slf4j.LoggerFactory.getLogger;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.io.UnsupportedEncodingException;
 import java.util.Collection;
 import java.util.List;
@@ -30,10 +34,14 @@ import javax.servlet.ServletRequest;
 
 import org.apache.commons.fileupload.FileItem;
 import org.apache.commons.fileupload.FileItemFactory;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUploadBase.FileUploadIOException;
 import org.apache.commons.fileupload.FileUploadBase.SizeLimitExceededException;
 import org.apache.commons.fileupload.FileUploadException;
 import org.apache.commons.fileupload.disk.DiskFileItemFactory;
 import org.apache.commons.fileupload.servlet.ServletFileUpload;
+import org.apache.commons.io.FilenameUtils;
 import org.slf4j.Logger;
 
 import br.com.caelum.vraptor.events.ControllerFound;
@@ -45,9 +53,11 @@ import com.google.common.collect.HashMultiset;
 import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multiset;
+import com.google.common.io.ByteStreams;
 
 /**
- * A multipart observer based on Apache Commons FileUpload.
+ * A multipart observer based on Apache Commons FileUpload. Methods annotated with {@link StreamingUpload}
+ * are parsed while the request arrives, without temporary files.
  *
  * @author Guilherme Silveira
  * @author Otávio Scherer Garcia
@@ -78,25 +88,10 @@ public class CommonsUploadMultipartObserver {
 		logger.debug("Setting file sizes: total={}, file={}", uploader.getSizeMax(), uploader.getFileSizeMax());
 
 		try {
-			final List<FileItem> items = uploader.parseRequest(request);
-			logger.debug("Found {} attributes in the multipart form submission. Parsing them.", items.size());
-
-
-			for (FileItem item : items) {
-				String name = item.getFieldName();
-				name = fixIndexedParameters(name, indexes);
-
-				if (item.isFormField()) {
-					logger.debug("{} is a field", name);
-					params.put(name, getValue(item, request));
-
-				} else if (isNotEmpty(item)) {
-					logger.debug("{} is a file", name);
-					processFile(item, name, request);
-
-				} else {
-					logger.debug("A file field is empty: {}", item.getFieldName());
-				}
+			if (event.getMethod().containsAnnotation(StreamingUpload.class)) {
+				parseStreaming(uploader, request, indexes, params);
+			} else {
+				parseItems(uploader, request, indexes, params);
 			}
 
 			for (String paramName : params.keySet()) {
@@ -109,9 +104,99 @@ public class CommonsUploadMultipartObserver {
 
 		} catch (FileUploadException e) {
 			reportFileUploadException(e, validator);
+
+		} catch (FileUploadIOException e) {
+			FileUploadException cause = (FileUploadException) e.getCause();
+			if (cause instanceof SizeLimitExceededException) {
+				reportSizeLimitExceeded((SizeLimitExceededException) cause, validator);
+			} else {
+				reportFileUploadException(cause, validator);
+			}
+
+		} catch (IOException e) {
+			reportFileUploadException(new FileUploadException(e.getMessage(), e), validator);
+		}
+	}
+
+	private void parseItems(ServletFileUpload uploader, MutableRequest request, Multiset<String> indexes,
+			Multimap<String, String> params) throws FileUploadException {
+		final List<FileItem> items = uploader.parseRequest(request);
+		logger.debug("Found {} attributes in the multipart form submission. Parsing them.", items.size());
+
+		for (FileItem item : items) {
+			String name = item.getFieldName();
+			name = fixIndexedParameters(name, indexes);
+
+			if (item.isFormField()) {
+				logger.debug("{} is a field", name);
+				params.put(name, getValue(item, request));
+
+			} else if (isNotEmpty(item)) {
+				logger.debug("{} is a file", name);
+				processFile(item, name, request);
+
+			} else {
+				logger.debug("A file field is empty: {}", item.getFieldName());
+			}
 		}
 	}
 
+	/**
+	 * Reads the parts as they arrive. Small files are kept in memory; the first bigger file is handed
+	 * to the controller as a stream over the rest of the request, so parsing stops there.
+	 */
+	private void parseStreaming(ServletFileUpload uploader, MutableRequest request, Multiset<String> indexes,
+			Multimap<String, String> params) throws FileUploadException, IOException {
+		FileItemIterator iterator = uploader.getItemIterator(request);
+
+		while (iterator.hasNext()) {
+			FileItemStream item = iterator.next();
+			String name = fixIndexedParameters(item.getFieldName(), indexes);
+
+			if (item.isFormField()) {
+				logger.debug("{} is a field", name);
+				params.put(name, getValue(item, request));
+
+			} else if (!isNullOrEmpty(item.getName())) {
+				logger.debug("{} is a file", name);
+				if (!processStream(item, name, request)) {
+					logger.debug("{} will be streamed to the controller. Remaining parts are not parsed", name);
+					return;
+				}
+
+			} else {
+				logger.debug("A file field is empty: {}", item.getFieldName());
+			}
+		}
+	}
+
+	/**
+	 * Exposes the file stream as an {@link UploadedFile}, reading it into memory when it is smaller than
+	 * the memory threshold.
+	 *
+	 * @return true if the file was completely read, false if the controller will consume the stream.
+	 */
+	protected boolean processStream(FileItemStream item, String name, MutableRequest request) throws IOException {
+		InputStream stream = item.openStream();
+		byte[] head = new byte[DEFAULT_SIZE_THRESHOLD + 1];
+		int read = ByteStreams.read(stream, head, 0, head.length);
+		String fileName = FilenameUtils.getName(item.getName());
+
+		UploadedFile upload;
+		boolean complete = read < head.length;
+		if (complete) {
+			upload = new DefaultUploadedFile(new ByteArrayInputStream(head, 0, read), fileName, item.getContentType(), read);
+		} else {
+			InputStream content = new SequenceInputStream(new ByteArrayInputStream(head), stream);
+			upload = new DefaultUploadedFile(content, fileName, item.getContentType(), -1);
+		}
+
+		request.setParameter(name, name);
+		request.setAttribute(name, upload);
+		logger.debug("Uploaded file: {} with {}", name, upload);
+		return complete;
+	}
+
 	private boolean isNotEmpty(FileItem item) {
 		return !item.getName().isEmpty();
 	}
@@ -157,6 +242,20 @@ public class CommonsUploadMultipartObserver {
 		return item.getString();
 	}
 
+	protected String getValue(FileItemStream item, ServletRequest request) throws IOException {
+		// the stream can be opened only once, so it is read before trying the request encoding
+		byte[] value = ByteStreams.toByteArray(item.openStream());
+		String encoding = request.getCharacterEncoding();
+		if (!isNullOrEmpty(encoding)) {
+			try {
+				return new String(value, encoding);
+			} catch (UnsupportedEncodingException e) {
+				logger.debug("Request has an invalid encoding. Ignoring it", e);
+			}
+		}
+		return new String(value);
+	}
+
 	protected String fixIndexedParameters(String name, Multiset<String> indexes) {
 		if (name.contains("[]")) {
 			String newName = name.replace("[]", "[" + (indexes.count(name)) + "]");
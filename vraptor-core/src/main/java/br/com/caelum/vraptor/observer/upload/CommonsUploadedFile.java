@@ -17,19 +17,22 @@
 
 package br.com.caelum.vraptor.observer.upload;
 
-import static com.google.common.base.Throwables.propagateIfPossible;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 import static java.util.Objects.requireNonNull;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.CopyOption;
 import java.nio.file.Path;
 
 import javax.enterprise.inject.Vetoed;
 
 import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.fileupload.disk.DiskFileItem;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
 
@@ -70,30 +73,41 @@ public class CommonsUploadedFile implements UploadedFile {
 		return delegate.getSize();
 	}
 
+	/**
+	 * Writes the upload to target, replacing it if it already exists.
+	 */
 	@Override
 	public void writeTo(File target) throws IOException {
 		requireNonNull(target, TARGET_CANNOT_BE_NULL);
-
-		try {
-			delegate.write(target);
-		} catch (IOException e) {
-			throw e;
-		} catch (Exception e) {
-			propagateIfPossible(e);
-			throw new IOException(e);
-		}
+		writeTo(target.toPath(), REPLACE_EXISTING);
 	}
 
+	/**
+	 * Uploads stored on disk are renamed to target, so no byte is copied when both are in the same
+	 * file system. Uploads kept in memory are written next to target and then renamed, so target is
+	 * never seen half written. Fails if target exists unless {@link java.nio.file.StandardCopyOption#REPLACE_EXISTING}
+	 * is given.
+	 */
 	@Override
 	public void writeTo(Path target, CopyOption... options) throws IOException {
 		requireNonNull(target, TARGET_CANNOT_BE_NULL);
-		writeTo(target.toFile());
+
+		if (!delegate.isInMemory() && delegate instanceof DiskFileItem) {
+			UploadedFiles.move(((DiskFileItem) delegate).getStoreLocation().toPath(), target, options);
+			return;
+		}
+
+		try (ReadableByteChannel in = Channels.newChannel(getFile())) {
+			UploadedFiles.write(in, target, options);
+		}
 	}
 
 	@Override
 	public void writeTo(OutputStream target) throws IOException {
 		requireNonNull(target, TARGET_CANNOT_BE_NULL);
-		IOUtils.copy(getFile(), target);
+		try (InputStream in = getFile()) {
+			IOUtils.copy(in, target);
+		}
 	}
 
 	@Override
@@ -86,7 +86,9 @@ public class DefaultUploadedFile implements UploadedFile {
 	@Override
 	public void writeTo(OutputStream target) throws IOException {
 		requireNonNull(target, TARGET_CANNOT_BE_NULL);
-		IOUtils.copy(getFile(), target);
+		try (InputStream in = getFile()) {
+			IOUtils.copy(in, target);
+		}
 	}
 
 	@Override
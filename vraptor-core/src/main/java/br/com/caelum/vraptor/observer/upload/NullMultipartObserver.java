@@ -34,7 +34,10 @@ import br.com.caelum.vraptor.events.ControllerFound;
  * @author Otávio Scherer Garcia
  * @author Rodrigo Turini
  * @since 3.1.3
+ * @deprecated Servlet 3.1 containers parse multipart requests themselves, so {@link ServletMultipartObserver}
+ *             is used when Apache Commons FileUpload is missing. This observer is no longer registered.
  */
+@Deprecated
 @ApplicationScoped
 public class NullMultipartObserver {
 
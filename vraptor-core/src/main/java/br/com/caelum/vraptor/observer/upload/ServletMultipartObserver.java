@@ -0,0 +1,235 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.observer.upload;
+
+import static com.google.common.base.Strings.isNullOrEmpty;
+import static com.google.common.base.Strings.nullToEmpty;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.servlet.MultipartConfigElement;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.http.Part;
+
+import org.slf4j.Logger;
+
+import br.com.caelum.vraptor.controller.ControllerMethod;
+import br.com.caelum.vraptor.events.ControllerFound;
+import br.com.caelum.vraptor.http.MutableRequest;
+import br.com.caelum.vraptor.validator.I18nMessage;
+import br.com.caelum.vraptor.validator.Validator;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multiset;
+import com.google.common.io.ByteStreams;
+
+/**
+ * A multipart observer based on the container's own parser, through Servlet 3.1
+ * {@link javax.servlet.http.HttpServletRequest#getParts()}. It is used when Apache Commons FileUpload
+ * is not in the classpath.
+ *
+ * Since VRaptor runs as a filter, the container must allow multipart parsing for requests whose
+ * servlet has no multipart configuration. Jetty receives the {@link MultipartConfig} through a request
+ * attribute; Tomcat needs {@code allowCasualMultipartParsing="true"} in the context. When the container
+ * can't parse the request, a validation error is added only if the controller method receives an
+ * {@link UploadedFile}; other methods just get a warning in the log, since they may not expect files at all.
+ *
+ * @since 4.2.0
+ */
+@ApplicationScoped
+public class ServletMultipartObserver {
+
+	private static final Logger logger = getLogger(ServletMultipartObserver.class);
+
+	/**
+	 * Parts smaller than this are kept in memory by the container.
+	 */
+	public static final int FILE_SIZE_THRESHOLD = 10 * 1024;
+
+	static final String JETTY_MULTIPART_CONFIG = "org.eclipse.jetty.multipartConfig";
+
+	public void upload(@Observes ControllerFound event, MutableRequest request,
+			MultipartConfig config, Validator validator) {
+
+		if (!isMultipart(request)) {
+			return;
+		}
+
+		logger.info("Request contains multipart data. Try to parse with the servlet container.");
+
+		MultipartConfigElement element = createMultipartConfig(event.getMethod(), config);
+		request.setAttribute(JETTY_MULTIPART_CONFIG, element);
+		logger.debug("Setting file sizes: total={}, file={}", element.getMaxRequestSize(), element.getMaxFileSize());
+
+		final Multiset<String> indexes = HashMultiset.create();
+		final Multimap<String, String> params = LinkedListMultimap.create();
+
+		try {
+			Collection<Part> parts = request.getParts();
+			logger.debug("Found {} attributes in the multipart form submission. Parsing them.", parts.size());
+
+			for (Part part : parts) {
+				String name = fixIndexedParameters(part.getName(), indexes);
+				String fileName = part.getSubmittedFileName();
+
+				if (fileName == null) {
+					logger.debug("{} is a field", name);
+					params.put(name, getValue(part, request));
+
+				} else if (!fileName.isEmpty()) {
+					logger.debug("{} is a file", name);
+					processFile(part, name, request);
+
+				} else {
+					logger.debug("A file field is empty: {}", part.getName());
+				}
+			}
+
+			for (String paramName : params.keySet()) {
+				Collection<String> paramValues = params.get(paramName);
+				request.setParameter(paramName, paramValues.toArray(new String[paramValues.size()]));
+			}
+
+		} catch (IllegalStateException e) {
+			long size = request.getContentLengthLong();
+			if (!expectsUpload(event.getMethod())) {
+				warnUnparsedRequest(e);
+			} else if (size > element.getMaxRequestSize() && element.getMaxRequestSize() > 0) {
+				reportSizeLimitExceeded(size, element.getMaxRequestSize(), validator);
+			} else {
+				reportUploadException(e, validator);
+			}
+
+		} catch (IOException | ServletException e) {
+			if (expectsUpload(event.getMethod())) {
+				reportUploadException(e, validator);
+			} else {
+				warnUnparsedRequest(e);
+			}
+		}
+	}
+
+	/**
+	 * Whether any parameter of the method is an {@link UploadedFile}, or an array or collection of them.
+	 */
+	protected boolean expectsUpload(ControllerMethod method) {
+		for (Type type : method.getMethod().getGenericParameterTypes()) {
+			if (isUpload(type)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean isUpload(Type type) {
+		if (type instanceof Class) {
+			Class<?> raw = (Class<?>) type;
+			return UploadedFile.class.isAssignableFrom(raw) || (raw.isArray() && isUpload(raw.getComponentType()));
+		}
+		if (type instanceof ParameterizedType) {
+			for (Type argument : ((ParameterizedType) type).getActualTypeArguments()) {
+				if (isUpload(argument)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private void warnUnparsedRequest(Exception e) {
+		logger.warn("Unable to parse this multipart request. If you are willing to upload a file, some "
+				+ "containers, like Tomcat, only parse parts for filters when allowCasualMultipartParsing is "
+				+ "enabled. Otherwise add commons-fileupload to your classpath", e);
+	}
+
+	private boolean isMultipart(MutableRequest request) {
+		return "POST".equalsIgnoreCase(request.getMethod())
+				&& nullToEmpty(request.getContentType()).toLowerCase().startsWith("multipart/");
+	}
+
+	/**
+	 * Maps {@link UploadSizeLimit} or {@link MultipartConfig} to the container settings.
+	 */
+	protected MultipartConfigElement createMultipartConfig(ControllerMethod method, MultipartConfig config) {
+		UploadSizeLimit uploadSizeLimit = method.getMethod().getAnnotation(UploadSizeLimit.class);
+		long sizeLimit = uploadSizeLimit != null ? uploadSizeLimit.sizeLimit() : config.getSizeLimit();
+		long fileSizeLimit = uploadSizeLimit != null ? uploadSizeLimit.fileSizeLimit() : config.getFileSizeLimit();
+
+		return new MultipartConfigElement(config.getDirectory().getAbsolutePath(), fileSizeLimit, sizeLimit,
+				FILE_SIZE_THRESHOLD);
+	}
+
+	/**
+	 * This method is called when the request is bigger than the configured limit.
+	 */
+	protected void reportSizeLimitExceeded(long actualSize, long permittedSize, Validator validator) {
+		validator.add(new I18nMessage("upload", "file.limit.exceeded", actualSize, permittedSize));
+		logger.warn("The file size limit was exceeded. Actual {} permitted {}", actualSize, permittedSize);
+	}
+
+	protected void reportUploadException(Exception e, Validator validator) {
+		validator.add(new I18nMessage("upload", "file.upload.exception"));
+		logger.warn("There was some problem parsing this multipart request. Some containers, like Tomcat, only "
+				+ "parse parts for filters when allowCasualMultipartParsing is enabled.", e);
+	}
+
+	protected void processFile(Part part, String name, MutableRequest request) {
+		UploadedFile upload = new ServletUploadedFile(part);
+		request.setParameter(name, name);
+		request.setAttribute(name, upload);
+
+		logger.debug("Uploaded file: {} with {}", name, upload);
+	}
+
+	protected String getValue(Part part, ServletRequest request) throws IOException {
+		Charset charset = StandardCharsets.ISO_8859_1;
+		String encoding = request.getCharacterEncoding();
+		if (!isNullOrEmpty(encoding)) {
+			try {
+				charset = Charset.forName(encoding);
+			} catch (IllegalArgumentException e) {
+				logger.debug("Request has an invalid encoding. Ignoring it", e);
+			}
+		}
+
+		try (InputStream in = part.getInputStream()) {
+			return new String(ByteStreams.toByteArray(in), charset);
+		}
+	}
+
+	protected String fixIndexedParameters(String name, Multiset<String> indexes) {
+		if (name.contains("[]")) {
+			String newName = name.replace("[]", "[" + (indexes.count(name)) + "]");
+			indexes.add(name);
+			logger.debug("{} was renamed to {}", name, newName);
+
+			return newName;
+		}
+		return name;
+	}
+}
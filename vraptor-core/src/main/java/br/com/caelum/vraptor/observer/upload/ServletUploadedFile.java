@@ -0,0 +1,112 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.observer.upload;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.CopyOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import javax.enterprise.inject.Vetoed;
+import javax.servlet.http.Part;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * An implementation for {@link UploadedFile} that delegates to a Servlet 3.1 {@link Part}. Writing to a
+ * path copies the part content next to the target and then atomically moves it into place.
+ * {@link Part#write(String)} isn't used since containers resolve its path against their own multipart
+ * location.
+ *
+ * @since 4.2.0
+ */
+@Vetoed
+public class ServletUploadedFile implements UploadedFile {
+	private static final String TARGET_CANNOT_BE_NULL = "Target can't be null";
+
+	private final Part delegate;
+
+	public ServletUploadedFile(Part part) {
+		this.delegate = part;
+	}
+
+	@Override
+	public String getContentType() {
+		return delegate.getContentType();
+	}
+
+	@Override
+	public InputStream getFile() throws IOException {
+		return delegate.getInputStream();
+	}
+
+	@Override
+	public String getFileName() {
+		String name = delegate.getSubmittedFileName();
+		return name.substring(Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\')) + 1);
+	}
+
+	@Override
+	public long getSize() {
+		return delegate.getSize();
+	}
+
+	@Override
+	public void writeTo(File target) throws IOException {
+		requireNonNull(target, TARGET_CANNOT_BE_NULL);
+		writeTo(target.toPath());
+	}
+
+	/**
+	 * Writes the part next to the target and moves it into place, so the target is never seen
+	 * half written. Only {@link java.nio.file.StandardCopyOption#REPLACE_EXISTING} is honored.
+	 */
+	@Override
+	public void writeTo(Path target, CopyOption... options) throws IOException {
+		requireNonNull(target, TARGET_CANNOT_BE_NULL);
+		Path absolute = target.toAbsolutePath();
+		boolean replace = UploadedFiles.checkTarget(absolute, options);
+
+		Path temporary = UploadedFiles.temporaryFor(absolute);
+		try {
+			try (InputStream in = getFile()) {
+				Files.copy(in, temporary, StandardCopyOption.REPLACE_EXISTING);
+			}
+			UploadedFiles.publish(temporary, absolute, replace);
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	@Override
+	public void writeTo(OutputStream target) throws IOException {
+		requireNonNull(target, TARGET_CANNOT_BE_NULL);
+		try (InputStream in = getFile()) {
+			ByteStreams.copy(in, target);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("UploadedFile[name=%s]", getFileName());
+	}
+}
@@ -0,0 +1,38 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.observer.upload;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Parses the multipart request of the annotated method while it arrives, instead of buffering every
+ * file to a temporary file before the controller runs. Form fields are read into the request and small
+ * files are kept in memory. The first file bigger than the memory threshold reaches the controller as a
+ * one-shot {@link UploadedFile} stream with unknown size, and parsing stops there. Because of that,
+ * big file fields must be the last fields of the form.
+ *
+ * Upload limits, from {@link UploadSizeLimit} or {@link MultipartConfig}, are checked as the bytes are
+ * read, so reading an oversized file throws an {@link java.io.IOException}.
+ *
+ * @since 4.2.0
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface StreamingUpload {
+}
@@ -0,0 +1,134 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.observer.upload;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Arrays.asList;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.CopyOption;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.slf4j.Logger;
+
+/**
+ * Helpers used by {@link UploadedFile} implementations to put uploads in their final place without
+ * copying bytes through the heap when possible. A target is never seen half written: content is
+ * written next to it and then renamed.
+ *
+ * @since 4.2.0
+ */
+final class UploadedFiles {
+
+	private static final Logger logger = getLogger(UploadedFiles.class);
+
+	private static final long CHUNK_SIZE = 8 * 1024 * 1024;
+
+	private UploadedFiles() {
+	}
+
+	/**
+	 * Moves the source file to target with a single rename when both are in the same file system,
+	 * falling back to {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}
+	 * and deleting the source otherwise.
+	 */
+	static void move(Path source, Path target, CopyOption... options) throws IOException {
+		Path absolute = target.toAbsolutePath();
+		boolean replace = checkTarget(absolute, options);
+
+		try {
+			Files.move(source, absolute, ATOMIC_MOVE);
+			return;
+		} catch (AtomicMoveNotSupportedException e) {
+			logger.debug("Unable to move {} to {}, transferring its content instead", source, absolute);
+		}
+
+		try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+			write(channel, absolute, replace);
+		}
+		Files.delete(source);
+	}
+
+	/**
+	 * Writes the channel content to target. File channels are transferred by the operating system.
+	 */
+	static void write(ReadableByteChannel source, Path target, CopyOption... options) throws IOException {
+		Path absolute = target.toAbsolutePath();
+		write(source, absolute, checkTarget(absolute, options));
+	}
+
+	private static void write(ReadableByteChannel source, Path target, boolean replace) throws IOException {
+		Path temporary = temporaryFor(target);
+		try {
+			try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+				if (source instanceof FileChannel) {
+					FileChannel in = (FileChannel) source;
+					for (long position = in.position(), size = in.size(); position < size;) {
+						position += in.transferTo(position, size - position, out);
+					}
+				} else {
+					for (long position = 0, read; (read = out.transferFrom(source, position, CHUNK_SIZE)) > 0;) {
+						position += read;
+					}
+				}
+			}
+			publish(temporary, target, replace);
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	/**
+	 * Returns whether an existing target may be replaced, failing if it exists and may not.
+	 */
+	static boolean checkTarget(Path target, CopyOption... options) throws FileAlreadyExistsException {
+		boolean replace = asList(options).contains(REPLACE_EXISTING);
+		if (!replace && Files.exists(target)) {
+			throw new FileAlreadyExistsException(target.toString());
+		}
+		return replace;
+	}
+
+	/**
+	 * Creates an empty file in the target's directory, so it can later be renamed to the target.
+	 */
+	static Path temporaryFor(Path target) throws IOException {
+		return Files.createTempFile(target.getParent(), ".upload-", ".tmp");
+	}
+
+	/**
+	 * Renames a file written by {@link #temporaryFor(Path)} to its target.
+	 */
+	static void publish(Path temporary, Path target, boolean replace) throws IOException {
+		try {
+			Files.move(temporary, target, ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			if (replace) {
+				Files.move(temporary, target, REPLACE_EXISTING);
+			} else {
+				Files.move(temporary, target);
+			}
+		}
+	}
+}
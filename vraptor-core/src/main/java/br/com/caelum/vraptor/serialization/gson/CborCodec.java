@@ -0,0 +1,472 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.serialization.gson;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Map.Entry;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * Converts Gson trees from and to CBOR (RFC 7049), so binary representations can reuse all the Gson
+ * configuration, converters and exclusion strategies used by JSON.
+ *
+ * Byte strings are read as arrays of numbers, the same way Gson represents byte arrays. Decimals that
+ * aren't integers are written as decimal fractions (tag 4), so no precision is lost.
+ *
+ * Reading is bounded: lengths and counts can't exceed the bytes allowed for the item, strings are read in
+ * chunks as the data arrives, and nesting is limited to {@value #MAX_DEPTH} levels.
+ *
+ * @since 4.2.0
+ */
+public final class CborCodec {
+
+	private static final int UNSIGNED = 0, NEGATIVE = 1, BYTES = 2, TEXT = 3, ARRAY = 4, MAP = 5, TAG = 6,
+			SIMPLE = 7;
+	private static final int INDEFINITE = 31;
+	private static final int BREAK = 0xff;
+	private static final int POSITIVE_BIGNUM = 2, NEGATIVE_BIGNUM = 3, DECIMAL_FRACTION = 4;
+	private static final int CHUNK_SIZE = 8192;
+
+	/** Maximum nesting of arrays, maps and tags */
+	public static final int MAX_DEPTH = 512;
+
+	/** Maximum size, in bytes, of an item read without an explicit limit */
+	public static final long DEFAULT_MAX_SIZE = 16 * 1024 * 1024;
+	private static final BigInteger MAX_UNSIGNED = BigInteger.ONE.shiftLeft(64);
+
+	private CborCodec() {
+	}
+
+	public static void write(JsonElement element, OutputStream output) throws IOException {
+		DataOutputStream out = new DataOutputStream(output);
+		writeElement(element, out);
+		out.flush();
+	}
+
+	public static byte[] toByteArray(JsonElement element) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		write(element, out);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Reads a single CBOR item of at most {@link #DEFAULT_MAX_SIZE} bytes, or returns {@link JsonNull} if the
+	 * stream is empty.
+	 */
+	public static JsonElement read(InputStream input) throws IOException {
+		return read(input, DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Reads a single CBOR item, or returns {@link JsonNull} if the stream is empty. Items larger than
+	 * {@code maxSize} bytes are rejected with a {@link JsonParseException}.
+	 */
+	public static JsonElement read(InputStream input, long maxSize) throws IOException {
+		Decoder decoder = new Decoder(input, maxSize);
+		int initial = decoder.read();
+		if (initial < 0) {
+			return JsonNull.INSTANCE;
+		}
+		return decoder.readElement(initial);
+	}
+
+	private static void writeElement(JsonElement element, DataOutputStream out) throws IOException {
+		if (element == null || element.isJsonNull()) {
+			out.write(0xf6);
+		} else if (element.isJsonObject()) {
+			JsonObject object = element.getAsJsonObject();
+			writeHead(MAP, object.entrySet().size(), out);
+			for (Entry<String, JsonElement> entry : object.entrySet()) {
+				writeText(entry.getKey(), out);
+				writeElement(entry.getValue(), out);
+			}
+		} else if (element.isJsonArray()) {
+			JsonArray array = element.getAsJsonArray();
+			writeHead(ARRAY, array.size(), out);
+			for (JsonElement item : array) {
+				writeElement(item, out);
+			}
+		} else {
+			writePrimitive(element.getAsJsonPrimitive(), out);
+		}
+	}
+
+	private static void writePrimitive(JsonPrimitive primitive, DataOutputStream out) throws IOException {
+		if (primitive.isBoolean()) {
+			out.write(primitive.getAsBoolean() ? 0xf5 : 0xf4);
+		} else if (primitive.isNumber()) {
+			writeNumber(primitive.getAsNumber(), out);
+		} else {
+			writeText(primitive.getAsString(), out);
+		}
+	}
+
+	private static void writeNumber(Number number, DataOutputStream out) throws IOException {
+		if (number instanceof Long || number instanceof Integer || number instanceof Short
+				|| number instanceof Byte) {
+			writeInteger(number.longValue(), out);
+		} else if (number instanceof Double || number instanceof Float) {
+			writeFloatingPoint(number.doubleValue(), out);
+		} else if (number instanceof BigInteger) {
+			writeBigInteger((BigInteger) number, out);
+		} else {
+			BigDecimal decimal = new BigDecimal(number.toString());
+			if (decimal.scale() <= 0 || decimal.stripTrailingZeros().scale() <= 0) {
+				writeBigInteger(decimal.toBigIntegerExact(), out);
+			} else {
+				writeHead(TAG, DECIMAL_FRACTION, out);
+				writeHead(ARRAY, 2, out);
+				writeInteger(-decimal.scale(), out);
+				writeBigInteger(decimal.unscaledValue(), out);
+			}
+		}
+	}
+
+	private static void writeInteger(long value, DataOutputStream out) throws IOException {
+		if (value >= 0) {
+			writeHead(UNSIGNED, value, out);
+		} else {
+			writeHead(NEGATIVE, -1 - value, out);
+		}
+	}
+
+	private static void writeBigInteger(BigInteger value, DataOutputStream out) throws IOException {
+		if (value.bitLength() < 64) {
+			writeInteger(value.longValue(), out);
+			return;
+		}
+		boolean negative = value.signum() < 0;
+		BigInteger magnitude = negative ? BigInteger.ONE.negate().subtract(value) : value;
+		if (magnitude.compareTo(MAX_UNSIGNED) < 0) {
+			out.write(((negative ? NEGATIVE : UNSIGNED) << 5) | 27);
+			out.writeLong(magnitude.longValue());
+			return;
+		}
+		writeHead(TAG, negative ? NEGATIVE_BIGNUM : POSITIVE_BIGNUM, out);
+		byte[] bytes = magnitude.toByteArray();
+		int offset = bytes[0] == 0 ? 1 : 0;
+		writeHead(BYTES, bytes.length - offset, out);
+		out.write(bytes, offset, bytes.length - offset);
+	}
+
+	private static void writeFloatingPoint(double value, DataOutputStream out) throws IOException {
+		float single = (float) value;
+		if (single == value || Double.isNaN(value)) {
+			out.write(0xfa);
+			out.writeFloat(single);
+		} else {
+			out.write(0xfb);
+			out.writeDouble(value);
+		}
+	}
+
+	private static void writeText(String text, DataOutputStream out) throws IOException {
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		writeHead(TEXT, bytes.length, out);
+		out.write(bytes);
+	}
+
+	private static void writeHead(int major, long value, DataOutputStream out) throws IOException {
+		int type = major << 5;
+		if (value < 24) {
+			out.write(type | (int) value);
+		} else if (value <= 0xffL) {
+			out.write(type | 24);
+			out.write((int) value);
+		} else if (value <= 0xffffL) {
+			out.write(type | 25);
+			out.writeShort((int) value);
+		} else if (value <= 0xffffffffL) {
+			out.write(type | 26);
+			out.writeInt((int) value);
+		} else {
+			out.write(type | 27);
+			out.writeLong(value);
+		}
+	}
+
+	private static Number unsigned(long value, int info) {
+		if (info == 27 && value < 0) {
+			return BigInteger.valueOf(value).add(MAX_UNSIGNED);
+		}
+		return value;
+	}
+
+	private static Number negative(long value, int info) {
+		if (info == 27 && value < 0) {
+			return BigInteger.ONE.negate().subtract(BigInteger.valueOf(value).add(MAX_UNSIGNED));
+		}
+		return -1 - value;
+	}
+
+	private static JsonArray bytesToArray(byte[] bytes) {
+		JsonArray array = new JsonArray();
+		for (byte b : bytes) {
+			array.add(new JsonPrimitive(b));
+		}
+		return array;
+	}
+
+	private static float halfToFloat(int half) {
+		int exponent = (half >> 10) & 0x1f;
+		int mantissa = half & 0x3ff;
+		float value;
+		if (exponent == 0) {
+			value = (float) (mantissa * Math.pow(2, -24));
+		} else if (exponent == 31) {
+			value = mantissa == 0 ? Float.POSITIVE_INFINITY : Float.NaN;
+		} else {
+			value = (float) ((mantissa + 1024) * Math.pow(2, exponent - 25));
+		}
+		return (half & 0x8000) != 0 ? -value : value;
+	}
+
+	/**
+	 * Reads items keeping track of how many bytes may still be read and how deep the current item is.
+	 */
+	private static class Decoder {
+
+		private final DataInputStream in;
+		private final long maxSize;
+		private long remaining;
+		private int depth;
+
+		Decoder(InputStream input, long maxSize) {
+			this.in = new DataInputStream(input);
+			this.maxSize = maxSize;
+			this.remaining = maxSize;
+		}
+
+		int read() throws IOException {
+			int next = in.read();
+			if (next >= 0) {
+				consume(1);
+			}
+			return next;
+		}
+
+		JsonElement readElement(int initial) throws IOException {
+			int major = initial >>> 5;
+			int info = initial & 0x1f;
+
+			switch (major) {
+			case UNSIGNED:
+				return new JsonPrimitive(unsigned(readArgument(info), info));
+			case NEGATIVE:
+				return new JsonPrimitive(negative(readArgument(info), info));
+			case BYTES:
+				return bytesToArray(readBytes(BYTES, info));
+			case TEXT:
+				return new JsonPrimitive(new String(readBytes(TEXT, info), StandardCharsets.UTF_8));
+			case ARRAY:
+				enter();
+				JsonArray array = readArray(info);
+				depth--;
+				return array;
+			case MAP:
+				enter();
+				JsonObject object = readMap(info);
+				depth--;
+				return object;
+			case TAG:
+				enter();
+				JsonElement tagged = readTagged(readArgument(info));
+				depth--;
+				return tagged;
+			default:
+				return readSimple(info);
+			}
+		}
+
+		private JsonArray readArray(int info) throws IOException {
+			JsonArray array = new JsonArray();
+			if (info == INDEFINITE) {
+				for (int next = readByte(); next != BREAK; next = readByte()) {
+					array.add(readElement(next));
+				}
+			} else {
+				for (long i = 0, size = readCount(info, 1); i < size; i++) {
+					array.add(readElement(readByte()));
+				}
+			}
+			return array;
+		}
+
+		private JsonObject readMap(int info) throws IOException {
+			JsonObject object = new JsonObject();
+			if (info == INDEFINITE) {
+				for (int next = readByte(); next != BREAK; next = readByte()) {
+					object.add(readElement(next).getAsString(), readElement(readByte()));
+				}
+			} else {
+				for (long i = 0, size = readCount(info, 2); i < size; i++) {
+					String key = readElement(readByte()).getAsString();
+					object.add(key, readElement(readByte()));
+				}
+			}
+			return object;
+		}
+
+		private JsonElement readTagged(long tag) throws IOException {
+			int initial = readByte();
+			if ((tag == POSITIVE_BIGNUM || tag == NEGATIVE_BIGNUM) && initial >>> 5 == BYTES) {
+				BigInteger magnitude = new BigInteger(1, readBytes(BYTES, initial & 0x1f));
+				return new JsonPrimitive(tag == POSITIVE_BIGNUM ? magnitude : BigInteger.ONE.negate().subtract(magnitude));
+			}
+			JsonElement content = readElement(initial);
+			if (tag == DECIMAL_FRACTION) {
+				return decimalFraction(content);
+			}
+			return content;
+		}
+
+		private JsonElement decimalFraction(JsonElement content) {
+			if (!content.isJsonArray() || content.getAsJsonArray().size() != 2) {
+				throw new JsonParseException("Invalid CBOR decimal fraction: " + content);
+			}
+			try {
+				long exponent = content.getAsJsonArray().get(0).getAsLong();
+				BigInteger mantissa = content.getAsJsonArray().get(1).getAsBigInteger();
+				if (exponent < Integer.MIN_VALUE + 1 || exponent > Integer.MAX_VALUE) {
+					throw new JsonParseException("CBOR decimal fraction exponent out of range: " + exponent);
+				}
+				return new JsonPrimitive(new BigDecimal(mantissa, (int) -exponent));
+			} catch (NumberFormatException | IllegalStateException e) {
+				throw new JsonParseException("Invalid CBOR decimal fraction: " + content, e);
+			}
+		}
+
+		private JsonElement readSimple(int info) throws IOException {
+			switch (info) {
+			case 20:
+				return new JsonPrimitive(false);
+			case 21:
+				return new JsonPrimitive(true);
+			case 22:
+			case 23:
+				return JsonNull.INSTANCE;
+			case 25:
+				consume(2);
+				return new JsonPrimitive(halfToFloat(in.readUnsignedShort()));
+			case 26:
+				consume(4);
+				return new JsonPrimitive(in.readFloat());
+			case 27:
+				consume(8);
+				return new JsonPrimitive(in.readDouble());
+			default:
+				throw new JsonParseException("Unsupported CBOR simple value: " + info);
+			}
+		}
+
+		/**
+		 * Strings are read in chunks, so a declared length only costs memory once the bytes actually arrive.
+		 */
+		private byte[] readBytes(int major, int info) throws IOException {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			if (info == INDEFINITE) {
+				for (int next = readByte(); next != BREAK; next = readByte()) {
+					if (next >>> 5 != major || (next & 0x1f) == INDEFINITE) {
+						throw new JsonParseException("Invalid chunk inside an indefinite length string");
+					}
+					bytes.write(readBytes(major, next & 0x1f));
+				}
+				return bytes.toByteArray();
+			}
+
+			long length = readCount(info, 1);
+			byte[] chunk = new byte[(int) Math.min(length, CHUNK_SIZE)];
+			while (length > 0) {
+				int size = (int) Math.min(length, chunk.length);
+				in.readFully(chunk, 0, size);
+				consume(size);
+				bytes.write(chunk, 0, size);
+				length -= size;
+			}
+			return bytes.toByteArray();
+		}
+
+		/**
+		 * Reads the length of a string or the size of an array or map, rejecting it if its items, each
+		 * taking at least {@code minItemSize} bytes, can't fit in the bytes still allowed.
+		 */
+		private long readCount(int info, int minItemSize) throws IOException {
+			long count = readArgument(info);
+			if (count < 0 || count > remaining / minItemSize) {
+				throw new JsonParseException("CBOR data larger than " + maxSize + " bytes");
+			}
+			return count;
+		}
+
+		private long readArgument(int info) throws IOException {
+			if (info < 24) {
+				return info;
+			}
+			switch (info) {
+			case 24:
+				consume(1);
+				return in.readUnsignedByte();
+			case 25:
+				consume(2);
+				return in.readUnsignedShort();
+			case 26:
+				consume(4);
+				return in.readInt() & 0xffffffffL;
+			case 27:
+				consume(8);
+				return in.readLong();
+			default:
+				throw new JsonParseException("Invalid CBOR additional information: " + info);
+			}
+		}
+
+		private int readByte() throws IOException {
+			int next = read();
+			if (next < 0) {
+				throw new EOFException("Unexpected end of CBOR data");
+			}
+			return next;
+		}
+
+		private void enter() {
+			if (++depth > MAX_DEPTH) {
+				throw new JsonParseException("CBOR data nested deeper than " + MAX_DEPTH + " levels");
+			}
+		}
+
+		private void consume(int bytes) {
+			remaining -= bytes;
+			if (remaining < 0) {
+				throw new JsonParseException("CBOR data larger than " + maxSize + " bytes");
+			}
+		}
+	}
+}
@@ -0,0 +1,67 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.serialization.gson;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.enterprise.inject.Instance;
+import javax.enterprise.inject.Typed;
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+
+import br.com.caelum.vraptor.http.ParameterNameProvider;
+import br.com.caelum.vraptor.ioc.Container;
+import br.com.caelum.vraptor.serialization.Deserializee;
+import br.com.caelum.vraptor.serialization.Deserializes;
+
+import com.google.gson.JsonElement;
+
+/**
+ * Deserializes CBOR request bodies, converting them to Gson trees and then binding parameters just like
+ * {@link GsonDeserialization} does with JSON. It is typed to its own class so that looking up
+ * {@link GsonDeserialization} stays unambiguous. Bodies are limited to their declared {@code Content-Length},
+ * or to {@link CborCodec#DEFAULT_MAX_SIZE} bytes when it isn't known.
+ *
+ * @since 4.2.0
+ */
+@Deserializes({ GsonCborSerialization.CONTENT_TYPE, "cbor" })
+@Typed(GsonCborDeserialization.class)
+public class GsonCborDeserialization extends GsonDeserialization {
+
+	private final HttpServletRequest request;
+
+	/**
+	 * @deprecated CDI eyes only
+	 */
+	protected GsonCborDeserialization() {
+		this(null, null, null, null, null);
+	}
+
+	@Inject
+	public GsonCborDeserialization(GsonDeserializerBuilder builder, ParameterNameProvider paramNameProvider,
+			HttpServletRequest request, Container container, Instance<Deserializee> deserializeeInstance) {
+		super(builder, paramNameProvider, request, container, deserializeeInstance);
+		this.request = request;
+	}
+
+	@Override
+	protected JsonElement parse(InputStream inputStream) throws IOException {
+		long length = request.getContentLengthLong();
+		JsonElement element = CborCodec.read(inputStream, length >= 0 ? length : CborCodec.DEFAULT_MAX_SIZE);
+		return element.isJsonNull() ? null : element;
+	}
+}
@@ -0,0 +1,98 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.serialization.gson;
+
+import java.io.IOException;
+
+import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletResponse;
+
+import br.com.caelum.vraptor.core.ReflectionProvider;
+import br.com.caelum.vraptor.interceptor.TypeNameExtractor;
+import br.com.caelum.vraptor.serialization.Serialization;
+import br.com.caelum.vraptor.serialization.Serializer;
+import br.com.caelum.vraptor.view.ResultException;
+
+import com.google.gson.Gson;
+
+/**
+ * A binary {@link Serialization} that writes CBOR ({@code application/cbor}). Objects are converted using
+ * the same Gson configuration used by JSON, so includes, excludes and custom adapters work the same way.
+ *
+ * @since 4.2.0
+ */
+@RequestScoped
+public class GsonCborSerialization implements Serialization {
+
+	public static final String CONTENT_TYPE = "application/cbor";
+
+	private final HttpServletResponse response;
+	private final TypeNameExtractor extractor;
+	private final GsonSerializerBuilder builder;
+	private final ReflectionProvider reflectionProvider;
+
+	/**
+	 * @deprecated CDI eyes only
+	 */
+	protected GsonCborSerialization() {
+		this(null, null, null, null);
+	}
+
+	@Inject
+	public GsonCborSerialization(HttpServletResponse response, TypeNameExtractor extractor,
+			GsonSerializerBuilder builder, ReflectionProvider reflectionProvider) {
+		this.response = response;
+		this.extractor = extractor;
+		this.builder = builder;
+		this.reflectionProvider = reflectionProvider;
+	}
+
+	@Override
+	public boolean accepts(String format) {
+		return "cbor".equals(format);
+	}
+
+	@Override
+	public <T> Serializer from(T object) {
+		return from(object, null);
+	}
+
+	@Override
+	public <T> Serializer from(T object, String alias) {
+		response.setContentType(CONTENT_TYPE);
+		return new GsonSerializer(builder, null, extractor, reflectionProvider) {
+			@Override
+			protected void write(Gson gson, Object root) {
+				try {
+					byte[] bytes = CborCodec.toByteArray(gson.toJsonTree(root));
+					response.setContentLength(bytes.length);
+					response.getOutputStream().write(bytes);
+				} catch (IOException e) {
+					throw new ResultException("Unable to serialize data", e);
+				}
+			}
+		}.from(object, alias);
+	}
+
+	/**
+	 * Exclude the root alias from serialization.
+	 */
+	public Serialization withoutRoot() {
+		builder.setWithoutRoot(true);
+		return this;
+	}
+}
@@ -100,12 +100,9 @@ public class GsonDeserialization implements Deserializer {
 		final Deserializee deserializee = deserializeeInstance.get();
 
 		try {
-			String content = getContentOfStream(inputStream);
-			logger.debug("json retrieved: {}", content);
-			
-			if (!isNullOrEmpty(content)) {
-				JsonParser parser = new JsonParser();
-				JsonElement jsonElement = parser.parse(content);
+			JsonElement jsonElement = parse(inputStream);
+
+			if (jsonElement != null) {
 				if (jsonElement.isJsonObject()) {
 					JsonObject root = jsonElement.getAsJsonObject();
 		
@@ -157,6 +154,19 @@ public class GsonDeserialization implements Deserializer {
 		return values;
 	}
 
+	/**
+	 * Reads the request body as a Gson tree. Returns null if the body is empty.
+	 */
+	protected JsonElement parse(InputStream inputStream) throws IOException {
+		String content = getContentOfStream(inputStream);
+		logger.debug("json retrieved: {}", content);
+
+		if (isNullOrEmpty(content)) {
+			return null;
+		}
+		return new JsonParser().parse(content);
+	}
+
 	private static Type fallbackTo(Type parameterizedType, Class<?> type) {
 		if (parameterizedType instanceof TypeVariable) return type;
 		return parameterizedType;
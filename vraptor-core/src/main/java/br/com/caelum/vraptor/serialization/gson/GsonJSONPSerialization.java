@@ -16,6 +16,7 @@
 package br.com.caelum.vraptor.serialization.gson;
 
 import java.io.IOException;
+import java.io.Writer;
 
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
@@ -23,6 +24,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import br.com.caelum.vraptor.core.ReflectionProvider;
 import br.com.caelum.vraptor.environment.Environment;
+import br.com.caelum.vraptor.http.Utf8ResponseWriter;
 import br.com.caelum.vraptor.interceptor.TypeNameExtractor;
 import br.com.caelum.vraptor.serialization.JSONPSerialization;
 import br.com.caelum.vraptor.serialization.JSONSerialization;
@@ -66,22 +68,22 @@ public class GsonJSONPSerialization implements JSONPSerialization {
 		return new GsonJSONSerialization(response, extractor, builder, environment, reflectionProvider) {
 			@Override
 			protected SerializerBuilder getSerializer() {
-				try {
-					return new GsonSerializer(builder, response.getWriter(), extractor, reflectionProvider) {
-						@Override
-						public void serialize() {
-							try {
-								response.getWriter().append(callbackName).append("(");
-								super.serialize();
-								response.getWriter().append(")");
-							} catch (IOException e) {
-								throw new ResultException("Unable to serialize data", e);
-							}
+				final Writer writer = getWriter();
+				return new GsonSerializer(builder, writer, extractor, reflectionProvider) {
+					@Override
+					public void serialize() {
+						try {
+							writer.append(callbackName).append("(");
+							super.serialize();
+							writer.append(")");
+							complete(writer);
+						} catch (IOException e) {
+							throw new ResultException("Unable to serialize data", e);
+						} finally {
+							Utf8ResponseWriter.discard(writer);
 						}
-					};
-				} catch (IOException e) {
-					throw new ResultException("Unable to serialize data", e);
-				}
+					}
+				};
 			}
 		};
 	}
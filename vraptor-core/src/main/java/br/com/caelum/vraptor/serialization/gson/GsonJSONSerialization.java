@@ -16,6 +16,7 @@
 package br.com.caelum.vraptor.serialization.gson;
 
 import java.io.IOException;
+import java.io.Writer;
 
 import javax.annotation.PostConstruct;
 import javax.enterprise.context.RequestScoped;
@@ -24,6 +25,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import br.com.caelum.vraptor.core.ReflectionProvider;
 import br.com.caelum.vraptor.environment.Environment;
+import br.com.caelum.vraptor.http.Utf8ResponseWriter;
 import br.com.caelum.vraptor.interceptor.TypeNameExtractor;
 import br.com.caelum.vraptor.serialization.JSONSerialization;
 import br.com.caelum.vraptor.serialization.NoRootSerialization;
@@ -87,8 +89,34 @@ public class GsonJSONSerialization implements JSONSerialization {
 	}
 
 	protected SerializerBuilder getSerializer() {
+		final Writer writer = getWriter();
+		return new GsonSerializer(builder, writer, extractor, reflectionProvider) {
+			@Override
+			public void serialize() {
+				try {
+					super.serialize();
+					complete(writer);
+				} finally {
+					Utf8ResponseWriter.discard(writer);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Returns the writer used by serializers. UTF-8 responses are encoded directly into a pooled buffer.
+	 */
+	protected Writer getWriter() {
+		try {
+			return Utf8ResponseWriter.writerFor(response);
+		} catch (IOException e) {
+			throw new ResultException("Unable to serialize data", e);
+		}
+	}
+
+	protected void complete(Writer writer) {
 		try {
-			return new GsonSerializer(builder, response.getWriter(), extractor, reflectionProvider);
+			Utf8ResponseWriter.complete(writer);
 		} catch (IOException e) {
 			throw new ResultException("Unable to serialize data", e);
 		}
@@ -139,11 +139,18 @@ public class GsonSerializer implements SerializerBuilder {
 		Object root = builder.getSerializee().getRoot();
 
 		if (builder.isWithoutRoot()) {
-			gson.toJson(root, writer);
+			write(gson, root);
 		} else {
-			gson.toJson(singletonMap(alias, root), writer);
+			write(gson, singletonMap(alias, root));
 		}
 	}
+
+	/**
+	 * Writes the root object. Override this method to use another representation of the Gson tree.
+	 */
+	protected void write(Gson gson, Object root) {
+		gson.toJson(root, writer);
+	}
 	
 	@Override
 	public Serializer recursive() {
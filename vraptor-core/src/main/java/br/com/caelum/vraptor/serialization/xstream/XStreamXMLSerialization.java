@@ -16,7 +16,7 @@
 package br.com.caelum.vraptor.serialization.xstream;
 
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.Writer;
 
 import javax.annotation.PostConstruct;
 import javax.enterprise.context.RequestScoped;
@@ -24,6 +24,7 @@ import javax.inject.Inject;
 import javax.servlet.http.HttpServletResponse;
 
 import br.com.caelum.vraptor.environment.Environment;
+import br.com.caelum.vraptor.http.Utf8ResponseWriter;
 import br.com.caelum.vraptor.serialization.Serializer;
 import br.com.caelum.vraptor.serialization.SerializerBuilder;
 import br.com.caelum.vraptor.serialization.XMLSerialization;
@@ -84,18 +85,79 @@ public class XStreamXMLSerialization implements XMLSerialization {
 	}
 
 	protected SerializerBuilder getSerializer() {
-		return new XStreamSerializer(builder.xmlInstance(), getWriter());
+		if (overridesDeprecatedGetWriter()) {
+			final HierarchicalStreamWriter writer = getWriter();
+			return new XStreamSerializer(builder.xmlInstance(), writer) {
+				@Override
+				public void serialize() {
+					super.serialize();
+					writer.flush();
+				}
+			};
+		}
+
+		final Writer output = openWriter();
+		final HierarchicalStreamWriter writer = getWriter(output);
+		return new XStreamSerializer(builder.xmlInstance(), writer) {
+			@Override
+			public void serialize() {
+				try {
+					super.serialize();
+					writer.flush();
+					Utf8ResponseWriter.complete(output);
+				} catch (IOException e) {
+					throw new ResultException("Unable to serialize data", e);
+				} finally {
+					Utf8ResponseWriter.discard(output);
+				}
+			}
+		};
 	}
 
+	/**
+	 * UTF-8 responses are encoded directly into a pooled buffer, see {@link Utf8ResponseWriter}.
+	 */
+	protected Writer openWriter() {
+		try {
+			return Utf8ResponseWriter.writerFor(response);
+		} catch (IOException e) {
+			throw new ResultException("Unable to serialize data", e);
+		}
+	}
+
+	protected HierarchicalStreamWriter getWriter(Writer output) {
+		return indented ? new PrettyPrintWriter(output) : new CompactWriter(output);
+	}
+
+	/**
+	 * Still used, writing to {@link HttpServletResponse#getWriter()}, when a subclass overrides it.
+	 *
+	 * @deprecated override {@link #getWriter(Writer)} instead, which writes through the pooled buffer
+	 */
+	@Deprecated
 	protected HierarchicalStreamWriter getWriter() {
 		try {
-			PrintWriter writer = response.getWriter();
-			return indented ? new PrettyPrintWriter(writer) : new CompactWriter(writer);
+			return getWriter(response.getWriter());
 		} catch (IOException e) {
 			throw new ResultException("Unable to serialize data", e);
 		}
 	}
 
+	private boolean overridesDeprecatedGetWriter() {
+		for (Class<?> type = getClass(); type != XStreamXMLSerialization.class; type = type.getSuperclass()) {
+			if (type.getName().contains("$$")) {
+				continue;
+			}
+			try {
+				type.getDeclaredMethod("getWriter");
+				return true;
+			} catch (NoSuchMethodException e) {
+				// keep looking in the superclass
+			}
+		}
+		return false;
+	}
+
 	@Override
 	public <T> Serializer from(T object, String alias) {
 		response.setContentType("application/xml");
@@ -0,0 +1,148 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.util;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Set;
+
+import javax.enterprise.inject.Vetoed;
+
+import org.slf4j.Logger;
+
+/**
+ * Watches a directory in a daemon thread, running a callback whenever something changes in it. Failures
+ * of the callback are logged and don't stop the watcher.
+ *
+ * @since 4.2.0
+ */
+@Vetoed
+public class DirectoryWatcher implements Runnable, Closeable {
+
+	private static final Logger logger = getLogger(DirectoryWatcher.class);
+
+	private final Path root;
+	private final WatchService watchService;
+	private final Set<String> fileNames;
+	private final Runnable onChange;
+
+	private DirectoryWatcher(Path root, Set<String> fileNames, Runnable onChange) throws IOException {
+		this.root = root;
+		this.watchService = root.getFileSystem().newWatchService();
+		this.fileNames = fileNames;
+		this.onChange = onChange;
+	}
+
+	/**
+	 * Starts watching root and its subdirectories, running the callback whenever a file or directory is
+	 * created, deleted or modified.
+	 */
+	public static DirectoryWatcher watchTree(Path root, String threadName, Runnable onChange) throws IOException {
+		DirectoryWatcher watcher = new DirectoryWatcher(root, null, onChange);
+		watcher.registerAll(root);
+		return watcher.start(threadName);
+	}
+
+	/**
+	 * Starts watching the directory, running the callback whenever one of the given files is created or
+	 * modified.
+	 */
+	public static DirectoryWatcher watchFiles(Path directory, Set<String> fileNames, String threadName,
+			Runnable onChange) throws IOException {
+		DirectoryWatcher watcher = new DirectoryWatcher(directory, fileNames, onChange);
+		directory.register(watcher.watchService, ENTRY_CREATE, ENTRY_MODIFY);
+		return watcher.start(threadName);
+	}
+
+	private DirectoryWatcher start(String threadName) {
+		Thread thread = new Thread(this, threadName);
+		thread.setDaemon(true);
+		thread.start();
+		return this;
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (true) {
+				WatchKey key = watchService.take();
+				boolean changed = false;
+				for (WatchEvent<?> event : key.pollEvents()) {
+					changed |= handle((Path) key.watchable(), event);
+				}
+				key.reset();
+				if (changed) {
+					notifyChange();
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			logger.debug("Stopped watching {}", root);
+		} catch (IOException e) {
+			logger.warn("Stopped watching {}, changes won't be noticed until restart", root, e);
+		}
+	}
+
+	private boolean handle(Path dir, WatchEvent<?> event) throws IOException {
+		Object context = event.context();
+		if (fileNames != null) {
+			return context != null && fileNames.contains(context.toString());
+		}
+		if (event.kind() == ENTRY_CREATE) {
+			Path created = dir.resolve((Path) context);
+			if (Files.isDirectory(created)) {
+				registerAll(created);
+			}
+		}
+		return true;
+	}
+
+	private void notifyChange() {
+		try {
+			onChange.run();
+		} catch (RuntimeException e) {
+			logger.warn("Unable to handle changes in {}", root, e);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		watchService.close();
+	}
+
+	private void registerAll(Path root) throws IOException {
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+				dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+}
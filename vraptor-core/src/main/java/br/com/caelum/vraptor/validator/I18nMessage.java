@@ -17,7 +17,6 @@ package br.com.caelum.vraptor.validator;
 
 import static com.google.common.base.Objects.toStringHelper;
 
-import java.text.MessageFormat;
 import java.util.Arrays;
 import java.util.Objects;
 import java.util.ResourceBundle;
@@ -28,7 +27,8 @@ import javax.enterprise.inject.Vetoed;
 /**
  * In this Message implementation, the message is i18n'ed while the category is literal.
  *
- * The i18n is lazy.
+ * The i18n is lazy. Message patterns are parsed once and reused, and the
+ * parameters given to the constructor are never changed.
  *
  * @author Lucas Cavalcanti
  * @since 3.1.3
@@ -71,7 +71,7 @@ public class I18nMessage implements Message {
 	public String getMessage() {
 		checkBundle();
 
-		return MessageFormat.format(bundle.getString(message), i18n(parameters));
+		return MessageFormats.format(bundle.getString(message), i18n(parameters));
 	}
 	
 	@Override
@@ -86,12 +86,16 @@ public class I18nMessage implements Message {
 	}
 
 	private Object[] i18n(Object[] parameters) {
+		Object[] resolved = parameters;
 		for (int i = 0; i < parameters.length; i++) {
 			if (parameters[i] instanceof I18nParam) {
-				parameters[i] = ((I18nParam)parameters[i]).getKey(bundle);
+				if (resolved == parameters) {
+					resolved = parameters.clone();
+				}
+				resolved[i] = ((I18nParam) parameters[i]).getKey(bundle);
 			}
 		}
-		return parameters;
+		return resolved;
 	}
 
 	@Override
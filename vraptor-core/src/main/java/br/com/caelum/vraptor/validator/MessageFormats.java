@@ -0,0 +1,89 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.validator;
+
+import static com.google.common.base.Throwables.propagate;
+
+import java.text.MessageFormat;
+import java.util.Locale;
+import java.util.Locale.Category;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Formats messages like {@link MessageFormat#format(String, Object...)}, but parses each pattern only
+ * once. Parsed formats are kept per pattern and locale, and cloned before use since {@link MessageFormat}
+ * isn't thread safe. Patterns without arguments or quotes are returned as they are.
+ *
+ * @since 4.2.0
+ */
+final class MessageFormats {
+
+	private static final int CAPACITY = 2000;
+
+	private static final Cache<Key, MessageFormat> formats = CacheBuilder.newBuilder().maximumSize(CAPACITY).build();
+
+	private MessageFormats() {
+	}
+
+	static String format(final String pattern, Object... arguments) {
+		if (pattern.indexOf('{') < 0 && pattern.indexOf('\'') < 0) {
+			return pattern;
+		}
+
+		final Locale locale = Locale.getDefault(Category.FORMAT);
+		MessageFormat format;
+		try {
+			format = formats.get(new Key(pattern, locale), new Callable<MessageFormat>() {
+				@Override
+				public MessageFormat call() {
+					return new MessageFormat(pattern, locale);
+				}
+			});
+		} catch (ExecutionException | UncheckedExecutionException e) {
+			throw propagate(e.getCause());
+		}
+		return ((MessageFormat) format.clone()).format(arguments);
+	}
+
+	private static final class Key {
+		private final String pattern;
+		private final Locale locale;
+
+		Key(String pattern, Locale locale) {
+			this.pattern = pattern;
+			this.locale = locale;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * pattern.hashCode() + locale.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return pattern.equals(other.pattern) && locale.equals(other.locale);
+		}
+	}
+}
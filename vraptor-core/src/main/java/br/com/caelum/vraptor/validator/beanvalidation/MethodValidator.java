@@ -35,6 +35,10 @@ import javax.validation.metadata.MethodDescriptor;
 
 import org.slf4j.Logger;
 
+import com.google.common.base.Supplier;
+
+import br.com.caelum.vraptor.cache.CacheStore;
+import br.com.caelum.vraptor.cache.DefaultCacheStore;
 import br.com.caelum.vraptor.controller.ControllerInstance;
 import br.com.caelum.vraptor.controller.ControllerMethod;
 import br.com.caelum.vraptor.core.MethodInfo;
@@ -46,6 +50,8 @@ import br.com.caelum.vraptor.validator.Validator;
 /**
  * Validate method parameters using Bean Validation. The method will
  * be validated if any parameter contains a Bean Validation annotation.
+ * Whether a method has constraints is only asked to Bean Validation once
+ * per controller method.
  *
  * @author Otávio Scherer Garcia
  * @author Rodrigo Turini
@@ -59,25 +65,46 @@ public class MethodValidator {
 	private final Instance<Locale> locale;
 	private final MessageInterpolator interpolator;
 	private final javax.validation.Validator bvalidator;
+	private final CacheStore<ControllerMethod, Boolean> constrainedMethods;
 
 	/**
 	 * @deprecated CDI eyes only
 	 */
 	protected MethodValidator() {
-		this(null, null, null);
+		this(null, null, null, null);
 	}
 
-	@Inject
+	/**
+	 * @deprecated use the constructor that receives a {@link CacheStore}, otherwise the lookup of
+	 * constrained methods is cached in a store that isn't shared
+	 */
+	@Deprecated
 	public MethodValidator(Instance<Locale> locale, MessageInterpolator interpolator, javax.validation.Validator bvalidator) {
+		this(locale, interpolator, bvalidator, new DefaultCacheStore<ControllerMethod, Boolean>());
+	}
+
+	@Inject
+	public MethodValidator(Instance<Locale> locale, MessageInterpolator interpolator, javax.validation.Validator bvalidator,
+			CacheStore<ControllerMethod, Boolean> constrainedMethods) {
 		this.locale = locale;
 		this.interpolator = interpolator;
 		this.bvalidator = bvalidator;
+		this.constrainedMethods = constrainedMethods;
+	}
+
+	private boolean hasConstraints(final ControllerMethod controllerMethod) {
+		return constrainedMethods.fetch(controllerMethod, new Supplier<Boolean>() {
+			@Override
+			public Boolean get() {
+				return findConstraints(controllerMethod);
+			}
+		});
 	}
 
 	/**
 	 * Only accepts if method isn't parameterless and have at least one constraint.
 	 */
-	private boolean hasConstraints(ControllerMethod controllerMethod) {
+	private boolean findConstraints(ControllerMethod controllerMethod) {
 		Method method = controllerMethod.getMethod();
 		if (method.getParameterTypes().length == 0) {
 			logger.debug("method {} has no parameters, skipping", controllerMethod);
@@ -17,12 +17,7 @@
 package br.com.caelum.vraptor.view;
 
 import java.util.Map;
-import java.util.Objects;
-import java.util.Set;
-import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
@@ -30,9 +25,7 @@ import javax.inject.Inject;
 import br.com.caelum.vraptor.cache.CacheStore;
 import br.com.caelum.vraptor.cache.LRU;
 
-import com.google.common.base.Function;
 import com.google.common.base.Supplier;
-import com.google.common.collect.FluentIterable;
 
 /**
  * The default AcceptHeaderToFormat implementation searches for registered mime types. It also
@@ -49,6 +42,8 @@ public class DefaultAcceptHeaderToFormat implements AcceptHeaderToFormat {
 
 	private static final String DEFAULT_FORMAT = "html";
 	private static final double DEFAULT_QUALIFIER_VALUE = 0.01;
+	private static final String ANY_MEDIA_TYPE = "*/*";
+	private static final String ANY_MEDIA_TYPE_FALLBACK = "text/html";
 	protected final Map<String, String> mimeToFormat;
 
 	/** 
@@ -59,7 +54,7 @@ public class DefaultAcceptHeaderToFormat implements AcceptHeaderToFormat {
 	}
 
 	@Inject
-	public DefaultAcceptHeaderToFormat(@LRU CacheStore<String, String> acceptToFormatCache) {
+	public DefaultAcceptHeaderToFormat(@LRU(name = "vraptor.accept-header", capacity = 1000) CacheStore<String, String> acceptToFormatCache) {
 		this.acceptToFormatCache = acceptToFormatCache;
 		mimeToFormat = new ConcurrentHashMap<>();
 		mimeToFormat.put("text/html", "html");
@@ -67,6 +62,7 @@ public class DefaultAcceptHeaderToFormat implements AcceptHeaderToFormat {
 		mimeToFormat.put("application/xml", "xml");
 		mimeToFormat.put("text/xml", "xml");
 		mimeToFormat.put("xml", "xml");
+		mimeToFormat.put("application/cbor", "cbor");
 	}
 
 	@Override
@@ -88,102 +84,125 @@ public class DefaultAcceptHeaderToFormat implements AcceptHeaderToFormat {
 		});
 	}
 
+	/**
+	 * Walks the header once, keeping the registered format with the highest qualifier (the first one
+	 * wins on ties) and, as a fallback, the highest qualified media type. No regex, split or
+	 * intermediate collection is used, since every distinct header reaching here is a cache miss.
+	 */
 	private String chooseMimeType(String acceptHeader) {
-		String[] mimeTypes = getOrderedMimeTypes(acceptHeader);
-
-		for (String mimeType : mimeTypes) {
-			if (mimeToFormat.containsKey(mimeType)) {
-				return mimeToFormat.get(mimeType);
+		int length = acceptHeader.length();
+		String bestFormat = null;
+		double bestFormatQualifier = -1;
+		String fallback = null;
+		int fallbackStart = 0, fallbackEnd = 0;
+		double fallbackQualifier = -1;
+
+		for (int start = 0; start < length;) {
+			int end = indexOf(acceptHeader, ',', start, length);
+			int paramsStart = indexOf(acceptHeader, ';', start, end);
+			int typeStart = skipWhitespace(acceptHeader, start, paramsStart);
+			int typeEnd = trimWhitespace(acceptHeader, typeStart, paramsStart);
+
+			if (typeStart < typeEnd) {
+				boolean any = isAnyMediaType(acceptHeader, typeStart, typeEnd);
+				String format;
+				double qualifier;
+				if (any) {
+					format = mimeToFormat.get(ANY_MEDIA_TYPE_FALLBACK);
+					qualifier = DEFAULT_QUALIFIER_VALUE;
+				} else {
+					format = formatOf(acceptHeader, typeStart, typeEnd);
+					qualifier = paramsStart == end ? 1 : extractQualifier(acceptHeader, paramsStart + 1, end);
+				}
+
+				if (format != null && qualifier > bestFormatQualifier) {
+					bestFormat = format;
+					bestFormatQualifier = qualifier;
+				}
+				if (qualifier > fallbackQualifier) {
+					fallback = any ? ANY_MEDIA_TYPE_FALLBACK : null;
+					fallbackStart = typeStart;
+					fallbackEnd = typeEnd;
+					fallbackQualifier = qualifier;
+				}
 			}
+			start = end + 1;
 		}
 
-		return mimeTypes[0];
-	}
-
-	private static class MimeType implements Comparable<MimeType> {
-		private final String type;
-		private final double qualifier;
-
-		public MimeType(String type, double qualifier) {
-			this.type = type;
-			this.qualifier = qualifier;
-		}
-
-		@Override
-		public int compareTo(MimeType mime) {
-			// reverse order
-			return Double.compare(mime.qualifier, this.qualifier);
+		if (bestFormat != null) {
+			return bestFormat;
 		}
+		return fallback != null ? fallback : acceptHeader.substring(fallbackStart, fallbackEnd);
+	}
 
-		@Override
-		public boolean equals(Object obj) {
-			if (obj == null || getClass() != obj.getClass()) {
-				return false;
+	private String formatOf(String header, int start, int end) {
+		int length = end - start;
+		for (Map.Entry<String, String> entry : mimeToFormat.entrySet()) {
+			String mime = entry.getKey();
+			if (mime.length() == length && header.regionMatches(true, start, mime, 0, length)) {
+				return entry.getValue();
 			}
-
-			MimeType other = (MimeType) obj;
-			return Objects.equals(type, other.type) && Objects.equals(qualifier, other.qualifier);
-		}
-
-		@Override
-		public int hashCode() {
-			return Objects.hash(type, qualifier);
 		}
+		return null;
+	}
 
-		public String getType() {
-			return type;
-		}
+	private static boolean isAnyMediaType(String header, int start, int end) {
+		return end - start == 3 && header.startsWith(ANY_MEDIA_TYPE, start);
+	}
 
-		@Override
-		public String toString() {
-			return type;
+	/**
+	 * Looks for a {@code q} parameter among the parameters found between start and end. An entry with
+	 * parameters but no qualifier keeps the historical {@link #DEFAULT_QUALIFIER_VALUE}.
+	 */
+	private static double extractQualifier(String header, int start, int end) {
+		for (int param = start; param < end;) {
+			int paramEnd = indexOf(header, ';', param, end);
+			int nameStart = skipWhitespace(header, param, paramEnd);
+			if (nameStart + 1 < paramEnd && (header.charAt(nameStart) == 'q' || header.charAt(nameStart) == 'Q')
+					&& header.charAt(nameStart + 1) == '=') {
+				return parseQualifier(header, skipWhitespace(header, nameStart + 2, paramEnd), paramEnd);
+			}
+			param = paramEnd + 1;
 		}
+		return DEFAULT_QUALIFIER_VALUE;
 	}
 
-	String[] getOrderedMimeTypes(String acceptHeader) {
-		String[] types = acceptHeader.split(",");
-
-		if (types.length == 0) {
-			return new String[] { types[0].split(";")[0] };
+	private static double parseQualifier(String header, int start, int end) {
+		double value = 0;
+		int i = start;
+		for (; i < end && isDigit(header.charAt(i)); i++) {
+			value = value * 10 + (header.charAt(i) - '0');
 		}
-
-		Set<MimeType> mimes = new TreeSet<>();
-		for (String string : types) {
-			mimes.add(convertToMimeType(string));
+		if (i < end && header.charAt(i) == '.') {
+			double scale = 0.1;
+			for (i++; i < end && isDigit(header.charAt(i)); i++) {
+				value += (header.charAt(i) - '0') * scale;
+				scale /= 10;
+			}
 		}
+		return value;
+	}
 
-		return FluentIterable.from(mimes)
-				.transform(mimeType())
-				.toArray(String.class);
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
 	}
 
-	private Function<MimeType, String> mimeType() {
-		return new Function<MimeType, String>() {
-			@Override
-			public String apply(MimeType mime) {
-				return mime.getType().trim();
-			}
-		};
+	private static int indexOf(String header, char c, int start, int end) {
+		int index = header.indexOf(c, start);
+		return index < 0 || index > end ? end : index;
 	}
 
-	private MimeType convertToMimeType(String string) {
-		if (string.contains("*/*")) {
-			return new MimeType("text/html", DEFAULT_QUALIFIER_VALUE);
-		} else if (string.contains(";")) {
-			String type = string.substring(0, string.indexOf(';'));
-			return new MimeType(type, extractQualifier(string));
+	private static int skipWhitespace(String header, int start, int end) {
+		while (start < end && Character.isWhitespace(header.charAt(start))) {
+			start++;
 		}
-		return new MimeType(string, 1);
+		return start;
 	}
 
-	private static double extractQualifier(String string) {
-		double qualifier = DEFAULT_QUALIFIER_VALUE;
-		if (string.contains("q=")) {
-			Matcher matcher = Pattern.compile("\\s*q=(.+)\\s*").matcher(string);
-			matcher.find();
-			String value = matcher.group(1);
-			qualifier = Double.parseDouble(value);
+	private static int trimWhitespace(String header, int start, int end) {
+		while (end > start && Character.isWhitespace(header.charAt(end - 1))) {
+			end--;
 		}
-		return qualifier;
+		return end;
 	}
 }
@@ -22,11 +22,17 @@ package br.com.caelum.vraptor.view;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.util.Date;
 
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import br.com.caelum.vraptor.http.cache.EntityTags;
+import br.com.caelum.vraptor.http.cache.ValidatorCache;
+
+import com.google.common.base.Supplier;
 import com.google.common.io.ByteStreams;
 import com.google.common.io.CharStreams;
 
@@ -38,20 +44,32 @@ import com.google.common.io.CharStreams;
 @RequestScoped
 public class DefaultHttpResult implements HttpResult {
 
+	private final HttpServletRequest request;
 	private final HttpServletResponse response;
 	private final Status status;
+	private final ValidatorCache validators;
 
 	/** 
 	 * @deprecated CDI eyes only
 	 */
 	protected DefaultHttpResult() {
-		this(null, null);
+		this(null, null, null, null);
 	}
 
-	@Inject
 	public DefaultHttpResult(HttpServletResponse response, Status status) {
+		this(null, response, status, null);
+	}
+
+	/**
+	 * @since 4.2.0
+	 */
+	@Inject
+	public DefaultHttpResult(HttpServletRequest request, HttpServletResponse response, Status status,
+			ValidatorCache validators) {
+		this.request = request;
 		this.response = response;
 		this.status = status;
+		this.validators = validators;
 	}
 
 	@Override
@@ -134,4 +152,80 @@ public class DefaultHttpResult implements HttpResult {
 		}
 		return this;
 	}
+
+	@Override
+	public boolean ifNoneMatch(Supplier<String> etag) {
+		return answerEntityTag(EntityTags.strong(required(etag, "entity tag").get()));
+	}
+
+	@Override
+	public boolean ifNoneMatch(String key, Supplier<String> etag) {
+		if (validators == null) {
+			return ifNoneMatch(etag);
+		}
+		return answerEntityTag(validators.etag(key, required(etag, "entity tag")));
+	}
+
+	private boolean answerEntityTag(String tag) {
+		response.setHeader("ETag", tag);
+
+		if (isConditional() && EntityTags.matches(request.getHeader("If-None-Match"), tag)) {
+			status.notModified();
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public boolean ifModifiedSince(Supplier<Date> lastModified) {
+		return answerLastModified(required(lastModified, "last modified date").get());
+	}
+
+	@Override
+	public boolean ifModifiedSince(String key, Supplier<Date> lastModified) {
+		if (validators == null) {
+			return ifModifiedSince(lastModified);
+		}
+		return answerLastModified(validators.lastModified(key, required(lastModified, "last modified date")));
+	}
+
+	private boolean answerLastModified(Date date) {
+		long truncated = date.getTime() / 1000 * 1000;
+		response.setDateHeader("Last-Modified", truncated);
+
+		if (isConditional() && request.getHeader("If-None-Match") == null) {
+			long ifModifiedSince = ifModifiedSince();
+			if (ifModifiedSince != -1 && truncated <= ifModifiedSince) {
+				status.notModified();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean isConditional() {
+		return request != null && ("GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod()));
+	}
+
+	private long ifModifiedSince() {
+		try {
+			return request.getDateHeader("If-Modified-Since");
+		} catch (IllegalArgumentException e) {
+			return -1;
+		}
+	}
+
+	private static <T> Supplier<T> required(final Supplier<T> supplier, final String validator) {
+		return new Supplier<T>() {
+			@Override
+			public T get() {
+				T value = supplier.get();
+				if (value == null) {
+					throw new IllegalStateException("The " + validator + " supplier returned null, "
+							+ "but a conditional response needs a value");
+				}
+				return value;
+			}
+		};
+	}
 }
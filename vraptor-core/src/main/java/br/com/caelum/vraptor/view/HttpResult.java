@@ -18,10 +18,14 @@ package br.com.caelum.vraptor.view;
 
 import java.io.InputStream;
 import java.io.Reader;
+import java.util.Date;
 
 import javax.servlet.http.HttpServletResponse;
 
 import br.com.caelum.vraptor.View;
+import br.com.caelum.vraptor.http.cache.ValidatorCache;
+
+import com.google.common.base.Supplier;
 
 /**
  * A view that deals with HTTP protocol, sending status and error codes
@@ -52,4 +56,58 @@ public interface HttpResult extends View {
 
 	HttpResult body(Reader body);
 
+	/**
+	 * Sets the {@code ETag} of the resource and answers with 304 if it matches the {@code If-None-Match}
+	 * header of a {@code GET} or {@code HEAD} request, so the body doesn't have to be built:
+	 *
+	 * <pre>
+	 * if (result.use(http()).ifNoneMatch(catalogVersion)) {
+	 *     return;
+	 * }
+	 * result.use(json()).from(catalog.list()).serialize();
+	 * </pre>
+	 *
+	 * The supplier is called on every request, and must return a strong entity tag, quoted or not, such as
+	 * {@code "v42"}; null and weak tags are rejected.
+	 * <p>
+	 * Using this view marks the result as used, so the default view of the method, such as its JSP, isn't
+	 * rendered anymore. When this method returns false, the body must be rendered explicitly, as with
+	 * {@code result.use(json())} above or {@code result.of(this).list()} for the JSP of the method.
+	 *
+	 * @return true if the response was answered with 304
+	 * @since 4.2.0
+	 */
+	boolean ifNoneMatch(Supplier<String> etag);
+
+	/**
+	 * Like {@link #ifNoneMatch(Supplier)}, but the entity tag is kept by {@link ValidatorCache} under the
+	 * given key, so the supplier isn't called on every request. The key must differ for every
+	 * representation with its own entity tag, such as {@code "musics:" + user.getId()}, and must be
+	 * invalidated when the resource changes.
+	 *
+	 * @return true if the response was answered with 304
+	 * @since 4.2.0
+	 */
+	boolean ifNoneMatch(String key, Supplier<String> etag);
+
+	/**
+	 * Sets the {@code Last-Modified} date of the resource and answers with 304 if it is not after the
+	 * {@code If-Modified-Since} header of a {@code GET} or {@code HEAD} request without
+	 * {@code If-None-Match}. The supplier is called on every request, and must not return null. As in
+	 * {@link #ifNoneMatch(Supplier)}, the body must be rendered explicitly when this method returns false.
+	 *
+	 * @return true if the response was answered with 304
+	 * @since 4.2.0
+	 */
+	boolean ifModifiedSince(Supplier<Date> lastModified);
+
+	/**
+	 * Like {@link #ifModifiedSince(Supplier)}, but the date is kept by {@link ValidatorCache} under the
+	 * given key, like in {@link #ifNoneMatch(String, Supplier)}.
+	 *
+	 * @return true if the response was answered with 304
+	 * @since 4.2.0
+	 */
+	boolean ifModifiedSince(String key, Supplier<Date> lastModified);
+
 }
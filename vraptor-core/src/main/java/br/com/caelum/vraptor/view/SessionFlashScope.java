@@ -17,11 +17,13 @@ package br.com.caelum.vraptor.view;
 
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
 
 import br.com.caelum.vraptor.controller.ControllerMethod;
 /**
- * FlashScope that uses the HttpSession to hold the data
+ * FlashScope that uses the HttpSession to hold the data. The session is only created when
+ * parameters are included.
  *
  * @author Lucas Cavalcanti
  * @since 3.3.0
@@ -29,6 +31,7 @@ import br.com.caelum.vraptor.controller.ControllerMethod;
 @RequestScoped
 public class SessionFlashScope implements FlashScope {
 
+	private final HttpServletRequest request;
 	private final HttpSession session;
 
 	private static final String KEY_START = "vraptor_flash_parameters_for_";
@@ -37,16 +40,32 @@ public class SessionFlashScope implements FlashScope {
 	 * @deprecated CDI eyes only
 	 */
 	protected SessionFlashScope() {
-		this(null);
+		this((HttpServletRequest) null);
 	}
 
 	@Inject
+	public SessionFlashScope(HttpServletRequest request) {
+		this.request = request;
+		this.session = null;
+	}
+
+	/**
+	 * @deprecated use {@link #SessionFlashScope(HttpServletRequest)}, which doesn't create a session until
+	 * parameters are included
+	 */
+	@Deprecated
 	public SessionFlashScope(HttpSession session) {
+		this.request = null;
 		this.session = session;
 	}
 
 	@Override
 	public Object[] consumeParameters(ControllerMethod method) {
+		HttpSession session = session(false);
+		if (session == null) {
+			return null;
+		}
+
 		String param = nameFor(method);
 		Object[] args = (Object[]) session.getAttribute(param);
 		session.removeAttribute(param);
@@ -60,7 +79,14 @@ public class SessionFlashScope implements FlashScope {
 
 	@Override
 	public void includeParameters(ControllerMethod method, Object[] args) {
-		session.setAttribute(nameFor(method), args);
+		session(true).setAttribute(nameFor(method), args);
+	}
+
+	private HttpSession session(boolean create) {
+		if (session != null) {
+			return session;
+		}
+		return create ? request.getSession() : request.getSession(false);
 	}
 
 }
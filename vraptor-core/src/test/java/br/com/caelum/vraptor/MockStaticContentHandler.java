@@ -19,12 +19,18 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 
 import javax.enterprise.inject.Specializes;
+import javax.inject.Inject;
 import javax.servlet.FilterChain;
+import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import br.com.caelum.vraptor.cache.CacheStoreFactory;
 import br.com.caelum.vraptor.core.DefaultStaticContentHandler;
+import br.com.caelum.vraptor.core.StaticFileServer;
+import br.com.caelum.vraptor.environment.Environment;
+import br.com.caelum.vraptor.http.compression.CompressionHandler;
 
 @SuppressWarnings("deprecation")
 @Specializes
@@ -33,6 +39,15 @@ public class MockStaticContentHandler extends DefaultStaticContentHandler {
 	private boolean deferProcessingToContainerCalled;
 	private boolean requestingStaticFile;
 
+	public MockStaticContentHandler() {
+	}
+
+	@Inject
+	public MockStaticContentHandler(ServletContext context, CompressionHandler compressionHandler,
+			StaticFileServer fileServer, CacheStoreFactory cacheFactory, Environment environment) {
+		super(context, compressionHandler, fileServer, cacheFactory, environment);
+	}
+
 	@Override
 	public boolean requestingStaticFile(HttpServletRequest request) throws MalformedURLException {
 		return requestingStaticFile;
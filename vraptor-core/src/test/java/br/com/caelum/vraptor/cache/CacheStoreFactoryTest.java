@@ -0,0 +1,276 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.cache;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.enterprise.inject.spi.Annotated;
+import javax.enterprise.inject.spi.InjectionPoint;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import br.com.caelum.vraptor.environment.Environment;
+
+import com.google.common.base.Supplier;
+import com.google.common.cache.Weigher;
+
+public class CacheStoreFactoryTest {
+
+	private CacheStoreFactory factory;
+	private Environment environment;
+	private CacheRegistry registry;
+
+	@LRU(capacity = 10)
+	private Object plain;
+
+	@LRU(name = "test.named", capacity = 10)
+	private Object named;
+
+	@LRU(expireAfterWrite = 50, timeUnit = MILLISECONDS)
+	private Object expiring;
+
+	@LRU(refreshAfterWrite = 50, timeUnit = MILLISECONDS)
+	private Object refreshing;
+
+	@LRU(maximumWeight = 10, weigher = LengthWeigher.class)
+	private Object weighted;
+
+	@OffHeap(name = "test.off-heap", capacityMb = 1, slabSizeKb = 64, codec = StringCodec.class)
+	private Object offHeap;
+
+	public static class LengthWeigher implements Weigher<String, String> {
+		@Override
+		public int weigh(String key, String value) {
+			return value.length();
+		}
+	}
+
+	@Before
+	public void setup() {
+		factory = new CacheStoreFactory();
+		environment = mock(Environment.class);
+		registry = new CacheRegistry();
+		when(environment.get(anyString(), anyString())).thenReturn(null);
+	}
+
+	@Test
+	public void shouldComputeValueOnceWhenFetchedConcurrently() throws Exception {
+		final CacheStore<String, Integer> cache = new DefaultCacheStore<>();
+		final AtomicInteger loads = new AtomicInteger();
+		final CountDownLatch start = new CountDownLatch(1);
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<Integer>> results = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			results.add(executor.submit(new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					start.await();
+					return cache.fetch("key", new Supplier<Integer>() {
+						@Override
+						public Integer get() {
+							sleep(50);
+							return loads.incrementAndGet();
+						}
+					});
+				}
+			}));
+		}
+		start.countDown();
+		for (Future<Integer> result : results) {
+			assertThat(result.get(), is(1));
+		}
+		executor.shutdown();
+
+		assertThat(loads.get(), is(1));
+	}
+
+	@Test
+	public void shouldPropagateRuntimeExceptionsFromSupplier() {
+		CacheStore<String, String> cache = new DefaultCacheStore<>();
+		IllegalStateException exception = new IllegalStateException();
+		try {
+			cache.fetch("key", failingWith(exception));
+		} catch (IllegalStateException e) {
+			assertThat(e, is(exception));
+		}
+	}
+
+	@Test
+	public void shouldInvalidateValues() {
+		CacheStore<String, String> cache = factory.createCacheWrapper(10);
+		cache.write("a", "1");
+		cache.write("b", "2");
+
+		cache.invalidate("a");
+		assertThat(cache.fetch("a"), nullValue());
+		assertThat(cache.fetch("b"), is("2"));
+
+		cache.invalidateAll();
+		assertThat(cache.fetch("b"), nullValue());
+	}
+
+	@Test
+	public void shouldRecordStatistics() {
+		CacheStore<String, String> cache = lru("plain");
+		cache.fetch("a", constant("1"));
+		cache.fetch("a", constant("1"));
+		cache.fetch("b");
+
+		CacheStatistics statistics = cache.getStatistics();
+		assertThat(statistics.getHitCount(), is(1L));
+		assertThat(statistics.getMissCount(), is(2L));
+		assertThat(statistics.getLoadCount(), is(1L));
+		assertThat(statistics.getSize(), is(1L));
+	}
+
+	@Test
+	public void shouldExpireValuesAfterWrite() {
+		CacheStore<String, String> cache = lru("expiring");
+		cache.write("a", "1");
+		assertThat(cache.fetch("a"), is("1"));
+
+		sleep(100);
+		assertThat(cache.fetch("a"), nullValue());
+	}
+
+	@Test
+	public void shouldRecomputeValuesAfterRefreshTime() {
+		CacheStore<String, String> cache = lru("refreshing");
+		assertThat(cache.fetch("a", constant("1")), is("1"));
+		assertThat(cache.fetch("a", constant("2")), is("1"));
+
+		sleep(100);
+		cache.fetch("a", constant("2"));
+		assertThat(cache.fetch("a"), is("2"));
+	}
+
+	@Test
+	public void shouldBoundDefaultCache() {
+		CacheStore<String, String> cache = new DefaultCacheStore<>(2);
+		cache.write("a", "1");
+		cache.write("b", "2");
+		cache.write("c", "3");
+
+		assertThat(cache.getStatistics().getSize(), lessThanOrEqualTo(2L));
+	}
+
+	@Test
+	public void shouldBoundCacheByWeight() {
+		CacheStore<String, String> cache = lru("weighted");
+		cache.write("a", "12345");
+		cache.write("b", "12345");
+		cache.write("c", "12345");
+
+		long size = cache.getStatistics().getSize();
+		assertThat(size, lessThanOrEqualTo(2L));
+	}
+
+	@Test
+	public void shouldRegisterNamedCaches() {
+		CacheStore<String, String> cache = lru("named");
+		lru("plain");
+
+		assertThat(registry.getStatistics().keySet(), contains("test.named"));
+		assertThat(registry.getCaches().get("test.named"), equalTo((Object) cache));
+	}
+
+	@Test
+	public void shouldOverrideCapacityFromEnvironment() {
+		when(environment.get("br.com.caelum.vraptor.cache.test.named.capacity", null)).thenReturn("1");
+
+		CacheStore<String, String> cache = lru("named");
+		cache.write("a", "1");
+		cache.write("b", "2");
+
+		assertThat(cache.getStatistics().getSize(), is(1L));
+	}
+
+	@Test
+	public void shouldProduceOffHeapCaches() throws Exception {
+		OffHeap offHeap = getClass().getDeclaredField("offHeap").getAnnotation(OffHeap.class);
+		Annotated annotated = mock(Annotated.class);
+		when(annotated.getAnnotation(OffHeap.class)).thenReturn(offHeap);
+		InjectionPoint ip = mock(InjectionPoint.class);
+		when(ip.getAnnotated()).thenReturn(annotated);
+
+		CacheStore<String, String> cache = factory.buildOffHeapCache(ip, environment, registry);
+		cache.write("a", "fragment");
+
+		assertThat(cache, instanceOf(OffHeapCacheStore.class));
+		assertThat(cache.fetch("a"), is("fragment"));
+		assertThat(registry.getCaches().get("test.off-heap"), equalTo((Object) cache));
+	}
+
+	private <K, V> CacheStore<K, V> lru(String field) {
+		try {
+			LRU lru = getClass().getDeclaredField(field).getAnnotation(LRU.class);
+			Annotated annotated = mock(Annotated.class);
+			when(annotated.getAnnotation(LRU.class)).thenReturn(lru);
+			InjectionPoint ip = mock(InjectionPoint.class);
+			when(ip.getAnnotated()).thenReturn(annotated);
+			return factory.buildLRUCache(ip, environment, registry);
+		} catch (NoSuchFieldException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	private static Supplier<String> constant(final String value) {
+		return new Supplier<String>() {
+			@Override
+			public String get() {
+				return value;
+			}
+		};
+	}
+
+	private static Supplier<String> failingWith(final RuntimeException exception) {
+		return new Supplier<String>() {
+			@Override
+			public String get() {
+				throw exception;
+			}
+		};
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
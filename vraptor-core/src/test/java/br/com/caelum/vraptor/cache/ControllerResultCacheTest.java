@@ -0,0 +1,209 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.cache;
+
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import br.com.caelum.vraptor.controller.ControllerMethod;
+import br.com.caelum.vraptor.controller.DefaultBeanClass;
+import br.com.caelum.vraptor.controller.DefaultControllerMethod;
+import br.com.caelum.vraptor.core.DefaultReflectionProvider;
+import br.com.caelum.vraptor.environment.Environment;
+import br.com.caelum.vraptor.http.Parameter;
+import br.com.caelum.vraptor.http.ValuedParameter;
+import br.com.caelum.vraptor.http.route.JavaEvaluator;
+
+public class ControllerResultCacheTest {
+
+	private ControllerResultCache cache;
+	private CacheRegistry registry;
+
+	public static class Music {
+		private final Long id;
+		private final String title;
+
+		public Music(Long id, String title) {
+			this.id = id;
+			this.title = title;
+		}
+
+		public Long getId() {
+			return id;
+		}
+
+		public String getTitle() {
+			return title;
+		}
+	}
+
+	public static class MusicController {
+		@Cached(key = "music.id")
+		public Music show(Music music) {
+			return music;
+		}
+
+		@Cached
+		public String search(String title, Integer page) {
+			return title;
+		}
+
+		@Cached(ttl = 50, timeUnit = TimeUnit.MILLISECONDS, name = "musics")
+		public String list() {
+			return "musics";
+		}
+
+		@Cached
+		public Music edit(Music music) {
+			return music;
+		}
+
+		public String uncached() {
+			return "";
+		}
+	}
+
+	@Before
+	public void setup() {
+		Environment environment = mock(Environment.class);
+		when(environment.get(anyString(), anyString())).thenAnswer(new Answer<String>() {
+			@Override
+			public String answer(InvocationOnMock invocation) {
+				return (String) invocation.getArguments()[1];
+			}
+		});
+		registry = new CacheRegistry();
+		cache = new ControllerResultCache(environment, registry, new JavaEvaluator(new DefaultReflectionProvider()));
+		cache.init();
+	}
+
+	@Test
+	public void shouldNotBuildKeysForMethodsWithoutCached() throws Exception {
+		assertThat(cache.keyFor(method("uncached"), new ValuedParameter[0]), nullValue());
+	}
+
+	@Test
+	public void shouldBuildKeysFromExpressions() throws Exception {
+		ControllerMethod show = method("show", Music.class);
+		ValuedParameter music = parameter(show, 0, "music", new Music(42L, "Imagine"));
+
+		assertThat(cache.keyFor(show, new ValuedParameter[] { music }),
+				is(key("MusicController.show", 42L)));
+	}
+
+	@Test
+	public void shouldBuildKeysFromAllParametersByDefault() throws Exception {
+		ControllerMethod search = method("search", String.class, Integer.class);
+		ValuedParameter[] parameters = { parameter(search, 0, "title", "imagine"), parameter(search, 1, "page", null) };
+
+		assertThat(cache.keyFor(search, parameters),
+				is(key("MusicController.search", "imagine", null)));
+	}
+
+	@Test
+	public void shouldNotMixUpValuesContainingTheSeparator() throws Exception {
+		ControllerMethod search = method("search", String.class, Integer.class);
+		ValuedParameter[] first = { parameter(search, 0, "title", "a,1"), parameter(search, 1, "page", null) };
+		ValuedParameter[] second = { parameter(search, 0, "title", "a"), parameter(search, 1, "page", 1) };
+
+		assertThat(cache.keyFor(search, first).equals(cache.keyFor(search, second)), is(false));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void shouldRequireExplicitKeysForParametersWithoutEquals() throws Exception {
+		ControllerMethod edit = method("edit", Music.class);
+		cache.keyFor(edit, new ValuedParameter[] { parameter(edit, 0, "music", new Music(42L, "Imagine")) });
+	}
+
+	@Test
+	public void shouldUseGivenName() throws Exception {
+		assertThat(cache.keyFor(method("list"), new ValuedParameter[0]), is(key("musics")));
+	}
+
+	@Test
+	public void shouldFetchWrittenValues() throws Exception {
+		cache.write(key("MusicController.search", "imagine", null), method("search", String.class, Integer.class), "imagine");
+
+		assertThat(cache.fetch(key("MusicController.search", "imagine", null)), is((Object) "imagine"));
+		assertThat(cache.fetch(key("MusicController.search", "other", null)), nullValue());
+	}
+
+	@Test
+	public void shouldNotCacheNullValues() throws Exception {
+		cache.write(key("MusicController.search", "imagine", null), method("search", String.class, Integer.class), null);
+
+		assertThat(cache.getStatistics().getSize(), is(0L));
+	}
+
+	@Test
+	public void shouldExpireValuesAfterTtl() throws Exception {
+		cache.write(key("musics"), method("list"), "musics");
+		assertThat(cache.fetch(key("musics")), is((Object) "musics"));
+
+		Thread.sleep(100);
+		assertThat(cache.fetch(key("musics")), nullValue());
+	}
+
+	@Test
+	public void shouldInvalidateByPrefix() throws Exception {
+		ControllerMethod show = method("show", Music.class);
+		cache.write(key("MusicController.show", 1L), show, "first");
+		cache.write(key("MusicController.show", 2L), show, "second");
+		cache.write(key("MusicController.search", "x", null), method("search", String.class, Integer.class), "x");
+		cache.write(key("musics"), method("list"), "musics");
+
+		cache.invalidate("MusicController.show", 1L);
+		assertThat(cache.fetch(key("MusicController.show", 1L)), nullValue());
+		assertThat(cache.fetch(key("MusicController.show", 2L)), is((Object) "second"));
+
+		cache.invalidate("MusicController.");
+		assertThat(cache.fetch(key("MusicController.show", 2L)), nullValue());
+		assertThat(cache.fetch(key("MusicController.search", "x", null)), nullValue());
+		assertThat(cache.fetch(key("musics")), is((Object) "musics"));
+	}
+
+	@Test
+	public void shouldBeRegistered() {
+		assertThat(registry.getStatistics(), hasKey(ControllerResultCache.NAME));
+	}
+
+	private ControllerMethod method(String name, Class<?>... types) throws NoSuchMethodException {
+		return new DefaultControllerMethod(new DefaultBeanClass(MusicController.class),
+				MusicController.class.getMethod(name, types));
+	}
+
+	private List<Object> key(Object... values) {
+		return Arrays.asList(values);
+	}
+
+	private ValuedParameter parameter(ControllerMethod method, int index, String name, Object value) {
+		return new ValuedParameter(new Parameter(index, name, method.getMethod()), value);
+	}
+}
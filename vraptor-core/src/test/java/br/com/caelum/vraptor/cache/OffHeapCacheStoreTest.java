@@ -0,0 +1,210 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.cache;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Supplier;
+
+public class OffHeapCacheStoreTest {
+
+	private OffHeapCacheStore<String, String> cache;
+
+	@Before
+	public void setup() {
+		cache = new OffHeapCacheStore<>(new StringCodec(), 32, 8);
+	}
+
+	@Test
+	public void shouldReadWrittenValues() {
+		cache.write("a", "1234");
+		cache.write("b", "5678");
+
+		assertThat(cache.fetch("a"), is("1234"));
+		assertThat(cache.fetch("b"), is("5678"));
+		assertThat(cache.fetch("c"), nullValue());
+	}
+
+	@Test
+	public void shouldReplaceValuesOnWrite() {
+		cache.write("a", "1");
+		cache.write("a", "2");
+
+		assertThat(cache.fetch("a"), is("2"));
+		assertThat(cache.getStatistics().getSize(), is(1L));
+	}
+
+	@Test
+	public void shouldNotCacheValuesLargerThanASlab() {
+		cache.write("a", "123456789");
+
+		assertThat(cache.fetch("a"), nullValue());
+	}
+
+	@Test
+	public void shouldEvictOldestSlabWhenBudgetIsExhausted() {
+		for (int i = 0; i < 5; i++) {
+			cache.write("key" + i, "12345678");
+		}
+
+		assertThat(cache.fetch("key0"), nullValue());
+		assertThat(cache.fetch("key4"), is("12345678"));
+		assertThat(cache.getStatistics().getEvictionCount(), is(1L));
+		assertThat(cache.getStatistics().getSize(), is(4L));
+	}
+
+	@Test
+	public void shouldSpareRecentlyReadSlabsOnce() {
+		for (int i = 0; i < 4; i++) {
+			cache.write("key" + i, "12345678");
+		}
+		cache.fetch("key1");
+
+		cache.write("key4", "12345678");
+		cache.write("key5", "12345678");
+
+		assertThat(cache.fetch("key0"), nullValue());
+		assertThat(cache.fetch("key1"), is("12345678"));
+		assertThat(cache.fetch("key2"), nullValue());
+		assertThat(cache.fetch("key3"), is("12345678"));
+	}
+
+	@Test
+	public void shouldNotEvictTheCurrentSlabWhenAllOthersWereRead() {
+		for (int i = 0; i < 4; i++) {
+			cache.write("key" + i, "12345678");
+		}
+		cache.fetch("key0");
+		cache.fetch("key1");
+		cache.fetch("key2");
+
+		cache.write("key4", "12345678");
+
+		assertThat(cache.fetch("key0"), nullValue());
+		assertThat(cache.fetch("key1"), is("12345678"));
+		assertThat(cache.fetch("key2"), is("12345678"));
+		assertThat(cache.fetch("key3"), is("12345678"));
+		assertThat(cache.fetch("key4"), is("12345678"));
+	}
+
+	@Test
+	public void shouldInvalidateValues() {
+		cache.write("a", "1");
+		cache.write("b", "2");
+
+		cache.invalidate("a");
+		assertThat(cache.fetch("a"), nullValue());
+		assertThat(cache.fetch("b"), is("2"));
+
+		cache.invalidateAll();
+		assertThat(cache.fetch("b"), nullValue());
+	}
+
+	@Test
+	public void shouldEncodeSerializableValues() {
+		OffHeapCacheStore<String, ArrayList<String>> lists = new OffHeapCacheStore<>(
+				new ListCodec(), 1024, 512);
+		lists.write("a", new ArrayList<>(Arrays.asList("x", "y")));
+
+		assertThat(lists.fetch("a"), is(Arrays.asList("x", "y")));
+	}
+
+	@Test
+	public void shouldComputeValueOnceWhenFetchedConcurrently() throws Exception {
+		final AtomicInteger loads = new AtomicInteger();
+		final CountDownLatch start = new CountDownLatch(1);
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<String>> results = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			results.add(executor.submit(new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					start.await();
+					return cache.fetch("key", new Supplier<String>() {
+						@Override
+						public String get() {
+							try {
+								Thread.sleep(50);
+							} catch (InterruptedException e) {
+								Thread.currentThread().interrupt();
+							}
+							return String.valueOf(loads.incrementAndGet());
+						}
+					});
+				}
+			}));
+		}
+		start.countDown();
+		for (Future<String> result : results) {
+			assertThat(result.get(), is("1"));
+		}
+		executor.shutdown();
+
+		assertThat(loads.get(), is(1));
+		assertThat(cache.getStatistics().getLoadCount(), is(1L));
+	}
+
+	@Test
+	public void shouldPropagateRuntimeExceptionsFromSupplier() {
+		IllegalStateException exception = new IllegalStateException();
+		try {
+			cache.fetch("key", failingWith(exception));
+		} catch (IllegalStateException e) {
+			assertThat(e, is(exception));
+		}
+		assertThat(cache.fetch("key"), nullValue());
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	static class ListCodec implements ValueCodec<ArrayList<String>> {
+		private final ValueCodec serializable = new SerializableCodec();
+
+		@Override
+		public byte[] encode(ArrayList<String> value) {
+			return serializable.encode(value);
+		}
+
+		@Override
+		public ArrayList<String> decode(byte[] bytes) {
+			return (ArrayList<String>) serializable.decode(bytes);
+		}
+	}
+
+	private static Supplier<String> failingWith(final RuntimeException exception) {
+		return new Supplier<String>() {
+			@Override
+			public String get() {
+				throw exception;
+			}
+		};
+	}
+}
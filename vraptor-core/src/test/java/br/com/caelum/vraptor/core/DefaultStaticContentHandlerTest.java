@@ -19,12 +19,20 @@ package br.com.caelum.vraptor.core;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.File;
+import java.net.URL;
 
+import javax.servlet.FilterChain;
+import javax.servlet.RequestDispatcher;
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -32,6 +40,12 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import br.com.caelum.vraptor.cache.CacheStoreFactory;
+import br.com.caelum.vraptor.environment.Environment;
+import br.com.caelum.vraptor.http.compression.CompressionHandler;
 
 public class DefaultStaticContentHandlerTest {
 
@@ -40,6 +54,12 @@ public class DefaultStaticContentHandlerTest {
 
 	@Mock private HttpServletRequest request;
 	@Mock private ServletContext context;
+	@Mock private CompressionHandler compressionHandler;
+	@Mock private HttpServletResponse response;
+	@Mock private FilterChain chain;
+	@Mock private RequestDispatcher dispatcher;
+	@Mock private Environment environment;
+	@Mock private StaticFileServer fileServer;
 	private File file;
 
 	@Before
@@ -55,7 +75,7 @@ public class DefaultStaticContentHandlerTest {
 		when(request.getContextPath()).thenReturn("/contextName/");
 		when(context.getResource(key)).thenReturn(file.toURI().toURL());
 
-		boolean result = new DefaultStaticContentHandler(context).requestingStaticFile(request);
+		boolean result = handler().requestingStaticFile(request);
 		assertThat(result, is(equalTo(true)));
 	}
 	
@@ -66,7 +86,7 @@ public class DefaultStaticContentHandlerTest {
 		when(request.getContextPath()).thenReturn("/contextName/");
 		when(context.getResource(key)).thenReturn(file.toURI().toURL());
 
-		boolean result = new DefaultStaticContentHandler(context).requestingStaticFile(request);
+		boolean result = handler().requestingStaticFile(request);
 		assertThat(result, is(equalTo(true)));
 	}
 	
@@ -77,10 +97,26 @@ public class DefaultStaticContentHandlerTest {
 		when(request.getContextPath()).thenReturn("/contextName/");
 		when(context.getResource(key)).thenReturn(file.toURI().toURL());
 
-		boolean result = new DefaultStaticContentHandler(context).requestingStaticFile(request);
+		boolean result = handler().requestingStaticFile(request);
 		assertThat(result, is(equalTo(true)));
 	}
 
+	@Test
+	@SuppressWarnings("deprecation")
+	public void shouldStillWorkWithOnlyTheServletContext() throws Exception {
+		String key = file.getAbsolutePath();
+		when(request.getRequestURI()).thenReturn("/contextName/" + key);
+		when(request.getContextPath()).thenReturn("/contextName/");
+		when(context.getResource(key)).thenReturn(file.toURI().toURL());
+
+		DefaultStaticContentHandler handler = new DefaultStaticContentHandler(context);
+		handler.init();
+		assertThat(handler.requestingStaticFile(request), is(equalTo(true)));
+
+		handler.deferProcessingToContainer(chain, request, response);
+		verify(chain).doFilter(request, response);
+	}
+
 	@Test
 	public void returnsFalseForNonStaticResources() throws Exception {
 		String key = "thefile.xml";
@@ -88,7 +124,124 @@ public class DefaultStaticContentHandlerTest {
 		when(request.getContextPath()).thenReturn("/contextName/");
 		when(context.getResource(key)).thenReturn(null);
 
-		boolean result = new DefaultStaticContentHandler(context).requestingStaticFile(request);
+		boolean result = handler().requestingStaticFile(request);
 		assertThat(result, is(equalTo(false)));
 	}
+
+	@Test
+	public void defersToContainerWhenClientDoesNotAcceptGzip() throws Exception {
+		when(request.getRequestURI()).thenReturn("/contextName/app.js");
+		when(request.getContextPath()).thenReturn("/contextName");
+		when(compressionHandler.acceptsGzip(request)).thenReturn(false);
+
+		handler().deferProcessingToContainer(chain, request, response);
+		verify(chain).doFilter(request, response);
+	}
+
+	@Test
+	public void forwardsToPrecompressedResourceWhenPresent() throws Exception {
+		File gz = tmpdir.newFile("app.js.gz");
+		when(request.getRequestURI()).thenReturn("/contextName/app.js");
+		when(request.getContextPath()).thenReturn("/contextName");
+		when(compressionHandler.acceptsGzip(request)).thenReturn(true);
+		when(context.getResource("/app.js.gz")).thenReturn(gz.toURI().toURL());
+		when(context.getMimeType("/app.js")).thenReturn("application/javascript");
+		when(request.getRequestDispatcher("/app.js.gz")).thenReturn(dispatcher);
+
+		handler().deferProcessingToContainer(chain, request, response);
+
+		verify(response).setContentType("application/javascript");
+		verify(response).setHeader("Content-Encoding", "gzip");
+		verify(dispatcher).forward(any(HttpServletRequest.class), any(HttpServletResponse.class));
+	}
+
+	@Test
+	public void defersToContainerWhenThereIsNoPrecompressedResource() throws Exception {
+		when(request.getRequestURI()).thenReturn("/contextName/app.js");
+		when(request.getContextPath()).thenReturn("/contextName");
+		when(compressionHandler.acceptsGzip(request)).thenReturn(true);
+
+		handler().deferProcessingToContainer(chain, request, response);
+		verify(chain).doFilter(request, response);
+	}
+
+	@Test
+	public void letsStaticFileServerServeFilesUnderItsPrefixes() throws Exception {
+		when(request.getRequestURI()).thenReturn("/contextName/assets/app.js");
+		when(request.getContextPath()).thenReturn("/contextName");
+		when(fileServer.isEnabled()).thenReturn(true);
+		when(fileServer.serve(request, response, "/assets/app.js")).thenReturn(true);
+
+		handler().deferProcessingToContainer(chain, request, response);
+
+		verify(chain, never()).doFilter(request, response);
+	}
+
+	@Test
+	public void cachesExistingAndMissingResourceLookups() throws Exception {
+		when(request.getContextPath()).thenReturn("/contextName");
+		when(context.getResource("/app.js")).thenReturn(file.toURI().toURL());
+		DefaultStaticContentHandler handler = handler();
+
+		when(request.getRequestURI()).thenReturn("/contextName/app.js");
+		handler.requestingStaticFile(request);
+		assertThat(handler.requestingStaticFile(request), is(true));
+
+		when(request.getRequestURI()).thenReturn("/contextName/products");
+		handler.requestingStaticFile(request);
+		assertThat(handler.requestingStaticFile(request), is(false));
+
+		verify(context, times(1)).getResource("/app.js");
+		verify(context, times(1)).getResource("/products");
+	}
+
+	@Test
+	public void doesNotCacheLookupsInDevelopmentWhenWebappIsNotExploded() throws Exception {
+		when(environment.isDevelopment()).thenReturn(true);
+		when(request.getRequestURI()).thenReturn("/contextName/products");
+		when(request.getContextPath()).thenReturn("/contextName");
+		DefaultStaticContentHandler handler = handler();
+
+		handler.requestingStaticFile(request);
+		handler.requestingStaticFile(request);
+
+		verify(context, times(2)).getResource("/products");
+	}
+
+	@Test
+	public void invalidatesCachedLookupsWhenWebappChangesInDevelopment() throws Exception {
+		File webapp = tmpdir.newFolder("webapp");
+		final File created = new File(webapp, "app.js");
+		when(environment.isDevelopment()).thenReturn(true);
+		when(context.getRealPath("/")).thenReturn(webapp.getAbsolutePath());
+		when(context.getResource("/app.js")).thenAnswer(new Answer<URL>() {
+			@Override
+			public URL answer(InvocationOnMock invocation) throws Throwable {
+				return created.exists() ? created.toURI().toURL() : null;
+			}
+		});
+		when(request.getRequestURI()).thenReturn("/contextName/app.js");
+		when(request.getContextPath()).thenReturn("/contextName");
+
+		DefaultStaticContentHandler handler = handler();
+		try {
+			assertThat(handler.requestingStaticFile(request), is(false));
+			assertThat(created.createNewFile(), is(true));
+
+			long deadline = System.currentTimeMillis() + 10000;
+			while (!handler.requestingStaticFile(request) && System.currentTimeMillis() < deadline) {
+				Thread.sleep(50);
+			}
+			assertThat(handler.requestingStaticFile(request), is(true));
+		} finally {
+			handler.destroy();
+		}
+	}
+
+	private DefaultStaticContentHandler handler() {
+		DefaultStaticContentHandler handler = new DefaultStaticContentHandler(context, compressionHandler,
+				fileServer, new CacheStoreFactory(), environment);
+		handler.init();
+		return handler;
+	}
 }
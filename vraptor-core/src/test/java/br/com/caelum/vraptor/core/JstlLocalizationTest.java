@@ -20,10 +20,15 @@ import static javax.servlet.jsp.jstl.core.Config.FMT_LOCALIZATION_CONTEXT;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assume.assumeThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.List;
 import java.util.ListResourceBundle;
 import java.util.Locale;
 import java.util.ResourceBundle;
@@ -37,6 +42,8 @@ import javax.servlet.jsp.jstl.fmt.LocalizationContext;
 import org.junit.Before;
 import org.junit.Test;
 
+import br.com.caelum.vraptor.cache.DefaultCacheStore;
+
 /**
  * Test class for {@link JstlLocalization}.
  * 
@@ -47,6 +54,7 @@ public class JstlLocalizationTest {
 	private static final Locale PT_BR = new Locale("pt", "BR");
 
 	private JstlLocalization localization;
+	private ApplicationLocalization application;
 
 	private HttpServletRequest request;
 	private ServletContext servletContext;
@@ -58,7 +66,8 @@ public class JstlLocalizationTest {
 		servletContext = mock(ServletContext.class);
 		session = mock(HttpSession.class);
 
-		localization = new JstlLocalization(request);
+		application = new ApplicationLocalization(servletContext, new DefaultCacheStore<List<Object>, ResourceBundle>());
+		localization = new JstlLocalization(request, application);
 
 		ResourceBundle bundle = new ListResourceBundle() {
 			@Override
@@ -70,7 +79,7 @@ public class JstlLocalizationTest {
 		LocalizationContext context = new LocalizationContext(bundle);
 		when(request.getAttribute(FMT_LOCALIZATION_CONTEXT + ".request")).thenReturn(context);
 
-		when(request.getSession()).thenReturn(session);
+		when(request.getSession(false)).thenReturn(session);
 		when(request.getServletContext()).thenReturn(servletContext);
 	}
 
@@ -150,4 +159,49 @@ public class JstlLocalizationTest {
 		assertThat(localization.getLocale().getCountry(), equalTo("BR"));
 		assertThat(localization.getLocale().getVariant(), equalTo("POSIX"));
 	}
+
+	@Test
+	public void shouldNotCreateSessionWhenLookingUpLocale() {
+		when(request.getSession(false)).thenReturn(null);
+		when(servletContext.getAttribute(FMT_LOCALE + ".application")).thenReturn(PT_BR);
+
+		assertThat(localization.getLocale(), equalTo(PT_BR));
+		verify(request, never()).getSession();
+	}
+
+	@Test
+	public void shouldReadApplicationLocaleOnlyOnce() {
+		when(servletContext.getAttribute(FMT_LOCALE + ".application")).thenReturn(PT_BR);
+
+		assertThat(localization.getLocale(), equalTo(PT_BR));
+		assertThat(new JstlLocalization(request, application).getLocale(), equalTo(PT_BR));
+
+		verify(servletContext, times(1)).getAttribute(FMT_LOCALE + ".application");
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void shouldStillReadApplicationLocaleWithOnlyTheRequest() {
+		when(servletContext.getAttribute(FMT_LOCALE + ".application")).thenReturn(PT_BR);
+
+		assertThat(new JstlLocalization(request).getLocale(), equalTo(PT_BR));
+	}
+
+	@Test
+	public void shouldReuseApplicationBundlesAcrossRequests() {
+		when(request.getAttribute(FMT_LOCALIZATION_CONTEXT + ".request")).thenReturn(null);
+		when(servletContext.getInitParameter(FMT_LOCALIZATION_CONTEXT)).thenReturn("missing.bundle");
+
+		ResourceBundle bundle = localization.getBundle(PT_BR);
+
+		assertThat(new JstlLocalization(request, application).getBundle(PT_BR), sameInstance(bundle));
+		assertThat(bundle.getString("any.key"), equalTo("???any.key???"));
+	}
+
+	@Test
+	public void shouldLetRequestOverrideApplicationBundle() {
+		when(servletContext.getInitParameter(FMT_LOCALIZATION_CONTEXT)).thenReturn("missing.bundle");
+
+		assertThat(localization.getBundle(PT_BR).getString("my.key"), equalTo("abc"));
+	}
 }
@@ -0,0 +1,232 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.core;
+
+import static br.com.caelum.vraptor.core.StaticFileServer.CACHE_CONTROL_KEY;
+import static br.com.caelum.vraptor.core.StaticFileServer.MEMORY_THRESHOLD_KEY;
+import static br.com.caelum.vraptor.core.StaticFileServer.PREFIXES_KEY;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import br.com.caelum.vraptor.cache.CacheStoreFactory;
+import br.com.caelum.vraptor.environment.Environment;
+import br.com.caelum.vraptor.http.compression.CompressionHandler;
+
+public class StaticFileServerTest {
+
+	@Rule
+	public TemporaryFolder webapp = new TemporaryFolder();
+
+	@Mock private ServletContext context;
+	@Mock private Environment environment;
+	@Mock private CompressionHandler compressionHandler;
+	@Mock private HttpServletRequest request;
+	@Mock private HttpServletResponse response;
+	private ByteArrayOutputStream output;
+
+	@Before
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+
+		when(environment.get(PREFIXES_KEY, "")).thenReturn("/assets/");
+		when(environment.get(CACHE_CONTROL_KEY, "")).thenReturn("public, max-age=600");
+		when(environment.get(MEMORY_THRESHOLD_KEY, "65536")).thenReturn("16");
+		when(context.getRealPath(anyString())).thenAnswer(new Answer<String>() {
+			@Override
+			public String answer(InvocationOnMock invocation) throws Throwable {
+				return new File(webapp.getRoot(), (String) invocation.getArguments()[0]).getPath();
+			}
+		});
+		when(context.getMimeType("/assets/app.js")).thenReturn("application/javascript");
+		when(request.getMethod()).thenReturn("GET");
+		when(request.getDateHeader(anyString())).thenReturn(-1L);
+
+		output = new ByteArrayOutputStream();
+		when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				output.write(b);
+			}
+
+			@Override
+			public boolean isReady() {
+				return true;
+			}
+
+			@Override
+			public void setWriteListener(WriteListener writeListener) {
+			}
+		});
+
+		webapp.newFolder("assets");
+		webapp.newFolder("WEB-INF");
+	}
+
+	@Test
+	public void shouldBeDisabledWithoutPrefixes() throws Exception {
+		when(environment.get(PREFIXES_KEY, "")).thenReturn("");
+		asset("app.js", "alert(1)");
+
+		assertThat(server().isEnabled(), is(false));
+		assertThat(server().serve(request, response, "/assets/app.js"), is(false));
+	}
+
+	@Test
+	public void shouldServeSmallFilesFromMemoryWithStrongEtag() throws Exception {
+		asset("app.js", "alert(1)");
+		StaticFileServer server = server();
+
+		assertThat(server.serve(request, response, "/assets/app.js"), is(true));
+		Files.delete(webapp.getRoot().toPath().resolve("assets/app.js"));
+		assertThat(server.serve(request, response, "/assets/app.js"), is(true));
+
+		assertThat(output.toString(), is("alert(1)alert(1)"));
+		verify(response, times(2)).setContentType("application/javascript");
+		verify(response, times(2)).setHeader("Cache-Control", "public, max-age=600");
+	}
+
+	@Test
+	public void shouldAnswerNotModifiedForMatchingEtag() throws Exception {
+		asset("app.js", "alert(1)");
+		StaticFileServer server = server();
+		server.serve(request, response, "/assets/app.js");
+
+		ArgumentCaptor<String> etag = ArgumentCaptor.forClass(String.class);
+		verify(response).setHeader(eq("ETag"), etag.capture());
+		assertThat(etag.getValue().matches("\"[0-9a-f]{32}\""), is(true));
+
+		output.reset();
+		when(request.getHeader("If-None-Match")).thenReturn(etag.getValue());
+		server.serve(request, response, "/assets/app.js");
+
+		verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+		assertThat(output.size(), is(0));
+	}
+
+	@Test
+	public void shouldTransferBigFilesAndAnswerRanges() throws Exception {
+		asset("app.js", "0123456789abcdefghij");
+		when(request.getHeader("Range")).thenReturn("bytes=10-14");
+
+		assertThat(server().serve(request, response, "/assets/app.js"), is(true));
+
+		assertThat(output.toString(), is("abcde"));
+		verify(response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+		verify(response).setHeader("Content-Range", "bytes 10-14/20");
+		verify(response, never()).setHeader(eq("Content-disposition"), anyString());
+	}
+
+	@Test
+	public void shouldServePrecompressedVariantWhenAccepted() throws Exception {
+		asset("app.js", "alert(1)");
+		asset("app.js.gz", "gzipped");
+		when(compressionHandler.acceptsGzip(request)).thenReturn(true);
+
+		server().serve(request, response, "/assets/app.js");
+
+		assertThat(output.toString(), is("gzipped"));
+		verify(response).setHeader("Content-Encoding", "gzip");
+		verify(response).addHeader("Vary", "Accept-Encoding");
+		verify(response).setContentType("application/javascript");
+	}
+
+	@Test
+	public void shouldLeaveOtherRequestsToTheContainer() throws Exception {
+		asset("app.js", "alert(1)");
+		Files.write(webapp.getRoot().toPath().resolve("WEB-INF/web.xml"), "<web-app/>".getBytes());
+		StaticFileServer server = server();
+
+		assertThat(server.serve(request, response, "/other/app.js"), is(false));
+		assertThat(server.serve(request, response, "/assets/missing.js"), is(false));
+		assertThat(server.serve(request, response, "/assets/../WEB-INF/web.xml"), is(false));
+
+		when(request.getMethod()).thenReturn("POST");
+		assertThat(server.serve(request, response, "/assets/app.js"), is(false));
+	}
+
+	@Test
+	public void shouldCheckTheNormalizedPathAgainstProtectedFolders() throws Exception {
+		when(environment.get(PREFIXES_KEY, "")).thenReturn("/");
+		Files.write(webapp.getRoot().toPath().resolve("WEB-INF/web.xml"), "<web-app/>".getBytes());
+		StaticFileServer server = server();
+
+		assertThat(server.serve(request, response, "//WEB-INF/web.xml"), is(false));
+		assertThat(server.serve(request, response, "/./WEB-INF/web.xml"), is(false));
+		assertThat(server.serve(request, response, "/a/../WEB-INF/web.xml"), is(false));
+		assertThat(server.serve(request, response, "/web-inf/web.xml"), is(false));
+		assertThat(output.size(), is(0));
+	}
+
+	@Test
+	public void shouldNormalizeUris() {
+		assertThat(StaticFileServer.normalize("//assets/./app.js"), is("/assets/app.js"));
+		assertThat(StaticFileServer.normalize("/assets//"), is("/assets/"));
+		assertThat(StaticFileServer.normalize("/"), is("/"));
+		assertThat(StaticFileServer.normalize("/assets/../app.js"), is(nullValue()));
+		assertThat(StaticFileServer.normalize("/assets\\app.js"), is(nullValue()));
+	}
+
+	@Test
+	public void shouldReloadChangedFilesInDevelopment() throws Exception {
+		when(environment.isDevelopment()).thenReturn(true);
+		asset("app.js", "alert(1)");
+		StaticFileServer server = server();
+		server.serve(request, response, "/assets/app.js");
+
+		asset("app.js", "alert(22)");
+		server.serve(request, response, "/assets/app.js");
+
+		assertThat(output.toString(), is("alert(1)alert(22)"));
+	}
+
+	private void asset(String name, String content) throws IOException {
+		Files.write(webapp.getRoot().toPath().resolve("assets").resolve(name), content.getBytes());
+	}
+
+	private StaticFileServer server() {
+		StaticFileServer server = new StaticFileServer(context, environment, compressionHandler, new CacheStoreFactory());
+		server.init();
+		return server;
+	}
+}
@@ -16,8 +16,11 @@
 package br.com.caelum.vraptor.environment;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -26,14 +29,18 @@ import java.io.IOException;
 import java.net.URL;
 import java.util.NoSuchElementException;
 
+import javax.enterprise.event.Event;
 import javax.servlet.ServletContext;
 
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
+import br.com.caelum.vraptor.events.EnvironmentChanged;
+
 public class DefaultEnvironmentTest {
 
 	@Rule
@@ -146,6 +153,55 @@ public class DefaultEnvironmentTest {
 		System.setProperty("env_name", "");
 	}
 	
+	@Test
+	public void shouldReadSystemPropertiesOnlyWhenLoadingSnapshot() {
+		DefaultEnvironment env = buildEnvironment(context);
+		System.setProperty("env_name", "customEnv");
+		try {
+			assertThat(env.get("env_name"), is("development"));
+
+			env.reload();
+			assertThat(env.get("env_name"), is("customEnv"));
+		} finally {
+			System.clearProperty("env_name");
+		}
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void shouldFireEventWithChangedKeysOnReload() {
+		Event<EnvironmentChanged> event = mock(Event.class);
+		DefaultEnvironment env = new DefaultEnvironment(context, event);
+		env.setup();
+
+		env.reload();
+		verify(event, never()).fire(any(EnvironmentChanged.class));
+
+		System.setProperty("env_name", "customEnv");
+		try {
+			env.reload();
+		} finally {
+			System.clearProperty("env_name");
+		}
+
+		ArgumentCaptor<EnvironmentChanged> changed = ArgumentCaptor.forClass(EnvironmentChanged.class);
+		verify(event).fire(changed.capture());
+		assertThat(changed.getValue().getChangedKeys(), contains("env_name"));
+		assertThat(changed.getValue().getEnvironment(), is((Environment) env));
+	}
+
+	@Test
+	public void shouldKeepApplicationOverridesOnReload() {
+		DefaultEnvironment env = buildEnvironment(context);
+		env.set("itWorks", "Yep, works fine.");
+		env.set("new_key", "new value");
+
+		env.reload();
+
+		assertThat(env.get("itWorks"), is("Yep, works fine."));
+		assertThat(env.get("new_key"), is("new value"));
+	}
+
 	private DefaultEnvironment buildEnvironment(EnvironmentType environmentType) {
 		DefaultEnvironment defaultEnvironment = new DefaultEnvironment(environmentType);
 		
@@ -0,0 +1,153 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.http;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.google.common.base.Strings;
+
+public class Utf8ResponseWriterTest {
+
+	private @Mock HttpServletResponse response;
+	private ByteArrayOutputStream outputStream;
+
+	@Before
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		outputStream = new ByteArrayOutputStream();
+
+		when(response.getCharacterEncoding()).thenReturn("UTF-8");
+		when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				outputStream.write(b);
+			}
+
+			@Override
+			public boolean isReady() {
+				return true;
+			}
+
+			@Override
+			public void setWriteListener(WriteListener writeListener) {
+			}
+		});
+	}
+
+	@Test
+	public void shouldUseContainerWriterWhenResponseIsNotUtf8() throws Exception {
+		PrintWriter containerWriter = new PrintWriter(new ByteArrayOutputStream());
+		when(response.getCharacterEncoding()).thenReturn("ISO-8859-1");
+		when(response.getWriter()).thenReturn(containerWriter);
+
+		assertThat(Utf8ResponseWriter.writerFor(response), is(sameInstance((Writer) containerWriter)));
+	}
+
+	@Test
+	public void shouldEncodeCharsAsUtf8() throws Exception {
+		String content = "ação € 😀 {\"name\":\"x\"}";
+
+		Writer writer = Utf8ResponseWriter.writerFor(response);
+		assertThat(writer, instanceOf(Utf8ResponseWriter.class));
+		writer.write(content);
+		writer.close();
+
+		assertArrayEquals(content.getBytes(StandardCharsets.UTF_8), outputStream.toByteArray());
+	}
+
+	@Test
+	public void shouldReplaceUnpairedSurrogates() throws Exception {
+		Writer writer = new Utf8ResponseWriter(response);
+		writer.write("a\uD83Db\uDE00");
+		writer.close();
+
+		assertThat(outputStream.toString("UTF-8"), is("a?b?"));
+	}
+
+	@Test
+	public void shouldSetContentLengthWhenPayloadFitsInBuffer() throws Exception {
+		Writer writer = new Utf8ResponseWriter(response);
+		writer.write("{\"id\":é}");
+		writer.flush();
+		writer.close();
+
+		verify(response).setContentLength(9);
+		assertThat(outputStream.toString("UTF-8"), is("{\"id\":é}"));
+	}
+
+	@Test
+	public void shouldStreamWithoutContentLengthWhenPayloadOverflowsBuffer() throws Exception {
+		String content = Strings.repeat("x", Utf8ResponseWriter.BUFFER_SIZE * 2 + 7);
+
+		Writer writer = new Utf8ResponseWriter(response);
+		writer.write(content);
+		writer.close();
+
+		verify(response, never()).setContentLength(anyInt());
+		assertThat(outputStream.toString("UTF-8"), is(content));
+	}
+
+	@Test
+	public void shouldIgnoreCompleteForContainerWriters() throws Exception {
+		PrintWriter containerWriter = new PrintWriter(new ByteArrayOutputStream());
+		Utf8ResponseWriter.complete(containerWriter);
+
+		containerWriter.write("still open");
+		assertThat(containerWriter.checkError(), is(false));
+	}
+
+	@Test
+	public void shouldNotSendAnythingWhenDiscarded() throws Exception {
+		Writer writer = Utf8ResponseWriter.writerFor(response);
+		writer.write("partial");
+		Utf8ResponseWriter.discard(writer);
+		writer.close();
+
+		assertThat(outputStream.size(), is(0));
+		verify(response, never()).getOutputStream();
+		verify(response, never()).setContentLength(anyInt());
+	}
+
+	@Test(expected = IOException.class)
+	public void shouldRejectWritesAfterDiscard() throws Exception {
+		Writer writer = Utf8ResponseWriter.writerFor(response);
+		Utf8ResponseWriter.discard(writer);
+		writer.write("late");
+	}
+}
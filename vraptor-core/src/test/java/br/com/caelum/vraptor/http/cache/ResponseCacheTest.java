@@ -0,0 +1,348 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.http.cache;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import br.com.caelum.vraptor.cache.CacheStoreFactory;
+import br.com.caelum.vraptor.environment.Environment;
+import br.com.caelum.vraptor.util.test.MockHttpServletResponse;
+
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.ListMultimap;
+
+public class ResponseCacheTest {
+
+	private Environment environment;
+	private ResponseCache cache;
+
+	@Before
+	public void setup() {
+		environment = mock(Environment.class);
+		when(environment.supports(ResponseCache.ENABLED_KEY)).thenReturn(true);
+		when(environment.get(anyString(), anyString())).thenAnswer(new Answer<String>() {
+			@Override
+			public String answer(InvocationOnMock invocation) {
+				return (String) invocation.getArguments()[1];
+			}
+		});
+		when(environment.get(ResponseCache.MAX_SIZE_KEY, "1048576")).thenReturn("16");
+		cache = newCache();
+	}
+
+	@Test
+	public void shouldDoNothingWhenDisabled() throws IOException {
+		when(environment.supports(ResponseCache.ENABLED_KEY)).thenReturn(false);
+		cache = newCache();
+		HttpServletRequest request = get("/musics");
+		FakeResponse response = new FakeResponse();
+
+		assertThat(cache.serve(request, response), is(false));
+		assertThat(cache.capture(request, response), sameInstance((HttpServletResponse) response));
+	}
+
+	@Test
+	public void shouldServeStoredResponsesWithEntityTag() throws IOException {
+		FakeResponse first = execute(get("/musics"), "public, max-age=60", "[musics]");
+		assertThat(first.body(), is("[musics]"));
+		String etag = first.getHeader("ETag");
+		assertThat(etag, notNullValue());
+
+		FakeResponse second = new FakeResponse();
+		assertThat(cache.serve(get("/musics"), second), is(true));
+		assertThat(second.getStatus(), is(200));
+		assertThat(second.body(), is("[musics]"));
+		assertThat(second.getHeader("ETag"), is(etag));
+		assertThat(second.getContentType(), is("application/json"));
+	}
+
+	@Test
+	public void shouldNotServeResponsesStoredForAnotherHost() throws IOException {
+		HttpServletRequest request = get("/musics");
+		when(request.getServerName()).thenReturn("one.example.com");
+		execute(request, "public, max-age=60", "[musics]");
+
+		HttpServletRequest other = get("/musics");
+		when(other.getServerName()).thenReturn("other.example.com");
+		assertThat(cache.serve(other, new FakeResponse()), is(false));
+	}
+
+	@Test
+	public void shouldAnswerMatchingEntityTagsWithNotModified() throws IOException {
+		String etag = execute(get("/musics"), "public, max-age=60", "[musics]").getHeader("ETag");
+
+		HttpServletRequest request = get("/musics");
+		when(request.getHeader("If-None-Match")).thenReturn(etag);
+		FakeResponse response = new FakeResponse();
+
+		assertThat(cache.serve(request, response), is(true));
+		assertThat(response.getStatus(), is(304));
+		assertThat(response.body(), is(""));
+	}
+
+	@Test
+	public void shouldAnswerNotModifiedWhenStoringTheResponse() throws IOException {
+		FakeResponse first = execute(get("/musics"), "public, max-age=60", "[musics]");
+
+		cache.invalidateAll();
+		HttpServletRequest request = get("/musics");
+		when(request.getHeader("If-None-Match")).thenReturn(first.getHeader("ETag"));
+		FakeResponse second = execute(request, "public, max-age=60", "[musics]");
+
+		assertThat(second.getStatus(), is(304));
+		assertThat(second.body(), is(""));
+	}
+
+	@Test
+	public void shouldNotStoreResponsesWithoutMaxAge() throws IOException {
+		FakeResponse first = execute(get("/musics"), "private, max-age=60", "[musics]");
+		assertThat(first.body(), is("[musics]"));
+
+		FakeResponse second = new FakeResponse();
+		assertThat(cache.serve(get("/musics"), second), is(false));
+		assertThat(cache.capture(get("/musics"), second), sameInstance((HttpServletResponse) second));
+	}
+
+	@Test
+	public void shouldOnlyStoreResponsesMeantForSharedCaches() throws IOException {
+		execute(get("/musics"), "max-age=60", "[musics]");
+		assertThat(cache.serve(get("/musics"), new FakeResponse()), is(false));
+
+		cache.invalidateAll();
+		execute(get("/musics"), "s-maxage=60", "[musics]");
+		assertThat(cache.serve(get("/musics"), new FakeResponse()), is(true));
+	}
+
+	@Test
+	public void shouldNeitherStoreNorServeAuthorizedRequests() throws IOException {
+		HttpServletRequest authorized = get("/musics");
+		when(authorized.getHeader("Authorization")).thenReturn("Basic dXNlcjpwYXNz");
+		FakeResponse response = new FakeResponse();
+		assertThat(cache.capture(authorized, response), sameInstance((HttpServletResponse) response));
+
+		execute(get("/musics"), "public, max-age=60", "[musics]");
+		assertThat(cache.serve(authorized, new FakeResponse()), is(false));
+		assertThat(cache.serve(get("/musics"), new FakeResponse()), is(true));
+	}
+
+	@Test
+	public void shouldLetNonBlockingWritesThroughWithoutStoringThem() throws IOException {
+		HttpServletRequest request = get("/musics");
+		FakeResponse response = new FakeResponse();
+		HttpServletResponse capturing = cache.capture(request, response);
+		write(capturing, "public, max-age=60", "[mus");
+
+		capturing.getOutputStream().setWriteListener(mock(WriteListener.class));
+		assertThat(response.body(), is("[mus"));
+		capturing.getOutputStream().write("ics]".getBytes("UTF-8"));
+		assertThat(response.body(), is("[musics]"));
+
+		cache.complete(request, capturing);
+		assertThat(response.body(), is("[musics]"));
+		assertThat(cache.serve(get("/musics"), new FakeResponse()), is(false));
+	}
+
+	@Test
+	public void shouldSendWhatWasCapturedOnceDetached() throws IOException {
+		HttpServletRequest request = get("/musics");
+		FakeResponse response = new FakeResponse();
+		HttpServletResponse capturing = cache.capture(request, response);
+		write(capturing, "public, max-age=60", "[musics]");
+
+		cache.detach(capturing);
+		assertThat(response.body(), is(""));
+		capturing.flushBuffer();
+		assertThat(response.body(), is("[musics]"));
+
+		cache.complete(request, capturing);
+		assertThat(cache.serve(get("/musics"), new FakeResponse()), is(false));
+	}
+
+	@Test
+	public void shouldSendButNotStoreBodiesLargerThanMaxSize() throws IOException {
+		FakeResponse first = execute(get("/musics"), "public, max-age=60", "[a very long list of musics]");
+		assertThat(first.body(), is("[a very long list of musics]"));
+
+		assertThat(cache.serve(get("/musics"), new FakeResponse()), is(false));
+	}
+
+	@Test
+	public void shouldKeyResponsesByVaryHeaders() throws IOException {
+		HttpServletRequest gzip = get("/musics");
+		when(gzip.getHeader("accept-encoding")).thenReturn("gzip");
+		FakeResponse response = new FakeResponse();
+		HttpServletResponse capturing = cache.capture(gzip, response);
+		capturing.addHeader("Vary", "Accept-Encoding");
+		write(capturing, "public, max-age=60", "gzipped");
+		cache.complete(gzip, capturing);
+
+		HttpServletRequest identity = get("/musics");
+		assertThat(cache.serve(identity, new FakeResponse()), is(false));
+		assertThat(cache.serve(gzip, new FakeResponse()), is(true));
+	}
+
+	@Test
+	public void shouldMakeConcurrentMissesWaitForTheFirstOne() throws Exception {
+		HttpServletRequest request = get("/musics");
+		FakeResponse first = new FakeResponse();
+		assertThat(cache.serve(request, first), is(false));
+		final HttpServletResponse capturing = cache.capture(request, first);
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		final FakeResponse second = new FakeResponse();
+		Future<Boolean> served = executor.submit(new Callable<Boolean>() {
+			@Override
+			public Boolean call() throws Exception {
+				return cache.serve(get("/musics"), second);
+			}
+		});
+
+		Thread.sleep(50);
+		assertThat(served.isDone(), is(false));
+		write(capturing, "public, max-age=60", "[musics]");
+		cache.complete(request, capturing);
+
+		assertThat(served.get(1, TimeUnit.SECONDS), is(true));
+		assertThat(second.body(), is("[musics]"));
+		executor.shutdown();
+	}
+
+	@Test
+	public void shouldNotWaitForResourcesThatWereNotStored() throws Exception {
+		execute(get("/musics"), "no-store", "[musics]");
+
+		HttpServletRequest request = get("/musics");
+		assertThat(cache.serve(request, new FakeResponse()), is(false));
+	}
+
+	private ResponseCache newCache() {
+		CacheStoreFactory factory = new CacheStoreFactory();
+		ResponseCache cache = new ResponseCache(environment, factory.<CachedResponse, String>createCacheWrapper(100),
+				factory.<List<String>, String>createCacheWrapper(100),
+				factory.<Boolean, String>createCacheWrapper(100));
+		cache.init();
+		return cache;
+	}
+
+	private FakeResponse execute(HttpServletRequest request, String cacheControl, String body) throws IOException {
+		FakeResponse response = new FakeResponse();
+		assertThat(cache.serve(request, response), is(false));
+		HttpServletResponse capturing = cache.capture(request, response);
+		write(capturing, cacheControl, body);
+		cache.complete(request, capturing);
+		cache.release(capturing);
+		return response;
+	}
+
+	private void write(HttpServletResponse response, String cacheControl, String body) throws IOException {
+		response.setStatus(200);
+		response.setContentType("application/json");
+		response.setHeader("Cache-Control", cacheControl);
+		response.getOutputStream().write(body.getBytes("UTF-8"));
+	}
+
+	private static HttpServletRequest get(String uri) {
+		HttpServletRequest request = mock(HttpServletRequest.class);
+		when(request.getMethod()).thenReturn("GET");
+		when(request.getRequestURI()).thenReturn(uri);
+		return request;
+	}
+
+	static class FakeResponse extends MockHttpServletResponse {
+		private final ListMultimap<String, String> headers = LinkedListMultimap.create();
+		private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+		String body() {
+			return new String(body.toByteArray());
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() {
+			return new ServletOutputStream() {
+				@Override
+				public void write(int b) {
+					body.write(b);
+				}
+
+				@Override
+				public boolean isReady() {
+					return true;
+				}
+
+				@Override
+				public void setWriteListener(WriteListener writeListener) {
+				}
+			};
+		}
+
+		@Override
+		public boolean containsHeader(String name) {
+			return headers.containsKey(name);
+		}
+
+		@Override
+		public void setHeader(String name, String value) {
+			headers.replaceValues(name, Collections.singleton(value));
+		}
+
+		@Override
+		public void addHeader(String name, String value) {
+			headers.put(name, value);
+		}
+
+		@Override
+		public String getHeader(String name) {
+			return headers.containsKey(name) ? headers.get(name).get(0) : null;
+		}
+
+		@Override
+		public Collection<String> getHeaders(String name) {
+			return headers.get(name);
+		}
+
+		@Override
+		public Collection<String> getHeaderNames() {
+			return headers.keySet();
+		}
+	}
+}
@@ -0,0 +1,288 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.http.compression;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import br.com.caelum.vraptor.environment.Environment;
+import br.com.caelum.vraptor.http.VRaptorResponse;
+
+import com.google.common.base.Strings;
+import com.google.common.io.ByteStreams;
+
+public class CompressingResponseTest {
+
+	private @Mock HttpServletResponse response;
+	private @Mock HttpServletRequest request;
+	private @Mock Environment environment;
+	private ByteArrayOutputStream outputStream;
+	private CompressionHandler handler;
+
+	@Before
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		outputStream = new ByteArrayOutputStream();
+
+		when(environment.supports(CompressionHandler.ENABLED_KEY)).thenReturn(true);
+		when(environment.get(CompressionHandler.THRESHOLD_KEY, "1024")).thenReturn("64");
+		when(environment.get(eq(CompressionHandler.TYPES_KEY), anyString())).thenReturn("application/json,text/*");
+		when(environment.get(CompressionHandler.LEVEL_KEY, "-1")).thenReturn("-1");
+		handler = new CompressionHandler(environment);
+		handler.init();
+
+		when(response.getCharacterEncoding()).thenReturn("UTF-8");
+		when(response.getContentType()).thenReturn("application/json;charset=UTF-8");
+		when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				outputStream.write(b);
+			}
+
+			@Override
+			public boolean isReady() {
+				return true;
+			}
+
+			@Override
+			public void setWriteListener(WriteListener writeListener) {
+			}
+		});
+	}
+
+	@Test
+	public void shouldNotWrapWhenClientDoesNotAcceptCompression() {
+		when(request.getHeader("Accept-Encoding")).thenReturn("identity, gzip;q=0");
+		assertThat(handler.wrap(request, response), is(response));
+	}
+
+	@Test
+	public void shouldPreferGzipOverDeflate() {
+		when(request.getHeader("Accept-Encoding")).thenReturn("deflate, gzip");
+		assertThat(handler.negotiate(request), is(ContentEncoding.GZIP));
+
+		when(request.getHeader("Accept-Encoding")).thenReturn("deflate");
+		assertThat(handler.negotiate(request), is(ContentEncoding.DEFLATE));
+
+		when(request.getHeader("Accept-Encoding")).thenReturn(null);
+		assertThat(handler.negotiate(request), is(nullValue()));
+	}
+
+	@Test
+	public void shouldChooseTheCodingWithHighestQuality() {
+		when(request.getHeader("Accept-Encoding")).thenReturn("deflate, gzip;q=0.8");
+		assertThat(handler.negotiate(request), is(ContentEncoding.DEFLATE));
+
+		when(request.getHeader("Accept-Encoding")).thenReturn("*;q=0.5, deflate;q=0.2");
+		assertThat(handler.negotiate(request), is(ContentEncoding.GZIP));
+
+		when(request.getHeader("Accept-Encoding")).thenReturn("gzip;q=0.1, identity;q=1");
+		assertThat(handler.negotiate(request), is(nullValue()));
+	}
+
+	@Test
+	public void shouldGzipBodiesBiggerThanThreshold() throws Exception {
+		String body = Strings.repeat("{\"name\":\"vraptor\"}", 20);
+		CompressingResponse compressing = new CompressingResponse(response, ContentEncoding.GZIP, handler);
+
+		PrintWriter writer = compressing.getWriter();
+		writer.write(body);
+		CompressingResponse.complete(new VRaptorResponse(compressing));
+
+		verify(response).setHeader("Content-Encoding", "gzip");
+		verify(response).addHeader("Vary", "Accept-Encoding");
+		verify(response, never()).setContentLengthLong(anyLong());
+		byte[] inflated = ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(outputStream.toByteArray())));
+		assertThat(new String(inflated, "UTF-8"), is(body));
+	}
+
+	@Test
+	public void shouldWeakenEntityTagsOfCompressedBodies() throws Exception {
+		when(response.getHeader("ETag")).thenReturn("\"v1\"");
+		CompressingResponse compressing = new CompressingResponse(response, ContentEncoding.GZIP, handler);
+		compressing.setHeader("ETag", "\"v1\"");
+
+		compressing.getWriter().write(Strings.repeat("{\"name\":\"vraptor\"}", 20));
+		CompressingResponse.complete(new VRaptorResponse(compressing));
+		compressing.setHeader("ETag", "\"v2\"");
+
+		verify(response).setHeader("ETag", "W/\"v1\"");
+		verify(response).setHeader("ETag", "W/\"v2\"");
+	}
+
+	@Test
+	public void shouldKeepStrongEntityTagsOfBodiesSentAsTheyAre() throws Exception {
+		CompressingResponse compressing = new CompressingResponse(response, ContentEncoding.GZIP, handler);
+		compressing.setHeader("ETag", "\"v1\"");
+
+		compressing.getWriter().write("{}");
+		CompressingResponse.complete(new VRaptorResponse(compressing));
+
+		verify(response).setHeader("ETag", "\"v1\"");
+		verify(response, never()).setHeader("ETag", "W/\"v1\"");
+	}
+
+	@Test
+	public void shouldDeflateBodiesBiggerThanThreshold() throws Exception {
+		byte[] body = Strings.repeat("abc", 100).getBytes("UTF-8");
+		CompressingResponse compressing = new CompressingResponse(response, ContentEncoding.DEFLATE, handler);
+
+		compressing.getOutputStream().write(body);
+		compressing.finish();
+
+		verify(response).setHeader("Content-Encoding", "deflate");
+		byte[] inflated = ByteStreams.toByteArray(new InflaterInputStream(new ByteArrayInputStream(outputStream.toByteArray())));
+		assertArrayEquals(body, inflated);
+	}
+
+	@Test
+	public void shouldSendSmallBodiesUncompressedWithContentLength() throws Exception {
+		byte[] body = "{\"id\":1}".getBytes("UTF-8");
+		CompressingResponse compressing = new CompressingResponse(response, ContentEncoding.GZIP, handler);
+
+		compressing.getOutputStream().write(body);
+		compressing.finish();
+
+		verify(response, never()).setHeader("Content-Encoding", "gzip");
+		verify(response).setContentLengthLong(body.length);
+		assertArrayEquals(body, outputStream.toByteArray());
+	}
+
+	@Test
+	public void shouldNotCompressContentTypesNotConfigured() throws Exception {
+		when(response.getContentType()).thenReturn("image/png");
+		byte[] body = new byte[200];
+		CompressingResponse compressing = new CompressingResponse(response, ContentEncoding.GZIP, handler);
+
+		compressing.setContentLength(body.length);
+		compressing.getOutputStream().write(body);
+		compressing.finish();
+
+		verify(response, never()).setHeader("Content-Encoding", "gzip");
+		verify(response).setContentLengthLong(body.length);
+		assertArrayEquals(body, outputStream.toByteArray());
+	}
+
+	@Test
+	public void shouldHoldContentLengthSetByApplicationWhenCompressing() throws Exception {
+		byte[] body = new byte[200];
+		CompressingResponse compressing = new CompressingResponse(response, ContentEncoding.GZIP, handler);
+
+		compressing.setHeader("Content-Length", "200");
+		compressing.getOutputStream().write(body);
+		compressing.finish();
+
+		verify(response, never()).setContentLengthLong(anyLong());
+		verify(response, never()).setHeader("Content-Length", "200");
+	}
+
+	@Test
+	public void shouldVaryOnAcceptEncodingForCompressibleBodiesSentAsTheyAre() throws Exception {
+		CompressingResponse compressing = new CompressingResponse(response, ContentEncoding.GZIP, handler);
+
+		compressing.getOutputStream().write("{}".getBytes("UTF-8"));
+		compressing.finish();
+
+		verify(response).addHeader("Vary", "Accept-Encoding");
+	}
+
+	@Test
+	public void shouldNotCompressPartialContent() throws Exception {
+		when(response.getStatus()).thenReturn(HttpServletResponse.SC_PARTIAL_CONTENT);
+		byte[] body = new byte[200];
+		CompressingResponse compressing = new CompressingResponse(response, ContentEncoding.GZIP, handler);
+
+		compressing.getOutputStream().write(body);
+		compressing.finish();
+
+		verify(response, never()).setHeader("Content-Encoding", "gzip");
+		assertArrayEquals(body, outputStream.toByteArray());
+	}
+
+	@Test
+	public void shouldDropBufferedBodyWhenReleasedBeforeCompleting() throws Exception {
+		CompressingResponse compressing = new CompressingResponse(response, ContentEncoding.GZIP, handler);
+
+		compressing.getOutputStream().write("{}".getBytes("UTF-8"));
+		CompressingResponse.release(new VRaptorResponse(compressing));
+		compressing.finish();
+
+		assertThat(outputStream.size(), is(0));
+		verify(response, never()).getOutputStream();
+	}
+
+	@Test
+	public void shouldFinishCompressedBodyWhenReleased() throws Exception {
+		String body = Strings.repeat("abc", 100);
+		CompressingResponse compressing = new CompressingResponse(response, ContentEncoding.GZIP, handler);
+
+		compressing.getOutputStream().write(body.getBytes("UTF-8"));
+		CompressingResponse.release(compressing);
+
+		byte[] inflated = ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(outputStream.toByteArray())));
+		assertThat(new String(inflated, "UTF-8"), is(body));
+	}
+
+	@Test
+	public void shouldSendBodyAsItIsWhenCompressionIsSkipped() throws Exception {
+		byte[] body = Strings.repeat("abc", 100).getBytes("UTF-8");
+		CompressingResponse compressing = new CompressingResponse(response, ContentEncoding.GZIP, handler);
+
+		compressing.setContentLength(body.length);
+		CompressingResponse.skipCompression(new VRaptorResponse(compressing));
+		compressing.getOutputStream().write(body);
+		compressing.finish();
+
+		verify(response, never()).setHeader("Content-Encoding", "gzip");
+		verify(response).setContentLengthLong(body.length);
+		assertArrayEquals(body, outputStream.toByteArray());
+	}
+
+	@Test
+	public void shouldReuseDeflaters() throws Exception {
+		DeflaterPool pool = new DeflaterPool(-1, 1);
+		Deflater deflater = pool.acquire(true);
+		pool.release(deflater, true);
+
+		assertThat(pool.acquire(true), is(deflater));
+	}
+}
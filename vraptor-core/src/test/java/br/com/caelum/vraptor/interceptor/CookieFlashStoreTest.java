@@ -0,0 +1,202 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.interceptor;
+
+import static br.com.caelum.vraptor.interceptor.CookieFlashStore.COOKIE_NAME;
+import static br.com.caelum.vraptor.interceptor.CookieFlashStore.MAX_AGE_KEY;
+import static br.com.caelum.vraptor.interceptor.CookieFlashStore.MAX_SIZE_KEY;
+import static br.com.caelum.vraptor.interceptor.CookieFlashStore.SECRET_KEY;
+import static java.util.Collections.singletonMap;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import br.com.caelum.vraptor.environment.Environment;
+import br.com.caelum.vraptor.http.MutableResponse;
+import br.com.caelum.vraptor.validator.Message;
+import br.com.caelum.vraptor.validator.MessageList;
+import br.com.caelum.vraptor.validator.Severity;
+import br.com.caelum.vraptor.validator.SimpleMessage;
+
+public class CookieFlashStoreTest {
+
+	private @Mock HttpServletRequest request;
+	private @Mock MutableResponse response;
+	private @Mock Environment environment;
+	private CookieFlashStore store;
+
+	@Before
+	public void setUp() {
+		MockitoAnnotations.initMocks(this);
+		when(environment.get(SECRET_KEY, null)).thenReturn("secret");
+		when(environment.get(MAX_SIZE_KEY, "4000")).thenReturn("4000");
+		when(environment.get(MAX_AGE_KEY, "300")).thenReturn("300");
+		when(request.getContextPath()).thenReturn("/app");
+
+		store = new CookieFlashStore(request, response, environment);
+		store.init();
+	}
+
+	@Test
+	public void shouldReturnNullWhenThereIsNoFlashCookie() {
+		assertThat(store.consume(), nullValue());
+		verify(response, never()).addCookie(any(Cookie.class));
+	}
+
+	@Test
+	public void shouldStoreParametersInASignedCookie() throws Exception {
+		store.store(singletonMap("message", (Object) "saved"));
+
+		Cookie cookie = addedCookie();
+		assertThat(cookie.getName(), equalTo(COOKIE_NAME));
+		assertThat(cookie.getPath(), equalTo("/app"));
+		assertThat(cookie.isHttpOnly(), equalTo(true));
+		assertThat(cookie.getMaxAge(), equalTo(300));
+		assertThat(store.decode(cookie.getValue()), equalTo(singletonMap("message", (Object) "saved")));
+	}
+
+	@Test
+	public void shouldConsumeAndExpireTheCookie() {
+		String value = store.encode(singletonMap("message", (Object) "saved"));
+		when(request.getCookies()).thenReturn(new Cookie[] { new Cookie(COOKIE_NAME, value) });
+
+		assertThat(store.consume(), equalTo(singletonMap("message", (Object) "saved")));
+		assertThat(addedCookie().getMaxAge(), equalTo(0));
+	}
+
+	@Test
+	public void shouldIgnoreCookiesSignedWithAnotherSecret() {
+		CookieFlashStore other = new CookieFlashStore(request, response, environment);
+		when(environment.get(SECRET_KEY, null)).thenReturn("another secret");
+		other.init();
+
+		String value = other.encode(singletonMap("message", (Object) "forged"));
+		when(request.getCookies()).thenReturn(new Cookie[] { new Cookie(COOKIE_NAME, value) });
+
+		assertThat(store.consume(), nullValue());
+	}
+
+	@Test
+	public void shouldIgnoreTamperedCookies() {
+		String value = store.encode(singletonMap("message", (Object) "saved"));
+		String tampered = "A" + value.substring(1);
+		when(request.getCookies()).thenReturn(new Cookie[] { new Cookie(COOKIE_NAME, tampered) });
+
+		assertThat(store.consume(), nullValue());
+	}
+
+	@Test
+	public void shouldIgnoreExpiredCookies() {
+		CookieFlashStore later = new CookieFlashStore(request, response, environment) {
+			@Override
+			long now() {
+				return System.currentTimeMillis() + 301 * 1000L;
+			}
+		};
+		later.init();
+
+		String value = store.encode(singletonMap("message", (Object) "saved"));
+		when(request.getCookies()).thenReturn(new Cookie[] { new Cookie(COOKIE_NAME, value) });
+
+		assertThat(later.consume(), nullValue());
+	}
+
+	@Test
+	public void shouldNotStoreParametersBiggerThanTheLimit() {
+		when(environment.get(MAX_SIZE_KEY, "4000")).thenReturn("64");
+		store.init();
+
+		Map<String, Object> parameters = new HashMap<>();
+		for (int i = 0; i < 100; i++) {
+			parameters.put("key" + i, "value " + i);
+		}
+		store.store(parameters);
+
+		verify(response, never()).addCookie(any(Cookie.class));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void shouldRequireASecret() {
+		when(environment.get(SECRET_KEY, null)).thenReturn(null);
+		new CookieFlashStore(request, response, environment).init();
+	}
+
+	@Test
+	public void shouldKeepPlainValuesAndValidationMessages() throws Exception {
+		Map<String, Object> parameters = new HashMap<>();
+		parameters.put("id", 42L);
+		parameters.put("price", new BigDecimal("10.50"));
+		parameters.put("when", new Date(1000));
+		parameters.put("tags", Arrays.asList("a", null, 3));
+		parameters.put("errors", new MessageList(Arrays.<Message> asList(new SimpleMessage("name", "is required"))));
+
+		Map<String, Object> decoded = store.decode(store.encode(parameters));
+
+		assertThat(decoded.get("id"), equalTo((Object) 42L));
+		assertThat(decoded.get("price"), equalTo((Object) new BigDecimal("10.50")));
+		assertThat(decoded.get("when"), equalTo((Object) new Date(1000)));
+		assertThat(decoded.get("tags"), equalTo((Object) Arrays.asList("a", null, 3)));
+		MessageList errors = (MessageList) decoded.get("errors");
+		assertThat(errors.from("name").toString(), equalTo("is required"));
+		assertThat(errors.get(0).getSeverity(), equalTo(Severity.ERROR));
+	}
+
+	@Test
+	public void shouldKeepMessagesWithoutCategoryOrSeverity() throws Exception {
+		Map<String, Object> parameters = new HashMap<>();
+		parameters.put("notice", new SimpleMessage(null, "saved", (Severity) null));
+
+		Message notice = (Message) store.decode(store.encode(parameters)).get("notice");
+
+		assertThat(notice.getCategory(), nullValue());
+		assertThat(notice.getMessage(), equalTo("saved"));
+		assertThat(notice.getSeverity(), nullValue());
+	}
+
+	@Test
+	public void shouldNotKeepValuesThatAreNotPlainData() throws Exception {
+		Map<String, Object> parameters = new HashMap<>();
+		parameters.put("message", "saved");
+		parameters.put("thread", new Thread());
+
+		assertThat(store.decode(store.encode(parameters)), equalTo(singletonMap("message", (Object) "saved")));
+	}
+
+	private Cookie addedCookie() {
+		ArgumentCaptor<Cookie> cookie = ArgumentCaptor.forClass(Cookie.class);
+		verify(response).addCookie(cookie.capture());
+		return cookie.getValue();
+	}
+}
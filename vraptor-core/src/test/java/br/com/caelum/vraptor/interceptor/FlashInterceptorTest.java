@@ -29,6 +29,7 @@ import static org.mockito.Mockito.when;
 import java.util.Collections;
 import java.util.Map;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
@@ -52,6 +53,7 @@ import br.com.caelum.vraptor.http.VRaptorResponse;
 public class FlashInterceptorTest {
 
 
+	private @Mock HttpServletRequest request;
 	private @Mock HttpSession session;
 	private @Mock Result result;
 	private @Mock InterceptorStack stack;
@@ -63,8 +65,11 @@ public class FlashInterceptorTest {
 	public void setUp() throws Exception {
 		MockitoAnnotations.initMocks(this);
 		
+		when(request.getSession(false)).thenReturn(session);
+		when(request.getSession()).thenReturn(session);
+
 		response = new VRaptorResponse(mockResponse);
-		interceptor = new FlashInterceptor(session, result, response);
+		interceptor = new FlashInterceptor(new SessionFlashStore(request), result, response);
 	}
 
 	@Test
@@ -108,6 +113,17 @@ public class FlashInterceptorTest {
 		
 		verify(session).setAttribute(FLASH_INCLUDED_PARAMETERS, parameters);
 	}
+	@Test
+	@SuppressWarnings("deprecation")
+	public void shouldStillAcceptASessionDirectly() throws Exception {
+		when(session.getAttribute(FLASH_INCLUDED_PARAMETERS)).thenReturn(singletonMap("Abc", 1002));
+
+		new FlashInterceptor(session, result, response).intercept(stack, null, null);
+
+		verify(result).include("Abc", 1002);
+		verify(request, never()).getSession(false);
+	}
+
 	@Test
 	public void shouldNotIncludeFlashParametersWhenThereIsNoIncludedParameter() throws Exception {
 		Map<String, Object> parameters = Collections.emptyMap();
@@ -132,4 +148,29 @@ public class FlashInterceptorTest {
 		interceptor.intercept(stack, null, null);
 		response.sendRedirect("Anything");
 	}
+
+	@Test
+	public void shouldNotCreateSessionWhenThereIsNone() throws Exception {
+		when(request.getSession(false)).thenReturn(null);
+		when(result.included()).thenReturn(Collections.<String, Object>emptyMap());
+
+		interceptor.intercept(stack, null, null);
+		response.sendRedirect("Anything");
+
+		verify(request, never()).getSession();
+		verifyZeroInteractions(session);
+	}
+
+	@Test
+	public void shouldCreateSessionWhenARedirectIncludesParameters() throws Exception {
+		Map<String, Object> parameters = Collections.<String, Object>singletonMap("Abc", 1002);
+
+		when(request.getSession(false)).thenReturn(null);
+		when(result.included()).thenReturn(parameters);
+
+		interceptor.intercept(stack, null, null);
+		response.sendRedirect("Anything");
+
+		verify(session).setAttribute(FLASH_INCLUDED_PARAMETERS, parameters);
+	}
 }
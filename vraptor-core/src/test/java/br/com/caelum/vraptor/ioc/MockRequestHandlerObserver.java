@@ -30,6 +30,8 @@ import br.com.caelum.vraptor.events.RequestSucceded;
 import br.com.caelum.vraptor.events.VRaptorRequestStarted;
 import br.com.caelum.vraptor.http.UrlToControllerTranslator;
 import br.com.caelum.vraptor.observer.RequestHandlerObserver;
+import br.com.caelum.vraptor.observer.coalesce.CoalescingDispatcher;
+import br.com.caelum.vraptor.observer.offload.OffloadDispatcher;
 
 @Specializes @ApplicationScoped
 class MockRequestHandlerObserver extends RequestHandlerObserver{
@@ -42,8 +44,9 @@ class MockRequestHandlerObserver extends RequestHandlerObserver{
 	public MockRequestHandlerObserver(UrlToControllerTranslator translator,
 			ControllerNotFoundHandler controllerNotFoundHandler, MethodNotAllowedHandler methodNotAllowedHandler,
 			Event<ControllerFound> controllerFoundEvent, Event<RequestSucceded> endRequestEvent,
-			InterceptorStack interceptorStack, InvalidInputHandler invalidInputHandler) {
-		super(translator, controllerNotFoundHandler, methodNotAllowedHandler, controllerFoundEvent, endRequestEvent, interceptorStack, invalidInputHandler);
+			InterceptorStack interceptorStack, InvalidInputHandler invalidInputHandler, OffloadDispatcher offloadDispatcher,
+			CoalescingDispatcher coalescingDispatcher) {
+		super(translator, controllerNotFoundHandler, methodNotAllowedHandler, controllerFoundEvent, endRequestEvent, interceptorStack, invalidInputHandler, offloadDispatcher, coalescingDispatcher);
 	}
 
 	public void handle(@Observes VRaptorRequestStarted event) {
@@ -18,6 +18,7 @@
 package br.com.caelum.vraptor.observer;
 
 import br.com.caelum.vraptor.InterceptionException;
+import br.com.caelum.vraptor.cache.ControllerResultCache;
 import br.com.caelum.vraptor.controller.ControllerMethod;
 import br.com.caelum.vraptor.controller.DefaultControllerMethod;
 import br.com.caelum.vraptor.core.DefaultReflectionProvider;
@@ -25,6 +26,7 @@ import br.com.caelum.vraptor.core.MethodInfo;
 import br.com.caelum.vraptor.events.InterceptorsExecuted;
 import br.com.caelum.vraptor.events.MethodExecuted;
 import br.com.caelum.vraptor.events.MethodReady;
+import br.com.caelum.vraptor.http.ValuedParameter;
 import br.com.caelum.vraptor.interceptor.ApplicationLogicException;
 import br.com.caelum.vraptor.interceptor.DogAlike;
 import br.com.caelum.vraptor.validator.Message;
@@ -44,7 +46,9 @@ import org.mockito.MockitoAnnotations;
 import javax.enterprise.event.Event;
 
 import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 import static br.com.caelum.vraptor.controller.DefaultControllerMethod.instanceFor;
 import static br.com.caelum.vraptor.view.Results.nothing;
@@ -61,6 +65,7 @@ public class ExecuteMethodTest {
 	@Mock private Validator validator;
 	@Mock private Event<MethodExecuted> methodEvecutedEvent;
 	@Mock private Event<MethodReady> readyToExecuteMethodEvent;
+	@Mock private ControllerResultCache resultCache;
 	@Rule public ExpectedException expected = ExpectedException.none();
 	private ExecuteMethod observer;
 
@@ -68,7 +73,7 @@ public class ExecuteMethodTest {
 	public void setup() throws NoSuchMethodException {
 		MockitoAnnotations.initMocks(this);
 		observer = new ExecuteMethod(methodInfo, messages, methodEvecutedEvent, readyToExecuteMethodEvent,
-				new ExecuteMethodExceptionHandler(), new DefaultReflectionProvider());
+				new ExecuteMethodExceptionHandler(), new DefaultReflectionProvider(), resultCache);
 	}
 
 	@Test
@@ -108,6 +113,47 @@ public class ExecuteMethodTest {
 		verify(messages).assertAbsenceOfErrors();
 	}
 
+	@Test
+	public void shouldUseCachedResultInsteadOfInvokingTheMethod() throws Exception {
+		List<Object> key = Arrays.<Object>asList("XController.method", "string");
+		ControllerMethod method = new DefaultControllerMethod(null, XController.class.getMethod("method", Object.class));
+		XController controller = spy(new XController());
+		when(resultCache.keyFor(eq(method), org.mockito.Matchers.any(ValuedParameter[].class))).thenReturn(key);
+		when(resultCache.fetch(key)).thenReturn("cached");
+
+		observer.execute(new InterceptorsExecuted(method, controller));
+
+		verify(controller, never()).method(anyObject());
+		verify(methodInfo).setResult("cached");
+		verify(messages).assertAbsenceOfErrors();
+	}
+
+	@Test
+	public void shouldCacheResultOfInvokedMethod() throws Exception {
+		List<Object> key = Arrays.<Object>asList("XController.method", "string");
+		ControllerMethod method = new DefaultControllerMethod(null, XController.class.getMethod("method", Object.class));
+		when(methodInfo.getParametersValues()).thenReturn(new Object[] { "string" });
+		when(resultCache.keyFor(eq(method), org.mockito.Matchers.any(ValuedParameter[].class))).thenReturn(key);
+
+		observer.execute(new InterceptorsExecuted(method, new XController()));
+
+		verify(resultCache).write(key, method, "string");
+		verify(methodInfo).setResult("string");
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void shouldInvokeTheMethodWhenBuiltWithoutResultCache() throws Exception {
+		observer = new ExecuteMethod(methodInfo, messages, methodEvecutedEvent, readyToExecuteMethodEvent,
+				new ExecuteMethodExceptionHandler(), new DefaultReflectionProvider());
+		ControllerMethod method = new DefaultControllerMethod(null, XController.class.getMethod("method", Object.class));
+		when(methodInfo.getParametersValues()).thenReturn(new Object[] { "string" });
+
+		observer.execute(new InterceptorsExecuted(method, new XController()));
+
+		verify(methodInfo).setResult("string");
+	}
+
 	@Test
 	public void shouldSetNullWhenNullReturnedFromInvokedMethod() throws Exception {
 		ControllerMethod method = new DefaultControllerMethod(null, XController.class.getMethod("method", Object.class));
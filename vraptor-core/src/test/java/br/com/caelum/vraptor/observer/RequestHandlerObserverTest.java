@@ -18,6 +18,7 @@ package br.com.caelum.vraptor.observer;
 
 import static br.com.caelum.vraptor.controller.HttpMethod.POST;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -48,6 +49,8 @@ import br.com.caelum.vraptor.http.MutableResponse;
 import br.com.caelum.vraptor.http.UrlToControllerTranslator;
 import br.com.caelum.vraptor.http.route.ControllerNotFoundException;
 import br.com.caelum.vraptor.http.route.MethodNotAllowedException;
+import br.com.caelum.vraptor.observer.coalesce.CoalescingDispatcher;
+import br.com.caelum.vraptor.observer.offload.OffloadDispatcher;
 
 public class RequestHandlerObserverTest {
 
@@ -61,6 +64,8 @@ public class RequestHandlerObserverTest {
 	private @Mock InterceptorStack interceptorStack;
 	private @Mock FilterChain chain;
 	private @Mock InvalidInputHandler invalidInputHandler;
+	private @Mock OffloadDispatcher offloadDispatcher;
+	private @Mock CoalescingDispatcher coalescingDispatcher;
 	
 	private VRaptorRequestStarted requestStarted;
 	private RequestHandlerObserver observer;
@@ -69,7 +74,7 @@ public class RequestHandlerObserverTest {
 	public void config() {
 		MockitoAnnotations.initMocks(this);
 		requestStarted = new VRaptorRequestStarted(chain, webRequest, webResponse);
-		observer = new RequestHandlerObserver(translator, notFoundHandler, methodNotAllowedHandler, controllerFoundEvent, requestSucceededEvent, interceptorStack, invalidInputHandler);
+		observer = new RequestHandlerObserver(translator, notFoundHandler, methodNotAllowedHandler, controllerFoundEvent, requestSucceededEvent, interceptorStack, invalidInputHandler, offloadDispatcher, coalescingDispatcher);
 	}
 
 	@Test
@@ -121,4 +126,24 @@ public class RequestHandlerObserverTest {
 		observer.handle(requestStarted);
 		verify(requestSucceededEvent).fire(any(RequestSucceded.class));
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void shouldDispatchOffloadedMethodsInsteadOfStartingTheStack() throws Exception {
+		final ControllerMethod method = mock(ControllerMethod.class);
+		when(translator.translate(webRequest)).thenReturn(method);
+		when(offloadDispatcher.shouldOffload(method, webRequest)).thenReturn(true);
+		observer.handle(requestStarted);
+		verify(offloadDispatcher).dispatch(eq(method), eq(webRequest), eq(webResponse), any(Runnable.class));
+		verify(interceptorStack, never()).start();
+	}
+
+	@Test
+	public void shouldDispatchCoalescedMethodsInsteadOfStartingTheStack() throws Exception {
+		final ControllerMethod method = mock(ControllerMethod.class);
+		when(translator.translate(webRequest)).thenReturn(method);
+		when(coalescingDispatcher.shouldCoalesce(method, webRequest)).thenReturn(true);
+		observer.handle(requestStarted);
+		verify(coalescingDispatcher).dispatch(eq(method), eq(webRequest), eq(webResponse), any(Runnable.class));
+		verify(interceptorStack, never()).start();
+	}
+}
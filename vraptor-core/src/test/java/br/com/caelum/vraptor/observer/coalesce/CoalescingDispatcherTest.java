@@ -0,0 +1,389 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.observer.coalesce;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import br.com.caelum.vraptor.VRaptorException;
+import br.com.caelum.vraptor.controller.ControllerMethod;
+import br.com.caelum.vraptor.controller.DefaultControllerMethod;
+import br.com.caelum.vraptor.http.VRaptorResponse;
+import br.com.caelum.vraptor.util.test.MockHttpServletResponse;
+
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.ListMultimap;
+
+public class CoalescingDispatcherTest {
+
+	private CoalescingDispatcher dispatcher;
+	private ExecutorService executor;
+	private AtomicInteger executions;
+	private CountDownLatch release;
+	private VRaptorResponse response;
+
+	public static class MusicController {
+		@Coalesce
+		public void list() {
+		}
+
+		@Coalesce(timeout = 50)
+		public void slow() {
+		}
+
+		public void show() {
+		}
+	}
+
+	@Before
+	public void setup() {
+		dispatcher = new CoalescingDispatcher();
+		executor = Executors.newCachedThreadPool();
+		executions = new AtomicInteger();
+		release = new CountDownLatch(1);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void shouldOnlyCoalesceGetRequestsToAnnotatedMethods() throws Exception {
+		HttpServletRequest post = request("/musics");
+		when(post.getMethod()).thenReturn("POST");
+
+		assertThat(dispatcher.shouldCoalesce(method("list"), request("/musics")), is(true));
+		assertThat(dispatcher.shouldCoalesce(method("list"), post), is(false));
+		assertThat(dispatcher.shouldCoalesce(method("show"), request("/musics")), is(false));
+	}
+
+	@Test
+	public void shouldNotCoalesceConditionalOrRangeRequests() throws Exception {
+		HttpServletRequest conditional = request("/musics");
+		when(conditional.getHeader("If-None-Match")).thenReturn("\"v1\"");
+		HttpServletRequest modifiedSince = request("/musics");
+		when(modifiedSince.getHeader("If-Modified-Since")).thenReturn("Sat, 29 Oct 1994 19:43:31 GMT");
+		HttpServletRequest range = request("/musics");
+		when(range.getHeader("Range")).thenReturn("bytes=0-99");
+
+		assertThat(dispatcher.shouldCoalesce(method("list"), conditional), is(false));
+		assertThat(dispatcher.shouldCoalesce(method("list"), modifiedSince), is(false));
+		assertThat(dispatcher.shouldCoalesce(method("list"), range), is(false));
+	}
+
+	@Test
+	public void shouldShareTheResponseOfTheRunningRequest() throws Exception {
+		FakeResponse first = new FakeResponse();
+		Future<?> leader = dispatch("list", first, render("[musics]"));
+		awaitExecutions(1);
+
+		FakeResponse second = new FakeResponse();
+		Future<?> follower = dispatch("list", second, render("[other]"));
+		Thread.sleep(50);
+		release.countDown();
+		leader.get(1, TimeUnit.SECONDS);
+		follower.get(1, TimeUnit.SECONDS);
+
+		assertThat(executions.get(), is(1));
+		assertThat(first.body(), is("[musics]"));
+		assertThat(second.body(), is("[musics]"));
+		assertThat(second.getStatus(), is(200));
+		assertThat(second.getContentType(), is("application/json"));
+		assertThat(second.getHeader("X-Total"), is("1"));
+		assertThat(second.getHeader("Set-Cookie"), nullValue());
+	}
+
+	@Test
+	public void shouldPropagateTheErrorOfTheRunningRequest() throws Exception {
+		final IllegalStateException error = new IllegalStateException();
+		Future<?> leader = dispatch("list", new FakeResponse(), new Runnable() {
+			@Override
+			public void run() {
+				awaitRelease();
+				throw error;
+			}
+		});
+		awaitExecutions(1);
+
+		Future<?> follower = dispatch("list", new FakeResponse(), render("[other]"));
+		Thread.sleep(50);
+		release.countDown();
+
+		assertThat(causeOf(leader), sameInstance((Throwable) error));
+		Throwable followerError = causeOf(follower);
+		assertThat(followerError, instanceOf(VRaptorException.class));
+		assertThat(followerError.getCause(), sameInstance((Throwable) error));
+	}
+
+	@Test
+	public void shouldNotCoalesceRequestsOfDifferentUsers() throws Exception {
+		HttpServletRequest first = request("/musics");
+		when(first.getRequestedSessionId()).thenReturn("first");
+		Future<?> leader = dispatch("list", first, new FakeResponse(), render("[musics]"));
+		awaitExecutions(1);
+
+		HttpServletRequest second = request("/musics");
+		when(second.getRequestedSessionId()).thenReturn("second");
+		FakeResponse secondResponse = new FakeResponse();
+		Future<?> other = dispatch("list", second, secondResponse, new Runnable() {
+			@Override
+			public void run() {
+				executions.incrementAndGet();
+			}
+		});
+		other.get(1, TimeUnit.SECONDS);
+		release.countDown();
+		leader.get(1, TimeUnit.SECONDS);
+
+		assertThat(executions.get(), is(2));
+		assertThat(secondResponse.body(), is(""));
+	}
+
+	@Test
+	public void shouldRunTheMethodAgainAfterTimeout() throws Exception {
+		Future<?> leader = dispatch("slow", new FakeResponse(), render("[musics]"));
+		awaitExecutions(1);
+
+		FakeResponse second = new FakeResponse();
+		Future<?> follower = dispatch("slow", second, new Runnable() {
+			@Override
+			public void run() {
+				executions.incrementAndGet();
+			}
+		});
+		follower.get(1, TimeUnit.SECONDS);
+		release.countDown();
+		leader.get(1, TimeUnit.SECONDS);
+
+		assertThat(executions.get(), is(2));
+		assertThat(second.body(), is(""));
+	}
+
+	@Test
+	public void shouldRunTheMethodAgainWhenTheResponseCantBeShared() throws Exception {
+		Future<?> leader = dispatch("list", new FakeResponse(), new Runnable() {
+			@Override
+			public void run() {
+				awaitRelease();
+				try {
+					response.sendError(404);
+				} catch (IOException e) {
+					throw new AssertionError(e);
+				}
+			}
+		});
+		awaitExecutions(1);
+
+		final AtomicInteger followerExecutions = new AtomicInteger();
+		Future<?> follower = dispatch("list", new FakeResponse(), new Runnable() {
+			@Override
+			public void run() {
+				followerExecutions.incrementAndGet();
+			}
+		});
+		Thread.sleep(50);
+		release.countDown();
+		leader.get(1, TimeUnit.SECONDS);
+		follower.get(1, TimeUnit.SECONDS);
+
+		assertThat(followerExecutions.get(), is(1));
+	}
+
+	@Test
+	public void shouldNotShareResponsesOtherThanOk() throws Exception {
+		Future<?> leader = dispatch("list", new FakeResponse(), new Runnable() {
+			@Override
+			public void run() {
+				awaitRelease();
+				response.setStatus(304);
+			}
+		});
+		awaitExecutions(1);
+
+		final AtomicInteger followerExecutions = new AtomicInteger();
+		Future<?> follower = dispatch("list", new FakeResponse(), new Runnable() {
+			@Override
+			public void run() {
+				followerExecutions.incrementAndGet();
+			}
+		});
+		Thread.sleep(50);
+		release.countDown();
+		leader.get(1, TimeUnit.SECONDS);
+		follower.get(1, TimeUnit.SECONDS);
+
+		assertThat(followerExecutions.get(), is(1));
+	}
+
+	private Future<?> dispatch(String name, FakeResponse target, Runnable task) {
+		return dispatch(name, request("/musics"), target, task);
+	}
+
+	private Future<?> dispatch(final String name, final HttpServletRequest request, final FakeResponse target,
+			final Runnable task) {
+		final VRaptorResponse wrapper = new VRaptorResponse(target);
+		if (response == null) {
+			response = wrapper;
+		}
+		return executor.submit(new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				dispatcher.dispatch(method(name), request, wrapper, task);
+				return null;
+			}
+		});
+	}
+
+	private Runnable render(final String body) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				awaitRelease();
+				try {
+					response.setStatus(200);
+					response.setContentType("application/json");
+					response.setHeader("X-Total", "1");
+					response.setHeader("Set-Cookie", "session=1");
+					response.getWriter().print(body);
+					response.getWriter().flush();
+				} catch (IOException e) {
+					throw new AssertionError(e);
+				}
+			}
+		};
+	}
+
+	private void awaitRelease() {
+		executions.incrementAndGet();
+		try {
+			release.await(1, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void awaitExecutions(int count) throws InterruptedException {
+		while (executions.get() < count) {
+			Thread.sleep(5);
+		}
+	}
+
+	private static Throwable causeOf(Future<?> future) throws Exception {
+		try {
+			future.get(1, TimeUnit.SECONDS);
+			return null;
+		} catch (ExecutionException e) {
+			return e.getCause();
+		}
+	}
+
+	private static ControllerMethod method(String name) throws NoSuchMethodException {
+		return new DefaultControllerMethod(null, MusicController.class.getMethod(name));
+	}
+
+	private static HttpServletRequest request(String uri) {
+		HttpServletRequest request = mock(HttpServletRequest.class);
+		when(request.getMethod()).thenReturn("GET");
+		when(request.getRequestURI()).thenReturn(uri);
+		return request;
+	}
+
+	static class FakeResponse extends MockHttpServletResponse {
+		private final ListMultimap<String, String> headers = LinkedListMultimap.create();
+		private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+		String body() {
+			return new String(body.toByteArray());
+		}
+
+		@Override
+		public String getCharacterEncoding() {
+			return "UTF-8";
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() {
+			return new ServletOutputStream() {
+				@Override
+				public void write(int b) {
+					body.write(b);
+				}
+
+				@Override
+				public boolean isReady() {
+					return true;
+				}
+
+				@Override
+				public void setWriteListener(WriteListener writeListener) {
+				}
+			};
+		}
+
+		@Override
+		public void setHeader(String name, String value) {
+			headers.replaceValues(name, Collections.singleton(value));
+		}
+
+		@Override
+		public void addHeader(String name, String value) {
+			headers.put(name, value);
+		}
+
+		@Override
+		public String getHeader(String name) {
+			return headers.containsKey(name) ? headers.get(name).get(0) : null;
+		}
+
+		@Override
+		public Collection<String> getHeaders(String name) {
+			return headers.get(name);
+		}
+
+		@Override
+		public Collection<String> getHeaderNames() {
+			return headers.keySet();
+		}
+	}
+}
@@ -0,0 +1,183 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package br.com.caelum.vraptor.observer.download;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class AsyncChannelWriterTest {
+
+	private @Mock AsyncContext context;
+	private @Mock HttpServletRequest request;
+	private @Mock HttpServletResponse response;
+	private ByteArrayOutputStream written;
+	private int readyWrites;
+	private WriteListener listener;
+	private ServletOutputStream output;
+
+	@Before
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		written = new ByteArrayOutputStream();
+		output = new ServletOutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				written.write(b);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				readyWrites--;
+				written.write(b, off, len);
+			}
+
+			@Override
+			public boolean isReady() {
+				return readyWrites > 0;
+			}
+
+			@Override
+			public void setWriteListener(WriteListener writeListener) {
+				listener = writeListener;
+			}
+		};
+		when(request.startAsync(request, response)).thenReturn(context);
+		when(response.getOutputStream()).thenReturn(output);
+		when(context.getResponse()).thenReturn(response);
+	}
+
+	@Test
+	public void shouldWriteOnlyWhileOutputIsReady() throws IOException {
+		byte[] content = new byte[AsyncChannelWriter.CHUNK_SIZE * 3];
+		Arrays.fill(content, (byte) 'x');
+		AsyncChannelWriter.start(request, response, channelOf(content), -1);
+
+		readyWrites = 1;
+		listener.onWritePossible();
+		assertThat(written.size(), is(AsyncChannelWriter.CHUNK_SIZE));
+		verify(context, never()).complete();
+
+		readyWrites = 10;
+		listener.onWritePossible();
+		assertThat(written.toByteArray(), is(content));
+		verify(context).complete();
+	}
+
+	@Test
+	public void shouldStopAfterRequestedCount() throws IOException {
+		AsyncChannelWriter.start(request, response, channelOf("0123456789".getBytes()), 4);
+
+		readyWrites = 10;
+		listener.onWritePossible();
+
+		assertThat(written.toString(), is("0123"));
+		verify(context).complete();
+	}
+
+	@Test
+	public void shouldCompleteAndCloseChannelOnError() throws IOException {
+		ReadableByteChannel channel = channelOf(new byte[10]);
+		AsyncChannelWriter.start(request, response, channel, -1);
+
+		listener.onError(new IOException("broken pipe"));
+
+		verify(context).complete();
+		assertThat(channel.isOpen(), is(false));
+	}
+
+	@Test(expected = IOException.class)
+	public void shouldFailInsteadOfSpinningWhenChannelReturnsNoData() throws IOException {
+		ReadableByteChannel empty = new ReadableByteChannel() {
+			@Override
+			public int read(ByteBuffer dst) {
+				return 0;
+			}
+
+			@Override
+			public boolean isOpen() {
+				return true;
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+		AsyncChannelWriter.start(request, response, empty, -1);
+
+		readyWrites = 10;
+		listener.onWritePossible();
+	}
+
+	@Test
+	public void shouldNotStartWhenRequestIsAlreadyAsync() {
+		when(request.isAsyncSupported()).thenReturn(true);
+		assertThat(AsyncChannelWriter.canStart(request), is(true));
+
+		when(request.isAsyncStarted()).thenReturn(true);
+		assertThat(AsyncChannelWriter.canStart(request), is(false));
+	}
+
+	@Test
+	public void pathDownloadShouldStartAsyncWhenRequested() throws Exception {
+		Path path = Files.createTempFile("download", ".txt");
+		try {
+			Files.write(path, "content".getBytes());
+			when(request.isAsyncSupported()).thenReturn(true);
+			when(request.getMethod()).thenReturn("GET");
+			when(request.getDateHeader(any(String.class))).thenReturn(-1L);
+
+			DownloadBuilder.of(path).async().build().write(request, response);
+			readyWrites = 10;
+			listener.onWritePossible();
+
+			assertThat(written.toString(), is("content"));
+			verify(response).setHeader("Content-Length", "7");
+			verify(context).complete();
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	private ReadableByteChannel channelOf(byte[] content) {
+		return Channels.newChannel(new ByteArrayInputStream(content));
+	}
+}
@@ -37,6 +37,7 @@ import java.nio.file.Files;
 import java.util.Arrays;
 
 import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.hamcrest.Description;
@@ -62,6 +63,7 @@ public class DownloadObserverTest {
 	private DownloadObserver downloadObserver;
 
 	@Mock private MethodInfo methodInfo;
+	@Mock private HttpServletRequest request;
 	@Mock private HttpServletResponse response;
 	@Mock private ControllerMethod controllerMethod;
 	@Mock private ServletOutputStream outputStream;
@@ -71,10 +73,20 @@ public class DownloadObserverTest {
 	public void setup() throws Exception {
 		MockitoAnnotations.initMocks(this);
 		when(response.getOutputStream()).thenReturn(outputStream);
-		when(result.use(DownloadView.class)).thenReturn(new DownloadView(response));
+		when(result.use(DownloadView.class)).thenReturn(new DownloadView(request, response));
 		downloadObserver = new DownloadObserver();
 	}
 
+	@Test
+	@SuppressWarnings("deprecation")
+	public void shouldStillWriteDownloadsWithoutTheRequest() throws Exception {
+		Download download = mock(Download.class);
+		new DownloadView(response).of(download);
+
+		verify(download).write(response);
+		verify(outputStream).flush();
+	}
+
 	@Test
 	public void whenResultIsADownloadShouldUseIt() throws Exception {
 		when(controllerMethod.getMethod()).thenReturn(getMethod("download"));
@@ -140,6 +152,12 @@ public class DownloadObserverTest {
 		assertThat(downloadObserver.resolveDownload(file), instanceOf(FileDownload.class));
 	}
 
+	@Test
+	public void shouldAcceptPath() throws Exception {
+		File file = tmpdir.newFile();
+		assertThat(downloadObserver.resolveDownload(file.toPath()), instanceOf(PathDownload.class));
+	}
+
 	@Test
 	public void shouldAcceptInput() throws Exception {
 		InputStream inputStream = mock(InputStream.class);
@@ -0,0 +1,194 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package br.com.caelum.vraptor.observer.download;
+
+import static javax.servlet.http.HttpServletResponse.SC_NOT_MODIFIED;
+import static javax.servlet.http.HttpServletResponse.SC_PARTIAL_CONTENT;
+import static javax.servlet.http.HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class PathDownloadTest {
+
+	private static final long LAST_MODIFIED = 1400000000000L;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private @Mock HttpServletRequest request;
+	private @Mock HttpServletResponse response;
+	private ByteArrayOutputStream outputStream;
+	private PathDownload download;
+	private String etag;
+
+	@Before
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+
+		Path path = folder.newFile("song.mp3").toPath();
+		Files.write(path, "0123456789".getBytes());
+		Files.setLastModifiedTime(path, FileTime.fromMillis(LAST_MODIFIED));
+		etag = "\"a-" + Long.toHexString(LAST_MODIFIED) + "\"";
+
+		outputStream = new ByteArrayOutputStream();
+		when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				outputStream.write(b);
+			}
+
+			@Override
+			public boolean isReady() {
+				return true;
+			}
+
+			@Override
+			public void setWriteListener(WriteListener writeListener) {
+			}
+		});
+		when(request.getMethod()).thenReturn("GET");
+		when(request.getDateHeader(anyString())).thenReturn(-1L);
+
+		download = new PathDownload(path, "audio/mpeg");
+	}
+
+	@Test
+	public void shouldSendWholeFileWithValidators() throws IOException {
+		download.write(request, response);
+
+		assertThat(outputStream.toString(), is("0123456789"));
+		verify(response).setHeader("Content-Length", "10");
+		verify(response).setHeader("Accept-Ranges", "bytes");
+		verify(response).setHeader("ETag", etag);
+		verify(response).setDateHeader("Last-Modified", LAST_MODIFIED);
+		verify(response, never()).setStatus(anyInt());
+	}
+
+	@Test
+	public void shouldAnswerNotModifiedWhenEtagMatches() throws IOException {
+		when(request.getHeader("If-None-Match")).thenReturn("\"other\", " + etag);
+
+		download.write(request, response);
+
+		verify(response).setStatus(SC_NOT_MODIFIED);
+		assertThat(outputStream.size(), is(0));
+	}
+
+	@Test
+	public void shouldAnswerNotModifiedWhenNotModifiedSinceDate() throws IOException {
+		when(request.getDateHeader("If-Modified-Since")).thenReturn(LAST_MODIFIED);
+
+		download.write(request, response);
+
+		verify(response).setStatus(SC_NOT_MODIFIED);
+		assertThat(outputStream.size(), is(0));
+	}
+
+	@Test
+	public void shouldSendSingleRange() throws IOException {
+		when(request.getHeader("Range")).thenReturn("bytes=2-5");
+
+		download.write(request, response);
+
+		verify(response).setStatus(SC_PARTIAL_CONTENT);
+		verify(response).setHeader("Content-Range", "bytes 2-5/10");
+		verify(response).setHeader("Content-Length", "4");
+		assertThat(outputStream.toString(), is("2345"));
+	}
+
+	@Test
+	public void shouldSendOpenAndSuffixRanges() throws IOException {
+		when(request.getHeader("Range")).thenReturn("bytes=7-");
+		download.write(request, response);
+		assertThat(outputStream.toString(), is("789"));
+
+		outputStream.reset();
+		when(request.getHeader("Range")).thenReturn("bytes=-3");
+		download.write(request, response);
+		assertThat(outputStream.toString(), is("789"));
+	}
+
+	@Test
+	public void shouldSendMultipleRangesAsMultipart() throws IOException {
+		when(request.getHeader("Range")).thenReturn("bytes=0-1, 8-20");
+
+		download.write(request, response);
+
+		String boundary = PathDownload.BOUNDARY;
+		String expected = "\r\n--" + boundary + "\r\nContent-Type: audio/mpeg\r\nContent-Range: bytes 0-1/10\r\n\r\n01"
+				+ "\r\n--" + boundary + "\r\nContent-Type: audio/mpeg\r\nContent-Range: bytes 8-9/10\r\n\r\n89"
+				+ "\r\n--" + boundary + "--\r\n";
+		verify(response).setStatus(SC_PARTIAL_CONTENT);
+		verify(response).setHeader("Content-type", "multipart/byteranges; boundary=" + boundary);
+		verify(response).setHeader("Content-Length", String.valueOf(expected.length()));
+		assertThat(outputStream.toString(), is(expected));
+	}
+
+	@Test
+	public void shouldRejectUnsatisfiableRanges() throws IOException {
+		when(request.getHeader("Range")).thenReturn("bytes=10-12");
+
+		download.write(request, response);
+
+		verify(response).setStatus(SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+		verify(response).setHeader("Content-Range", "bytes */10");
+		assertThat(outputStream.size(), is(0));
+	}
+
+	@Test
+	public void shouldSendWholeFileWhenIfRangeDoesNotMatch() throws IOException {
+		when(request.getHeader("Range")).thenReturn("bytes=2-5");
+		when(request.getHeader("If-Range")).thenReturn("\"stale\"");
+
+		download.write(request, response);
+
+		verify(response, never()).setStatus(anyInt());
+		assertThat(outputStream.toString(), is("0123456789"));
+	}
+
+	@Test
+	public void shouldIgnoreMalformedRanges() throws IOException {
+		when(request.getHeader("Range")).thenReturn("bytes=5-2");
+
+		download.write(request, response);
+
+		assertThat(outputStream.toString(), is("0123456789"));
+	}
+}
@@ -16,16 +16,32 @@
 package br.com.caelum.vraptor.observer.download;
 
 import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
 
 import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletResponse;
 
 import org.junit.Before;
@@ -86,4 +102,126 @@ public class ZipDownloadTest {
 
 		verify(response).setHeader("Content-disposition", "attachment; filename=download.zip");
 	}
+
+	@Test
+	public void shouldZipEntriesInOrder() throws IOException {
+		List<Path> files = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			Path file = folder.newFile("file" + i + ".txt").toPath();
+			Files.write(file, repeat("content of file " + i + "\n", 100 * i).getBytes());
+			files.add(file);
+		}
+
+		Map<String, ZipEntry> entries = unzip(new ZipDownload("download.zip", files), new ArrayList<String>());
+
+		int i = 0;
+		for (String name : entries.keySet()) {
+			assertThat(name, is("file" + i++ + ".txt"));
+		}
+		assertThat(i, is(20));
+		assertThat(entries.get("file10.txt").getMethod(), is(ZipEntry.DEFLATED));
+	}
+
+	@Test
+	public void shouldStorePrecompressedFiles() throws IOException {
+		Path song = folder.newFile("song.mp3").toPath();
+		Files.write(song, repeat("not really an mp3", 50).getBytes());
+		Path lyrics = folder.newFile("lyrics.txt").toPath();
+		Files.write(lyrics, repeat("la la la", 50).getBytes());
+
+		List<String> contents = new ArrayList<>();
+		Map<String, ZipEntry> entries = unzip(new ZipDownload("download.zip", song, lyrics), contents);
+
+		assertThat(entries.get("song.mp3").getMethod(), is(ZipEntry.STORED));
+		assertThat(entries.get("lyrics.txt").getMethod(), is(ZipEntry.DEFLATED));
+		assertThat(contents.get(0), is(repeat("not really an mp3", 50)));
+		assertThat(contents.get(1), is(repeat("la la la", 50)));
+	}
+
+	@Test
+	public void shouldStoreEverythingWithLevelZero() throws IOException {
+		Files.write(inpuFile0, "abc".getBytes());
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Download download = DownloadBuilder.of(asList(inpuFile0)).withFileName("download.zip")
+					.withCompressionLevel(0).withExecutor(executor).build();
+
+			Map<String, ZipEntry> entries = unzip(download, new ArrayList<String>());
+
+			assertThat(entries.get(inpuFile0.getFileName().toString()).getMethod(), is(ZipEntry.STORED));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void shouldStreamLargeEntriesWithDataDescriptor() throws IOException {
+		Path large = folder.newFile("large.csv").toPath();
+		byte[] content = new byte[(int) ZipArchiveWriter.MAX_BUFFERED_ENTRY + 1];
+		Arrays.fill(content, (byte) 'a');
+		Files.write(large, content);
+
+		List<String> contents = new ArrayList<>();
+		Map<String, ZipEntry> entries = unzip(new ZipDownload("download.zip", large, inpuFile0), contents);
+
+		assertThat(entries.size(), is(2));
+		assertThat(contents.get(0).length(), is(content.length));
+	}
+
+	@Test
+	public void shouldRejectDuplicateEntries() throws IOException {
+		thrown.expect(ZipException.class);
+		thrown.expectMessage("duplicate entry");
+
+		new ZipDownload("download.zip", inpuFile0, inpuFile0).write(response);
+	}
+
+	@Test
+	public void shouldRejectInvalidCompressionLevel() {
+		thrown.expect(IllegalArgumentException.class);
+
+		DownloadBuilder.of(asList(inpuFile0)).withCompressionLevel(10).build();
+	}
+
+	private Map<String, ZipEntry> unzip(Download download, List<String> contents) throws IOException {
+		final ByteArrayOutputStream zipped = new ByteArrayOutputStream();
+		when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				zipped.write(b);
+			}
+
+			@Override
+			public boolean isReady() {
+				return true;
+			}
+
+			@Override
+			public void setWriteListener(WriteListener writeListener) {
+			}
+		});
+		download.write(response);
+
+		Map<String, ZipEntry> entries = new LinkedHashMap<>();
+		try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(zipped.toByteArray()))) {
+			for (ZipEntry entry; (entry = zip.getNextEntry()) != null;) {
+				ByteArrayOutputStream content = new ByteArrayOutputStream();
+				byte[] buffer = new byte[8192];
+				for (int n; (n = zip.read(buffer)) != -1;) {
+					content.write(buffer, 0, n);
+				}
+				entries.put(entry.getName(), entry);
+				contents.add(content.toString());
+			}
+		}
+		return entries;
+	}
+
+	private static String repeat(String value, int times) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < times; i++) {
+			builder.append(value);
+		}
+		return builder.toString();
+	}
 }
@@ -0,0 +1,127 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.observer.offload;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.ExecutorService;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import br.com.caelum.vraptor.controller.ControllerMethod;
+import br.com.caelum.vraptor.controller.DefaultControllerMethod;
+
+public class OffloadDispatcherTest {
+
+	private @Mock OffloadExecutors executors;
+	private @Mock ExecutorService executor;
+	private @Mock RequestContextActivator activator;
+	private @Mock HttpServletRequest request;
+	private @Mock HttpServletResponse response;
+	private @Mock AsyncContext async;
+	private @Mock Runnable task;
+
+	private OffloadDispatcher dispatcher;
+	private ControllerMethod offloaded;
+	private ControllerMethod regular;
+
+	@Before
+	public void setup() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		dispatcher = new OffloadDispatcher(executors, activator);
+		offloaded = DefaultControllerMethod.instanceFor(MyController.class, MyController.class.getMethod("offloaded"));
+		regular = DefaultControllerMethod.instanceFor(MyController.class, MyController.class.getMethod("regular"));
+
+		when(activator.isSupported()).thenReturn(true);
+		when(request.isAsyncSupported()).thenReturn(true);
+		when(request.startAsync(request, response)).thenReturn(async);
+		when(executors.get("io")).thenReturn(executor);
+		doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				((Runnable) invocation.getArguments()[0]).run();
+				return null;
+			}
+		}).when(executor).execute(any(Runnable.class));
+	}
+
+	@Test
+	public void shouldOffloadOnlyAnnotatedMethods() {
+		assertThat(dispatcher.shouldOffload(offloaded, request), is(true));
+		assertThat(dispatcher.shouldOffload(regular, request), is(false));
+	}
+
+	@Test
+	public void shouldNotOffloadWhenRequestContextCantBePropagated() {
+		when(activator.isSupported()).thenReturn(false);
+		assertThat(dispatcher.shouldOffload(offloaded, request), is(false));
+	}
+
+	@Test
+	public void shouldNotOffloadWhenAsyncIsNotSupported() {
+		when(request.isAsyncSupported()).thenReturn(false);
+		assertThat(dispatcher.shouldOffload(offloaded, request), is(false));
+	}
+
+	@Test
+	public void shouldRunTaskWithActivatedContextAndCompleteAsync() {
+		dispatcher.dispatch(offloaded, request, response, task);
+
+		verify(activator).activate(request);
+		verify(task).run();
+		verify(activator).deactivate(request);
+		verify(async).complete();
+	}
+
+	@Test
+	public void shouldSendErrorAndCompleteWhenTaskFails() throws Exception {
+		doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				throw new IllegalStateException();
+			}
+		}).when(task).run();
+
+		dispatcher.dispatch(offloaded, request, response, task);
+
+		verify(response).sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+		verify(activator).deactivate(request);
+		verify(async).complete();
+	}
+
+	static class MyController {
+		@Offload(executor = "io")
+		public void offloaded() {
+		}
+
+		public void regular() {
+		}
+	}
+}
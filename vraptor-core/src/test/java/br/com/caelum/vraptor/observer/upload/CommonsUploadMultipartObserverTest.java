@@ -38,6 +38,9 @@ import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+
 import org.apache.commons.fileupload.FileItem;
 import org.apache.commons.fileupload.FileUploadBase;
 import org.apache.commons.fileupload.FileUploadException;
@@ -59,6 +62,9 @@ import br.com.caelum.vraptor.http.MutableRequest;
 import br.com.caelum.vraptor.validator.I18nMessage;
 import br.com.caelum.vraptor.validator.Validator;
 
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
+
 /**
  * Test class for uploading features using commons-fileupload.
  *
@@ -83,6 +89,9 @@ public class CommonsUploadMultipartObserverTest {
 
 	private ControllerMethod uploadMethodController;
 	private ControllerMethod uploadMethodControllerWithAnnotation;
+	private ControllerMethod streamingMethodController;
+
+	private static final String BOUNDARY = "----VRaptorBoundary";
 
 	@Before
 	public void setup() throws Exception {
@@ -97,6 +106,8 @@ public class CommonsUploadMultipartObserverTest {
 
 		uploadMethodController = DefaultControllerMethod.instanceFor(getClass(), uploadMethod);
 		uploadMethodControllerWithAnnotation = DefaultControllerMethod.instanceFor(getClass(), uploadMethodWthAnnotation);
+		streamingMethodController = DefaultControllerMethod.instanceFor(getClass(),
+				getClass().getDeclaredMethod("streamingMethod", UploadedFile.class));
 	}
 
 	@Test
@@ -363,10 +374,108 @@ public class CommonsUploadMultipartObserverTest {
 		assertThat(Files.readAllBytes(outputFile.toPath()), is(byteOnlyFileContent));
 	}
 
+	@Test
+	public void streamingShouldReadFieldsAndSmallFilesInMemory() throws Exception {
+		when(event.getMethod()).thenReturn(streamingMethodController);
+		multipartBody(part("name", null, "Sultans of Swing"), part("cover", "cover.png", "tiny"));
+
+		observer.upload(event, request, config, validator);
+
+		verify(request).setParameter("name", "Sultans of Swing");
+		ArgumentCaptor<UploadedFile> argument = ArgumentCaptor.forClass(UploadedFile.class);
+		verify(request).setAttribute(eq("cover"), argument.capture());
+		assertThat(argument.getValue().getSize(), is(4L));
+		assertThat(new String(toByteArray(argument.getValue().getFile())), is("tiny"));
+	}
+
+	@Test
+	public void streamingShouldReadFieldsWithInvalidCharset() throws Exception {
+		when(event.getMethod()).thenReturn(streamingMethodController);
+		multipartBody(part("name", null, "Sultans of Swing"));
+		when(request.getCharacterEncoding()).thenReturn("BLAH");
+
+		observer.upload(event, request, config, validator);
+
+		verify(request).setParameter("name", "Sultans of Swing");
+	}
+
+	@Test
+	public void streamingShouldHandBigFilesToControllerAsStream() throws Exception {
+		when(event.getMethod()).thenReturn(streamingMethodController);
+		String content = Strings.repeat("music", 10000);
+		multipartBody(part("name", null, "Sultans of Swing"), part("music", "song.mp3", content));
+
+		observer.upload(event, request, config, validator);
+
+		ArgumentCaptor<UploadedFile> argument = ArgumentCaptor.forClass(UploadedFile.class);
+		verify(request).setAttribute(eq("music"), argument.capture());
+		UploadedFile file = argument.getValue();
+		assertThat(file.getFileName(), is("song.mp3"));
+		assertThat(file.getSize(), is(-1L));
+		assertThat(new String(toByteArray(file.getFile())), is(content));
+	}
+
+	@Test
+	public void streamingShouldEnforceSizeLimitWhileReading() throws Exception {
+		when(event.getMethod()).thenReturn(streamingMethodController);
+		multipartBody(part("music", "song.mp3", Strings.repeat("music", 1024 * 1024)));
+		when(request.getContentLength()).thenReturn(-1);
+
+		observer.upload(event, request, config, validator);
+
+		ArgumentCaptor<UploadedFile> argument = ArgumentCaptor.forClass(UploadedFile.class);
+		verify(request).setAttribute(eq("music"), argument.capture());
+		exception.expect(IOException.class);
+		toByteArray(argument.getValue().getFile());
+	}
+
+	private String part(String name, String fileName, String content) {
+		return "--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"" + name + "\""
+				+ (fileName == null ? "" : "; filename=\"" + fileName + "\"\r\nContent-Type: audio/mpeg")
+				+ "\r\n\r\n" + content + "\r\n";
+	}
+
+	private void multipartBody(String... parts) throws IOException {
+		final ByteArrayInputStream body = new ByteArrayInputStream(
+				(Joiner.on("").join(parts) + "--" + BOUNDARY + "--\r\n").getBytes("UTF-8"));
+		when(request.getContentType()).thenReturn("multipart/form-data; boundary=" + BOUNDARY);
+		when(request.getContentLength()).thenReturn(body.available());
+		when(request.getCharacterEncoding()).thenReturn("UTF-8");
+		when(request.getInputStream()).thenReturn(new ServletInputStream() {
+			@Override
+			public int read() throws IOException {
+				return body.read();
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) {
+				return body.read(b, off, len);
+			}
+
+			@Override
+			public boolean isFinished() {
+				return body.available() == 0;
+			}
+
+			@Override
+			public boolean isReady() {
+				return true;
+			}
+
+			@Override
+			public void setReadListener(ReadListener readListener) {
+			}
+		});
+	}
+
 	public void uploadMethod(UploadedFile file) {
 	}
 
 	@UploadSizeLimit(fileSizeLimit = 10, sizeLimit = 20)
 	public void uploadMethodWthAnnotation(UploadedFile file) {
 	}
-}
\ No newline at end of file
+
+	@StreamingUpload
+	public void streamingMethod(UploadedFile file) {
+	}
+}
@@ -0,0 +1,117 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.observer.upload;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.fileupload.disk.DiskFileItem;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CommonsUploadedFileTest {
+
+	@Rule
+	public TemporaryFolder tmpdir = new TemporaryFolder();
+
+	@Test
+	public void shouldMoveDiskStoredUploadToTarget() throws Exception {
+		DiskFileItem item = diskItem(0, "stored on disk");
+		File stored = item.getStoreLocation();
+		Path target = tmpdir.getRoot().toPath().resolve("moved.txt");
+
+		new CommonsUploadedFile(item).writeTo(target);
+
+		assertThat(new String(Files.readAllBytes(target), UTF_8), equalTo("stored on disk"));
+		assertThat(stored.exists(), is(false));
+	}
+
+	@Test
+	public void shouldWriteInMemoryUploadToTarget() throws Exception {
+		DiskFileItem item = diskItem(1024, "kept in memory");
+		Path target = tmpdir.newFolder().toPath().resolve("written.txt");
+
+		new CommonsUploadedFile(item).writeTo(target);
+
+		assertThat(new String(Files.readAllBytes(target), UTF_8), equalTo("kept in memory"));
+		assertThat(target.getParent().toFile().list(), arrayContaining("written.txt"));
+	}
+
+	@Test(expected = FileAlreadyExistsException.class)
+	public void shouldNotReplaceExistingTargetByDefault() throws Exception {
+		Path target = tmpdir.newFile("existing.txt").toPath();
+
+		new CommonsUploadedFile(diskItem(0, "new content")).writeTo(target);
+	}
+
+	@Test
+	public void shouldReplaceExistingTargetWhenAsked() throws Exception {
+		Path target = tmpdir.newFile("existing.txt").toPath();
+
+		new CommonsUploadedFile(diskItem(1024, "new content")).writeTo(target, REPLACE_EXISTING);
+
+		assertThat(new String(Files.readAllBytes(target), UTF_8), equalTo("new content"));
+	}
+
+	@Test
+	public void shouldReplaceExistingFileWhenWritingToFile() throws Exception {
+		File target = tmpdir.newFile("existing.txt");
+
+		new CommonsUploadedFile(diskItem(0, "new content")).writeTo(target);
+
+		assertThat(new String(Files.readAllBytes(target.toPath()), UTF_8), equalTo("new content"));
+	}
+
+	@Test
+	public void shouldCloseInputAfterWritingToStream() throws Exception {
+		InputStream in = mock(InputStream.class);
+		when(in.read(any(byte[].class))).thenReturn(-1);
+		FileItem item = mock(FileItem.class);
+		when(item.getInputStream()).thenReturn(in);
+
+		new CommonsUploadedFile(item).writeTo(new ByteArrayOutputStream());
+
+		verify(in).close();
+	}
+
+	private DiskFileItem diskItem(int threshold, String content) throws IOException {
+		File repository = tmpdir.newFolder();
+		DiskFileItem item = new DiskFileItem("file", "text/plain", false, "file.txt", threshold, repository);
+		try (OutputStream out = item.getOutputStream()) {
+			out.write(content.getBytes(UTF_8));
+		}
+		return item;
+	}
+}
@@ -0,0 +1,216 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.observer.upload;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.servlet.MultipartConfigElement;
+import javax.servlet.http.Part;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import br.com.caelum.vraptor.controller.DefaultControllerMethod;
+import br.com.caelum.vraptor.events.ControllerFound;
+import br.com.caelum.vraptor.http.MutableRequest;
+import br.com.caelum.vraptor.validator.I18nMessage;
+import br.com.caelum.vraptor.validator.Validator;
+
+public class ServletMultipartObserverTest {
+
+	@Rule
+	public ExpectedException exception = ExpectedException.none();
+
+	@Rule
+	public TemporaryFolder tmpdir = new TemporaryFolder();
+
+	@Mock private ControllerFound event;
+	@Mock private MutableRequest request;
+	@Mock private Validator validator;
+
+	private MultipartConfig config;
+	private ServletMultipartObserver observer;
+
+	@Before
+	public void setup() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		config = new DefaultMultipartConfig();
+		observer = new ServletMultipartObserver();
+
+		when(request.getContentType()).thenReturn("multipart/form-data; boundary=xyz");
+		when(request.getMethod()).thenReturn("POST");
+		when(request.getCharacterEncoding()).thenReturn("UTF-8");
+
+		Method method = getClass().getDeclaredMethod("uploadMethodWithAnnotation", UploadedFile.class);
+		when(event.getMethod()).thenReturn(DefaultControllerMethod.instanceFor(getClass(), method));
+	}
+
+	@Test
+	public void shouldIgnoreNonMultipartRequests() throws Exception {
+		when(request.getContentType()).thenReturn("application/x-www-form-urlencoded");
+
+		observer.upload(event, request, config, validator);
+
+		verify(request, never()).getParts();
+	}
+
+	@Test
+	public void shouldMapLimitsToContainerConfiguration() throws Exception {
+		when(request.getParts()).thenReturn(Arrays.<Part> asList());
+
+		observer.upload(event, request, config, validator);
+
+		ArgumentCaptor<MultipartConfigElement> element = ArgumentCaptor.forClass(MultipartConfigElement.class);
+		verify(request).setAttribute(eq(ServletMultipartObserver.JETTY_MULTIPART_CONFIG), element.capture());
+		assertThat(element.getValue().getMaxFileSize(), is(10L));
+		assertThat(element.getValue().getMaxRequestSize(), is(20L));
+		assertThat(element.getValue().getFileSizeThreshold(), is(ServletMultipartObserver.FILE_SIZE_THRESHOLD));
+		assertThat(element.getValue().getLocation(), is(config.getDirectory().getAbsolutePath()));
+	}
+
+	@Test
+	public void shouldReadFieldsAndFiles() throws Exception {
+		List<Part> parts = Arrays.asList(field("name[]", "Money"), field("name[]", "Nothing"),
+				file("music", "C:\\musics\\song.mp3", "bytes"), file("cover", "", ""));
+		when(request.getParts()).thenReturn(parts);
+
+		observer.upload(event, request, config, validator);
+
+		verify(request).setParameter("name[0]", "Money");
+		verify(request).setParameter("name[1]", "Nothing");
+		verify(request).setParameter("music", "music");
+		ArgumentCaptor<UploadedFile> file = ArgumentCaptor.forClass(UploadedFile.class);
+		verify(request).setAttribute(eq("music"), file.capture());
+		assertThat(file.getValue(), instanceOf(ServletUploadedFile.class));
+		assertThat(file.getValue().getFileName(), is("song.mp3"));
+		verify(request, never()).setAttribute(eq("cover"), any());
+	}
+
+	@Test
+	public void shouldReportSizeLimitExceeded() throws Exception {
+		when(request.getParts()).thenThrow(new IllegalStateException("too big"));
+		when(request.getContentLengthLong()).thenReturn(100L);
+
+		observer.upload(event, request, config, validator);
+
+		ArgumentCaptor<I18nMessage> message = ArgumentCaptor.forClass(I18nMessage.class);
+		verify(validator).add(message.capture());
+		assertThat(message.getValue().getCategory(), is("upload"));
+	}
+
+	@Test
+	public void shouldOnlyWarnWhenMethodDoesNotReceiveFiles() throws Exception {
+		Method method = getClass().getDeclaredMethod("methodWithoutFiles", String.class);
+		when(event.getMethod()).thenReturn(DefaultControllerMethod.instanceFor(getClass(), method));
+		when(request.getParts()).thenThrow(new IllegalStateException("casual parsing disabled"));
+
+		observer.upload(event, request, config, validator);
+
+		verify(validator, never()).add(any(I18nMessage.class));
+	}
+
+	@Test
+	public void shouldDetectFilesInsideArraysAndCollections() throws Exception {
+		Method array = getClass().getDeclaredMethod("methodWithFileArray", UploadedFile[].class);
+		Method list = getClass().getDeclaredMethod("methodWithFileList", List.class);
+		Method none = getClass().getDeclaredMethod("methodWithoutFiles", String.class);
+
+		assertThat(observer.expectsUpload(DefaultControllerMethod.instanceFor(getClass(), array)), is(true));
+		assertThat(observer.expectsUpload(DefaultControllerMethod.instanceFor(getClass(), list)), is(true));
+		assertThat(observer.expectsUpload(DefaultControllerMethod.instanceFor(getClass(), none)), is(false));
+	}
+
+	@Test
+	public void shouldWriteFileThroughTemporaryCopy() throws Exception {
+		Part part = file("music", "song.mp3", "bytes");
+		Path target = tmpdir.getRoot().toPath().resolve("song.mp3");
+
+		new ServletUploadedFile(part).writeTo(target);
+
+		assertThat(new String(Files.readAllBytes(target)), is("bytes"));
+		assertThat(tmpdir.getRoot().list().length, is(1));
+	}
+
+	@Test
+	public void shouldNotReplaceExistingFileUnlessAsked() throws Exception {
+		Part part = file("music", "song.mp3", "new");
+		Path target = tmpdir.newFile("song.mp3").toPath();
+
+		new ServletUploadedFile(part).writeTo(target, StandardCopyOption.REPLACE_EXISTING);
+		assertThat(new String(Files.readAllBytes(target)), is("new"));
+
+		exception.expect(FileAlreadyExistsException.class);
+		new ServletUploadedFile(part).writeTo(target);
+	}
+
+	private Part field(String name, String value) throws IOException {
+		Part part = mock(Part.class);
+		when(part.getName()).thenReturn(name);
+		when(part.getInputStream()).thenReturn(new ByteArrayInputStream(value.getBytes("UTF-8")));
+		return part;
+	}
+
+	private Part file(String name, String fileName, final String content) throws IOException {
+		Part part = field(name, content);
+		when(part.getSubmittedFileName()).thenReturn(fileName);
+		when(part.getInputStream()).thenAnswer(new Answer<ByteArrayInputStream>() {
+			@Override
+			public ByteArrayInputStream answer(InvocationOnMock invocation) throws Throwable {
+				return new ByteArrayInputStream(content.getBytes("UTF-8"));
+			}
+		});
+		return part;
+	}
+
+	@UploadSizeLimit(fileSizeLimit = 10, sizeLimit = 20)
+	public void uploadMethodWithAnnotation(UploadedFile file) {
+	}
+
+	public void methodWithoutFiles(String name) {
+	}
+
+	public void methodWithFileArray(UploadedFile[] files) {
+	}
+
+	public void methodWithFileList(List<UploadedFile> files) {
+	}
+}
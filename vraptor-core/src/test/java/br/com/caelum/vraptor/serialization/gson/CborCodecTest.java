@@ -0,0 +1,153 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.serialization.gson;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+public class CborCodecTest {
+
+	@Test
+	public void shouldEncodeSmallIntegersInline() throws IOException {
+		assertArrayEquals(bytes(0x00), CborCodec.toByteArray(new JsonPrimitive(0)));
+		assertArrayEquals(bytes(0x17), CborCodec.toByteArray(new JsonPrimitive(23)));
+		assertArrayEquals(bytes(0x18, 0x18), CborCodec.toByteArray(new JsonPrimitive(24)));
+		assertArrayEquals(bytes(0x20), CborCodec.toByteArray(new JsonPrimitive(-1)));
+		assertArrayEquals(bytes(0x39, 0x01, 0xf3), CborCodec.toByteArray(new JsonPrimitive(-500)));
+	}
+
+	@Test
+	public void shouldEncodeStringsBooleansAndNull() throws IOException {
+		assertArrayEquals(bytes(0x62, 'o', 'k'), CborCodec.toByteArray(new JsonPrimitive("ok")));
+		assertArrayEquals(bytes(0xf5), CborCodec.toByteArray(new JsonPrimitive(true)));
+		assertArrayEquals(bytes(0xf4), CborCodec.toByteArray(new JsonPrimitive(false)));
+		assertArrayEquals(bytes(0xf6), CborCodec.toByteArray(JsonNull.INSTANCE));
+	}
+
+	@Test
+	public void shouldEncodeMapsAndArrays() throws IOException {
+		JsonObject object = new JsonObject();
+		object.addProperty("a", 1);
+		JsonArray array = new JsonArray();
+		array.add(new JsonPrimitive(2));
+		object.add("b", array);
+
+		assertArrayEquals(bytes(0xa2, 0x61, 'a', 0x01, 0x61, 'b', 0x81, 0x02), CborCodec.toByteArray(object));
+	}
+
+	@Test
+	public void shouldRoundTripJsonTrees() throws IOException {
+		JsonElement tree = new JsonParser().parse("{\"name\":\"café ☃\",\"price\":12.5,\"count\":4294967296,"
+				+ "\"tags\":[\"a\",null,true],\"nested\":{\"empty\":[]}}");
+
+		assertThat(read(CborCodec.toByteArray(tree)), is(equalTo(tree)));
+	}
+
+	@Test
+	public void shouldRoundTripBigIntegers() throws IOException {
+		JsonPrimitive big = new JsonPrimitive(new BigInteger("123456789012345678901234567890"));
+		JsonPrimitive negative = new JsonPrimitive(new BigInteger("-123456789012345678901234567890"));
+
+		assertThat(read(CborCodec.toByteArray(big)).getAsBigInteger(), is(big.getAsBigInteger()));
+		assertThat(read(CborCodec.toByteArray(negative)).getAsBigInteger(), is(negative.getAsBigInteger()));
+	}
+
+	@Test
+	public void shouldDecodeHalfPrecisionFloats() throws IOException {
+		assertThat(read(bytes(0xf9, 0x3e, 0x00)).getAsDouble(), is(1.5));
+	}
+
+	@Test
+	public void shouldDecodeIndefiniteLengthArrays() throws IOException {
+		JsonElement element = read(bytes(0x9f, 0x01, 0x02, 0xff));
+
+		assertThat(element.getAsJsonArray().size(), is(2));
+		assertThat(element.getAsJsonArray().get(1).getAsInt(), is(2));
+	}
+
+	@Test
+	public void shouldReadEmptyStreamAsNull() throws IOException {
+		assertThat(read(new byte[0]), is((JsonElement) JsonNull.INSTANCE));
+	}
+
+	@Test
+	public void shouldRoundTripDecimalsAsDecimalFractions() throws IOException {
+		JsonPrimitive price = new JsonPrimitive(new BigDecimal("1234567890.123456789012"));
+
+		byte[] bytes = CborCodec.toByteArray(price);
+
+		assertThat(bytes[0] & 0xff, is(0xc4));
+		assertThat(read(bytes).getAsBigDecimal(), is(price.getAsBigDecimal()));
+	}
+
+	@Test(expected = JsonParseException.class)
+	public void shouldRejectLengthsLargerThanTheAllowedSize() throws IOException {
+		read(bytes(0x5a, 0x7f, 0xff, 0xff, 0xff));
+	}
+
+	@Test(expected = JsonParseException.class)
+	public void shouldRejectLengthsThatDoNotFitInLong() throws IOException {
+		read(bytes(0x7b, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff));
+	}
+
+	@Test(expected = JsonParseException.class)
+	public void shouldRejectCountsLargerThanTheAllowedSize() throws IOException {
+		CborCodec.read(new ByteArrayInputStream(bytes(0x9a, 0x00, 0x01, 0x00, 0x00)), 100);
+	}
+
+	@Test(expected = EOFException.class)
+	public void shouldNotAllocateDeclaredLengthBeforeReadingIt() throws IOException {
+		CborCodec.read(new ByteArrayInputStream(bytes(0x5a, 0x00, 0x10, 0x00, 0x00, 0x01)), 2 * 1024 * 1024);
+	}
+
+	@Test(expected = JsonParseException.class)
+	public void shouldRejectDeeplyNestedData() throws IOException {
+		byte[] nested = new byte[CborCodec.MAX_DEPTH + 1];
+		Arrays.fill(nested, (byte) 0x81);
+		read(nested);
+	}
+
+	private JsonElement read(byte[] bytes) throws IOException {
+		return CborCodec.read(new ByteArrayInputStream(bytes));
+	}
+
+	private byte[] bytes(int... values) {
+		byte[] bytes = new byte[values.length];
+		for (int i = 0; i < values.length; i++) {
+			bytes[i] = (byte) values[i];
+		}
+		return bytes;
+	}
+}
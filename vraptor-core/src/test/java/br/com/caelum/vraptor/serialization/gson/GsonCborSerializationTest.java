@@ -0,0 +1,130 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.serialization.gson;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSerializer;
+
+import br.com.caelum.vraptor.core.DefaultReflectionProvider;
+import br.com.caelum.vraptor.interceptor.DefaultTypeNameExtractor;
+import br.com.caelum.vraptor.serialization.Serializee;
+import br.com.caelum.vraptor.util.test.MockInstanceImpl;
+
+public class GsonCborSerializationTest {
+
+	private GsonCborSerialization serialization;
+	private ByteArrayOutputStream stream;
+	private HttpServletResponse response;
+
+	@Before
+	public void setup() throws Exception {
+		stream = new ByteArrayOutputStream();
+		response = mock(HttpServletResponse.class);
+		when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				stream.write(b);
+			}
+
+			@Override
+			public boolean isReady() {
+				return true;
+			}
+
+			@Override
+			public void setWriteListener(WriteListener writeListener) {
+			}
+		});
+
+		List<JsonSerializer<?>> jsonSerializers = new ArrayList<>();
+		List<JsonDeserializer<?>> jsonDeserializers = new ArrayList<>();
+		GsonSerializerBuilder builder = new GsonBuilderWrapper(new MockInstanceImpl<>(jsonSerializers),
+				new MockInstanceImpl<>(jsonDeserializers), new Serializee(new DefaultReflectionProvider()),
+				new DefaultReflectionProvider());
+		serialization = new GsonCborSerialization(response, new DefaultTypeNameExtractor(), builder,
+				new DefaultReflectionProvider());
+	}
+
+	public static class Client {
+		String name;
+		String password;
+		Address address;
+
+		public Client(String name, String password, Address address) {
+			this.name = name;
+			this.password = password;
+			this.address = address;
+		}
+	}
+
+	public static class Address {
+		String street;
+
+		public Address(String street) {
+			this.street = street;
+		}
+	}
+
+	@Test
+	public void shouldAcceptCborFormat() {
+		assertThat(serialization.accepts("cbor"), is(true));
+		assertThat(serialization.accepts("json"), is(false));
+	}
+
+	@Test
+	public void shouldSerializeObjectsWithRootAsCbor() throws IOException {
+		serialization.from(new Client("guilherme", "secret", null)).serialize();
+
+		JsonObject client = decoded().getAsJsonObject("client");
+		assertThat(client.get("name").getAsString(), is("guilherme"));
+		verify(response).setContentType(GsonCborSerialization.CONTENT_TYPE);
+		verify(response).setContentLength(stream.size());
+	}
+
+	@Test
+	public void shouldHonorIncludesAndExcludes() throws IOException {
+		serialization.withoutRoot().from(new Client("guilherme", "secret", new Address("R. Vergueiro")))
+			.exclude("password").include("address").serialize();
+
+		JsonObject client = decoded();
+		assertThat(client.has("password"), is(false));
+		assertThat(client.getAsJsonObject("address").get("street").getAsString(), is("R. Vergueiro"));
+	}
+
+	private JsonObject decoded() throws IOException {
+		return CborCodec.read(new ByteArrayInputStream(stream.toByteArray())).getAsJsonObject();
+	}
+}
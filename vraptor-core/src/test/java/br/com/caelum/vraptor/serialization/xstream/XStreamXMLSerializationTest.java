@@ -28,6 +28,7 @@ import static org.mockito.Mockito.when;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
@@ -49,6 +50,8 @@ import br.com.caelum.vraptor.environment.Environment;
 
 import com.google.common.collect.Lists;
 import com.thoughtworks.xstream.annotations.XStreamAlias;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.io.xml.PrettyPrintWriter;
 
 public class XStreamXMLSerializationTest {
 
@@ -149,6 +152,24 @@ public class XStreamXMLSerializationTest {
 
 	}
 
+	@Test
+	public void shouldStillUseTheDeprecatedWriterWhenOverridden() {
+		final StringWriter custom = new StringWriter();
+		HttpServletResponse response = mock(HttpServletResponse.class);
+		XStreamXMLSerialization serialization = new XStreamXMLSerialization(response,
+				cleanInstance(new CalendarConverter()), environment) {
+			@Override
+			@SuppressWarnings("deprecation")
+			protected HierarchicalStreamWriter getWriter() {
+				return new PrettyPrintWriter(custom);
+			}
+		};
+
+		serialization.from(new Client("guilherme silveira")).serialize();
+
+		assertThat(custom.toString(), is("<client>\n  <name>guilherme silveira</name>\n</client>"));
+	}
+
 	@Test
 	public void shouldSerializeGenericClass() {
 		String expectedResult = "<genericWrapper><entityList class=\"list\"><client><name>washington botelho</name></client><client><name>washington botelho</name></client></entityList><total>2</total></genericWrapper>";
@@ -0,0 +1,59 @@
+/***
+ * Copyright (c) 2009 Caelum - www.caelum.com.br/opensource All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package br.com.caelum.vraptor.util;
+
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DirectoryWatcherTest {
+
+	@Rule
+	public TemporaryFolder tmpdir = new TemporaryFolder();
+
+	@Test
+	public void shouldKeepWatchingWhenTheCallbackFails() throws Exception {
+		final CountDownLatch failed = new CountDownLatch(1);
+		final CountDownLatch notified = new CountDownLatch(1);
+		final AtomicInteger calls = new AtomicInteger();
+		Path root = tmpdir.getRoot().toPath();
+
+		try (DirectoryWatcher watcher = DirectoryWatcher.watchTree(root, "test-watcher", new Runnable() {
+			@Override
+			public void run() {
+				if (calls.getAndIncrement() == 0) {
+					failed.countDown();
+					throw new IllegalStateException("failing on purpose");
+				}
+				notified.countDown();
+			}
+		})) {
+			Files.createFile(root.resolve("first.css"));
+			assertTrue(failed.await(10, TimeUnit.SECONDS));
+
+			Files.createFile(root.resolve("second.css"));
+			assertTrue(notified.await(10, TimeUnit.SECONDS));
+		}
+	}
+}
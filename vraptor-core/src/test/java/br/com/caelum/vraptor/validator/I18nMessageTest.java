@@ -2,10 +2,14 @@ package br.com.caelum.vraptor.validator;
 
 import static br.com.caelum.vraptor.validator.Severity.INFO;
 import static br.com.caelum.vraptor.validator.Severity.WARN;
+import static org.hamcrest.Matchers.arrayContaining;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertThat;
 
+import java.util.ListResourceBundle;
+import java.util.ResourceBundle;
+
 import org.junit.Test;
 
 public class I18nMessageTest {
@@ -29,4 +33,48 @@ public class I18nMessageTest {
 		Message m6 = new I18nMessage(new I18nParam("bar"), "not.equal", WARN, "other");
 		assertThat("shouldn't be equals, severity is different", m5, not(equalTo(m6)));
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void shouldFormatMessageWithParameters() {
+		I18nMessage message = new I18nMessage("category", "with.parameters", "name", 3);
+		message.setBundle(bundle());
+
+		assertThat(message.getMessage(), equalTo("name must have 3 characters"));
+		assertThat(message.getMessage(), equalTo("name must have 3 characters"));
+	}
+
+	@Test
+	public void shouldResolveI18nParametersWithoutChangingThem() {
+		Object[] parameters = { new I18nParam("field.name"), 3 };
+		I18nMessage message = new I18nMessage("category", "with.parameters", parameters);
+		message.setBundle(bundle());
+
+		assertThat(message.getMessage(), equalTo("Name must have 3 characters"));
+		assertThat(parameters, arrayContaining((Object) new I18nParam("field.name"), 3));
+	}
+
+	@Test
+	public void shouldKeepFormatQuotingRules() {
+		I18nMessage plain = new I18nMessage("category", "plain");
+		plain.setBundle(bundle());
+		I18nMessage quoted = new I18nMessage("category", "quoted", "name");
+		quoted.setBundle(bundle());
+
+		assertThat(plain.getMessage(), equalTo("Nothing to format"));
+		assertThat(quoted.getMessage(), equalTo("name can't be {0}"));
+	}
+
+	private ResourceBundle bundle() {
+		return new ListResourceBundle() {
+			@Override
+			protected Object[][] getContents() {
+				return new Object[][] {
+					{ "with.parameters", "{0} must have {1} characters" },
+					{ "field.name", "Name" },
+					{ "plain", "Nothing to format" },
+					{ "quoted", "{0} can''t be '{0}'" },
+				};
+			}
+		};
+	}
+}
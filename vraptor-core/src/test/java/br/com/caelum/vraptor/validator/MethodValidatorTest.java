@@ -19,8 +19,11 @@ import static br.com.caelum.vraptor.controller.DefaultControllerMethod.instanceF
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.hasSize;
 import static org.junit.Assert.assertThat;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import java.lang.reflect.Method;
@@ -35,6 +38,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.MockitoAnnotations;
 
+import br.com.caelum.vraptor.cache.DefaultCacheStore;
 import br.com.caelum.vraptor.controller.ControllerMethod;
 import br.com.caelum.vraptor.controller.DefaultControllerInstance;
 import br.com.caelum.vraptor.core.MethodInfo;
@@ -118,8 +122,26 @@ public class MethodValidatorTest {
 		assertThat(validator.getErrors(), containsInAnyOrder(expected));
 	}
 
+	@Test
+	public void shouldAskBeanValidationForConstraintsOnlyOncePerMethod() {
+		javax.validation.Validator bvalidator = mock(javax.validation.Validator.class,
+				delegatesTo(validatorFactory.getValidator()));
+		MethodValidator methodValidator = getMethodValidator(bvalidator);
+
+		methodValidator.validate(new MethodReady(withoutConstraint), instance, methodInfo, validator);
+		methodValidator.validate(new MethodReady(withoutConstraint), instance, methodInfo, validator);
+
+		verify(bvalidator, times(1)).getConstraintsForClass(MyController.class);
+		verify(bvalidator, never()).forExecutables();
+	}
+
 	private MethodValidator getMethodValidator() {
-		return new MethodValidator(new MockInstanceImpl<>(new Locale("pt", "br")), interpolator, validatorFactory.getValidator());
+		return getMethodValidator(validatorFactory.getValidator());
+	}
+
+	private MethodValidator getMethodValidator(javax.validation.Validator bvalidator) {
+		return new MethodValidator(new MockInstanceImpl<>(new Locale("pt", "br")), interpolator, bvalidator,
+				new DefaultCacheStore<ControllerMethod, Boolean>());
 	}
 	
 	public class Example {
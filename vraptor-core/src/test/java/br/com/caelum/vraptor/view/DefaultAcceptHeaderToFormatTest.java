@@ -111,4 +111,30 @@ public class DefaultAcceptHeaderToFormatTest {
 		Assert.assertEquals("xml", mimeTypeToFormat.getFormat("application/json; q=0.1, application/xml; q=0.7, */*"));
 	}
 
+	@Test
+	public void testQualifierAmongOtherParameters() {
+		Assert.assertEquals("xml", mimeTypeToFormat.getFormat("application/json;q=0.2, application/xml;charset=utf-8;q=0.9"));
+	}
+
+	@Test
+	public void testMediaTypesAreCaseInsensitive() {
+		Assert.assertEquals("json", mimeTypeToFormat.getFormat("Application/JSON"));
+	}
+
+	@Test
+	public void testRegisteredTypeWinsOverUnknownTypesWithSameQualifier() {
+		Assert.assertEquals("json", mimeTypeToFormat.getFormat("image/webp, application/json"));
+	}
+
+	@Test
+	public void testReturnsHighestQualifiedUnknownType() {
+		Assert.assertEquals("image/png", mimeTypeToFormat.getFormat(" image/webp;q=0.5 , image/png "));
+	}
+
+	@Test
+	public void testRealBrowserHeaders() {
+		Assert.assertEquals("xml", mimeTypeToFormat.getFormat("application/xml,image/png,*/*;q=0.5"));
+		Assert.assertEquals("json", mimeTypeToFormat.getFormat("application/json, text/plain, */*"));
+		Assert.assertEquals("xml", mimeTypeToFormat.getFormat("text/xml;q=0.9, image/avif, image/webp, */*;q=0.8"));
+	}
 }
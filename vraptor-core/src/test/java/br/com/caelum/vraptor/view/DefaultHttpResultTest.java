@@ -17,12 +17,16 @@
 package br.com.caelum.vraptor.view;
 
 import static javax.servlet.http.HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.only;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -32,7 +36,10 @@ import java.io.InputStream;
 import java.io.PrintWriter;
 import java.io.Reader;
 import java.io.StringReader;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.junit.Before;
@@ -41,11 +48,17 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import br.com.caelum.vraptor.Controller;
+import br.com.caelum.vraptor.cache.CacheStoreFactory;
+import br.com.caelum.vraptor.http.cache.ValidatorCache;
+
+import com.google.common.base.Supplier;
 
 public class DefaultHttpResultTest {
 
 	private @Mock HttpServletResponse response;
 	private @Mock Status status;
+	private @Mock HttpServletRequest request;
+	private ValidatorCache validators;
 
 	private HttpResult httpResult;
 
@@ -53,6 +66,9 @@ public class DefaultHttpResultTest {
 	public void setUp() throws Exception {
 		MockitoAnnotations.initMocks(this);
 		httpResult = new DefaultHttpResult(response, status);
+		validators = new ValidatorCache(new CacheStoreFactory().<Object, String>createCacheWrapper(100));
+		when(request.getMethod()).thenReturn("GET");
+		when(request.getRequestURI()).thenReturn("/musics");
 	}
 
 	@Controller
@@ -161,4 +177,134 @@ public class DefaultHttpResultTest {
 
 		}
 	}
+
+	@Test
+	public void shouldAnswerNotModifiedWhenEntityTagMatches() {
+		when(request.getHeader("If-None-Match")).thenReturn("\"v1\"");
+
+		assertThat(conditionalResult().ifNoneMatch(constant("v1")), is(true));
+		verify(response).setHeader("ETag", "\"v1\"");
+		verify(status).notModified();
+	}
+
+	@Test
+	public void shouldNotAnswerNotModifiedWhenEntityTagDiffers() {
+		when(request.getHeader("If-None-Match")).thenReturn("\"v0\"");
+
+		assertThat(conditionalResult().ifNoneMatch(constant("v1")), is(false));
+		verify(response).setHeader("ETag", "\"v1\"");
+		verify(status, never()).notModified();
+	}
+
+	@Test
+	public void shouldNotAnswerNotModifiedForUnsafeMethods() {
+		when(request.getMethod()).thenReturn("PUT");
+		when(request.getHeader("If-None-Match")).thenReturn("\"v1\"");
+
+		assertThat(conditionalResult().ifNoneMatch(constant("v1")), is(false));
+	}
+
+	@Test
+	public void shouldNotKeepValidatorsWithoutKey() {
+		final AtomicInteger calls = new AtomicInteger();
+		Supplier<String> etag = new Supplier<String>() {
+			@Override
+			public String get() {
+				return "v" + calls.incrementAndGet();
+			}
+		};
+
+		conditionalResult().ifNoneMatch(etag);
+		conditionalResult().ifNoneMatch(etag);
+
+		assertThat(calls.get(), is(2));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void shouldRejectNullEntityTags() {
+		conditionalResult().ifNoneMatch("musics", constant(null));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectWeakEntityTags() {
+		conditionalResult().ifNoneMatch(constant("W/\"v1\""));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void shouldRejectNullLastModifiedDates() {
+		conditionalResult().ifModifiedSince(new Supplier<Date>() {
+			@Override
+			public Date get() {
+				return null;
+			}
+		});
+	}
+
+	@Test
+	public void shouldKeepValidatorsBetweenRequests() {
+		final AtomicInteger calls = new AtomicInteger();
+		Supplier<String> etag = new Supplier<String>() {
+			@Override
+			public String get() {
+				return "v" + calls.incrementAndGet();
+			}
+		};
+
+		conditionalResult().ifNoneMatch("musics", etag);
+		conditionalResult().ifNoneMatch("musics", etag);
+
+		assertThat(calls.get(), is(1));
+		verify(response, times(2)).setHeader("ETag", "\"v1\"");
+
+		validators.invalidate("musics");
+		conditionalResult().ifNoneMatch("musics", etag);
+		verify(response).setHeader("ETag", "\"v2\"");
+	}
+
+	@Test
+	public void shouldAnswerNotModifiedWhenNotModifiedSince() {
+		when(request.getDateHeader("If-Modified-Since")).thenReturn(10000L);
+
+		assertThat(conditionalResult().ifModifiedSince(date(10500L)), is(true));
+		verify(response).setDateHeader("Last-Modified", 10000L);
+		verify(status).notModified();
+	}
+
+	@Test
+	public void shouldNotAnswerNotModifiedWhenModifiedSince() {
+		when(request.getDateHeader("If-Modified-Since")).thenReturn(10000L);
+
+		assertThat(conditionalResult().ifModifiedSince(date(11000L)), is(false));
+		verify(status, never()).notModified();
+	}
+
+	@Test
+	public void shouldIgnoreModifiedSinceWhenEntityTagIsGiven() {
+		when(request.getHeader("If-None-Match")).thenReturn("\"v0\"");
+		when(request.getDateHeader("If-Modified-Since")).thenReturn(10000L);
+
+		assertThat(conditionalResult().ifModifiedSince(date(10000L)), is(false));
+	}
+
+	private HttpResult conditionalResult() {
+		return new DefaultHttpResult(request, response, status, validators);
+	}
+
+	private static Supplier<String> constant(final String value) {
+		return new Supplier<String>() {
+			@Override
+			public String get() {
+				return value;
+			}
+		};
+	}
+
+	private static Supplier<Date> date(final long time) {
+		return new Supplier<Date>() {
+			@Override
+			public Date get() {
+				return new Date(time);
+			}
+		};
+	}
 }
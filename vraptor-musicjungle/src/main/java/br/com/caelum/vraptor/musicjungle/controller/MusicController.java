@@ -45,6 +45,7 @@ import br.com.caelum.vraptor.musicjungle.model.Music;
 import br.com.caelum.vraptor.musicjungle.model.User;
 import br.com.caelum.vraptor.observer.download.Download;
 import br.com.caelum.vraptor.observer.download.FileDownload;
+import br.com.caelum.vraptor.observer.upload.StreamingUpload;
 import br.com.caelum.vraptor.observer.upload.UploadedFile;
 import br.com.caelum.vraptor.validator.Validator;
 
@@ -111,10 +112,12 @@ public class MusicController {
 	 * We use POST HTTP verb when we want to create some resource.
 	 *
 	 * The <code>UploadedFile</code> is automatically handled
-	 * by VRaptor's <code>MultipartInterceptor</code>.
+	 * by VRaptor's <code>MultipartInterceptor</code>. With <code>@StreamingUpload</code>
+	 * the file is read straight from the request, so it is the last field of the form.
 	 */
 	@Path("/musics")
 	@Post
+	@StreamingUpload
 	public void add(final @NotNull @Valid Music music, UploadedFile file) {
 		validator.onErrorForwardTo(UsersController.class).home();
 